@@ -0,0 +1,83 @@
+package com.sefa.benchmarks;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Compare a JMH JSON result file (-rf json) with the checked in baseline
+ * Exits with 1 when any benchmark got slower than the allowed percentage. Only average time
+ * results are compared, missing or new benchmarks are reported but do not fail the check.
+ *
+ * Usage: java -cp target/benchmarks.jar com.sefa.benchmarks.BaselineCheck baseline.json results.json [max_regression_%]
+ */
+public final class BaselineCheck {
+
+    private static final double DEFAULT_MAX_REGRESSION_PERCENT = 15.0;
+
+    private BaselineCheck() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: BaselineCheck <baseline.json> <results.json> [max_regression_%]");
+            System.exit(2);
+        }
+        double maxRegressionPercent = args.length > 2 ? Double.parseDouble(args[2]) : DEFAULT_MAX_REGRESSION_PERCENT;
+
+        Map<String, Double> baseline = readScores(new File(args[0]));
+        Map<String, Double> results = readScores(new File(args[1]));
+
+        int regressions = 0;
+        for (Map.Entry<String, Double> result : results.entrySet()) {
+            Double baselineScore = baseline.get(result.getKey());
+            if (baselineScore == null) {
+                System.out.printf("NEW         %s%n", result.getKey());
+                continue;
+            }
+
+            double changePercent = (result.getValue() / baselineScore - 1) * 100;
+            boolean regressed = changePercent > maxRegressionPercent;
+            regressions += regressed ? 1 : 0;
+            System.out.printf("%-11s %s %.3f -> %.3f (%+.1f%%)%n", regressed ? "REGRESSION" : "OK",
+                result.getKey(), baselineScore, result.getValue(), changePercent);
+        }
+        for (String name : baseline.keySet()) {
+            if (!results.containsKey(name)) {
+                System.out.printf("MISSING     %s%n", name);
+            }
+        }
+
+        System.out.printf("%d regression(s) above %.1f%%%n", regressions, maxRegressionPercent);
+        System.exit(regressions > 0 ? 1 : 0);
+    }
+
+    /**
+     * Average time scores keyed by benchmark name and parameters
+     */
+    static Map<String, Double> readScores(File jmhJson) throws IOException {
+        Map<String, Double> scores = new LinkedHashMap<>();
+        for (JsonNode run : new ObjectMapper().readTree(jmhJson)) {
+            if (!"avgt".equals(run.path("mode").asText())) {
+                continue;
+            }
+
+            StringBuilder key = new StringBuilder(run.path("benchmark").asText());
+            Iterator<Map.Entry<String, JsonNode>> params = run.path("params").fields();
+            while (params.hasNext()) {
+                Map.Entry<String, JsonNode> param = params.next();
+                key.append(' ').append(param.getKey()).append('=').append(param.getValue().asText());
+            }
+
+            JsonNode metric = run.path("primaryMetric");
+            key.append(" [").append(metric.path("scoreUnit").asText()).append(']');
+            scores.put(key.toString(), metric.path("score").asDouble());
+        }
+        return scores;
+    }
+}
@@ -0,0 +1,76 @@
+package com.sefa.benchmarks;
+
+import com.sefa.models.Price;
+import com.sefa.models.Purchase;
+import com.sefa.utils.DateUtils;
+import com.sefa.utils.SyntheticDataGenerator;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Deterministic synthetic inputs for the benchmarks, so they run offline and without real exports
+ * Files come from SyntheticDataGenerator, purchases are generated directly.
+ */
+public final class SyntheticData {
+
+    public static final LocalDate FIRST_DAY = LocalDate.of(2015, 1, 1);
+    public static final LocalDate LAST_DAY = LocalDate.of(2025, 12, 31);
+
+    private SyntheticData() {
+    }
+
+    /**
+     * Write historic_data under root with adbe prices from FIRST_DAY to LAST_DAY
+     */
+    public static void writeHistoricData(Path root, long seed) throws IOException {
+        generator(seed).writeHistoricData(root);
+    }
+
+    /**
+     * Make ShareDataUtils read historic_data from root instead of the working directory
+     */
+    public static void useHistoricData(Path root) {
+        System.setProperty("user.dir", root.toAbsolutePath().toString());
+    }
+
+    /**
+     * Write an adbe BenefitHistory workbook with about the given number of data rows
+     */
+    public static Path writeBenefitHistory(Path file, int rows, long seed) throws IOException {
+        generator(seed).writeBenefitHistory(file, rows);
+        return file;
+    }
+
+    private static SyntheticDataGenerator generator(long seed) {
+        return new SyntheticDataGenerator(List.of("adbe"), FIRST_DAY, LAST_DAY, seed);
+    }
+
+    /**
+     * Random ADBE purchases between 2016 and 2024
+     */
+    public static List<Purchase> randomPurchases(int count, long seed) {
+        Random random = new Random(seed);
+        long start = DateUtils.parseYyyyMmDd("2016-01-04").getTimeInMillis();
+        List<Purchase> purchases = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            long time = start + random.nextInt(3400) * DateUtils.ONE_DAY_IN_MS;
+            purchases.add(new Purchase(DateUtils.parseYyyyMmDd(DateUtils.displayTime(time)),
+                new Price(100 + random.nextInt(400), "USD"), 1 + random.nextInt(20), "adbe"));
+        }
+        return purchases;
+    }
+
+    /**
+     * Drop everything printed to System.out, keeps the progress logs of the code under test out of the results
+     */
+    public static void discardStdout() {
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    }
+}
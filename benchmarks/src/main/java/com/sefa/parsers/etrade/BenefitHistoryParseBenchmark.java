@@ -0,0 +1,58 @@
+package com.sefa.parsers.etrade;
+
+import com.sefa.benchmarks.SyntheticData;
+import com.sefa.models.PurchaseTable;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * EtradeBenefitHistoryParser.parseTable on generated workbooks, with the workbook and the streaming reader
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Benchmark)
+public class BenefitHistoryParseBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    public int rows;
+
+    @Param({"false", "true"})
+    public boolean streaming;
+
+    private String workbookPath;
+
+    @Setup
+    public void setUp() throws IOException {
+        Path root = Files.createTempDirectory("sefa-workbook");
+        // Vests without a market value are backfilled from the price history
+        SyntheticData.writeHistoricData(root, 42);
+        SyntheticData.useHistoricData(root);
+        workbookPath = SyntheticData.writeBenefitHistory(root.resolve("BenefitHistory.xlsx"), rows, 42).toString();
+
+        SyntheticData.discardStdout();
+        EtradeBenefitHistoryParser.setDebug(false);
+        EtradeBenefitHistoryParser.setStreaming(streaming);
+    }
+
+    @Benchmark
+    public PurchaseTable parse() {
+        return EtradeBenefitHistoryParser.parseTable(workbookPath);
+    }
+}
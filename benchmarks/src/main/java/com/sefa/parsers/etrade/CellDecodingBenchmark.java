@@ -0,0 +1,98 @@
+package com.sefa.parsers.etrade;
+
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Regex/String cell decoding (the previous parser path) against CellDecoder
+ * Each invocation decodes a batch of CELLS cells, run with -prof gc to compare allocation rates
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CellDecodingBenchmark {
+
+    private static final int CELLS = 1024;
+
+    private String[] amountTexts;
+    private double[] numericCells;
+    private double[] dateSerials;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        amountTexts = new String[CELLS];
+        numericCells = new double[CELLS];
+        dateSerials = new double[CELLS];
+
+        for (int i = 0; i < CELLS; i++) {
+            int dollars = random.nextInt(20_000);
+            int cents = random.nextInt(100);
+            amountTexts[i] = String.format("$%,d.%02d", dollars, cents);
+            numericCells[i] = random.nextInt(500) + random.nextInt(10_000) / 10_000.0;
+            // Dates between 2015 and 2025
+            dateSerials[i] = 42005 + random.nextInt(3650);
+        }
+    }
+
+    @Benchmark
+    public void amountTextRegex(Blackhole blackhole) {
+        for (String text : amountTexts) {
+            String cleaned = text.replaceAll("[^0-9.]", "");
+            blackhole.consume(cleaned.isEmpty() ? 0.0 : Double.parseDouble(cleaned));
+        }
+    }
+
+    @Benchmark
+    public void amountTextScanner(Blackhole blackhole) {
+        for (String text : amountTexts) {
+            blackhole.consume(CellDecoder.parseAmount(text));
+        }
+    }
+
+    @Benchmark
+    public void numericCellViaString(Blackhole blackhole) {
+        for (double number : numericCells) {
+            // getCellStringValue followed by the regex cleaning
+            String cleaned = String.valueOf((long) number).replaceAll("[^0-9.]", "");
+            blackhole.consume(Double.parseDouble(cleaned));
+        }
+    }
+
+    @Benchmark
+    public void numericCellDirect(Blackhole blackhole) {
+        for (double number : numericCells) {
+            blackhole.consume(number);
+        }
+    }
+
+    @Benchmark
+    public void dateCellToString(Blackhole blackhole) {
+        for (double serial : dateSerials) {
+            blackhole.consume(DateUtil.getJavaDate(serial, false).toString());
+        }
+    }
+
+    @Benchmark
+    public void dateCellToEpoch(Blackhole blackhole) {
+        for (double serial : dateSerials) {
+            blackhole.consume(CellDecoder.excelDateToEpochMs(serial));
+        }
+    }
+}
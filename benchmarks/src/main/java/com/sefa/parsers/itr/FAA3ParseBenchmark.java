@@ -0,0 +1,61 @@
+package com.sefa.parsers.itr;
+
+import com.sefa.benchmarks.SyntheticData;
+import com.sefa.models.PurchaseTable;
+import com.sefa.utils.ShareDataUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End to end FAA3Parser.parse, from the purchase table the parser returns to all_fa_entries.csv
+ * Price series are loaded in setup, each invocation starts with a fresh query cache like a CLI run
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FAA3ParseBenchmark {
+
+    @Param({"1000", "10000"})
+    public int purchaseCount;
+
+    @Param({"1", "4"})
+    public int parallelism;
+
+    private PurchaseTable purchases;
+    private String outputFolder;
+
+    @Setup
+    public void setUp() throws IOException {
+        Path root = Files.createTempDirectory("sefa-faa3");
+        SyntheticData.writeHistoricData(root, 42);
+        SyntheticData.useHistoricData(root);
+        SyntheticData.discardStdout();
+
+        purchases = PurchaseTable.of(SyntheticData.randomPurchases(purchaseCount, 42));
+        outputFolder = root.resolve("output").toString();
+        FAA3Parser.setParallelism(parallelism);
+        ShareDataUtils.preload("adbe");
+    }
+
+    @Benchmark
+    public void parse() throws IOException {
+        FAA3Parser.parse("calendar", purchases, -1, outputFolder);
+    }
+}
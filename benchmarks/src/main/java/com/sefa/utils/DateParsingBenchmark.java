@@ -0,0 +1,92 @@
+package com.sefa.utils;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * DateUtils parse functions, DATES strings per invocation drawn from ten years of days
+ * Dates repeat like they do in real exports, so the memoized steady state is what gets measured
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DateParsingBenchmark {
+
+    private static final int DATES = 1024;
+
+    private String[] namedMon;
+    private String[] mmDdYyyy;
+    private String[] ddMmYyyy;
+    private String[] yyyyMmDd;
+
+    @Setup
+    public void setUp() {
+        DateTimeFormatter namedMonFormat = DateTimeFormatter.ofPattern("dd-MMM-yyyy", Locale.US);
+        Random random = new Random(42);
+        namedMon = new String[DATES];
+        mmDdYyyy = new String[DATES];
+        ddMmYyyy = new String[DATES];
+        yyyyMmDd = new String[DATES];
+
+        for (int i = 0; i < DATES; i++) {
+            LocalDate date = LocalDate.of(2015, 1, 1).plusDays(random.nextInt(3650));
+            namedMon[i] = date.format(namedMonFormat).toUpperCase(Locale.US);
+            mmDdYyyy[i] = date.format(DateTimeFormatter.ofPattern("MM/dd/yyyy"));
+            ddMmYyyy[i] = date.format(DateTimeFormatter.ofPattern("dd-MM-yyyy"));
+            yyyyMmDd[i] = date.toString();
+        }
+    }
+
+    @Benchmark
+    public void parseNamedMon(Blackhole blackhole) {
+        for (String text : namedMon) {
+            blackhole.consume(DateUtils.parseNamedMon(text));
+        }
+    }
+
+    @Benchmark
+    public void parseMmDd(Blackhole blackhole) {
+        for (String text : mmDdYyyy) {
+            blackhole.consume(DateUtils.parseMmDd(text));
+        }
+    }
+
+    @Benchmark
+    public void parseYyyyMmDd(Blackhole blackhole) {
+        for (String text : yyyyMmDd) {
+            blackhole.consume(DateUtils.parseYyyyMmDd(text));
+        }
+    }
+
+    @Benchmark
+    public void parseDateFromAdobeFormat(Blackhole blackhole) {
+        for (String text : mmDdYyyy) {
+            blackhole.consume(DateUtils.parseDateFromAdobeFormat(text));
+        }
+    }
+
+    @Benchmark
+    public void parseDateFromUsdInrFormat(Blackhole blackhole) {
+        for (String text : ddMmYyyy) {
+            blackhole.consume(DateUtils.parseDateFromUsdInrFormat(text));
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.sefa.utils;
+
+import com.sefa.benchmarks.SyntheticData;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ShareDataUtils lookups against synthetic price history, QUERIES lookups per invocation
+ * Series are loaded in setup, so this measures the lookups alone
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PriceLookupBenchmark {
+
+    private static final int QUERIES = 1024;
+    private static final String TICKER = "adbe";
+
+    private long[] times;
+    private long[] windowStarts;
+    private long[] windowEnds;
+
+    @Setup
+    public void setUp() throws IOException {
+        Path root = Files.createTempDirectory("sefa-prices");
+        SyntheticData.writeHistoricData(root, 42);
+        SyntheticData.useHistoricData(root);
+        SyntheticData.discardStdout();
+
+        Random random = new Random(42);
+        long firstDay = DateUtils.parseYyyyMmDd("2016-01-01").getTimeInMillis();
+        times = new long[QUERIES];
+        windowStarts = new long[QUERIES];
+        windowEnds = new long[QUERIES];
+        for (int i = 0; i < QUERIES; i++) {
+            times[i] = firstDay + random.nextInt(9 * 365) * DateUtils.ONE_DAY_IN_MS;
+            windowStarts[i] = times[i];
+            windowEnds[i] = times[i] + (7 + random.nextInt(365)) * DateUtils.ONE_DAY_IN_MS;
+        }
+        ShareDataUtils.preload(TICKER);
+    }
+
+    @Benchmark
+    public void getFmv(Blackhole blackhole) {
+        for (long time : times) {
+            blackhole.consume(ShareDataUtils.getFmv(TICKER, time));
+        }
+    }
+
+    @Benchmark
+    public void getUsdInrRate(Blackhole blackhole) {
+        for (long time : times) {
+            blackhole.consume(ShareDataUtils.getUsdInrRate(time));
+        }
+    }
+
+    @Benchmark
+    public void getClosingPrice(Blackhole blackhole) {
+        for (long time : times) {
+            blackhole.consume(ShareDataUtils.getClosingPrice(TICKER, time));
+        }
+    }
+
+    @Benchmark
+    public void getPeakPriceInInr(Blackhole blackhole) {
+        for (int i = 0; i < QUERIES; i++) {
+            blackhole.consume(ShareDataUtils.getPeakPriceInInr(TICKER, windowStarts[i], windowEnds[i]));
+        }
+    }
+}
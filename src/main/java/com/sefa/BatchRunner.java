@@ -0,0 +1,288 @@
+package com.sefa;
+
+import com.sefa.models.PurchaseTable;
+import com.sefa.parsers.etrade.EtradeBenefitHistoryParser;
+import com.sefa.utils.FileUtils;
+import com.sefa.utils.Logger;
+import com.sefa.utils.PriceQueryCache;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Processes many BenefitHistory files in one JVM, each into its own output folder
+ * Files run on a bounded worker pool and share the loaded price data, the ticker mapping and one
+ * price query cache. A failing file is reported in the summary and does not stop the others.
+ * The log of each file is printed in one piece when the file is done.
+ */
+public class BatchRunner {
+
+    static final String SUMMARY_FILE_NAME = "batch_summary.csv";
+
+    /**
+     * Computes and writes the FA schedules of one file
+     */
+    public interface PurchaseProcessor {
+        void process(PurchaseTable purchases, String outputFolder, PriceQueryCache priceQueryCache) throws IOException;
+    }
+
+    /**
+     * An input file and the name of its output folder
+     */
+    public static class BatchInput {
+        final Path inputFile;
+        final String outputName;
+
+        public BatchInput(Path inputFile, String outputName) {
+            this.inputFile = inputFile;
+            this.outputName = outputName;
+        }
+
+        public Path getInputFile() {
+            return inputFile;
+        }
+
+        public String getOutputName() {
+            return outputName;
+        }
+    }
+
+    /**
+     * Outcome and timings of one file
+     */
+    public static class FileResult {
+        final BatchInput input;
+        final String outputFolder;
+        final boolean succeeded;
+        final int purchaseCount;
+        final long parseTimeInMs;
+        final long faTimeInMs;
+        final long totalTimeInMs;
+        final String error;
+
+        FileResult(BatchInput input, String outputFolder, boolean succeeded, int purchaseCount,
+                   long parseTimeInMs, long faTimeInMs, long totalTimeInMs, String error) {
+            this.input = input;
+            this.outputFolder = outputFolder;
+            this.succeeded = succeeded;
+            this.purchaseCount = purchaseCount;
+            this.parseTimeInMs = parseTimeInMs;
+            this.faTimeInMs = faTimeInMs;
+            this.totalTimeInMs = totalTimeInMs;
+            this.error = error;
+        }
+
+        public BatchInput getInput() {
+            return input;
+        }
+
+        public boolean isSucceeded() {
+            return succeeded;
+        }
+
+        public int getPurchaseCount() {
+            return purchaseCount;
+        }
+
+        public String getError() {
+            return error;
+        }
+    }
+
+    private final int workers;
+    private final PurchaseProcessor processor;
+
+    public BatchRunner(int workers, PurchaseProcessor processor) {
+        this.workers = Math.max(workers, 1);
+        this.processor = processor;
+    }
+
+    /**
+     * Inputs of a batch, either every .xlsx/.xls file of a directory (sorted by name) or a manifest
+     * Manifest lines are "input file[,output folder name]", relative paths are resolved against the
+     * manifest's directory, blank lines and lines starting with # are skipped.
+     * The output folder name defaults to the input file name without its extension.
+     */
+    public static List<BatchInput> listInputs(String directoryOrManifest) throws IOException {
+        Path source = Paths.get(directoryOrManifest).toAbsolutePath();
+        List<BatchInput> inputs = new ArrayList<>();
+
+        if (Files.isDirectory(source)) {
+            List<Path> files;
+            try (Stream<Path> entries = Files.list(source)) {
+                files = entries
+                    .filter(path -> Files.isRegularFile(path) && isWorkbook(path.getFileName().toString()))
+                    .sorted()
+                    .collect(Collectors.toList());
+            }
+            for (Path file : files) {
+                inputs.add(new BatchInput(file, baseName(file)));
+            }
+        } else if (Files.isRegularFile(source)) {
+            for (String line : Files.readAllLines(source)) {
+                String trimmed = line.trim();
+                if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+                    continue;
+                }
+                String[] columns = trimmed.split(",", 2);
+                Path file = source.getParent().resolve(columns[0].trim()).normalize();
+                String outputName = columns.length > 1 && !columns[1].trim().isEmpty()
+                    ? columns[1].trim()
+                    : baseName(file);
+                inputs.add(new BatchInput(file, outputName));
+            }
+        } else {
+            throw new IllegalArgumentException("Batch input " + directoryOrManifest + " is neither a directory nor a manifest file");
+        }
+
+        if (inputs.isEmpty()) {
+            throw new IllegalArgumentException("No input files found in " + directoryOrManifest);
+        }
+
+        Set<String> outputNames = new HashSet<>();
+        for (BatchInput input : inputs) {
+            if (!outputNames.add(input.outputName)) {
+                throw new IllegalArgumentException("Output folder " + input.outputName + " is used by more than one input file");
+            }
+        }
+        return inputs;
+    }
+
+    private static boolean isWorkbook(String fileName) {
+        String lowerCase = fileName.toLowerCase(Locale.ROOT);
+        return (lowerCase.endsWith(".xlsx") || lowerCase.endsWith(".xls")) && !fileName.startsWith("~$");
+    }
+
+    private static String baseName(Path file) {
+        String fileName = file.getFileName().toString();
+        int extension = fileName.lastIndexOf('.');
+        return extension > 0 ? fileName.substring(0, extension) : fileName;
+    }
+
+    /**
+     * Process every input into <output root>/<output name> and write the summary report
+     * Results are returned (and logged) in input order
+     */
+    public List<FileResult> run(List<BatchInput> inputs, String outputRoot) throws IOException {
+        FileUtils.createDirectory(outputRoot);
+        PriceQueryCache priceQueryCache = new PriceQueryCache();
+        long startTime = System.nanoTime();
+
+        ExecutorService pool = Executors.newFixedThreadPool(Math.min(workers, inputs.size()));
+        List<FileResult> results = new ArrayList<>();
+        try {
+            List<Future<FileResult>> futures = new ArrayList<>();
+            for (BatchInput input : inputs) {
+                futures.add(pool.submit(() -> processFile(input, outputRoot, priceQueryCache)));
+            }
+            for (Future<FileResult> future : futures) {
+                results.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while processing batch", e);
+        } catch (ExecutionException e) {
+            // processFile reports failures in its result, this is a bug
+            throw new RuntimeException("Batch worker failed", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+
+        long totalTimeInMs = elapsedMs(startTime);
+        priceQueryCache.logStats();
+        writeSummary(results, outputRoot);
+
+        long failed = results.stream().filter(result -> !result.succeeded).count();
+        Logger.log("Batch completed: %d files, %d succeeded, %d failed in %d ms (%d workers)",
+            results.size(), results.size() - failed, failed, totalTimeInMs, Math.min(workers, inputs.size()));
+        return results;
+    }
+
+    private FileResult processFile(BatchInput input, String outputRoot, PriceQueryCache priceQueryCache) {
+        String outputFolder = Paths.get(outputRoot, input.outputName).toString();
+        long startTime = System.nanoTime();
+        long parseTimeInMs = 0;
+        int purchaseCount = 0;
+        FileResult result;
+
+        Logger.startCapture();
+        try {
+            Logger.log("Processing %s into %s", input.inputFile, outputFolder);
+            PurchaseTable purchases = EtradeBenefitHistoryParser.parseTable(input.inputFile.toString());
+            parseTimeInMs = elapsedMs(startTime);
+            purchaseCount = purchases.size();
+
+            if (purchases.isEmpty()) {
+                throw new IllegalArgumentException("No purchases found in the input file");
+            }
+
+            long faStartTime = System.nanoTime();
+            processor.process(purchases, outputFolder, priceQueryCache);
+            result = new FileResult(input, outputFolder, true, purchaseCount,
+                parseTimeInMs, elapsedMs(faStartTime), elapsedMs(startTime), "");
+
+        } catch (Exception e) {
+            String error = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+            if (e.getCause() != null && e.getCause().getMessage() != null) {
+                error += ": " + e.getCause().getMessage();
+            }
+            Logger.warn("Failed to process " + input.inputFile + ": " + error);
+            result = new FileResult(input, outputFolder, false, purchaseCount,
+                parseTimeInMs, 0, elapsedMs(startTime), error);
+        } finally {
+            synchronized (BatchRunner.class) {
+                Logger.flush(Logger.stopCapture());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Write batch_summary.csv with one row per input and log the same table
+     */
+    private static void writeSummary(List<FileResult> results, String outputRoot) throws IOException {
+        String[] headers = {
+            "Input file",
+            "Output folder",
+            "Status",
+            "Purchases",
+            "Parse time (ms)",
+            "FA time (ms)",
+            "Total time (ms)",
+            "Error"
+        };
+
+        List<String[]> csvData = new ArrayList<>();
+        for (FileResult result : results) {
+            csvData.add(new String[]{
+                result.input.inputFile.toString(),
+                result.outputFolder,
+                result.succeeded ? "OK" : "FAILED",
+                String.valueOf(result.purchaseCount),
+                String.valueOf(result.parseTimeInMs),
+                String.valueOf(result.faTimeInMs),
+                String.valueOf(result.totalTimeInMs),
+                result.error
+            });
+            Logger.log("%-6s %-30s %8d purchases, parse %6d ms, FA %6d ms, total %6d ms%s",
+                result.succeeded ? "OK" : "FAILED", result.input.outputName, result.purchaseCount,
+                result.parseTimeInMs, result.faTimeInMs, result.totalTimeInMs,
+                result.succeeded ? "" : " (" + result.error + ")");
+        }
+
+        FileUtils.writeCsvToFile(outputRoot, SUMMARY_FILE_NAME, headers, csvData, true, true);
+    }
+
+    private static long elapsedMs(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1_000_000;
+    }
+}
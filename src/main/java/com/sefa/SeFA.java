@@ -1,13 +1,18 @@
 package com.sefa;
 
-import com.sefa.models.Purchase;
+import com.sefa.models.PurchaseTable;
 import com.sefa.parsers.etrade.EtradeBenefitHistoryParser;
+import com.sefa.parsers.etrade.PurchaseCache;
 import com.sefa.parsers.itr.FAA3Parser;
+import com.sefa.server.SeFAServer;
+import com.sefa.utils.FileUtils;
 import com.sefa.utils.Logger;
+import com.sefa.utils.ShareDataUtils;
 import org.apache.commons.cli.*;
 
 import java.io.IOException;
 import java.nio.file.Paths;
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -20,9 +25,16 @@ public class SeFA {
     private static final String DEFAULT_OUTPUT_FOLDER_NAME = "output";
     private static final String DEFAULT_SOURCE_MODE = "etrade_benefit_history";
     private static final String DEFAULT_CALENDAR_MODE = "calendar";
+    private static final String DEFAULT_FX_RATES = "daily";
+    private static final String SERVE_COMMAND = "serve";
     
     public static void main(String[] args) {
         try {
+            if (args.length > 0 && SERVE_COMMAND.equals(args[0])) {
+                // Keeps running on the server threads after main returns
+                SeFAServer.run(Arrays.copyOfRange(args, 1, args.length));
+                return;
+            }
             runApplication(args);
             Logger.log("On your left!");
         } catch (Exception e) {
@@ -51,7 +63,20 @@ public class SeFA {
             .hasArg()
             .argName("INPUT_EXCEL_FILE")
             .desc("Specify the absolute path for input benefit history(BenefitHistory.xlsx) Excel file")
-            .required()
+            .build());
+        
+        options.addOption(Option.builder("b")
+            .longOpt("batch")
+            .hasArg()
+            .argName("DIR_OR_MANIFEST")
+            .desc("Process every .xlsx/.xls file of a directory, or the files listed in a manifest (input[,output name] per line), into <OUTPUT_FOLDER>/<name>")
+            .build());
+        
+        options.addOption(Option.builder("w")
+            .longOpt("workers")
+            .hasArg()
+            .argName("FILES")
+            .desc("Number of files processed at the same time in batch mode, default = number of processors")
             .build());
         
         options.addOption(Option.builder("m")
@@ -68,11 +93,79 @@ public class SeFA {
             .desc("Assessment year (optional - if not provided, processes all data)")
             .build());
         
+        options.addOption(Option.builder("ayr")
+            .longOpt("assessment-years")
+            .hasArg()
+            .argName("FROM-TO")
+            .desc("Batch mode: write one schedule per assessment year in this range, e.g. 2021-2025")
+            .build());
+        
         options.addOption(Option.builder("cal")
             .longOpt("calendar-mode")
             .hasArg()
             .argName("CALENDAR_MODE")
-            .desc("Calendar mode (optional - default: calendar)")
+            .desc("Calendar mode, calendar|financial|both (optional - default: calendar, both implies batch mode)")
+            .build());
+        
+        options.addOption(Option.builder("fx")
+            .longOpt("fx-rates")
+            .hasArg()
+            .argName("RATES")
+            .desc("USD/INR rates for purchase and closing values, daily|rbi (optional - default: daily, "
+                + "rbi uses the RBI reference rate of the last day of the previous month from historic_data/rates/rbi/rates.xls)")
+            .build());
+        
+        options.addOption(Option.builder("s")
+            .longOpt("streaming")
+            .desc("Read XLSX input with the low-memory streaming reader")
+            .build());
+        
+        options.addOption(Option.builder("db")
+            .longOpt("defer-backfill")
+            .desc("Load prices for RSU vests without a market value in the background while the input is parsed")
+            .build());
+        
+        options.addOption(Option.builder("p")
+            .longOpt("parallelism")
+            .hasArg()
+            .argName("THREADS")
+            .desc("Number of worker threads for parsing and FA computation, default = 1 (sequential)")
+            .build());
+        
+        options.addOption(Option.builder("cs")
+            .longOpt("chunk-size")
+            .hasArg()
+            .argName("ROWS")
+            .desc("Parse large sheets in chunks of this many rows on parallel workers, default = 0 (disabled)")
+            .build());
+        
+        options.addOption(Option.builder("inc")
+            .longOpt("incremental")
+            .desc("Reuse the entries of the previous run (state kept in the output folder) whose purchase and prices did not change")
+            .build());
+        
+        options.addOption(Option.builder("cd")
+            .longOpt("cache-dir")
+            .hasArg()
+            .argName("DIR")
+            .desc("Directory of the cache of parsed input files, default = ~/.sefa/cache")
+            .build());
+        
+        options.addOption(Option.builder("cmb")
+            .longOpt("cache-max-mb")
+            .hasArg()
+            .argName("MB")
+            .desc("Size of the cache of parsed input files, least recently used files are dropped beyond it, default = 256")
+            .build());
+        
+        options.addOption(Option.builder("nc")
+            .longOpt("no-cache")
+            .desc("Always parse the input files, without reading or writing the cache of parsed input files")
+            .build());
+        
+        options.addOption(Option.builder("cj")
+            .longOpt("compact-json")
+            .desc("Write JSON output files without indentation")
             .build());
         
         options.addOption(Option.builder("v")
@@ -106,8 +199,15 @@ public class SeFA {
         // Extract arguments
         String outputFolder = cmd.getOptionValue("o", defaultOutputFolderAbsPath);
         String inputExcelFile = cmd.getOptionValue("i");
+        String batchInput = cmd.getOptionValue("b");
+        if ((inputExcelFile == null) == (batchInput == null)) {
+            System.err.println("Exactly one of -i (input file) or -b (batch) is required");
+            printHelp(options);
+            throw new IllegalArgumentException("Exactly one of -i (input file) or -b (batch) is required");
+        }
         String sourceMode = cmd.getOptionValue("m", DEFAULT_SOURCE_MODE);
         String calendarMode = cmd.getOptionValue("cal", DEFAULT_CALENDAR_MODE);
+        ShareDataUtils.ConversionRates conversionRates = ShareDataUtils.ConversionRates.parse(cmd.getOptionValue("fx", DEFAULT_FX_RATES));
         int assessmentYear = -1; // Default to -1 to indicate no specific year
         
         if (cmd.hasOption("ay")) {
@@ -118,39 +218,117 @@ public class SeFA {
             }
         }
         
+        int[] assessmentYears = null;
+        if (cmd.hasOption("ayr")) {
+            if (cmd.hasOption("ay")) {
+                throw new IllegalArgumentException("Use either an assessment year or an assessment year range");
+            }
+            assessmentYears = parseYearRange(cmd.getOptionValue("ayr"));
+        }
+        
+        boolean incremental = cmd.hasOption("inc");
         boolean debug = cmd.hasOption("v");
+        boolean streaming = cmd.hasOption("s");
+        boolean deferredBackfill = cmd.hasOption("db");
+        int parallelism = parseIntOption(cmd, "p", 1, "Parallelism");
+        int chunkSize = parseIntOption(cmd, "cs", 0, "Chunk size");
+        int workers = parseIntOption(cmd, "w", Runtime.getRuntime().availableProcessors(), "Workers");
+        PurchaseCache purchaseCache = cmd.hasOption("nc") ? null : new PurchaseCache(
+            cmd.hasOption("cd") ? Paths.get(cmd.getOptionValue("cd")) : PurchaseCache.defaultDirectory(),
+            parseIntOption(cmd, "cmb", (int) (PurchaseCache.DEFAULT_MAX_BYTES >> 20), "Cache size") * 1024L * 1024L);
         
         // Set debug mode
         Logger.setDebug(debug);
         EtradeBenefitHistoryParser.setDebug(debug);
+        EtradeBenefitHistoryParser.setStreaming(streaming);
+        EtradeBenefitHistoryParser.setDeferredBackfill(deferredBackfill);
+        EtradeBenefitHistoryParser.setParallelism(parallelism);
+        EtradeBenefitHistoryParser.setChunkSize(chunkSize);
+        EtradeBenefitHistoryParser.setCache(purchaseCache);
+        FAA3Parser.setParallelism(parallelism);
+        ShareDataUtils.setConversionRates(conversionRates);
+        FileUtils.setCompactJson(cmd.hasOption("cj"));
         
         // Validate inputs
-        if (!calendarMode.equals("calendar") && !calendarMode.equals("financial")) {
-            throw new IllegalArgumentException("Calendar mode must be 'calendar' or 'financial'");
+        if (!calendarMode.equals("calendar") && !calendarMode.equals("financial") && !calendarMode.equals("both")) {
+            throw new IllegalArgumentException("Calendar mode must be 'calendar', 'financial' or 'both'");
+        }
+        
+        List<String> calendarModes = calendarMode.equals("both")
+            ? List.of("calendar", "financial")
+            : List.of(calendarMode);
+        if (assessmentYears == null && calendarModes.size() > 1) {
+            if (assessmentYear == -1) {
+                throw new IllegalArgumentException("Calendar mode 'both' needs an assessment year or an assessment year range");
+            }
+            assessmentYears = new int[]{assessmentYear, assessmentYear};
+        }
+        if (incremental && (batchInput != null || assessmentYears != null)) {
+            throw new IllegalArgumentException("Incremental mode works on a single input file and assessment year");
         }
         
         // Log configuration
         Logger.log("SeFA Java Application Starting...");
-        Logger.log("Input Excel File: %s", inputExcelFile);
+        if (batchInput != null) {
+            Logger.log("Batch Input: %s", batchInput);
+            Logger.log("Batch Workers: %d", workers);
+        } else {
+            Logger.log("Input Excel File: %s", inputExcelFile);
+        }
         Logger.log("Output Folder: %s", outputFolder);
         Logger.log("Source Mode: %s", sourceMode);
         Logger.log("Calendar Mode: %s", calendarMode);
-        if (assessmentYear != -1) {
+        Logger.log("FX Rates: %s", conversionRates.name().toLowerCase());
+        if (assessmentYears != null) {
+            Logger.log("Assessment Years: %d to %d (batch mode)", assessmentYears[0], assessmentYears[1]);
+        } else if (assessmentYear != -1) {
             Logger.log("Assessment Year: %d", assessmentYear);
         } else {
             Logger.log("Processing all data (no assessment year filter)");
         }
         Logger.log("Debug Mode: %s", debug);
+        Logger.log("Streaming Mode: %s", streaming);
+        Logger.log("Deferred Backfill: %s", deferredBackfill);
+        Logger.log("Parallelism: %d", parallelism);
+        Logger.log("Incremental: %s", incremental);
+        Logger.log("Parse Cache: %s", purchaseCache != null ? purchaseCache.getDirectory() : "disabled");
         
-        // Parse purchases based on source mode
-        List<Purchase> purchases;
-        
-        if ("etrade_benefit_history".equals(sourceMode)) {
-            purchases = EtradeBenefitHistoryParser.parse(inputExcelFile);
-        } else {
+        if (!"etrade_benefit_history".equals(sourceMode)) {
             throw new UnsupportedOperationException("Source mode '" + sourceMode + "' is not yet implemented in Java version");
         }
         
+        if (batchInput != null) {
+            int[] years = assessmentYears;
+            int singleYear = assessmentYear;
+            BatchRunner runner = new BatchRunner(workers, (filePurchases, fileOutputFolder, priceQueryCache) -> {
+                if (years != null) {
+                    FAA3Parser.parseBatch(calendarModes, filePurchases, years[0], years[1], fileOutputFolder, priceQueryCache);
+                } else {
+                    FAA3Parser.parse(calendarMode, filePurchases, singleYear, fileOutputFolder, priceQueryCache);
+                }
+            });
+            List<BatchRunner.FileResult> results = runner.run(BatchRunner.listInputs(batchInput), outputFolder);
+            
+            long failed = results.stream().filter(result -> !result.isSucceeded()).count();
+            if (failed > 0) {
+                throw new IllegalStateException(failed + " of " + results.size() + " input files failed, see "
+                    + Paths.get(outputFolder, BatchRunner.SUMMARY_FILE_NAME));
+            }
+            Logger.log("Processing completed successfully!");
+            return;
+        }
+        
+        if (incremental) {
+            Logger.log("Processing FAA3 entries...");
+            FAA3Parser.parseIncremental(calendarMode, inputExcelFile,
+                () -> EtradeBenefitHistoryParser.parseTable(inputExcelFile), assessmentYear, outputFolder);
+            Logger.log("Processing completed successfully!");
+            return;
+        }
+        
+        // Parse purchases
+        PurchaseTable purchases = EtradeBenefitHistoryParser.parseTable(inputExcelFile);
+        
         if (purchases.isEmpty()) {
             Logger.warn("No purchases found in the input file");
             return;
@@ -158,11 +336,47 @@ public class SeFA {
         
         // Process FAA3 entries
         Logger.log("Processing FAA3 entries...");
-        FAA3Parser.parse(calendarMode, purchases, assessmentYear, outputFolder);
+        if (assessmentYears != null) {
+            FAA3Parser.parseBatch(calendarModes, purchases, assessmentYears[0], assessmentYears[1], outputFolder);
+        } else {
+            FAA3Parser.parse(calendarMode, purchases, assessmentYear, outputFolder);
+        }
         
         Logger.log("Processing completed successfully!");
     }
     
+    private static int parseIntOption(CommandLine cmd, String option, int defaultValue, String name) {
+        if (!cmd.hasOption(option)) {
+            return defaultValue;
+        }
+        try {
+            int value = Integer.parseInt(cmd.getOptionValue(option));
+            if (value < 0) {
+                throw new IllegalArgumentException(name + " must not be negative");
+            }
+            return value;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(name + " must be a valid integer");
+        }
+    }
+    
+    /**
+     * Parse an assessment year range, FROM-TO or a single year
+     */
+    private static int[] parseYearRange(String value) {
+        String[] parts = value.trim().split("-");
+        try {
+            int fromYear = Integer.parseInt(parts[0].trim());
+            int toYear = parts.length > 1 ? Integer.parseInt(parts[1].trim()) : fromYear;
+            if (parts.length > 2 || fromYear > toYear) {
+                throw new IllegalArgumentException("Assessment year range must be FROM-TO with FROM <= TO");
+            }
+            return new int[]{fromYear, toYear};
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Assessment year range must be FROM-TO, e.g. 2021-2025");
+        }
+    }
+    
     private static void printHelp(Options options) {
         HelpFormatter formatter = new HelpFormatter();
         formatter.printHelp("java -jar sefa-java.jar", 
@@ -171,6 +385,9 @@ public class SeFA {
             "\nExample usage:\n" +
             "java -jar sefa-java.jar -i \"/path/to/BenefitHistory.xlsx\"\n" +
             "java -jar sefa-java.jar -i \"/path/to/BenefitHistory.xlsx\" -ay 2023\n" +
+            "java -jar sefa-java.jar -i \"/path/to/BenefitHistory.xlsx\" -ayr 2021-2025 -cal both\n" +
+            "java -jar sefa-java.jar -b \"/path/to/benefit_histories\" -o \"/path/to/output\" -w 4\n" +
+            "java -jar sefa-java.jar serve --port 8080 (HTTP service, see serve -h)\n" +
             "\nNote: This tool requires historic_data/adobe_price_history.csv and historic_data/usd_inr_price_history.csv files.",
             true);
     }
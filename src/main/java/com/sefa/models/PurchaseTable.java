@@ -0,0 +1,450 @@
+package com.sefa.models;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Purchases stored column by column in primitive arrays, sorted by date. Tickers get ids of their own table,
+ * so arrays indexed by them are sized by the tickers of the table. Currency codes and date texts are stored
+ * once per table. Date range and per-ticker selections are views sharing the columns of the table, nothing is
+ * copied. Every row also keeps its position in the input, so output that follows the input order can still be
+ * written. Purchase objects are only created by get and toPurchases, where a model is needed (e.g. the FAA3
+ * entries written as JSON).
+ */
+public final class PurchaseTable {
+
+    private static final long ONE_DAY_IN_MS = 24 * 60 * 60 * 1000L;
+
+    private final Columns columns;
+    // Positions from..to of rows, or rows from..to of the columns when rows is null
+    private final int[] rows;
+    private final int from;
+    private final int to;
+
+    private static final class Columns {
+        final int[] epochDays;
+        // null when every date is at midnight UTC
+        final int[] millisOfDay;
+        final double[] fmvs;
+        final double[] quantities;
+        // Indexes of tickers
+        final int[] tickerIds;
+        // Indexes of strings
+        final int[] currencyIds;
+        final int[] dispTimeIds;
+        final int[] origDispTimeIds;
+        // Position of the row in the input
+        final int[] positions;
+        final String[] tickers;
+        final String[] strings;
+
+        Columns(int size, boolean withMillisOfDay, String[] tickers, String[] strings) {
+            this.epochDays = new int[size];
+            this.millisOfDay = withMillisOfDay ? new int[size] : null;
+            this.fmvs = new double[size];
+            this.quantities = new double[size];
+            this.tickerIds = new int[size];
+            this.currencyIds = new int[size];
+            this.dispTimeIds = new int[size];
+            this.origDispTimeIds = new int[size];
+            this.positions = new int[size];
+            this.tickers = tickers;
+            this.strings = strings;
+        }
+    }
+
+    private PurchaseTable(Columns columns, int[] rows, int from, int to) {
+        this.columns = columns;
+        this.rows = rows;
+        this.from = from;
+        this.to = to;
+    }
+
+    /**
+     * Table of the purchases sorted by date, purchases of the same date keep their order
+     */
+    public static PurchaseTable of(List<Purchase> purchases) {
+        Builder builder = new Builder();
+        for (Purchase purchase : purchases) {
+            builder.add(purchase);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Rows in input order, appended to growing columns without a Purchase per row
+     * Not thread safe, parallel parsers fill one builder each and append them with addAll.
+     */
+    public static final class Builder {
+        private long[] times = new long[16];
+        private double[] fmvs = new double[16];
+        private double[] quantities = new double[16];
+        private int[] tickerIds = new int[16];
+        private int[] currencyIds = new int[16];
+        private int[] dispTimeIds = new int[16];
+        private int[] origDispTimeIds = new int[16];
+        private final Map<String, Integer> tickerIndexes = new HashMap<>();
+        private final List<String> tickers = new ArrayList<>();
+        private final Map<String, Integer> stringIds = new HashMap<>();
+        private final List<String> strings = new ArrayList<>();
+        private int size;
+
+        public Builder add(long timeInMs, String dispTime, String origDispTime, double fmv, String currencyCode,
+                           double quantity, String ticker) {
+            return add(timeInMs, intern(dispTime), intern(origDispTime), fmv, intern(currencyCode),
+                quantity, tickerId(ticker));
+        }
+
+        public Builder add(Purchase purchase) {
+            DateObj date = purchase.getDate();
+            return add(date.getTimeInMillis(), date.getDispTime(), date.getOrigDispTime(),
+                purchase.getPurchaseFmv().getPrice(), purchase.getPurchaseFmv().getCurrencyCode(),
+                purchase.getQuantity(), purchase.getTicker());
+        }
+
+        /**
+         * Append the rows of another builder after the rows of this one
+         */
+        public Builder addAll(Builder other) {
+            for (int i = 0; i < other.size; i++) {
+                add(other.times[i], intern(other.string(other.dispTimeIds[i])),
+                    intern(other.string(other.origDispTimeIds[i])), other.fmvs[i],
+                    intern(other.string(other.currencyIds[i])), other.quantities[i],
+                    tickerId(other.tickerIds[i] >= 0 ? other.tickers.get(other.tickerIds[i]) : null));
+            }
+            return this;
+        }
+
+        private Builder add(long timeInMs, int dispTimeId, int origDispTimeId, double fmv, int currencyId,
+                            double quantity, int tickerId) {
+            if (size == times.length) {
+                int capacity = size * 2;
+                times = Arrays.copyOf(times, capacity);
+                fmvs = Arrays.copyOf(fmvs, capacity);
+                quantities = Arrays.copyOf(quantities, capacity);
+                tickerIds = Arrays.copyOf(tickerIds, capacity);
+                currencyIds = Arrays.copyOf(currencyIds, capacity);
+                dispTimeIds = Arrays.copyOf(dispTimeIds, capacity);
+                origDispTimeIds = Arrays.copyOf(origDispTimeIds, capacity);
+            }
+            times[size] = timeInMs;
+            dispTimeIds[size] = dispTimeId;
+            origDispTimeIds[size] = origDispTimeId;
+            fmvs[size] = fmv;
+            currencyIds[size] = currencyId;
+            quantities[size] = quantity;
+            tickerIds[size] = tickerId;
+            size++;
+            return this;
+        }
+
+        private int intern(String value) {
+            if (value == null) {
+                return -1;
+            }
+            return stringIds.computeIfAbsent(value, key -> {
+                strings.add(key);
+                return strings.size() - 1;
+            });
+        }
+
+        private int tickerId(String ticker) {
+            if (ticker == null) {
+                return -1;
+            }
+            return tickerIndexes.computeIfAbsent(ticker, key -> {
+                tickers.add(key);
+                return tickers.size() - 1;
+            });
+        }
+
+        private String string(int id) {
+            return id >= 0 ? strings.get(id) : null;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        /**
+         * Table of the rows sorted by date, rows of the same date keep their input order
+         */
+        public PurchaseTable build() {
+            boolean withMillisOfDay = false;
+            boolean sorted = true;
+            for (int i = 0; i < size; i++) {
+                withMillisOfDay |= Math.floorMod(times[i], ONE_DAY_IN_MS) != 0;
+                sorted &= i == 0 || times[i - 1] <= times[i];
+            }
+
+            // Stable sort of the positions by time
+            Integer[] order = new Integer[size];
+            for (int i = 0; i < size; i++) {
+                order[i] = i;
+            }
+            if (!sorted) {
+                long[] rowTimes = times;
+                Arrays.sort(order, (a, b) -> Long.compare(rowTimes[a], rowTimes[b]));
+            }
+
+            Columns columns = new Columns(size, withMillisOfDay, tickers.toArray(new String[0]),
+                strings.toArray(new String[0]));
+            for (int i = 0; i < size; i++) {
+                int position = order[i];
+                long time = times[position];
+                columns.epochDays[i] = Math.toIntExact(Math.floorDiv(time, ONE_DAY_IN_MS));
+                if (withMillisOfDay) {
+                    columns.millisOfDay[i] = (int) Math.floorMod(time, ONE_DAY_IN_MS);
+                }
+                columns.fmvs[i] = fmvs[position];
+                columns.quantities[i] = quantities[position];
+                columns.tickerIds[i] = tickerIds[position];
+                columns.currencyIds[i] = currencyIds[position];
+                columns.dispTimeIds[i] = dispTimeIds[position];
+                columns.origDispTimeIds[i] = origDispTimeIds[position];
+                columns.positions[i] = position;
+            }
+            return new PurchaseTable(columns, null, 0, size);
+        }
+    }
+
+    public int size() {
+        return to - from;
+    }
+
+    public boolean isEmpty() {
+        return to == from;
+    }
+
+    private int row(int index) {
+        if (index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for " + size() + " purchases");
+        }
+        return rows != null ? rows[from + index] : from + index;
+    }
+
+    public int epochDayAt(int index) {
+        return columns.epochDays[row(index)];
+    }
+
+    public long timeAt(int index) {
+        int row = row(index);
+        long time = columns.epochDays[row] * ONE_DAY_IN_MS;
+        return columns.millisOfDay != null ? time + columns.millisOfDay[row] : time;
+    }
+
+    public double fmvAt(int index) {
+        return columns.fmvs[row(index)];
+    }
+
+    public double quantityAt(int index) {
+        return columns.quantities[row(index)];
+    }
+
+    public String tickerAt(int index) {
+        return tickerName(columns.tickerIds[row(index)]);
+    }
+
+    /**
+     * Id of the ticker of a row, below tickerCount()
+     * Ids belong to the table and are shared by its views only.
+     */
+    public int tickerIdAt(int index) {
+        return columns.tickerIds[row(index)];
+    }
+
+    /**
+     * Number of distinct tickers of the table this view shares its columns with
+     */
+    public int tickerCount() {
+        return columns.tickers.length;
+    }
+
+    public String tickerName(int tickerId) {
+        return tickerId >= 0 ? columns.tickers[tickerId] : null;
+    }
+
+    public String currencyAt(int index) {
+        return string(columns.currencyIds[row(index)]);
+    }
+
+    public String dispTimeAt(int index) {
+        return string(columns.dispTimeIds[row(index)]);
+    }
+
+    public String origDispTimeAt(int index) {
+        return string(columns.origDispTimeIds[row(index)]);
+    }
+
+    private String string(int id) {
+        return id >= 0 ? columns.strings[id] : null;
+    }
+
+    /**
+     * New Purchase with the values of a row
+     */
+    public Purchase get(int index) {
+        int row = row(index);
+        return new Purchase(
+            new DateObj(timeAt(index), string(columns.dispTimeIds[row]), string(columns.origDispTimeIds[row])),
+            new Price(columns.fmvs[row], string(columns.currencyIds[row])),
+            columns.quantities[row],
+            tickerName(columns.tickerIds[row]));
+    }
+
+    public List<Purchase> toPurchases() {
+        List<Purchase> purchases = new ArrayList<>(size());
+        for (int i = 0; i < size(); i++) {
+            purchases.add(get(i));
+        }
+        return purchases;
+    }
+
+    /**
+     * Indexes of this table in the order their rows were added
+     */
+    public int[] inputOrder() {
+        // Position in the high bits, so sorting the packed values sorts the indexes by position
+        long[] packed = new long[size()];
+        for (int i = 0; i < packed.length; i++) {
+            packed[i] = (long) columns.positions[row(i)] << 32 | i;
+        }
+        Arrays.sort(packed);
+        int[] indexes = new int[packed.length];
+        for (int i = 0; i < packed.length; i++) {
+            indexes[i] = (int) packed[i];
+        }
+        return indexes;
+    }
+
+    /**
+     * Purchases of this table in the order their rows were added, e.g. as the parser read them
+     */
+    public List<Purchase> toPurchasesInInputOrder() {
+        List<Purchase> purchases = new ArrayList<>(size());
+        for (int index : inputOrder()) {
+            purchases.add(get(index));
+        }
+        return purchases;
+    }
+
+    /**
+     * Rows fromIndex (inclusive) to toIndex (exclusive) of this table, sharing its columns
+     */
+    public PurchaseTable view(int fromIndex, int toIndex) {
+        if (fromIndex < 0 || toIndex > size() || fromIndex > toIndex) {
+            throw new IndexOutOfBoundsException("View " + fromIndex + " to " + toIndex + " of " + size() + " purchases");
+        }
+        return new PurchaseTable(columns, rows, from + fromIndex, from + toIndex);
+    }
+
+    /**
+     * Rows at the given ascending indexes of this table, sharing its columns
+     */
+    public PurchaseTable select(int[] indexes) {
+        int[] selected = new int[indexes.length];
+        for (int i = 0; i < indexes.length; i++) {
+            if (i > 0 && indexes[i] <= indexes[i - 1]) {
+                throw new IllegalArgumentException("Selected indexes must be ascending, got " + indexes[i] + " after " + indexes[i - 1]);
+            }
+            selected[i] = row(indexes[i]);
+        }
+        return new PurchaseTable(columns, selected, 0, selected.length);
+    }
+
+    /**
+     * Index of the first purchase at or after the given time, size() if there is none
+     */
+    public int lowerBound(long timeInMs) {
+        int low = 0;
+        int high = size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (timeAt(mid) < timeInMs) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Index of the first purchase after the given time, size() if there is none
+     */
+    public int upperBound(long timeInMs) {
+        int low = 0;
+        int high = size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (timeAt(mid) <= timeInMs) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Purchases strictly before the given time
+     */
+    public PurchaseTable before(long timeInMs) {
+        return view(0, lowerBound(timeInMs));
+    }
+
+    /**
+     * Purchases at or before the given time, e.g. those held at the end of a period
+     */
+    public PurchaseTable until(long timeInMs) {
+        return view(0, upperBound(timeInMs));
+    }
+
+    /**
+     * Purchases from startTimeInMs to endTimeInMs, both inclusive
+     */
+    public PurchaseTable between(long startTimeInMs, long endTimeInMs) {
+        int fromIndex = lowerBound(startTimeInMs);
+        return view(fromIndex, Math.max(fromIndex, upperBound(endTimeInMs)));
+    }
+
+    public double totalQuantity() {
+        double total = 0;
+        for (int i = 0; i < size(); i++) {
+            total += quantityAt(i);
+        }
+        return total;
+    }
+
+    /**
+     * Purchases of each ticker, still sorted by date
+     * Each view only holds the positions of its rows, the columns stay shared.
+     */
+    public Map<String, PurchaseTable> byTicker() {
+        int[] counts = new int[tickerCount()];
+        for (int i = 0; i < size(); i++) {
+            counts[columns.tickerIds[row(i)]]++;
+        }
+        int[][] tickerRows = new int[counts.length][];
+        int[] filled = new int[counts.length];
+        for (int i = 0; i < size(); i++) {
+            int row = row(i);
+            int tickerId = columns.tickerIds[row];
+            if (tickerRows[tickerId] == null) {
+                tickerRows[tickerId] = new int[counts[tickerId]];
+            }
+            tickerRows[tickerId][filled[tickerId]++] = row;
+        }
+
+        Map<String, PurchaseTable> tables = new HashMap<>();
+        for (int id = 0; id < tickerRows.length; id++) {
+            if (tickerRows[id] != null) {
+                tables.put(columns.tickers[id], new PurchaseTable(columns, tickerRows[id], 0, tickerRows[id].length));
+            }
+        }
+        return tables;
+    }
+}
@@ -0,0 +1,72 @@
+package com.sefa.parsers.etrade;
+
+import org.apache.poi.ss.usermodel.CellType;
+
+/**
+ * Read access to the cells of one BenefitHistory sheet row
+ * Implemented over POI's usermodel Row and over rows produced by the streaming reader
+ */
+interface BenefitRow {
+
+    /**
+     * Zero based row number within the sheet
+     */
+    int getRowNum();
+
+    /**
+     * One past the last column that holds a cell, 0 for an empty row
+     */
+    int getColumnCount();
+
+    /**
+     * Type of the cell at the column, CellType._NONE when there is no cell
+     */
+    CellType getCellType(int column);
+
+    /**
+     * Whether a cell is present at the column (blank cells count as present)
+     */
+    default boolean hasCell(int column) {
+        return getCellType(column) != CellType._NONE;
+    }
+
+    /**
+     * Cell text, formatted the same way for every implementation:
+     * trimmed strings, whole numbers for numeric cells, Date.toString() for date cells,
+     * the formula for formula cells and "" for missing cells
+     */
+    String getString(int column);
+
+    /**
+     * Raw numeric cell value, only meaningful for CellType.NUMERIC cells
+     */
+    double getNumeric(int column);
+
+    /**
+     * Whether the cell is a numeric cell with a date format
+     */
+    boolean isDate(int column);
+
+    /**
+     * Amount held by the cell: numeric cells as is, text like "$1,234.56" scanned without regex
+     * 0.0 when the cell has no digits, NaN when its text is malformed
+     */
+    default double getAmount(int column) {
+        if (getCellType(column) == CellType.NUMERIC) {
+            return getNumeric(column);
+        }
+        return CellDecoder.parseAmount(getString(column));
+    }
+
+    /**
+     * Date cell as epoch milliseconds at the start of the day (UTC), only meaningful when isDate is true
+     */
+    default long getDateMillis(int column) {
+        return CellDecoder.excelDateToEpochMs(getNumeric(column));
+    }
+
+    /**
+     * Copy that stays valid after the reader has moved on to the next row
+     */
+    BenefitRow snapshot();
+}
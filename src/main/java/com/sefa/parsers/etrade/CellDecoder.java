@@ -0,0 +1,132 @@
+package com.sefa.parsers.etrade;
+
+import com.sefa.utils.DateUtils;
+import org.apache.poi.ss.usermodel.DateUtil;
+
+/**
+ * Typed decoding of BenefitHistory cell text without regex or intermediate strings
+ * Amounts like "$1,234.56" are scanned in place, Excel date serials become epoch milliseconds
+ */
+final class CellDecoder {
+
+    // Excel serial of 1970-01-01 in the 1900 date system
+    private static final long EXCEL_EPOCH_SERIAL = 25569;
+    // Serials below this are affected by Excel's fictitious 29-Feb-1900
+    private static final double FIRST_UNAMBIGUOUS_SERIAL = 61;
+    // Largest mantissa and power of ten that a double holds exactly
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+    private static final double[] POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+        1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private CellDecoder() {
+    }
+
+    /**
+     * Amount from formatted text, every character other than digits and '.' is ignored
+     * Same result as Double.parseDouble(text.replaceAll("[^0-9.]", "")), except that
+     * text without digits or dots reads as 0.0 and malformed text ("1.2.3", ".") as NaN
+     */
+    static double parseAmount(CharSequence text) {
+        if (text == null) {
+            return 0.0;
+        }
+
+        long mantissa = 0;
+        int scale = 0;
+        int digits = 0;
+        int dots = 0;
+        boolean exact = true;
+
+        for (int i = 0, length = text.length(); i < length; i++) {
+            char c = text.charAt(i);
+            if (c >= '0' && c <= '9') {
+                digits++;
+                if (mantissa < MAX_EXACT_MANTISSA / 10) {
+                    mantissa = mantissa * 10 + (c - '0');
+                    if (dots > 0) {
+                        scale++;
+                    }
+                } else {
+                    exact = false;
+                }
+            } else if (c == '.') {
+                dots++;
+            }
+        }
+
+        if (digits == 0) {
+            return dots == 0 ? 0.0 : Double.NaN;
+        }
+        if (dots > 1) {
+            return Double.NaN;
+        }
+        if (exact && scale < POWERS_OF_TEN.length) {
+            // Both operands are exact, so the single rounding of the division matches parseDouble
+            return mantissa / POWERS_OF_TEN[scale];
+        }
+        return Double.parseDouble(digitsAndDots(text));
+    }
+
+    /**
+     * Number from the raw value of a numeric cell, e.g. "435.31" or "1.0E-3"
+     */
+    static double parseNumber(CharSequence text) {
+        int length = text.length();
+        int start = length > 0 && text.charAt(0) == '-' ? 1 : 0;
+        for (int i = start; i < length; i++) {
+            char c = text.charAt(i);
+            if ((c < '0' || c > '9') && c != '.') {
+                // Exponent or other notation, leave it to the JDK
+                return Double.parseDouble(text.toString());
+            }
+        }
+        if (start == length) {
+            throw new NumberFormatException("Invalid number: " + text);
+        }
+
+        double value = parseAmount(text);
+        if (Double.isNaN(value)) {
+            throw new NumberFormatException("Invalid number: " + text);
+        }
+        return start == 1 ? -value : value;
+    }
+
+    /**
+     * Non-negative int from text, surrounding whitespace is ignored
+     */
+    static int parseIndex(CharSequence text) {
+        int start = 0;
+        int end = text.length();
+        while (start < end && Character.isWhitespace(text.charAt(start))) {
+            start++;
+        }
+        while (end > start && Character.isWhitespace(text.charAt(end - 1))) {
+            end--;
+        }
+        return Integer.parseInt(text, start, end, 10);
+    }
+
+    /**
+     * Start of the day of an Excel date serial (1900 date system) as epoch milliseconds in UTC,
+     * the same convention DateUtils uses for dates parsed from text
+     */
+    static long excelDateToEpochMs(double serial) {
+        if (serial >= FIRST_UNAMBIGUOUS_SERIAL) {
+            return ((long) Math.floor(serial) - EXCEL_EPOCH_SERIAL) * DateUtils.ONE_DAY_IN_MS;
+        }
+        return DateUtils.epochInMs(DateUtil.getLocalDateTime(serial).toLocalDate().atStartOfDay());
+    }
+
+    private static String digitsAndDots(CharSequence text) {
+        StringBuilder cleaned = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if ((c >= '0' && c <= '9') || c == '.') {
+                cleaned.append(c);
+            }
+        }
+        return cleaned.toString();
+    }
+}
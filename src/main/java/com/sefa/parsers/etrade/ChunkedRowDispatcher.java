@@ -0,0 +1,88 @@
+package com.sefa.parsers.etrade;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
+
+/**
+ * Splits the data rows of one sheet into fixed size chunks and parses them on a worker pool
+ * The header row is handled inline, chunk results are merged back strictly in sheet order
+ * so the outcome is identical to a sequential parse. At most maxChunksInFlight chunks are
+ * buffered at a time, which keeps memory bounded when the reader outpaces the workers.
+ */
+final class ChunkedRowDispatcher implements Consumer<BenefitRow> {
+
+    private final SheetRowParser parser;
+    private final ExecutorService workers;
+    private final int chunkSize;
+    private final Semaphore chunksInFlight;
+    private final Deque<Future<SheetRowParser>> pending = new ArrayDeque<>();
+    private List<BenefitRow> chunk;
+
+    ChunkedRowDispatcher(SheetRowParser parser, ExecutorService workers, int chunkSize, int maxChunksInFlight) {
+        this.parser = parser;
+        this.workers = workers;
+        this.chunkSize = chunkSize;
+        this.chunksInFlight = new Semaphore(maxChunksInFlight);
+        this.chunk = new ArrayList<>(chunkSize);
+    }
+
+    @Override
+    public void accept(BenefitRow row) {
+        if (!parser.isHeaderRead()) {
+            parser.accept(row);
+            return;
+        }
+
+        chunk.add(row.snapshot());
+        if (chunk.size() == chunkSize) {
+            submitChunk();
+            mergeCompleted(false);
+        }
+    }
+
+    /**
+     * Parse the trailing partial chunk and merge every chunk result into the sheet parser
+     */
+    void finish() {
+        if (!chunk.isEmpty()) {
+            submitChunk();
+        }
+        mergeCompleted(true);
+    }
+
+    private void submitChunk() {
+        List<BenefitRow> rows = chunk;
+        chunk = new ArrayList<>(chunkSize);
+        SheetRowParser chunkParser = parser.forChunk();
+
+        chunksInFlight.acquireUninterruptibly();
+        pending.addLast(workers.submit(() -> {
+            try {
+                rows.forEach(chunkParser);
+                return chunkParser;
+            } finally {
+                chunksInFlight.release();
+            }
+        }));
+    }
+
+    private void mergeCompleted(boolean waitForAll) {
+        while (!pending.isEmpty() && (waitForAll || pending.peekFirst().isDone())) {
+            try {
+                parser.merge(pending.removeFirst().get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Interrupted while parsing sheet rows", e);
+            } catch (ExecutionException e) {
+                throw new RuntimeException("Failed to parse sheet rows: " + e.getCause().getMessage(), e.getCause());
+            }
+        }
+    }
+}
@@ -2,17 +2,37 @@ package com.sefa.parsers.etrade;
 
 import com.sefa.models.*;
 import com.sefa.utils.*;
+import org.apache.poi.EncryptedDocumentException;
+import org.apache.poi.ooxml.POIXMLException;
+import org.apache.poi.openxml4j.exceptions.OpenXML4JRuntimeException;
+import org.apache.poi.poifs.filesystem.FileMagic;
+import org.apache.poi.util.RecordFormatException;
 import org.apache.poi.ss.usermodel.*;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 import org.apache.poi.hssf.usermodel.HSSFWorkbook;
 
+import java.io.BufferedInputStream;
+import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
-import java.util.Iterator;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Set;
+import java.util.StringJoiner;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 /**
  * ETRADE Benefit History Excel parser
@@ -23,230 +43,465 @@ public class EtradeBenefitHistoryParser {
     // Constants
     private static final String ESPP_SHEET_NAME = "ESPP";
     private static final String RSU_SHEET_NAME = "Restricted Stock";
+    private static final String[] ESPP_ALTERNATIVE_NAMES = {"ESPP", "Employee Stock Purchase Plan", "Stock Purchase"};
+    private static final String[] RSU_ALTERNATIVE_NAMES = {"RSU", "Restricted Stock", "Stock Awards", "Equity Awards"};
     private static boolean DEBUG = true; // Temporarily enable for debugging
+    private static boolean STREAMING = false;
+    private static int PARALLELISM = 1;
+    private static int CHUNK_SIZE = 0;
+    private static boolean DEFERRED_BACKFILL = false;
+    private static volatile PurchaseCache CACHE = null;
     
     public static void setDebug(boolean debug) {
         DEBUG = debug;
     }
     
+    /**
+     * Read XLSX files through the streaming (SAX) reader instead of building an XSSFWorkbook
+     */
+    public static void setStreaming(boolean streaming) {
+        STREAMING = streaming;
+    }
+    
+    /**
+     * Number of worker threads used to parse sheets of the streaming reader concurrently, 1 parses them one
+     * after the other. A loaded workbook is always parsed on the calling thread.
+     */
+    public static void setParallelism(int parallelism) {
+        PARALLELISM = Math.max(parallelism, 1);
+    }
+    
+    /**
+     * Split each sheet into chunks of this many rows parsed on separate workers, 0 disables chunking
+     * Only used by the streaming reader when parallelism is greater than 1
+     */
+    public static void setChunkSize(int chunkSize) {
+        CHUNK_SIZE = Math.max(chunkSize, 0);
+    }
+    
+    /**
+     * Start loading the prices for RSU FMV backfill in the background as soon as a vest needs it,
+     * instead of when the sheet is done, so the loading overlaps with parsing the remaining rows
+     */
+    public static void setDeferredBackfill(boolean deferredBackfill) {
+        DEFERRED_BACKFILL = deferredBackfill;
+    }
+    
+    /**
+     * Keep parsed purchases in a cache keyed by the content of the workbook, so an unchanged file
+     * is not parsed again. null (the default) parses every time.
+     */
+    public static void setCache(PurchaseCache cache) {
+        CACHE = cache;
+    }
+    
+    public static PurchaseCache getCache() {
+        return CACHE;
+    }
+    
     /**
      * Parse ESPP row from Excel data - improved version
+     * The purchase goes straight into the builder, returns whether the row was one
      */
-    private static Purchase parseEsppRow(Row row, Map<String, Integer> columnMap) {
-        if (row == null || row.getCell(0) == null) return null;
+    private static boolean parseEsppRow(BenefitRow row, Map<String, Integer> columnMap, Set<String> tickers,
+                                        PurchaseTable.Builder purchases) {
+        if (row == null || !row.hasCell(0)) return false;
         
         try {
-            String recordType = getCellStringValue(row.getCell(columnMap.getOrDefault("Record Type", 1)));
+            String recordType = row.getString(columnMap.getOrDefault("Record Type", 1));
             
             // Skip debug output in production
             
             if (!"Purchase".equals(recordType)) {
-                return null;
+                return false;
             }
             
-            String purchaseDate = getCellStringValue(row.getCell(columnMap.getOrDefault("Purchase Date", 3)));
-            String symbol = getCellStringValue(row.getCell(columnMap.getOrDefault("Symbol", 4)));
-            String fmvStr = getCellStringValue(row.getCell(columnMap.getOrDefault("Purchase Date FMV", 18)));
+            String symbol = row.getString(columnMap.getOrDefault("Symbol", 4));
             
-            // Get quantity - use "Purchased Qty." column
-            Cell quantityCell = row.getCell(columnMap.getOrDefault("Purchased Qty.", 17));
-            double quantity = 0.0;
-            if (quantityCell != null) {
-                if (quantityCell.getCellType() == CellType.NUMERIC) {
-                    quantity = quantityCell.getNumericCellValue();
-                } else if (quantityCell.getCellType() == CellType.STRING) {
-                    String qtyStr = quantityCell.getStringCellValue().replaceAll("[^0-9.]", "");
-                    if (!qtyStr.isEmpty()) {
-                        quantity = Double.parseDouble(qtyStr);
-                    }
-                }
-            }
+            // Get quantity - use "Purchased Qty." column, only numeric and text cells hold one
+            int quantityColumn = columnMap.getOrDefault("Purchased Qty.", 17);
+            CellType quantityType = row.getCellType(quantityColumn);
+            double quantity = quantityType == CellType.NUMERIC || quantityType == CellType.STRING
+                ? row.getAmount(quantityColumn)
+                : 0.0;
             
-            if (quantity <= 0) {
-                return null;
+            // NaN (malformed text) fails the check as well
+            if (!(quantity > 0)) {
+                return false;
             }
             
-            // Clean FMV value (remove $ sign and other formatting)
-            double fmv = 0.0;
-            if (fmvStr != null && !fmvStr.isEmpty()) {
-                String cleanFmv = fmvStr.replaceAll("[^0-9.]", "");
-                if (!cleanFmv.isEmpty()) {
-                    fmv = Double.parseDouble(cleanFmv);
-                }
-            }
+            // FMV without $ sign and other formatting
+            double fmv = row.getAmount(columnMap.getOrDefault("Purchase Date FMV", 18));
             
-            if (fmv <= 0) {
-                return null;
+            if (!(fmv > 0)) {
+                return false;
             }
             
             // Validate symbol
             if (symbol == null || symbol.trim().isEmpty()) {
-                return null;
+                return false;
             }
             
             // Parse date
-            DateObj dateObj = DateUtils.parseNamedMon(purchaseDate);
+            DateObj dateObj = readDate(row, columnMap.getOrDefault("Purchase Date", 3), DateUtils::parseNamedMon);
             
-            // Get currency
-            String currency = TickerMapping.getTickerCurrencyInfo(symbol.toLowerCase());
+            // Get currency, the ticker is the shared lower case instance of the symbol
+            // Symbols nobody mapped are not added to the symbol table, their rows are dropped
+            int tickerId = TickerMapping.knownTickerId(symbol);
+            if (tickerId < 0) {
+                tickers.add(SymbolTable.TICKERS.normalize(symbol));
+                throw new IllegalArgumentException("No currency info found for ticker: " + symbol);
+            }
+            tickers.add(SymbolTable.TICKERS.name(tickerId));
+            String currency = TickerMapping.getTickerCurrencyInfo(tickerId);
             
-            return new Purchase(
-                dateObj,
-                new Price(fmv, currency),
-                quantity,
-                symbol.toLowerCase()
-            );
+            purchases.add(dateObj.getTimeInMillis(), dateObj.getDispTime(), dateObj.getOrigDispTime(),
+                fmv, currency, quantity, SymbolTable.TICKERS.name(tickerId));
+            return true;
             
         } catch (Exception e) {
             if (DEBUG) {
                 System.out.println("Error parsing ESPP row " + row.getRowNum() + ": " + e.getMessage());
                 e.printStackTrace();
             }
-            return null;
+            return false;
         }
     }
     
     /**
-     * Parse RSU sheet - improved version to handle complex data structure
+     * ESPP sheet parser
      */
-    private static List<Purchase> parseRsu(Workbook workbook) {
-        List<Purchase> purchases = new ArrayList<>();
+    private static class EsppSheetParser extends SheetRowParser {
+        private final PurchaseTable.Builder purchases = new PurchaseTable.Builder();
         
-        Sheet sheet = workbook.getSheet(RSU_SHEET_NAME);
-        if (sheet == null) {
-            String[] alternativeNames = {"RSU", "Restricted Stock", "Stock Awards", "Equity Awards"};
-            for (String altName : alternativeNames) {
-                sheet = workbook.getSheet(altName);
-                if (sheet != null) {
-                    break;
-                }
-            }
-            if (sheet == null) {
-                return purchases;
-            }
+        @Override
+        protected void parseRow(BenefitRow row) {
+            parseEsppRow(row, columnMap, tickers, purchases);
         }
         
-        Iterator<Row> rowIterator = sheet.iterator();
-        Map<String, Integer> columnMap = new HashMap<>();
+        @Override
+        protected SheetRowParser newInstance() {
+            return new EsppSheetParser();
+        }
         
-        // Read header row to build column mapping
-        if (rowIterator.hasNext()) {
-            Row headerRow = rowIterator.next();
-            columnMap = buildColumnMap(headerRow);
+        @Override
+        void merge(SheetRowParser chunkParser) {
+            purchases.addAll(((EsppSheetParser) chunkParser).purchases);
+            tickers.addAll(chunkParser.tickers);
         }
         
-        // First pass: collect all grant information
-        Map<String, GrantInfo> grants = new HashMap<>();
-        List<VestEvent> vestEvents = new ArrayList<>();
+        @Override
+        PurchaseTable.Builder getPurchases() {
+            return purchases;
+        }
+    }
+    
+    /**
+     * RSU sheet parser, joins vest events to their grants in a single pass
+     * A vest whose grant was already seen is resolved right away, only vests listed
+     * before their grant are buffered (as typed values) until the grant shows up. Rows that cannot
+     * be turned into a purchase are counted per reason and reported once the sheet is done.
+     */
+    private static class RsuSheetParser extends SheetRowParser {
+        // Chunk parsers leave their orphans to merge, a grant further up may still claim them
+        private final boolean chunk;
+        private final Map<String, GrantInfo> grants = new HashMap<>();
+        // First grant per number, only kept by chunk parsers for the orphans of earlier chunks
+        private final Map<String, GrantInfo> firstGrants = new HashMap<>();
+        // Vests waiting for a grant listed further down, by grant number
+        private final Map<String, List<VestEvent>> orphanVests = new HashMap<>();
+        private final List<ResolvedVest> resolvedVests = new ArrayList<>();
+        // Vests without a market value, looked up in one batch per ticker when the sheet is done
+        private final Map<String, List<PendingBackfill>> pendingBackfills = new LinkedHashMap<>();
+        private final Map<String, CompletableFuture<Void>> priceLoads = new HashMap<>();
+        // Orphans and backfills resolved late break the row order of resolvedVests
+        private boolean outOfOrder;
+        
+        private int bufferedOrphans;
+        private int invalidDates;
+        private int malformedAmounts;
+        private int unknownTickers;
+        private int failedBackfills;
         
-        // Process all rows to separate grants and vest events
-        while (rowIterator.hasNext()) {
-            Row row = rowIterator.next();
-            String recordType = getCellStringValue(row.getCell(columnMap.getOrDefault("Record Type", 1)));
-            String eventType = getCellStringValue(row.getCell(columnMap.getOrDefault("Event Type", 31)));
+        RsuSheetParser() {
+            this(false);
+        }
+        
+        private RsuSheetParser(boolean chunk) {
+            this.chunk = chunk;
+        }
+        
+        @Override
+        protected void parseRow(BenefitRow row) {
+            // Separate grants and vest events
+            String recordType = row.getString(columnMap.getOrDefault("Record Type", 1));
+            String eventType = row.getString(columnMap.getOrDefault("Event Type", 31));
             
             if ("Grant".equals(recordType)) {
                 // This is a grant row - collect grant information
-                String symbol = getCellStringValue(row.getCell(columnMap.getOrDefault("Symbol", 3)));
-                String grantNumber = getCellStringValue(row.getCell(columnMap.getOrDefault("Grant Number", 17)));
-                String grantDate = getCellStringValue(row.getCell(columnMap.getOrDefault("Grant Date", 13)));
+                String symbol = row.getString(columnMap.getOrDefault("Symbol", 3));
+                String grantNumber = row.getString(columnMap.getOrDefault("Grant Number", 17));
+                String grantDate = row.getString(columnMap.getOrDefault("Grant Date", 13));
                 
                 if (symbol != null && !symbol.trim().isEmpty()) {
-                    grants.put(grantNumber, new GrantInfo(symbol, grantDate, grantNumber));
+                    GrantInfo grant = new GrantInfo(symbol, grantDate, grantNumber);
+                    grants.put(grantNumber, grant);
+                    
+                    if (chunk) {
+                        firstGrants.putIfAbsent(grantNumber, grant);
+                    } else {
+                        resolveOrphans(grantNumber, grant);
+                    }
                 }
             } else if ("Event".equals(recordType) && "Shares vested".equals(eventType)) {
-                // This is a vest event - collect vest information
-                String date = getCellStringValue(row.getCell(columnMap.getOrDefault("Date", 24)));
-                String grantNumber = getCellStringValue(row.getCell(columnMap.getOrDefault("Grant Number", 17)));
-                String qtyStr = getCellStringValue(row.getCell(columnMap.getOrDefault("Qty. or Amount", 22)));
+                VestEvent vestEvent = readVest(row);
+                GrantInfo grant = grants.get(vestEvent.grantNumber);
                 
-                // Try multiple FMV columns
-                String fmvStr = getCellStringValue(row.getCell(columnMap.getOrDefault("Est. Market Value", 25)));
-                if (fmvStr == null || fmvStr.trim().isEmpty()) {
-                    fmvStr = getCellStringValue(row.getCell(columnMap.getOrDefault("Taxable Gain", 16)));
+                if (grant != null) {
+                    resolve(vestEvent, grant);
+                } else {
+                    orphanVests.computeIfAbsent(vestEvent.grantNumber, key -> new ArrayList<>()).add(vestEvent);
+                    bufferedOrphans++;
                 }
-                if (fmvStr == null || fmvStr.trim().isEmpty()) {
-                    fmvStr = getCellStringValue(row.getCell(columnMap.getOrDefault("Award Price", 4)));
+            }
+        }
+        
+        private VestEvent readVest(BenefitRow row) {
+            String grantNumber = row.getString(columnMap.getOrDefault("Grant Number", 17));
+            double quantity = row.getAmount(columnMap.getOrDefault("Qty. or Amount", 22));
+            
+            // Try multiple FMV columns
+            int fmvColumn = columnMap.getOrDefault("Est. Market Value", 25);
+            if (!hasValue(row, fmvColumn)) {
+                fmvColumn = columnMap.getOrDefault("Taxable Gain", 16);
+            }
+            if (!hasValue(row, fmvColumn)) {
+                fmvColumn = columnMap.getOrDefault("Award Price", 4);
+            }
+            double fmv = row.getAmount(fmvColumn);
+            
+            // Unparseable dates leave the vest without a date, it is skipped when resolved
+            DateObj date = null;
+            int dateColumn = columnMap.getOrDefault("Date", 24);
+            if (hasValue(row, dateColumn)) {
+                try {
+                    date = readDate(row, dateColumn, DateUtils::parseMmDd);
+                } catch (RuntimeException e) {
+                    invalidDates++;
+                    Logger.debugLog("RSU row %d: invalid vest date: %s", row.getRowNum(), e.getMessage());
                 }
-                
-                vestEvents.add(new VestEvent(date, grantNumber, qtyStr, fmvStr));
+            }
+            
+            return new VestEvent(row.getRowNum(), date, grantNumber, quantity, fmv);
+        }
+        
+        /**
+         * Resolve the vests buffered for a grant number with the first grant listed after them
+         */
+        private void resolveOrphans(String grantNumber, GrantInfo grant) {
+            List<VestEvent> waiting = orphanVests.remove(grantNumber);
+            if (waiting != null) {
+                for (VestEvent vestEvent : waiting) {
+                    resolve(vestEvent, grant);
+                }
+                outOfOrder = true;
             }
         }
         
-        // Second pass: correlate vest events with grants
-        for (VestEvent vestEvent : vestEvents) {
-            GrantInfo grant = grants.get(vestEvent.grantNumber);
+        /**
+         * Turn a vest into a purchase of its grant's symbol, counting the reason when it can not be
+         */
+        private void resolve(VestEvent vestEvent, GrantInfo grant) {
+            // Malformed quantity or FMV text
+            if (Double.isNaN(vestEvent.quantity) || Double.isNaN(vestEvent.fmv)) {
+                malformedAmounts++;
+                return;
+            }
+            if (!(vestEvent.quantity > 0) || vestEvent.date == null) {
+                return;
+            }
             
-            if (grant != null && grant.symbol != null) {
+            String ticker = grant.ticker;
+            tickers.add(ticker);
+            String currency;
+            try {
+                currency = TickerMapping.getTickerCurrencyInfo(ticker);
+            } catch (IllegalArgumentException e) {
+                unknownTickers++;
+                Logger.debugLog("RSU row %d: %s", vestEvent.rowNum, e.getMessage());
+                return;
+            }
+            
+            // If FMV is missing, use stock price lookup
+            if (vestEvent.fmv <= 0) {
+                queueBackfill(new PendingBackfill(vestEvent, ticker, currency));
+                return;
+            }
+            addPurchase(vestEvent, ticker, currency, vestEvent.fmv);
+        }
+        
+        private void addPurchase(VestEvent vestEvent, String ticker, String currency, double fmv) {
+            if (fmv > 0) {
+                resolvedVests.add(new ResolvedVest(vestEvent, ticker, currency, fmv));
+            }
+        }
+        
+        private void queueBackfill(PendingBackfill backfill) {
+            pendingBackfills.computeIfAbsent(backfill.ticker, key -> new ArrayList<>()).add(backfill);
+            if (DEFERRED_BACKFILL) {
+                priceLoads.computeIfAbsent(backfill.ticker,
+                    ticker -> CompletableFuture.runAsync(() -> ShareDataUtils.preloadPrices(ticker)));
+            }
+        }
+        
+        /**
+         * Look up the FMV of every queued backfill, one sweep over the price series per ticker
+         */
+        private void resolveBackfills() {
+            for (Map.Entry<String, List<PendingBackfill>> entry : pendingBackfills.entrySet()) {
+                String ticker = entry.getKey();
+                List<PendingBackfill> backfills = entry.getValue();
+                
+                long[] vestTimesInMs = new long[backfills.size()];
+                for (int i = 0; i < vestTimesInMs.length; i++) {
+                    vestTimesInMs[i] = backfills.get(i).vestEvent.date.getTimeInMillis();
+                }
+                
+                double[] fmvs;
                 try {
-                    // Parse quantity
-                    double quantity = 0.0;
-                    if (vestEvent.quantity != null && !vestEvent.quantity.trim().isEmpty()) {
-                        String cleanQty = vestEvent.quantity.replaceAll("[^0-9.]", "");
-                        if (!cleanQty.isEmpty()) {
-                            quantity = Double.parseDouble(cleanQty);
-                        }
+                    CompletableFuture<Void> priceLoad = priceLoads.get(ticker);
+                    if (priceLoad != null) {
+                        // A failed background load is simply retried (and reported) by the lookup
+                        priceLoad.exceptionally(e -> null).join();
                     }
-                    
-                    // Parse FMV
-                    double fmv = 0.0;
-                    if (vestEvent.fmv != null && !vestEvent.fmv.trim().isEmpty()) {
-                        String cleanFmv = vestEvent.fmv.replaceAll("[^0-9.]", "");
-                        if (!cleanFmv.isEmpty()) {
-                            fmv = Double.parseDouble(cleanFmv);
-                        }
+                    fmvs = ShareDataUtils.getFmvs(ticker, vestTimesInMs);
+                } catch (RuntimeException e) {
+                    failedBackfills += backfills.size();
+                    Logger.debugLog("RSU: FMV backfill failed for %d %s vests: %s", backfills.size(), ticker, e.getMessage());
+                    continue;
+                }
+                
+                for (int i = 0; i < fmvs.length; i++) {
+                    PendingBackfill backfill = backfills.get(i);
+                    if (Double.isNaN(fmvs[i])) {
+                        failedBackfills++;
+                        Logger.debugLog("RSU row %d: no %s price on or after the vest date", backfill.vestEvent.rowNum, ticker);
+                    } else {
+                        addPurchase(backfill.vestEvent, ticker, backfill.currency, fmvs[i]);
                     }
-                    
-                    if (quantity > 0 && vestEvent.date != null && !vestEvent.date.trim().isEmpty()) {
-                        // Parse the MM/DD/YYYY date format
-                        DateObj dateObj = DateUtils.parseMmDd(vestEvent.date);
-                        String currency = TickerMapping.getTickerCurrencyInfo(grant.symbol.toLowerCase());
-                        
-                        // If FMV is missing, use stock price lookup
-                        if (fmv <= 0) {
-                            fmv = ShareDataUtils.getFmv(grant.symbol.toLowerCase(), dateObj.getTimeInMillis());
-                        }
-                        
-                        if (fmv > 0) {
-                            Purchase purchase = new Purchase(
-                                dateObj,
-                                new Price(fmv, currency),
-                                quantity,
-                                grant.symbol.toLowerCase()
-                            );
-                            
-                            purchases.add(purchase);
-                        }
+                }
+                outOfOrder = true;
+            }
+            pendingBackfills.clear();
+        }
+        
+        @Override
+        protected SheetRowParser newInstance() {
+            return new RsuSheetParser(true);
+        }
+        
+        @Override
+        void merge(SheetRowParser chunkParser) {
+            // Chunks come in sheet order: this parser holds every row above the chunk
+            RsuSheetParser rsuChunk = (RsuSheetParser) chunkParser;
+            
+            // Orphans from above claimed by a grant in the chunk
+            for (Map.Entry<String, GrantInfo> entry : rsuChunk.firstGrants.entrySet()) {
+                resolveOrphans(entry.getKey(), entry.getValue());
+            }
+            
+            // Orphans of the chunk, the latest grant above them wins, else the first one below them
+            for (Map.Entry<String, List<VestEvent>> entry : rsuChunk.orphanVests.entrySet()) {
+                GrantInfo grant = grants.get(entry.getKey());
+                if (grant != null) {
+                    // Not listed before their grant after all
+                    bufferedOrphans -= entry.getValue().size();
+                } else {
+                    grant = rsuChunk.firstGrants.get(entry.getKey());
+                }
+                
+                if (grant != null) {
+                    for (VestEvent vestEvent : entry.getValue()) {
+                        resolve(vestEvent, grant);
                     }
-                } catch (Exception e) {
-                    // Silently skip problematic entries
+                    outOfOrder = true;
+                } else {
+                    orphanVests.computeIfAbsent(entry.getKey(), key -> new ArrayList<>()).addAll(entry.getValue());
                 }
             }
+            
+            // Later grants with the same number win for the vests below them
+            grants.putAll(rsuChunk.grants);
+            resolvedVests.addAll(rsuChunk.resolvedVests);
+            for (Map.Entry<String, List<PendingBackfill>> entry : rsuChunk.pendingBackfills.entrySet()) {
+                pendingBackfills.computeIfAbsent(entry.getKey(), key -> new ArrayList<>()).addAll(entry.getValue());
+            }
+            rsuChunk.priceLoads.forEach(priceLoads::putIfAbsent);
+            outOfOrder |= rsuChunk.outOfOrder;
+            
+            bufferedOrphans += rsuChunk.bufferedOrphans;
+            invalidDates += rsuChunk.invalidDates;
+            malformedAmounts += rsuChunk.malformedAmounts;
+            unknownTickers += rsuChunk.unknownTickers;
+            failedBackfills += rsuChunk.failedBackfills;
+            tickers.addAll(rsuChunk.tickers);
         }
         
-        return purchases;
+        @Override
+        PurchaseTable.Builder getPurchases() {
+            resolveBackfills();
+            if (outOfOrder) {
+                // Same order as the vest rows in the sheet
+                resolvedVests.sort(Comparator.comparingInt(resolvedVest -> resolvedVest.vestEvent.rowNum));
+            }
+            
+            PurchaseTable.Builder purchases = new PurchaseTable.Builder();
+            for (ResolvedVest resolvedVest : resolvedVests) {
+                DateObj date = resolvedVest.vestEvent.date;
+                purchases.add(date.getTimeInMillis(), date.getDispTime(), date.getOrigDispTime(), resolvedVest.fmv,
+                    resolvedVest.currency, resolvedVest.vestEvent.quantity, resolvedVest.ticker);
+            }
+            
+            int unmatchedVests = orphanVests.values().stream().mapToInt(List::size).sum();
+            Logger.log("RSU: %d vests joined to grants, %d listed before their grant, %d without a grant",
+                purchases.size(), bufferedOrphans - unmatchedVests, unmatchedVests);
+            if (invalidDates + malformedAmounts + unknownTickers + failedBackfills > 0) {
+                Logger.log("RSU: skipped %d vests with invalid dates, %d with malformed amounts, "
+                    + "%d with unknown tickers, %d without a FMV", invalidDates, malformedAmounts,
+                    unknownTickers, failedBackfills);
+            }
+            
+            return purchases;
+        }
     }
     
     // Helper classes for RSU data correlation
     private static class GrantInfo {
         String symbol;
+        // Canonical ticker of the symbol, vests of the grant share it. Only the shared instance of a
+        // known ticker, symbols nobody mapped are not added to the symbol table.
+        String ticker;
         String grantDate;
         String grantNumber;
         
         GrantInfo(String symbol, String grantDate, String grantNumber) {
             this.symbol = symbol;
+            int tickerId = TickerMapping.knownTickerId(symbol);
+            this.ticker = tickerId >= 0 ? SymbolTable.TICKERS.name(tickerId) : SymbolTable.TICKERS.normalize(symbol);
             this.grantDate = grantDate;
             this.grantNumber = grantNumber;
         }
     }
     
     private static class VestEvent {
-        String date;
+        int rowNum;
+        DateObj date;
         String grantNumber;
-        String quantity;
-        String fmv;
+        double quantity;
+        double fmv;
         
-        VestEvent(String date, String grantNumber, String quantity, String fmv) {
+        VestEvent(int rowNum, DateObj date, String grantNumber, double quantity, double fmv) {
+            this.rowNum = rowNum;
             this.date = date;
             this.grantNumber = grantNumber;
             this.quantity = quantity;
@@ -254,69 +509,230 @@ public class EtradeBenefitHistoryParser {
         }
     }
     
+    private static class PendingBackfill {
+        final VestEvent vestEvent;
+        final String ticker;
+        final String currency;
+        
+        PendingBackfill(VestEvent vestEvent, String ticker, String currency) {
+            this.vestEvent = vestEvent;
+            this.ticker = ticker;
+            this.currency = currency;
+        }
+    }
+    
+    private static class ResolvedVest {
+        final VestEvent vestEvent;
+        final String ticker;
+        final String currency;
+        final double fmv;
+        
+        ResolvedVest(VestEvent vestEvent, String ticker, String currency, double fmv) {
+            this.vestEvent = vestEvent;
+            this.ticker = ticker;
+            this.currency = currency;
+            this.fmv = fmv;
+        }
+    }
+    
     /**
-     * Build column mapping from header row
+     * Whether the cell holds a number or non-blank text
      */
-    private static Map<String, Integer> buildColumnMap(Row headerRow) {
-        Map<String, Integer> columnMap = new HashMap<>();
-        
-        if (headerRow != null) {
-            Iterator<Cell> cellIterator = headerRow.cellIterator();
-            while (cellIterator.hasNext()) {
-                Cell cell = cellIterator.next();
-                String headerValue = getCellStringValue(cell);
-                if (!headerValue.isEmpty()) {
-                    columnMap.put(headerValue, cell.getColumnIndex());
-                }
-            }
+    private static boolean hasValue(BenefitRow row, int column) {
+        CellType type = row.getCellType(column);
+        return type == CellType.NUMERIC || (type != CellType._NONE && !row.getString(column).trim().isEmpty());
+    }
+    
+    /**
+     * Date from a date cell as is, or from its text with the given parser
+     */
+    private static DateObj readDate(BenefitRow row, int column, Function<String, DateObj> textParser) {
+        if (row.isDate(column)) {
+            return DateUtils.createDateObject(row.getDateMillis(column));
         }
-        
-        return columnMap;
+        return textParser.apply(row.getString(column));
     }
     
     /**
-     * Parse ESPP sheet - improved version
+     * Find a sheet by its primary name or any of the alternative names
      */
-    private static List<Purchase> parseEspp(Workbook workbook) {
-        List<Purchase> purchases = new ArrayList<>();
-        
-        Sheet sheet = workbook.getSheet(ESPP_SHEET_NAME);
+    private static Sheet findSheet(Workbook workbook, String sheetName, String[] alternativeNames) {
+        Sheet sheet = workbook.getSheet(sheetName);
         if (sheet == null) {
-            String[] alternativeNames = {"ESPP", "Employee Stock Purchase Plan", "Stock Purchase"};
             for (String altName : alternativeNames) {
                 sheet = workbook.getSheet(altName);
                 if (sheet != null) {
                     break;
                 }
             }
+        }
+        return sheet;
+    }
+    
+    /**
+     * A sheet to parse: its name, the alternative names it may appear under and its row parser
+     */
+    private static class SheetSpec {
+        final String label;
+        final String sheetName;
+        final String[] alternativeNames;
+        final Supplier<SheetRowParser> parserFactory;
+        
+        SheetSpec(String label, String sheetName, String[] alternativeNames, Supplier<SheetRowParser> parserFactory) {
+            this.label = label;
+            this.sheetName = sheetName;
+            this.alternativeNames = alternativeNames;
+            this.parserFactory = parserFactory;
+        }
+        
+        String[] candidateNames() {
+            String[] candidates = new String[alternativeNames.length + 1];
+            candidates[0] = sheetName;
+            System.arraycopy(alternativeNames, 0, candidates, 1, alternativeNames.length);
+            return candidates;
+        }
+    }
+    
+    // Sheets of a BenefitHistory export, results are merged in this order
+    private static final List<SheetSpec> BENEFIT_HISTORY_SHEETS = List.of(
+        new SheetSpec("ESPP", ESPP_SHEET_NAME, ESPP_ALTERNATIVE_NAMES, EsppSheetParser::new),
+        new SheetSpec("RSU", RSU_SHEET_NAME, RSU_ALTERNATIVE_NAMES, RsuSheetParser::new)
+    );
+    
+    /**
+     * Source of sheet rows, either a loaded workbook or the streaming reader
+     */
+    private interface SheetSource {
+        /**
+         * Feed every row of the sheet to the consumer, returns false if the sheet is missing
+         */
+        boolean readSheet(SheetSpec spec, Consumer<BenefitRow> rowConsumer) throws IOException;
+    }
+    
+    private static SheetSource workbookSource(Workbook workbook) {
+        return (spec, rowConsumer) -> {
+            Sheet sheet = findSheet(workbook, spec.sheetName, spec.alternativeNames);
             if (sheet == null) {
-                return purchases;
+                return false;
+            }
+            WorkbookRow workbookRow = new WorkbookRow();
+            for (Row row : sheet) {
+                rowConsumer.accept(workbookRow.wrap(row));
+            }
+            return true;
+        };
+    }
+    
+    private static SheetSource streamingSource(StreamingWorkbookReader reader) {
+        return (spec, rowConsumer) -> {
+            String resolvedName = reader.findSheet(spec.candidateNames());
+            if (resolvedName == null) {
+                return false;
             }
+            reader.readSheet(resolvedName, rowConsumer);
+            return true;
+        };
+    }
+    
+    /**
+     * Parse one sheet, splitting its rows into chunks on the given workers if any
+     */
+    private static ParsedPurchases parseSheet(SheetSource source, SheetSpec spec, ExecutorService chunkWorkers,
+                                             int parallelism) throws IOException {
+        SheetRowParser sheetParser = spec.parserFactory.get();
+        
+        if (chunkWorkers == null) {
+            source.readSheet(spec, sheetParser);
+        } else {
+            ChunkedRowDispatcher dispatcher = new ChunkedRowDispatcher(
+                sheetParser, chunkWorkers, CHUNK_SIZE, parallelism * 2);
+            source.readSheet(spec, dispatcher);
+            dispatcher.finish();
         }
         
-        Iterator<Row> rowIterator = sheet.iterator();
-        Map<String, Integer> columnMap = new HashMap<>();
+        return new ParsedPurchases(sheetParser.getPurchases(), sheetParser.getTickers());
+    }
+    
+    /**
+     * Parse all sheets, one after the other or on separate workers when parallelism is greater than 1
+     * Only pass a parallelism above 1 for a source whose sheets can be read from several threads.
+     * Results are returned in sheet spec order either way
+     */
+    private static List<ParsedPurchases> parseSheets(SheetSource source, List<SheetSpec> specs,
+                                                     int parallelism) throws IOException {
+        List<ParsedPurchases> results = new ArrayList<>();
         
-        // Read header row to build column mapping
-        if (rowIterator.hasNext()) {
-            Row headerRow = rowIterator.next();
-            columnMap = buildColumnMap(headerRow);
+        if (parallelism <= 1) {
+            for (SheetSpec spec : specs) {
+                results.add(parseSheet(source, spec, null, 1));
+            }
+            return results;
         }
         
-        // Process data rows
-        int processedRows = 0;
-        int validPurchases = 0;
-        while (rowIterator.hasNext()) {
-            Row row = rowIterator.next();
-            processedRows++;
-            Purchase purchase = parseEsppRow(row, columnMap);
-            if (purchase != null) {
-                purchases.add(purchase);
-                validPurchases++;
+        ExecutorService sheetWorkers = Executors.newFixedThreadPool(Math.min(parallelism, specs.size()));
+        ExecutorService chunkWorkers = CHUNK_SIZE > 0 ? Executors.newFixedThreadPool(parallelism) : null;
+        
+        try {
+            List<Future<ParsedPurchases>> futures = new ArrayList<>();
+            for (SheetSpec spec : specs) {
+                futures.add(sheetWorkers.submit(() -> parseSheet(source, spec, chunkWorkers, parallelism)));
+            }
+            
+            for (Future<ParsedPurchases> future : futures) {
+                results.add(future.get());
+            }
+            return results;
+            
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while parsing sheets", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new RuntimeException("Failed to parse sheets", cause);
+        } finally {
+            sheetWorkers.shutdownNow();
+            if (chunkWorkers != null) {
+                chunkWorkers.shutdownNow();
             }
         }
+    }
+    
+    /**
+     * Purchases of a workbook (or of one sheet) and every ticker its rows refer to
+     */
+    private static class ParsedPurchases {
+        final PurchaseTable.Builder purchases;
+        final Set<String> tickers;
         
-        return purchases;
+        ParsedPurchases(PurchaseTable.Builder purchases, Set<String> tickers) {
+            this.purchases = purchases;
+            this.tickers = tickers;
+        }
+    }
+    
+    /**
+     * Merge per-sheet results, given in the order of their specs, and log the count of each sheet
+     */
+    private static ParsedPurchases collectPurchases(List<SheetSpec> specs, List<ParsedPurchases> sheetResults) {
+        PurchaseTable.Builder purchases = new PurchaseTable.Builder();
+        Set<String> tickers = new TreeSet<>();
+        StringJoiner counts = new StringJoiner(", ", "Found ", "");
+        for (int i = 0; i < specs.size(); i++) {
+            ParsedPurchases sheetResult = sheetResults.get(i);
+            purchases.addAll(sheetResult.purchases);
+            tickers.addAll(sheetResult.tickers);
+            counts.add(sheetResult.purchases.size() + " " + specs.get(i).label + " purchases");
+        }
+        
+        Logger.log(counts.toString());
+        
+        return new ParsedPurchases(purchases, tickers);
     }
     
     /**
@@ -330,54 +746,137 @@ public class EtradeBenefitHistoryParser {
      * Parse ETRADE Benefit History Excel file with optional password
      */
     public static List<Purchase> parse(String filePath, String password) {
+        return parseTable(filePath, password).toPurchasesInInputOrder();
+    }
+    
+    /**
+     * Purchases of an ETRADE Benefit History Excel file as a table, rows are added as they are parsed
+     */
+    public static PurchaseTable parseTable(String filePath) {
+        return parseTable(filePath, null);
+    }
+    
+    /**
+     * Same as parseTable, with optional password
+     */
+    public static PurchaseTable parseTable(String filePath, String password) {
+        PurchaseCache cache = CACHE;
+        if (cache == null) {
+            return parseWorkbook(new File(filePath), password).purchases.build();
+        }
         
-        try (FileInputStream fis = new FileInputStream(filePath)) {
+        String workbookHash;
+        try {
+            workbookHash = FileUtils.sha256(filePath);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to parse Excel file", e);
+        }
+        
+        PurchaseTable purchases = cache.get(workbookHash);
+        if (purchases != null) {
+            Logger.log("Loaded %d purchases of %s from the parse cache", purchases.size(), filePath);
+            return purchases;
+        }
+        // Tickers of dropped rows are kept too, their vests come back once their mapping or prices change
+        ParsedPurchases parsed = parseWorkbook(new File(filePath), password);
+        purchases = parsed.purchases.build();
+        cache.put(workbookHash, purchases, parsed.tickers);
+        return purchases;
+    }
+    
+    /**
+     * Purchases of a workbook file, an IllegalArgumentException when the file is not a readable workbook
+     */
+    private static ParsedPurchases parseWorkbook(File file, String password) {
+        try {
+            // Pick the reader from the file signature instead of trial and error
+            FileMagic fileMagic = detectFormat(file);
             
-            Workbook workbook = null;
-            // Try XLSX first, then XLS as fallback
-            try {
-                workbook = new XSSFWorkbook(fis);
-                Logger.log("Successfully opened as XLSX format");
-            } catch (Exception e1) {
-                try {
-                    fis.close();
-                    FileInputStream fis2 = new FileInputStream(filePath);
-                    workbook = new HSSFWorkbook(fis2);
-                    Logger.log("Successfully opened as XLS format");
-                } catch (Exception e2) {
-                    Logger.log("Failed to open as both XLSX and XLS formats");
-                    Logger.log("XLSX error: " + e1.getMessage());
-                    Logger.log("XLS error: " + e2.getMessage());
-                    throw new RuntimeException("Unable to parse Excel file in either format", e2);
+            if (fileMagic == FileMagic.OOXML && STREAMING) {
+                // Rows are never held as a workbook DOM
+                try (StreamingWorkbookReader reader = new StreamingWorkbookReader(file)) {
+                    Logger.log("Successfully opened as XLSX format (streaming)");
+                    return collectPurchases(BENEFIT_HISTORY_SHEETS,
+                        parseSheets(streamingSource(reader), BENEFIT_HISTORY_SHEETS, PARALLELISM));
                 }
             }
             
-            if (workbook == null) {
-                throw new RuntimeException("Failed to initialize workbook");
+            if (fileMagic != FileMagic.OOXML && fileMagic != FileMagic.OLE2) {
+                throw new IllegalArgumentException("Unable to parse Excel file, unsupported format " + fileMagic);
             }
             
-            try {
-                List<Purchase> purchases = new ArrayList<>();
-                
-                // Parse ESPP
-                List<Purchase> esppPurchases = parseEspp(workbook);
-                purchases.addAll(esppPurchases);
-                
-                // Parse RSU
-                List<Purchase> rsuPurchases = parseRsu(workbook);
-                purchases.addAll(rsuPurchases);
+            try (InputStream fis = new FileInputStream(file);
+                 Workbook workbook = fileMagic == FileMagic.OOXML ? new XSSFWorkbook(fis) : new HSSFWorkbook(fis)) {
                 
-                Logger.log("Found %d ESPP purchases, %d RSU purchases", 
-                    esppPurchases.size(), rsuPurchases.size());
-                
-                return purchases;
-                
-            } finally {
-                workbook.close();
+                Logger.log("Successfully opened as %s format", fileMagic == FileMagic.OOXML ? "XLSX" : "XLS");
+                // Sheets of a loaded workbook share its strings, styles and lazily created cells, which are
+                // not safe to read from several threads, so its rows are parsed on this thread
+                return collectPurchases(BENEFIT_HISTORY_SHEETS,
+                    parseSheets(workbookSource(workbook), BENEFIT_HISTORY_SHEETS, 1));
             }
             
-        } catch (IOException e) {
-            throw new RuntimeException("Failed to parse Excel file", e);
+        } catch (IOException | POIXMLException | OpenXML4JRuntimeException | RecordFormatException
+                 | EncryptedDocumentException e) {
+            // Truncated or corrupt content past the file signature
+            throw new IllegalArgumentException("Failed to parse Excel file: " + e.getMessage(), e);
+        }
+    }
+    
+    /**
+     * Detect XLSX (OOXML) vs XLS (OLE2) from the leading magic bytes of the file
+     */
+    static FileMagic detectFormat(File file) throws IOException {
+        try (InputStream is = new BufferedInputStream(new FileInputStream(file))) {
+            return FileMagic.valueOf(is);
+        }
+    }
+    
+    /**
+     * BenefitRow view over a usermodel Row, re-pointed at each row of a sheet
+     */
+    private static class WorkbookRow implements BenefitRow {
+        private Row row;
+        
+        WorkbookRow wrap(Row row) {
+            this.row = row;
+            return this;
+        }
+        
+        @Override
+        public int getRowNum() {
+            return row.getRowNum();
+        }
+        
+        @Override
+        public int getColumnCount() {
+            return Math.max(row.getLastCellNum(), 0);
+        }
+        
+        @Override
+        public CellType getCellType(int column) {
+            Cell cell = column >= 0 ? row.getCell(column) : null;
+            return cell != null ? cell.getCellType() : CellType._NONE;
+        }
+        
+        @Override
+        public String getString(int column) {
+            return getCellStringValue(column >= 0 ? row.getCell(column) : null);
+        }
+        
+        @Override
+        public double getNumeric(int column) {
+            return row.getCell(column).getNumericCellValue();
+        }
+        
+        @Override
+        public boolean isDate(int column) {
+            Cell cell = column >= 0 ? row.getCell(column) : null;
+            return cell != null && cell.getCellType() == CellType.NUMERIC && DateUtil.isCellDateFormatted(cell);
+        }
+        
+        @Override
+        public BenefitRow snapshot() {
+            return new WorkbookRow().wrap(row);
         }
     }
     
@@ -404,4 +903,4 @@ public class EtradeBenefitHistoryParser {
                 return "";
         }
     }
-} 
\ No newline at end of file
+}
\ No newline at end of file
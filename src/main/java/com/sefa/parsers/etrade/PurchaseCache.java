@@ -0,0 +1,275 @@
+package com.sefa.parsers.etrade;
+
+import com.sefa.models.PurchaseTable;
+import com.sefa.utils.Logger;
+import com.sefa.utils.ShareDataUtils;
+import com.sefa.utils.TickerMapping;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Parsed purchases of BenefitHistory workbooks on disk, keyed by the SHA-256 of the workbook
+ * One binary file per workbook. Purchases whose FMV was backfilled from price data depend on it, and rows of
+ * unmapped tickers or without any price are dropped, so an entry also keeps the TickerMapping currency and a
+ * fingerprint of the price series of every ticker the workbook refers to, and is only used while those
+ * match. Files not used for the longest time are deleted once the directory grows beyond its size limit.
+ */
+public class PurchaseCache {
+
+    public static final long DEFAULT_MAX_BYTES = 256L * 1024 * 1024;
+    private static final String EXTENSION = ".purchases";
+
+    // "SEFP", bumped FORMAT_VERSION when the layout below changes
+    private static final int MAGIC = 0x53454650;
+    private static final int FORMAT_VERSION = 2;
+
+    private final Path directory;
+    private final long maxBytes;
+    private final Object evictionLock = new Object();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public PurchaseCache(Path directory, long maxBytes) {
+        if (maxBytes <= 0) {
+            throw new IllegalArgumentException("Maximum parse cache size must be positive, got " + maxBytes);
+        }
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * ~/.sefa/cache
+     */
+    public static Path defaultDirectory() {
+        return Paths.get(System.getProperty("user.home"), ".sefa", "cache");
+    }
+
+    private Path entryPath(String workbookHash) {
+        return directory.resolve(workbookHash + EXTENSION);
+    }
+
+    /**
+     * Purchases of the workbook with this hash, null when they are not cached (or no longer valid)
+     */
+    public PurchaseTable get(String workbookHash) {
+        Path path = entryPath(workbookHash);
+        if (!Files.exists(path)) {
+            misses.increment();
+            return null;
+        }
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+                Logger.debugLog("Ignoring parse cache entry %s of another format", path);
+                misses.increment();
+                return null;
+            }
+
+            int tickers = in.readInt();
+            for (int i = 0; i < tickers; i++) {
+                String ticker = in.readUTF();
+                if (!in.readUTF().equals(mappedCurrency(ticker))) {
+                    Logger.debugLog("Ignoring parse cache entry %s, mapping of %s changed", path, ticker);
+                    misses.increment();
+                    return null;
+                }
+                if (in.readLong() != ShareDataUtils.priceSeriesFingerprint(ticker)) {
+                    Logger.debugLog("Ignoring parse cache entry %s, price data of %s changed", path, ticker);
+                    misses.increment();
+                    return null;
+                }
+            }
+
+            int count = in.readInt();
+            PurchaseTable.Builder purchases = new PurchaseTable.Builder();
+            for (int i = 0; i < count; i++) {
+                readPurchase(in, purchases);
+            }
+
+            // Entries are evicted by last use
+            Files.setLastModifiedTime(path, FileTime.fromMillis(System.currentTimeMillis()));
+            hits.increment();
+            return purchases.build();
+
+        } catch (IOException e) {
+            Logger.debugLog("Ignoring unreadable parse cache entry %s: %s", path, e.getMessage());
+            misses.increment();
+            return null;
+        }
+    }
+
+    /**
+     * Store the purchases of a workbook, a failure to write only costs the next run a parse
+     */
+    public void put(String workbookHash, PurchaseTable purchases) {
+        put(workbookHash, purchases, Collections.emptySet());
+    }
+
+    /**
+     * Same as put, also checking the mapping and prices of tickers the workbook refers to without any purchase
+     * (e.g. every vest of it dropped for a missing FMV) when the entry is read
+     */
+    public void put(String workbookHash, PurchaseTable purchases, Set<String> tickers) {
+        Path path = entryPath(workbookHash);
+        Path tempPath = directory.resolve("." + workbookHash + "." + Thread.currentThread().getId() + ".tmp");
+        try {
+            Files.createDirectories(directory);
+            Map<String, Long> fingerprints = new TreeMap<>();
+            for (String ticker : tickers) {
+                fingerprints.computeIfAbsent(ticker, ShareDataUtils::priceSeriesFingerprint);
+            }
+            for (int i = 0; i < purchases.size(); i++) {
+                fingerprints.computeIfAbsent(purchases.tickerAt(i), ShareDataUtils::priceSeriesFingerprint);
+            }
+
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempPath)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(FORMAT_VERSION);
+                out.writeInt(fingerprints.size());
+                for (Map.Entry<String, Long> entry : fingerprints.entrySet()) {
+                    out.writeUTF(entry.getKey());
+                    out.writeUTF(mappedCurrency(entry.getKey()));
+                    out.writeLong(entry.getValue());
+                }
+                // In input order, a hit reads the rows back in the order they were parsed
+                out.writeInt(purchases.size());
+                for (int index : purchases.inputOrder()) {
+                    writePurchase(out, purchases, index);
+                }
+            }
+            try {
+                Files.move(tempPath, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tempPath, path, StandardCopyOption.REPLACE_EXISTING);
+            }
+            Logger.debugLog("Cached %d parsed purchases at %s", purchases.size(), path);
+            evictIfNeeded(path);
+
+        } catch (IOException e) {
+            Logger.warn(String.format("Failed to write parse cache entry %s: %s", path, e.getMessage()));
+            try {
+                Files.deleteIfExists(tempPath);
+            } catch (IOException ignored) {
+                // Left for the next eviction
+            }
+        }
+    }
+
+    /**
+     * Currency TickerMapping has for a ticker, empty when it is not mapped
+     */
+    private static String mappedCurrency(String ticker) {
+        try {
+            return TickerMapping.getTickerCurrencyInfo(ticker);
+        } catch (IllegalArgumentException e) {
+            return "";
+        }
+    }
+
+    /**
+     * Delete the least recently used entries until the directory fits, the entry just written stays
+     */
+    private void evictIfNeeded(Path keep) throws IOException {
+        synchronized (evictionLock) {
+            List<Path> entries;
+            try (Stream<Path> files = Files.list(directory)) {
+                entries = files.filter(file -> file.getFileName().toString().endsWith(EXTENSION))
+                    .collect(Collectors.toList());
+            }
+
+            long totalBytes = 0;
+            Map<Path, long[]> attributes = new TreeMap<>();
+            for (Path entry : entries) {
+                try {
+                    long[] sizeAndTime = {Files.size(entry), Files.getLastModifiedTime(entry).toMillis()};
+                    attributes.put(entry, sizeAndTime);
+                    totalBytes += sizeAndTime[0];
+                } catch (IOException e) {
+                    // Deleted by another run meanwhile
+                }
+            }
+            if (totalBytes <= maxBytes) {
+                return;
+            }
+
+            List<Path> oldestFirst = new ArrayList<>(attributes.keySet());
+            oldestFirst.sort(Comparator.comparingLong(entry -> attributes.get(entry)[1]));
+            for (Path entry : oldestFirst) {
+                if (totalBytes <= maxBytes) {
+                    break;
+                }
+                if (!entry.equals(keep) && Files.deleteIfExists(entry)) {
+                    totalBytes -= attributes.get(entry)[0];
+                    Logger.debugLog("Evicted parse cache entry %s", entry);
+                }
+            }
+        }
+    }
+
+    private static void writePurchase(DataOutputStream out, PurchaseTable purchases, int index) throws IOException {
+        out.writeLong(purchases.timeAt(index));
+        writeNullableUTF(out, purchases.dispTimeAt(index));
+        writeNullableUTF(out, purchases.origDispTimeAt(index));
+        out.writeDouble(purchases.fmvAt(index));
+        writeNullableUTF(out, purchases.currencyAt(index));
+        out.writeDouble(purchases.quantityAt(index));
+        writeNullableUTF(out, purchases.tickerAt(index));
+    }
+
+    private static void readPurchase(DataInputStream in, PurchaseTable.Builder purchases) throws IOException {
+        long timeInMs = in.readLong();
+        String dispTime = readNullableUTF(in);
+        String origDispTime = readNullableUTF(in);
+        double fmv = in.readDouble();
+        String currencyCode = readNullableUTF(in);
+        double quantity = in.readDouble();
+        purchases.add(timeInMs, dispTime, origDispTime, fmv, currencyCode, quantity, readNullableUTF(in));
+    }
+
+    private static void writeNullableUTF(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readNullableUTF(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+}
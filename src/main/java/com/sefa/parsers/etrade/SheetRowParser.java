@@ -0,0 +1,88 @@
+package com.sefa.parsers.etrade;
+
+import com.sefa.models.PurchaseTable;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Row-at-a-time sheet parser: the first row is the header, every later row is data
+ * Shared by the workbook (DOM), streaming and chunked parallel parse paths
+ */
+abstract class SheetRowParser implements Consumer<BenefitRow> {
+
+    protected Map<String, Integer> columnMap = new HashMap<>();
+    private boolean headerRead = false;
+    // Canonical tickers of the rows that could have become purchases, whether they did or not
+    protected final Set<String> tickers = new HashSet<>();
+
+    @Override
+    public void accept(BenefitRow row) {
+        if (!headerRead) {
+            // Read header row to build column mapping
+            columnMap = buildColumnMap(row);
+            headerRead = true;
+        } else {
+            parseRow(row);
+        }
+    }
+
+    boolean isHeaderRead() {
+        return headerRead;
+    }
+
+    /**
+     * Parser for a chunk of data rows of the same sheet, sharing this parser's header
+     */
+    SheetRowParser forChunk() {
+        SheetRowParser chunkParser = newInstance();
+        chunkParser.columnMap = columnMap;
+        chunkParser.headerRead = true;
+        return chunkParser;
+    }
+
+    protected abstract void parseRow(BenefitRow row);
+
+    protected abstract SheetRowParser newInstance();
+
+    /**
+     * Fold the rows parsed by a chunk parser into this one, chunks are merged in sheet order
+     */
+    abstract void merge(SheetRowParser chunkParser);
+
+    /**
+     * Purchases of the sheet in row order
+     */
+    abstract PurchaseTable.Builder getPurchases();
+
+    /**
+     * Tickers the sheet refers to, including those of rows dropped for an unknown ticker or a missing FMV
+     */
+    Set<String> getTickers() {
+        return tickers;
+    }
+
+    /**
+     * Build column mapping from header row
+     */
+    static Map<String, Integer> buildColumnMap(BenefitRow headerRow) {
+        Map<String, Integer> columnMap = new HashMap<>();
+
+        if (headerRow != null) {
+            for (int column = 0; column < headerRow.getColumnCount(); column++) {
+                if (!headerRow.hasCell(column)) {
+                    continue;
+                }
+                String headerValue = headerRow.getString(column);
+                if (!headerValue.isEmpty()) {
+                    columnMap.put(headerValue, column);
+                }
+            }
+        }
+
+        return columnMap;
+    }
+}
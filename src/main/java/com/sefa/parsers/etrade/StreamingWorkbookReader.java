@@ -0,0 +1,376 @@
+package com.sefa.parsers.etrade;
+
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.openxml4j.opc.PackagePart;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFCellStyle;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.DefaultHandler;
+
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Streaming XLSX reader built on POI's event API (XSSFReader + SAX)
+ * Sheet XML is never loaded as a DOM, rows are handed to the consumer one at a time
+ * and memory stays bounded by the widest row plus the shared strings table.
+ * Sheet parts are resolved up front, so different sheets can be read from separate threads.
+ */
+final class StreamingWorkbookReader implements AutoCloseable {
+
+    private final OPCPackage pkg;
+    private final ReadOnlySharedStringsTable sharedStrings;
+    private final StylesTable styles;
+    private final Map<String, PackagePart> sheetParts = new LinkedHashMap<>();
+
+    StreamingWorkbookReader(File file) throws IOException {
+        try {
+            this.pkg = OPCPackage.open(file, PackageAccess.READ);
+            XSSFReader reader = new XSSFReader(pkg);
+            // SAX parsed string table, no phonetic runs and no XMLBeans objects
+            this.sharedStrings = new ReadOnlySharedStringsTable(pkg, false);
+            this.styles = reader.getStylesTable();
+
+            XSSFReader.SheetIterator sheets = (XSSFReader.SheetIterator) reader.getSheetsData();
+            while (sheets.hasNext()) {
+                // Only the part is kept, the stream next opens is closed right away
+                InputStream sheet = sheets.next();
+                sheet.close();
+                sheetParts.put(sheets.getSheetName(), sheets.getSheetPart());
+            }
+        } catch (OpenXML4JException | SAXException e) {
+            throw new IOException("Unable to open XLSX file " + file + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Names of all sheets in workbook order
+     */
+    List<String> getSheetNames() {
+        return new ArrayList<>(sheetParts.keySet());
+    }
+
+    /**
+     * Resolve the first candidate name present in the workbook, ignoring case like Workbook.getSheet
+     */
+    String findSheet(String... candidateNames) {
+        for (String candidate : candidateNames) {
+            for (String sheetName : sheetParts.keySet()) {
+                if (sheetName.equalsIgnoreCase(candidate)) {
+                    return sheetName;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Stream every row of a sheet to the consumer
+     * The row instance is reused, consumers must copy anything they keep
+     */
+    void readSheet(String sheetName, Consumer<BenefitRow> rowConsumer) throws IOException {
+        PackagePart sheetPart = sheetParts.get(sheetName);
+        if (sheetPart == null) {
+            throw new IllegalArgumentException("Sheet " + sheetName + " not found");
+        }
+
+        try (InputStream sheetStream = sheetPart.getInputStream()) {
+            XMLReader xmlReader = XMLHelper.newXMLReader();
+            xmlReader.setContentHandler(new SheetHandler(rowConsumer));
+            xmlReader.parse(new InputSource(sheetStream));
+        } catch (SAXException | ParserConfigurationException e) {
+            throw new IOException("Failed to stream sheet " + sheetName + ": " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void close() {
+        // Opened read-only, revert instead of close so nothing is written back
+        pkg.revert();
+    }
+
+    /**
+     * Mutable row reused for every row of a sheet
+     * Numeric cells are kept as doubles, their text is only formatted when asked for
+     */
+    static final class StreamedRow implements BenefitRow {
+        private int rowNum;
+        private int columnCount;
+        private CellType[] types = new CellType[32];
+        private double[] numbers = new double[32];
+        private boolean[] dates = new boolean[32];
+        private String[] texts = new String[32];
+
+        void reset(int rowNum) {
+            Arrays.fill(types, 0, columnCount, null);
+            Arrays.fill(texts, 0, columnCount, null);
+            this.rowNum = rowNum;
+            this.columnCount = 0;
+        }
+
+        void set(int column, CellType type, String text) {
+            ensureCapacity(column);
+            types[column] = type;
+            numbers[column] = 0.0;
+            dates[column] = false;
+            texts[column] = text;
+            columnCount = Math.max(columnCount, column + 1);
+        }
+
+        void setNumber(int column, double number, boolean date) {
+            ensureCapacity(column);
+            types[column] = CellType.NUMERIC;
+            numbers[column] = number;
+            dates[column] = date;
+            texts[column] = null;
+            columnCount = Math.max(columnCount, column + 1);
+        }
+
+        private void ensureCapacity(int column) {
+            if (column >= types.length) {
+                int capacity = Math.max(column + 1, types.length * 2);
+                types = Arrays.copyOf(types, capacity);
+                numbers = Arrays.copyOf(numbers, capacity);
+                dates = Arrays.copyOf(dates, capacity);
+                texts = Arrays.copyOf(texts, capacity);
+            }
+        }
+
+        @Override
+        public int getRowNum() {
+            return rowNum;
+        }
+
+        @Override
+        public int getColumnCount() {
+            return columnCount;
+        }
+
+        @Override
+        public CellType getCellType(int column) {
+            if (column < 0 || column >= columnCount || types[column] == null) {
+                return CellType._NONE;
+            }
+            return types[column];
+        }
+
+        @Override
+        public String getString(int column) {
+            CellType type = getCellType(column);
+            if (type == CellType._NONE) {
+                return "";
+            }
+            if (type == CellType.NUMERIC) {
+                return dates[column]
+                    ? DateUtil.getJavaDate(numbers[column], false).toString()
+                    : String.valueOf((long) numbers[column]);
+            }
+            return texts[column];
+        }
+
+        @Override
+        public double getNumeric(int column) {
+            return getCellType(column) == CellType.NUMERIC ? numbers[column] : 0.0;
+        }
+
+        @Override
+        public boolean isDate(int column) {
+            return getCellType(column) == CellType.NUMERIC && dates[column];
+        }
+
+        @Override
+        public BenefitRow snapshot() {
+            StreamedRow copy = new StreamedRow();
+            copy.rowNum = rowNum;
+            copy.columnCount = columnCount;
+            copy.types = Arrays.copyOf(types, columnCount);
+            copy.numbers = Arrays.copyOf(numbers, columnCount);
+            copy.dates = Arrays.copyOf(dates, columnCount);
+            copy.texts = Arrays.copyOf(texts, columnCount);
+            return copy;
+        }
+    }
+
+    /**
+     * SAX handler for the worksheet part, decoding cells the same way as the usermodel parser
+     */
+    private final class SheetHandler extends DefaultHandler {
+        private final Consumer<BenefitRow> rowConsumer;
+        private final StreamedRow row = new StreamedRow();
+        private final Map<Integer, Boolean> dateStyles = new HashMap<>();
+        private final StringBuilder value = new StringBuilder();
+        private final StringBuilder formula = new StringBuilder();
+        private final StringBuilder inlineText = new StringBuilder();
+
+        private int nextRowNum;
+        private int column;
+        private int nextColumn;
+        private String cellType;
+        private int styleIndex;
+        private boolean inValue;
+        private boolean inFormula;
+        private boolean inInlineText;
+        private boolean hasFormula;
+
+        SheetHandler(Consumer<BenefitRow> rowConsumer) {
+            this.rowConsumer = rowConsumer;
+        }
+
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes attributes) {
+            String name = localName.isEmpty() ? qName : localName;
+            switch (name) {
+                case "row":
+                    String rowRef = attributes.getValue("r");
+                    int rowNum = rowRef != null ? Integer.parseInt(rowRef) - 1 : nextRowNum;
+                    row.reset(rowNum);
+                    nextRowNum = rowNum + 1;
+                    nextColumn = 0;
+                    break;
+                case "c":
+                    String cellRef = attributes.getValue("r");
+                    column = cellRef != null ? columnIndex(cellRef) : nextColumn;
+                    nextColumn = column + 1;
+                    cellType = attributes.getValue("t");
+                    String style = attributes.getValue("s");
+                    styleIndex = style != null ? Integer.parseInt(style) : 0;
+                    hasFormula = false;
+                    value.setLength(0);
+                    formula.setLength(0);
+                    inlineText.setLength(0);
+                    break;
+                case "v":
+                    inValue = true;
+                    break;
+                case "f":
+                    inFormula = true;
+                    hasFormula = true;
+                    break;
+                case "t":
+                    inInlineText = "inlineStr".equals(cellType);
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        @Override
+        public void characters(char[] ch, int start, int length) {
+            if (inValue) {
+                value.append(ch, start, length);
+            } else if (inFormula) {
+                formula.append(ch, start, length);
+            } else if (inInlineText) {
+                inlineText.append(ch, start, length);
+            }
+        }
+
+        @Override
+        public void endElement(String uri, String localName, String qName) {
+            String name = localName.isEmpty() ? qName : localName;
+            switch (name) {
+                case "v":
+                    inValue = false;
+                    break;
+                case "f":
+                    inFormula = false;
+                    break;
+                case "t":
+                    inInlineText = false;
+                    break;
+                case "c":
+                    decodeCell();
+                    break;
+                case "row":
+                    rowConsumer.accept(row);
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        private void decodeCell() {
+            if (hasFormula) {
+                row.set(column, CellType.FORMULA, formula.toString());
+                return;
+            }
+
+            if (cellType == null || "n".equals(cellType)) {
+                if (value.length() == 0) {
+                    // Blank cell
+                    row.set(column, CellType.BLANK, "");
+                    return;
+                }
+                // Decoded straight from the character buffer, no String per cell
+                double number = CellDecoder.parseNumber(value);
+                row.setNumber(column, number, isDateFormatted(number));
+                return;
+            }
+
+            switch (cellType) {
+                case "s":
+                    int index = CellDecoder.parseIndex(value);
+                    row.set(column, CellType.STRING, sharedStrings.getItemAt(index).getString().trim());
+                    break;
+                case "inlineStr":
+                    row.set(column, CellType.STRING, inlineText.toString().trim());
+                    break;
+                case "str":
+                    row.set(column, CellType.STRING, value.toString().trim());
+                    break;
+                case "b":
+                    row.set(column, CellType.BOOLEAN, value.length() == 1 && value.charAt(0) == '1' ? "true" : "false");
+                    break;
+                default:
+                    // Errors and unknown types read as empty text
+                    row.set(column, CellType.ERROR, "");
+                    break;
+            }
+        }
+
+        private boolean isDateFormatted(double number) {
+            if (!DateUtil.isValidExcelDate(number) || styles == null || styleIndex >= styles.getNumCellStyles()) {
+                return false;
+            }
+            return dateStyles.computeIfAbsent(styleIndex, index -> {
+                XSSFCellStyle cellStyle = styles.getStyleAt(index);
+                return cellStyle != null
+                    && DateUtil.isADateFormat(cellStyle.getDataFormat(), cellStyle.getDataFormatString());
+            });
+        }
+    }
+
+    /**
+     * Column index from an A1 style cell reference
+     */
+    private static int columnIndex(String cellRef) {
+        int column = 0;
+        for (int i = 0; i < cellRef.length(); i++) {
+            char c = cellRef.charAt(i);
+            if (c < 'A' || c > 'Z') {
+                break;
+            }
+            column = column * 26 + (c - 'A' + 1);
+        }
+        return column - 1;
+    }
+}
@@ -3,8 +3,16 @@ package com.sefa.parsers.itr;
 import com.sefa.models.*;
 import com.sefa.utils.*;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.file.Paths;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.LongFunction;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 /**
@@ -13,12 +21,71 @@ import java.util.stream.Collectors;
  */
 public class FAA3Parser {
     
+    // Assessment Year 2024-25 (1-Apr-2024 to 31-Mar-2025), reported when no assessment year is given
+    private static final long[] DEFAULT_PERIOD = {
+        DateUtils.parseYyyyMmDd("2024-04-01").getTimeInMillis(),
+        DateUtils.parseYyyyMmDd("2025-03-31").getTimeInMillis()
+    };
+    
+    private static final DateTimeFormatter PERIOD_END_FORMATTER =
+        DateTimeFormatter.ofPattern("dd-MMM-yyyy", Locale.ENGLISH).withZone(ZoneOffset.UTC);
+    
+    /**
+     * Header of all_fa_entries.csv
+     */
+    public static final String[] ALL_ENTRIES_HEADERS = {
+        "Country/Region name",
+        "Country Name and Code", 
+        "Name of entity",
+        "Address of entity",
+        "ZIP Code",
+        "Nature of entity",
+        "Date of acquiring the interest",
+        "Initial value of the investment",
+        "Peak value of investment during the Period",
+        "Closing balance",
+        "Total gross amount paid/credited with respect to the holding during the period",
+        "Total gross proceeds from sale or redemption of investment during the period"
+    };
+    
+    private static int PARALLELISM = 1;
+    
+    /**
+     * Number of worker threads computing FA entries, 1 computes them one after the other
+     */
+    public static void setParallelism(int parallelism) {
+        PARALLELISM = Math.max(parallelism, 1);
+    }
+    
     /**
      * Parse organization purchases for a specific ticker
      */
     public static List<FAA3> parseOrgPurchases(String ticker, String calendarMode, 
                                               List<Purchase> purchases, int assessmentYear, 
                                               String outputFolderAbsPath) throws IOException {
+        return parseOrgPurchases(ticker, calendarMode, purchases, assessmentYear, outputFolderAbsPath,
+            new PriceQueryCache());
+    }
+    
+    /**
+     * Parse organization purchases for a specific ticker, sharing price queries through the given cache
+     */
+    public static List<FAA3> parseOrgPurchases(String ticker, String calendarMode, 
+                                              List<Purchase> purchases, int assessmentYear, 
+                                              String outputFolderAbsPath,
+                                              PriceQueryCache priceQueryCache) throws IOException {
+        return parseOrgPurchases(ticker, calendarMode, PurchaseTable.of(purchases), assessmentYear,
+            outputFolderAbsPath, priceQueryCache);
+    }
+    
+    /**
+     * Parse organization purchases for a specific ticker held in a purchase table
+     * The period is a range of the date sorted table, entries are written in input order.
+     */
+    public static List<FAA3> parseOrgPurchases(String ticker, String calendarMode, 
+                                              PurchaseTable purchases, int assessmentYear, 
+                                              String outputFolderAbsPath,
+                                              PriceQueryCache priceQueryCache) throws IOException {
         
         long[] calendarRange = DateUtils.calendarRange(calendarMode, assessmentYear);
         long startTimeInMs = calendarRange[0];
@@ -27,27 +94,17 @@ public class FAA3Parser {
         Organization org = TickerMapping.getTickerOrgInfo(ticker);
         String currencyCode = TickerMapping.getTickerCurrencyInfo(ticker);
         
-        // Filter purchases into before and after periods
-        List<Purchase> beforePurchases = purchases.stream()
-            .filter(purchase -> purchase.getDate().getTimeInMillis() < startTimeInMs)
-            .collect(Collectors.toList());
-        
-        List<Purchase> afterPurchases = purchases.stream()
-            .filter(purchase -> purchase.getDate().getTimeInMillis() >= startTimeInMs && 
-                              purchase.getDate().getTimeInMillis() <= endTimeInMs)
-            .collect(Collectors.toList());
+        // Split purchases into before and after periods
+        PurchaseTable beforePurchases = purchases.before(startTimeInMs);
+        PurchaseTable afterPurchases = purchases.between(startTimeInMs, endTimeInMs);
         
-        // Calculate totals
-        double previousSum = beforePurchases.stream()
-            .mapToDouble(Purchase::getQuantity)
-            .sum();
+        // Calculate totals, in input order like the entries below
+        double previousSum = totalQuantity(beforePurchases);
         
         Logger.log("%s: Previous period(before %s) total share = %.2f",
             ticker, DateUtils.displayTime(startTimeInMs), previousSum);
         
-        double afterSum = afterPurchases.stream()
-            .mapToDouble(Purchase::getQuantity)
-            .sum();
+        double afterSum = totalQuantity(afterPurchases);
         
         Logger.log("%s: This period(from %s to %s) total share = %.2f",
             ticker, DateUtils.displayTime(startTimeInMs), DateUtils.displayTime(endTimeInMs), afterSum);
@@ -58,8 +115,8 @@ public class FAA3Parser {
         String beforePurchasesLastDate = String.format("31-Dec-%d", assessmentYear - 2);
         DateObj beforePurchaseDate = DateUtils.parseNamedMon(beforePurchasesLastDate);
         
-        double closingSharePrice = ShareDataUtils.getClosingPrice(ticker, endTimeInMs);
-        double closingInrRate = ShareDataUtils.getUsdInrRate(endTimeInMs);
+        double closingSharePrice = priceQueryCache.getClosingPrice(ticker, endTimeInMs);
+        double closingInrRate = priceQueryCache.getInrConversionRate(endTimeInMs);
         double closingInrPrice = closingSharePrice * closingInrRate;
         
         Logger.log("%s: Closing price(INR) = %.2f, closing_share_price(%s) = %.2f closing_rate(INR) = %.2f",
@@ -72,7 +129,7 @@ public class FAA3Parser {
         // Add entry for previous purchases if any
         if (previousSum != 0) {
             double previousPurchasePrice = previousSum * fmvPriceOnStart * closingInrRate;
-            double previousPeakPrice = previousSum * ShareDataUtils.getPeakPriceInInr(ticker, startTimeInMs, endTimeInMs);
+            double previousPeakPrice = previousSum * priceQueryCache.getPeakPriceInInr(ticker, startTimeInMs, endTimeInMs);
             double previousClosingPrice = previousSum * closingInrPrice;
             
             Purchase aggregatedPurchase = new Purchase(
@@ -93,15 +150,17 @@ public class FAA3Parser {
         }
         
         // Process individual purchases from the current period
-        for (Purchase purchase : afterPurchases) {
-            double purchasePrice = purchase.getQuantity() * purchase.getPurchaseFmv().getPrice() * closingInrRate;
-            double peakPrice = purchase.getQuantity() * ShareDataUtils.getPeakPriceInInr(
-                ticker, purchase.getDate().getTimeInMillis(), endTimeInMs);
-            double closingPrice = purchase.getQuantity() * closingInrPrice;
+        for (int i : afterPurchases.inputOrder()) {
+            double quantity = afterPurchases.quantityAt(i);
+            double purchasePrice = quantity * afterPurchases.fmvAt(i) * closingInrRate;
+            double peakPrice = quantity * priceQueryCache.getPeakPriceInInr(
+                ticker, afterPurchases.timeAt(i), endTimeInMs);
+            double closingPrice = quantity * closingInrPrice;
             
+            // The entry is written as JSON, so it gets a Purchase
             faEntries.add(new FAA3(
                 org,
-                purchase,
+                afterPurchases.get(i),
                 purchasePrice,
                 peakPrice,
                 closingPrice,
@@ -112,10 +171,7 @@ public class FAA3Parser {
         // Write output files
         String tickerOutputPath = Paths.get(outputFolderAbsPath, ticker).toString();
         
-        // Write JSON file
-        FileUtils.writeToFile(tickerOutputPath, "raw_fa_entries.json", faEntries, true);
-        
-        // Write CSV file with updated format
+        // CSV file with updated format
         String[] headers = {
             "Country",
             "Name of Entity", 
@@ -130,189 +186,719 @@ public class FAA3Parser {
             "Sales Proceeds or Redemption during the year"
         };
         
-        List<String[]> csvData = faEntries.stream()
-            .map(entry -> new String[]{
-                entry.getOrg().getCountryName(),
-                entry.getOrg().getName(),
-                entry.getOrg().getAddress(),
-                entry.getOrg().getZipCode(),
-                entry.getOrg().getNature(),
-                entry.getPurchase().getDate().getDispTime(),
-                String.valueOf(Math.round(entry.getPurchasePrice())),
-                String.valueOf(Math.round(entry.getPeakPrice())),
-                String.valueOf(Math.round(entry.getClosingPrice())),
-                String.valueOf(Math.round(entry.getPeakPrice())), // Total Gross Amount = Peak Investment
-                String.valueOf(Math.round(entry.getSalesProceeds())) // Sales Proceeds from model
-            })
-            .collect(Collectors.toList());
-        
-        FileUtils.writeCsvToFile(tickerOutputPath, "fa_entries.csv", headers, csvData, true, true);
+        // JSON and CSV files written entry by entry
+        try (FileUtils.JsonArraySink jsonSink = FileUtils.openJsonArray(tickerOutputPath, "raw_fa_entries.json", true);
+             FileUtils.CsvSink csvSink = FileUtils.openCsv(tickerOutputPath, "fa_entries.csv", headers, true)) {
+            for (FAA3 entry : faEntries) {
+                jsonSink.write(entry);
+                csvSink.writeRow(new String[]{
+                    entry.getOrg().getCountryName(),
+                    entry.getOrg().getName(),
+                    entry.getOrg().getAddress(),
+                    entry.getOrg().getZipCode(),
+                    entry.getOrg().getNature(),
+                    entry.getPurchase().getDate().getDispTime(),
+                    String.valueOf(Math.round(entry.getPurchasePrice())),
+                    String.valueOf(Math.round(entry.getPeakPrice())),
+                    String.valueOf(Math.round(entry.getClosingPrice())),
+                    String.valueOf(Math.round(entry.getPeakPrice())), // Total Gross Amount = Peak Investment
+                    String.valueOf(Math.round(entry.getSalesProceeds())) // Sales Proceeds from model
+                });
+            }
+            jsonSink.commit(false);
+            csvSink.commit(true);
+        }
         
         return faEntries;
     }
     
+    private static double totalQuantity(PurchaseTable purchases) {
+        double total = 0;
+        for (int i : purchases.inputOrder()) {
+            total += purchases.quantityAt(i);
+        }
+        return total;
+    }
+    
     /**
      * Process all purchases and generate FA entries for each ticker
      */
     public static void processFAA3(List<Purchase> purchases, String outputFolder, int assessmentYear, String calendarMode) {
         Logger.log("Processing FAA3 entries...");
         
-        // Group purchases by ticker
-        Map<String, List<Purchase>> tickerPurchases = purchases.stream()
-            .collect(Collectors.groupingBy(Purchase::getTicker));
+        // Group purchases by ticker, each group is a view of one table
+        Map<String, PurchaseTable> tickerPurchases = PurchaseTable.of(purchases).byTicker();
+        
+        PriceQueryCache priceQueryCache = new PriceQueryCache();
         
-        for (Map.Entry<String, List<Purchase>> entry : tickerPurchases.entrySet()) {
+        for (Map.Entry<String, PurchaseTable> entry : tickerPurchases.entrySet()) {
             String ticker = entry.getKey();
-            List<Purchase> tickerPurchaseList = entry.getValue();
+            PurchaseTable tickerPurchaseList = entry.getValue();
             
             try {
                 // Parse org purchases for this ticker using the existing method
-                parseOrgPurchases(ticker, calendarMode, tickerPurchaseList, assessmentYear, outputFolder);
+                parseOrgPurchases(ticker, calendarMode, tickerPurchaseList, assessmentYear, outputFolder,
+                    priceQueryCache);
             } catch (IOException e) {
                 Logger.error("Failed to process ticker " + ticker + ": " + e.getMessage());
             }
         }
         
+        priceQueryCache.logStats();
         Logger.log("Processing completed successfully!");
     }
     
     /**
-     * Main parse method that processes all data regardless of assessment year
+     * Main parse method, writes all_fa_entries.csv for one assessment year
+     * Without an assessment year (-1) all purchases are reported for Assessment Year 2024-25
      */
     public static void parse(String calendarMode, List<Purchase> purchases, 
                            int assessmentYear, String outputFolderAbsPath) throws IOException {
+        parse(calendarMode, PurchaseTable.of(purchases), assessmentYear, outputFolderAbsPath);
+    }
+    
+    /**
+     * Same as parse, for purchases already in a table (e.g. as the parser returns them)
+     */
+    public static void parse(String calendarMode, PurchaseTable purchases, 
+                           int assessmentYear, String outputFolderAbsPath) throws IOException {
         
-        // Create output directory
-        FileUtils.createDirectory(outputFolderAbsPath);
+        // Identical price queries repeat across purchases, share their results for the whole run
+        PriceQueryCache priceQueryCache = new PriceQueryCache();
         
-        // Group purchases by ticker
-        Map<String, List<Purchase>> groupedPurchases = purchases.stream()
-            .collect(Collectors.groupingBy(Purchase::getTicker));
+        parse(calendarMode, purchases, assessmentYear, outputFolderAbsPath, priceQueryCache);
+        priceQueryCache.logStats();
+    }
+    
+    /**
+     * Same as parse, sharing price queries with other runs through the given cache
+     */
+    public static void parse(String calendarMode, List<Purchase> purchases, int assessmentYear,
+                             String outputFolderAbsPath, PriceQueryCache priceQueryCache) throws IOException {
+        parse(calendarMode, PurchaseTable.of(purchases), assessmentYear, outputFolderAbsPath, priceQueryCache);
+    }
+    
+    /**
+     * Same as parse, for a table and sharing price queries with other runs through the given cache
+     */
+    public static void parse(String calendarMode, PurchaseTable table, int assessmentYear,
+                             String outputFolderAbsPath, PriceQueryCache priceQueryCache) throws IOException {
+        if (assessmentYear == -1) {
+            writeAllEntries(table, DEFAULT_PERIOD, priceQueryCache, outputFolderAbsPath);
+        } else {
+            long[] period = DateUtils.calendarRange(calendarMode, assessmentYear);
+            writeAllEntries(table.until(period[1]), period, priceQueryCache, outputFolderAbsPath);
+        }
+    }
+    
+    /**
+     * Loads the purchases of an input file
+     */
+    public interface PurchaseLoader {
+        PurchaseTable load() throws IOException;
+    }
+    
+    /**
+     * Same output as parse, reusing the entries of the last run whose purchase and price windows did not change
+     * The entries are kept with the fingerprints of their price windows in a ScheduleState next to the output.
+     * The input file is only parsed when its hash or the price series of a held ticker changed, otherwise the
+     * purchases come from the state.
+     * Returns the number of recomputed entries
+     */
+    public static int parseIncremental(String calendarMode, String inputFileAbsPath, PurchaseLoader purchaseLoader,
+                                        int assessmentYear, String outputFolderAbsPath) throws IOException {
+        String fxRates = ShareDataUtils.getConversionRates().name().toLowerCase();
+        String inputHash = FileUtils.sha256(inputFileAbsPath);
+        long[] period = assessmentYear == -1 ? DEFAULT_PERIOD : DateUtils.calendarRange(calendarMode, assessmentYear);
+        
+        ScheduleState previous = ScheduleState.load(outputFolderAbsPath);
+        if (previous != null && !previous.isFor(calendarMode, assessmentYear, fxRates)) {
+            Logger.log("Incremental state was written for another schedule, computing all entries");
+            previous = null;
+        }
         
-        // Collect all FAA3 entries from all tickers - process ALL data
-        List<FAA3> allFaEntries = new ArrayList<>();
+        // RSU FMVs may be backfilled from any date of a ticker's prices, not only from the windows of the entries
+        String changedTicker = previous != null ? changedPriceSeries(previous.getTickerPrices()) : null;
+        if (changedTicker != null && inputHash.equals(previous.getInputHash())) {
+            Logger.log("Price data of %s changed since the last run, parsing the input file again", changedTicker);
+        }
         
-        // Process each ticker and collect entries for ALL purchases
-        for (Map.Entry<String, List<Purchase>> entry : groupedPurchases.entrySet()) {
-            String ticker = entry.getKey();
-            List<Purchase> tickerPurchases = entry.getValue();
-            
-            List<FAA3> tickerEntries = processAllPurchasesForTicker(ticker, tickerPurchases);
-            allFaEntries.addAll(tickerEntries);
+        PurchaseTable held;
+        if (previous != null && inputHash.equals(previous.getInputHash()) && changedTicker == null) {
+            // Same input, so the same held purchases as the stored entries
+            held = PurchaseTable.of(previous.getEntries().stream()
+                .map(stored -> stored.getEntry().getPurchase())
+                .collect(Collectors.toList()));
+            Logger.log("Input file unchanged, reusing %d purchases from the incremental state", held.size());
+        } else {
+            PurchaseTable table = purchaseLoader.load();
+            if (table.isEmpty()) {
+                Logger.warn("No purchases found in the input file");
+                return 0;
+            }
+            held = assessmentYear == -1 ? table : table.until(period[1]);
         }
         
-        // Sort all entries by acquisition date
-        allFaEntries.sort(Comparator.comparing(entry -> entry.getPurchase().getDate().getTimeInMillis()));
+        Map<Purchase, ScheduleState.StoredEntry> storedEntries = new HashMap<>();
+        if (previous != null) {
+            for (ScheduleState.StoredEntry stored : previous.getEntries()) {
+                storedEntries.putIfAbsent(stored.getEntry().getPurchase(), stored);
+            }
+        }
         
-        String[] headers = {
-            "Country/Region name",
-            "Country Name and Code", 
-            "Name of entity",
-            "Address of entity",
-            "ZIP Code",
-            "Nature of entity",
-            "Date of acquiring the interest",
-            "Initial value of the investment",
-            "Peak value of investment during the Period",
-            "Closing balance",
-            "Total gross amount paid/credited with respect to the holding during the period",
-            "Total gross proceeds from sale or redemption of investment during the period"
-        };
+        // Reuse the stored entry of a purchase while the prices it was computed from are the same
+        Map<String, Long> fingerprints = new HashMap<>();
+        String[] priceVersions = new String[held.size()];
+        FAA3[] entries = new FAA3[held.size()];
+        int[] staleIndexes = new int[held.size()];
+        int staleCount = 0;
+        for (int i = 0; i < held.size(); i++) {
+            priceVersions[i] = priceVersion(held.tickerAt(i), held.timeAt(i), period, fingerprints);
+            
+            Purchase purchase = held.get(i);
+            ScheduleState.StoredEntry stored = storedEntries.get(purchase);
+            if (stored != null && priceVersions[i].equals(stored.getPriceVersion())) {
+                FAA3 entry = stored.getEntry();
+                entries[i] = new FAA3(entry.getOrg(), purchase, entry.getPurchasePrice(),
+                    entry.getPeakPrice(), entry.getClosingPrice(), entry.getSalesProceeds());
+            } else {
+                staleIndexes[staleCount++] = i;
+            }
+        }
+        Logger.log("Incremental mode: %d entries reused, %d to recompute", held.size() - staleCount, staleCount);
+        
+        PriceQueryCache priceQueryCache = new PriceQueryCache();
+        int[] staleRows = Arrays.copyOf(staleIndexes, staleCount);
+        PurchaseTable stale = held.select(staleRows);
+        streamEntries(stale, period, priceQueryCache,
+            (index, org, purchasePrice, peakPrice, closingPrice) -> entries[staleRows[index]] =
+                toEntry(org, stale.get(index), purchasePrice, peakPrice, closingPrice));
+        priceQueryCache.logStats();
+        
+        // Output in the order a full run writes it
+        ScheduleState state = new ScheduleState(inputHash, calendarMode, assessmentYear, fxRates);
+        Map<String, PurchaseTable> heldByTicker = held.byTicker();
+        for (String ticker : heldByTicker.keySet()) {
+            state.putTickerPrices(ticker, ShareDataUtils.priceSeriesFingerprint(ticker));
+        }
+        FileUtils.createDirectory(outputFolderAbsPath);
+        try (FileUtils.CsvSink sink = FileUtils.openCsv(outputFolderAbsPath, "all_fa_entries.csv", ALL_ENTRIES_HEADERS, true)) {
+            int serialNumber = 0;
+            for (int index : reportOrder(held, heldByTicker.values())) {
+                sink.writeRow(toAllEntriesRow(++serialNumber, entries[index]));
+                state.addEntry(priceVersions[index], entries[index]);
+            }
+            sink.commit(true);
+        }
+        state.save(outputFolderAbsPath);
         
-        List<String[]> csvData = new ArrayList<>();
-        for (int i = 0; i < allFaEntries.size(); i++) {
-            FAA3 entry = allFaEntries.get(i);
-            String[] row = new String[]{
-                String.valueOf(i + 1), // Sr. No. (1, 2, 3, ...)
-                "2", // Country code for USA
-                entry.getOrg().getName() + " (" + entry.getPurchase().getTicker().toUpperCase() + ")", // Company name + ticker
-                entry.getOrg().getAddress().replace(",", ""), // Address without commas
-                entry.getOrg().getZipCode().length() > 8 ? entry.getOrg().getZipCode().substring(0, 8) : entry.getOrg().getZipCode(), // Max 8 chars ZIP
-                "Company", // Nature of entity
-                entry.getPurchase().getDate().getDispTime(), // Date in YYYY-MM-DD format (already correct)
-                String.valueOf(Math.round(entry.getPurchasePrice())),
-                String.valueOf(Math.round(entry.getPeakPrice())),
-                String.valueOf(Math.round(entry.getClosingPrice())),
-                String.valueOf(Math.round(entry.getSalesProceeds())), // Total gross amount (sale proceeds if sold)
-                String.valueOf(Math.round(entry.getSalesProceeds())) // Sales proceeds
-            };
-            csvData.add(row);
+        Logger.log("All entries output file created at %s/all_fa_entries.csv", outputFolderAbsPath);
+        Logger.log("Total entries processed: %d", held.size());
+        return staleCount;
+    }
+    
+    /**
+     * First ticker whose whole price series differs from the stored fingerprint, null when none does
+     */
+    private static String changedPriceSeries(Map<String, Long> tickerPrices) {
+        for (Map.Entry<String, Long> stored : tickerPrices.entrySet()) {
+            if (ShareDataUtils.priceSeriesFingerprint(stored.getKey()) != stored.getValue()) {
+                return stored.getKey();
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * Fingerprints of the ticker prices and USD/INR rates an entry is computed from
+     * The peak and closing values see the period's peak window of both, the purchase value sees the rate at
+     * the purchase date. With RBI rates the purchase and closing values are converted with the rates.xls rates
+     * of the month before the purchase date and the period end, so those rates are part of the version.
+     * Fingerprints are shared by purchases with the same windows.
+     */
+    private static String priceVersion(String ticker, long purchaseTime, long[] period, Map<String, Long> fingerprints) {
+        long peakStartTime = peakStartTime(purchaseTime, period[0], period[1]);
+        
+        long tickerPrices = fingerprints.computeIfAbsent(ticker + "@" + peakStartTime,
+            key -> ShareDataUtils.priceWindowFingerprint(ticker, peakStartTime, period[1]));
+        long peakRates = fingerprints.computeIfAbsent(PriceSource.USD_INR + "@" + peakStartTime,
+            key -> ShareDataUtils.priceWindowFingerprint(PriceSource.USD_INR, peakStartTime, period[1]));
+        String version = Long.toHexString(tickerPrices) + "-" + Long.toHexString(peakRates) + "-";
+        
+        if (ShareDataUtils.getConversionRates() == ShareDataUtils.ConversionRates.RBI) {
+            long purchaseRate = fingerprints.computeIfAbsent("rbi@" + purchaseTime,
+                key -> Double.doubleToLongBits(ShareDataUtils.getInrConversionRate(purchaseTime)));
+            long closingRate = fingerprints.computeIfAbsent("rbi@" + period[1],
+                key -> Double.doubleToLongBits(ShareDataUtils.getInrConversionRate(period[1])));
+            return version + Long.toHexString(purchaseRate) + "-" + Long.toHexString(closingRate);
+        }
+        long purchaseRate = fingerprints.computeIfAbsent(PriceSource.USD_INR + "@" + purchaseTime + "-",
+            key -> ShareDataUtils.priceWindowFingerprint(PriceSource.USD_INR, purchaseTime, purchaseTime));
+        return version + Long.toHexString(purchaseRate);
+    }
+    
+    /**
+     * Receives FA entries one at a time, in acquisition date order
+     */
+    public interface EntryConsumer {
+        void accept(FAA3 entry) throws IOException;
+    }
+    
+    /**
+     * FA entries of one assessment year (or of Assessment Year 2024-25 without one, -1), sorted by acquisition date
+     */
+    public static List<FAA3> computeSchedule(String calendarMode, List<Purchase> purchases, int assessmentYear,
+                                             PriceQueryCache priceQueryCache) {
+        return computeSchedule(calendarMode, PurchaseTable.of(purchases), assessmentYear, priceQueryCache);
+    }
+    
+    /**
+     * Same as computeSchedule, for purchases already in a table
+     */
+    public static List<FAA3> computeSchedule(String calendarMode, PurchaseTable purchases, int assessmentYear,
+                                             PriceQueryCache priceQueryCache) {
+        List<FAA3> allFaEntries = new ArrayList<>();
+        try {
+            streamSchedule(calendarMode, purchases, assessmentYear, priceQueryCache, allFaEntries::add);
+        } catch (IOException e) {
+            // Adding to a list does not fail
+            throw new UncheckedIOException(e);
+        }
+        return allFaEntries;
+    }
+    
+    /**
+     * Same entries as computeSchedule, handed to the consumer as they are computed instead of collected
+     * Returns the number of entries
+     */
+    public static int streamSchedule(String calendarMode, List<Purchase> purchases, int assessmentYear,
+                                     PriceQueryCache priceQueryCache, EntryConsumer consumer) throws IOException {
+        return streamSchedule(calendarMode, PurchaseTable.of(purchases), assessmentYear, priceQueryCache, consumer);
+    }
+    
+    /**
+     * Same as streamSchedule, for purchases already in a table
+     */
+    public static int streamSchedule(String calendarMode, PurchaseTable table, int assessmentYear,
+                                     PriceQueryCache priceQueryCache, EntryConsumer consumer) throws IOException {
+        long[] period = assessmentYear == -1 ? DEFAULT_PERIOD : DateUtils.calendarRange(calendarMode, assessmentYear);
+        PurchaseTable held = assessmentYear == -1 ? table : table.until(period[1]);
+        // The entries are handed out as models, so each gets a Purchase
+        return streamEntries(held, period, priceQueryCache, (index, org, purchasePrice, peakPrice, closingPrice) ->
+            consumer.accept(toEntry(org, held.get(index), purchasePrice, peakPrice, closingPrice)));
+    }
+    
+    /**
+     * Batch parse, writes <output>/<calendar mode>/<assessment year>/all_fa_entries.csv for every
+     * calendar mode and every assessment year from fromYear to toYear
+     * Each schedule matches a parse run for that year and mode. The purchases go into one date sorted table,
+     * the purchases held in a year are a prefix view of it, and price data and queries are shared by all schedules.
+     */
+    public static void parseBatch(List<String> calendarModes, List<Purchase> purchases,
+                                  int fromYear, int toYear, String outputFolderAbsPath) throws IOException {
+        parseBatch(calendarModes, PurchaseTable.of(purchases), fromYear, toYear, outputFolderAbsPath);
+    }
+    
+    /**
+     * Same as parseBatch, for purchases already in a table
+     */
+    public static void parseBatch(List<String> calendarModes, PurchaseTable purchases,
+                                  int fromYear, int toYear, String outputFolderAbsPath) throws IOException {
+        PriceQueryCache priceQueryCache = new PriceQueryCache();
+        parseBatch(calendarModes, purchases, fromYear, toYear, outputFolderAbsPath, priceQueryCache);
+        
+        priceQueryCache.logStats();
+        Logger.log("Batch completed: %d calendar mode(s), assessment years %d to %d",
+            calendarModes.size(), fromYear, toYear);
+    }
+    
+    /**
+     * Same as parseBatch, sharing price queries with other runs through the given cache
+     */
+    public static void parseBatch(List<String> calendarModes, List<Purchase> purchases, int fromYear, int toYear,
+                                  String outputFolderAbsPath, PriceQueryCache priceQueryCache) throws IOException {
+        // Stable sort, purchases on the same day keep their input order
+        parseBatch(calendarModes, PurchaseTable.of(purchases), fromYear, toYear, outputFolderAbsPath, priceQueryCache);
+    }
+    
+    /**
+     * Same as parseBatch, for a table and sharing price queries with other runs through the given cache
+     */
+    public static void parseBatch(List<String> calendarModes, PurchaseTable table, int fromYear, int toYear,
+                                  String outputFolderAbsPath, PriceQueryCache priceQueryCache) throws IOException {
+        if (fromYear > toYear) {
+            throw new IllegalArgumentException("First assessment year " + fromYear + " is after last assessment year " + toYear);
         }
         
-        // Write to single combined file
-        FileUtils.writeCsvToFile(outputFolderAbsPath, "all_fa_entries.csv", headers, csvData, true, true);
+        for (String calendarMode : calendarModes) {
+            for (int assessmentYear = fromYear; assessmentYear <= toYear; assessmentYear++) {
+                long[] period = DateUtils.calendarRange(calendarMode, assessmentYear);
+                Logger.log("Processing %s schedule for assessment year %d (%s to %s)", calendarMode, assessmentYear,
+                    DateUtils.displayTime(period[0]), DateUtils.displayTime(period[1]));
+                
+                writeAllEntries(table.until(period[1]), period, priceQueryCache,
+                    Paths.get(outputFolderAbsPath, calendarMode, String.valueOf(assessmentYear)).toString());
+            }
+        }
+    }
+    
+    /**
+     * Hand the FA entries of every ticker for a period to the consumer, sorted by acquisition date
+     * The price queries are resolved per ticker first, once per distinct date. Each entry is then computed
+     * from them and the table columns and handed over on its own, so no list of entries (or of output rows) is
+     * ever built, and no Purchase unless the consumer needs one.
+     */
+    private static int streamEntries(PurchaseTable purchases, long[] period, PriceQueryCache priceQueryCache,
+                                     EntryRowConsumer consumer) throws IOException {
+        // Group purchases by ticker
+        Map<String, PurchaseTable> groupedPurchases = purchases.byTicker();
+        
+        // Indexed by the ticker ids of the table, each group holds one ticker
+        TickerQueries[] tickerQueries = new TickerQueries[purchases.tickerCount()];
+        if (PARALLELISM > 1) {
+            // Same tickers, same order, queries resolved on a worker pool
+            Iterator<PurchaseTable> groups = groupedPurchases.values().iterator();
+            for (TickerQueries queries : processTickersInParallel(groupedPurchases, period, priceQueryCache)) {
+                tickerQueries[groups.next().tickerIdAt(0)] = queries;
+            }
+        } else {
+            for (Map.Entry<String, PurchaseTable> entry : groupedPurchases.entrySet()) {
+                tickerQueries[entry.getValue().tickerIdAt(0)] =
+                    processAllPurchasesForTicker(entry.getKey(), entry.getValue(), period, priceQueryCache);
+            }
+        }
         
-        Logger.log("All entries output file created at %s/all_fa_entries.csv", outputFolderAbsPath);
-        Logger.log("Total entries processed: %d", allFaEntries.size());
+        for (int index : reportOrder(purchases, groupedPurchases.values())) {
+            tickerQueries[purchases.tickerIdAt(index)].accept(purchases, index, consumer);
+        }
+        return purchases.size();
+    }
+    
+    /**
+     * Receives the values of an FA entry together with the index of its purchase in the table it was computed from
+     */
+    private interface EntryRowConsumer {
+        void accept(int index, Organization org, double purchasePrice, double peakPrice, double closingPrice)
+            throws IOException;
     }
     
     /**
-     * Process all purchases for a ticker without any year filtering
+     * FA entry of a purchase, for output that needs the model (JSON, the incremental state)
      */
-    private static List<FAA3> processAllPurchasesForTicker(String ticker, List<Purchase> purchases) {
+    private static FAA3 toEntry(Organization org, Purchase purchase, double purchasePrice, double peakPrice,
+                                double closingPrice) {
+        // Total gross amount should be dividends/income received (currently 0 as we don't track dividends)
+        // Sales proceeds - set to 0 for manual calculation
+        return new FAA3(org, purchase, purchasePrice, peakPrice, closingPrice, 0.0);
+    }
+    
+    /**
+     * Indexes of a date sorted table in report order
+     * Acquisition date order, purchases of the same day keep the order of their ticker groups and then
+     * their input order.
+     */
+    private static int[] reportOrder(PurchaseTable purchases, Collection<PurchaseTable> tickerGroups) {
+        // Indexed by the ticker ids of the table
+        int[] tickerRanks = new int[purchases.tickerCount()];
+        int rank = 0;
+        for (PurchaseTable group : tickerGroups) {
+            tickerRanks[group.tickerIdAt(0)] = rank++;
+        }
         
-        Organization org = TickerMapping.getTickerOrgInfo(ticker);
-        String currencyCode = TickerMapping.getTickerCurrencyInfo(ticker);
+        int[] order = new int[purchases.size()];
+        int[] ranks = new int[purchases.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+            ranks[i] = tickerRanks[purchases.tickerIdAt(i)];
+        }
         
-        List<FAA3> faEntries = new ArrayList<>();
+        // Insertion sort of each run of equal dates by ticker rank, runs are short
+        int runStart = 0;
+        for (int i = 1; i <= order.length; i++) {
+            if (i < order.length && purchases.timeAt(i) == purchases.timeAt(runStart)) {
+                continue;
+            }
+            for (int j = runStart + 1; j < i; j++) {
+                int index = order[j];
+                int k = j - 1;
+                while (k >= runStart && ranks[order[k]] > ranks[index]) {
+                    order[k + 1] = order[k];
+                    k--;
+                }
+                order[k + 1] = index;
+            }
+            runStart = i;
+        }
+        return order;
+    }
+    
+    /**
+     * Write the combined all_fa_entries.csv of a schedule, each row as soon as its entry is computed
+     */
+    private static void writeAllEntries(PurchaseTable purchases, long[] period, PriceQueryCache priceQueryCache,
+                                        String outputFolderAbsPath) throws IOException {
         
-        // Define Assessment Year 2024-25 boundaries
-        long fyStartTime = DateUtils.parseYyyyMmDd("2024-04-01").getTimeInMillis(); // 1-Apr-2024
-        long fyEndTime = DateUtils.parseYyyyMmDd("2025-03-31").getTimeInMillis();   // 31-Mar-2025
+        // Create output directory
+        FileUtils.createDirectory(outputFolderAbsPath);
         
-        // Get closing values at end of AY (31-Mar-2025)
-        double closingSharePrice = ShareDataUtils.getClosingPrice(ticker, fyEndTime);
-        double closingInrRate = ShareDataUtils.getUsdInrRate(fyEndTime);
-        double closingInrPrice = closingSharePrice * closingInrRate;
+        // Write to single combined file
+        int entryCount;
+        try (FileUtils.CsvSink sink = FileUtils.openCsv(outputFolderAbsPath, "all_fa_entries.csv", ALL_ENTRIES_HEADERS, true)) {
+            // Rows come straight from the columns, no FA entry is built
+            int[] serialNumber = {0};
+            entryCount = streamEntries(purchases, period, priceQueryCache,
+                (index, org, purchasePrice, peakPrice, closingPrice) -> sink.writeRow(toAllEntriesRow(
+                    ++serialNumber[0], org, purchases.tickerAt(index), purchases.dispTimeAt(index),
+                    purchasePrice, peakPrice, closingPrice, 0.0)));
+            sink.commit(true);
+        }
         
-        Logger.log("%s: Processing %d purchases. Closing price(INR) = %.2f at 31-Mar-2025, closing_share_price(%s) = %.2f closing_rate(INR) = %.2f",
-            ticker, purchases.size(), closingInrPrice, currencyCode, closingSharePrice, closingInrRate);
+        Logger.log("All entries output file created at %s/all_fa_entries.csv", outputFolderAbsPath);
+        Logger.log("Total entries processed: %d", entryCount);
+    }
+    
+    /**
+     * Rows of all_fa_entries.csv, in the order of the entries
+     */
+    public static List<String[]> toAllEntriesRows(List<FAA3> allFaEntries) {
+        List<String[]> csvData = new ArrayList<>();
+        for (int i = 0; i < allFaEntries.size(); i++) {
+            csvData.add(toAllEntriesRow(i + 1, allFaEntries.get(i)));
+        }
+        return csvData;
+    }
+    
+    /**
+     * Row of all_fa_entries.csv for an entry
+     */
+    public static String[] toAllEntriesRow(int serialNumber, FAA3 entry) {
+        return toAllEntriesRow(serialNumber, entry.getOrg(), entry.getPurchase().getTicker(),
+            entry.getPurchase().getDate().getDispTime(), entry.getPurchasePrice(), entry.getPeakPrice(),
+            entry.getClosingPrice(), entry.getSalesProceeds());
+    }
+    
+    private static String[] toAllEntriesRow(int serialNumber, Organization org, String ticker, String dispTime,
+                                            double purchasePrice, double peakPrice, double closingPrice,
+                                            double salesProceeds) {
+        return new String[]{
+            String.valueOf(serialNumber), // Sr. No. (1, 2, 3, ...)
+            "2", // Country code for USA
+            org.getName() + " (" + ticker.toUpperCase() + ")", // Company name + ticker
+            org.getAddress().replace(",", ""), // Address without commas
+            org.getZipCode().length() > 8 ? org.getZipCode().substring(0, 8) : org.getZipCode(), // Max 8 chars ZIP
+            "Company", // Nature of entity
+            dispTime, // Date in YYYY-MM-DD format (already correct)
+            String.valueOf(Math.round(purchasePrice)),
+            String.valueOf(Math.round(peakPrice)),
+            String.valueOf(Math.round(closingPrice)),
+            String.valueOf(Math.round(salesProceeds)), // Total gross amount (sale proceeds if sold)
+            String.valueOf(Math.round(salesProceeds)) // Sales proceeds
+        };
+    }
+    
+    /**
+     * Resolve the rate and peak queries of all purchases of a ticker for a period
+     */
+    private static TickerQueries processAllPurchasesForTicker(String ticker, PurchaseTable purchases, long[] range,
+                                                              PriceQueryCache priceQueryCache) {
+        
+        TickerPeriod period = new TickerPeriod(ticker, range, purchases.size(), priceQueryCache);
+        Map<Long, Double> inrRates = new HashMap<>();
+        Map<Long, Double> peakInrPrices = new HashMap<>();
         
-        for (Purchase purchase : purchases) {
-            long purchaseTime = purchase.getDate().getTimeInMillis();
+        // Queries in input order, the order in which they are logged
+        for (int i : purchases.inputOrder()) {
+            long purchaseTime = purchases.timeAt(i);
             
             // Calculate Initial Value using USD/INR rate at purchase date (not closing date)
-            double purchaseInrRate = ShareDataUtils.getUsdInrRate(purchaseTime);
-            double purchasePrice = purchase.getQuantity() * purchase.getPurchaseFmv().getPrice() * purchaseInrRate;
+            inrRates.computeIfAbsent(purchaseTime, priceQueryCache::getInrConversionRate);
+            peakInrPrices.computeIfAbsent(period.peakStartTime(purchaseTime),
+                startTime -> priceQueryCache.getPeakPriceInInr(ticker, startTime, period.endTime));
+        }
+        
+        return new TickerQueries(period, inrRates, peakInrPrices);
+    }
+    
+    /**
+     * Rate and peak query results of a ticker by date, an entry of the ticker is built from them
+     * They grow with the number of distinct purchase dates, not with the number of purchases
+     */
+    private static class TickerQueries {
+        final TickerPeriod period;
+        final Map<Long, Double> inrRates;
+        final Map<Long, Double> peakInrPrices;
+        
+        TickerQueries(TickerPeriod period, Map<Long, Double> inrRates, Map<Long, Double> peakInrPrices) {
+            this.period = period;
+            this.inrRates = inrRates;
+            this.peakInrPrices = peakInrPrices;
+        }
+        
+        void accept(PurchaseTable purchases, int index, EntryRowConsumer consumer) throws IOException {
+            long purchaseTime = purchases.timeAt(index);
+            double quantity = purchases.quantityAt(index);
+            double purchasePrice = quantity * purchases.fmvAt(index) * inrRates.get(purchaseTime);
             
             // Closing balance using end of AY rates
-            double closingPrice = purchase.getQuantity() * closingInrPrice;
+            double closingPrice = quantity * period.closingInrPrice;
             
-            double peakPrice;
+            double peakPrice = quantity * peakInrPrices.get(period.peakStartTime(purchaseTime));
             
-            if (purchaseTime >= fyStartTime) {
-                // Case 1: Purchase after 1-Apr-2024
-                if (purchaseTime <= fyEndTime) {
-                    // Purchase within FY 2024-25 - peak from purchase date to 31-Mar-2025
-                    peakPrice = purchase.getQuantity() * ShareDataUtils.getPeakPriceInInr(
-                        ticker, purchaseTime, fyEndTime);
-                } else {
-                    // Purchase after 31-Mar-2025 - peak for entire FY 2024-25
-                    peakPrice = purchase.getQuantity() * ShareDataUtils.getPeakPriceInInr(
-                        ticker, fyStartTime, fyEndTime);
-                }
-            } else {
-                // Case 2: Purchase before 1-Apr-2024 - peak for entire FY 2024-25
-                peakPrice = purchase.getQuantity() * ShareDataUtils.getPeakPriceInInr(
-                    ticker, fyStartTime, fyEndTime);
-            }
+            consumer.accept(index, period.org, purchasePrice, peakPrice, closingPrice);
+        }
+    }
+    
+    /**
+     * Start of the peak window for a purchase, the window always ends with the period
+     */
+    private static long peakStartTime(long purchaseTime, long startTime, long endTime) {
+        if (purchaseTime >= startTime && purchaseTime <= endTime) {
+            // Purchase within the period - peak from purchase date to the end of the period
+            return purchaseTime;
+        }
+        // Purchase before the period (or after it, without an assessment year) - peak for the entire period
+        return startTime;
+    }
+    
+    /**
+     * Closing values and peak windows of a ticker for a period
+     */
+    private static class TickerPeriod {
+        final String ticker;
+        final Organization org;
+        final long startTime;
+        final long endTime;
+        final double closingInrPrice;
+        
+        TickerPeriod(String ticker, long[] range, int purchaseCount, PriceQueryCache priceQueryCache) {
+            this.ticker = ticker;
+            this.org = TickerMapping.getTickerOrgInfo(ticker);
+            this.startTime = range[0];
+            this.endTime = range[1];
+            String currencyCode = TickerMapping.getTickerCurrencyInfo(ticker);
             
-            // Total gross amount should be dividends/income received (currently 0 as we don't track dividends)
-            double totalGrossAmount = 0.0; // TODO: Add dividend tracking if needed
+            // Get closing values at end of the period
+            double closingSharePrice = priceQueryCache.getClosingPrice(ticker, endTime);
+            double closingInrRate = priceQueryCache.getInrConversionRate(endTime);
+            this.closingInrPrice = closingSharePrice * closingInrRate;
             
-            // Sales proceeds - set to 0 for manual calculation
-            double saleProceeds = 0.0;
+            Logger.log("%s: Processing %d purchases. Closing price(INR) = %.2f at %s, closing_share_price(%s) = %.2f closing_rate(INR) = %.2f",
+                ticker, purchaseCount, closingInrPrice, PERIOD_END_FORMATTER.format(Instant.ofEpochMilli(endTime)),
+                currencyCode, closingSharePrice, closingInrRate);
+        }
+        
+        long peakStartTime(long purchaseTime) {
+            return FAA3Parser.peakStartTime(purchaseTime, startTime, endTime);
+        }
+    }
+    
+    /**
+     * Resolve the queries of every ticker on a fork-join pool
+     * Results come back in ticker order. Each task logs into its own capture, captures are printed
+     * in the order the sequential run would print them, so logs never interleave.
+     */
+    private static List<TickerQueries> processTickersInParallel(Map<String, PurchaseTable> groupedPurchases,
+                                                              long[] range, PriceQueryCache priceQueryCache) {
+        // Shared price data is loaded here, once and in ticker order, instead of by whichever task comes first
+        for (String ticker : groupedPurchases.keySet()) {
+            ShareDataUtils.preload(ticker);
+        }
+        
+        ForkJoinPool pool = new ForkJoinPool(PARALLELISM);
+        try {
+            List<ForkJoinTask<Logged<TickerQueries>>> tickerTasks = new ArrayList<>();
+            for (Map.Entry<String, PurchaseTable> entry : groupedPurchases.entrySet()) {
+                tickerTasks.add(pool.submit(logged(
+                    () -> processTickerInParallel(entry.getKey(), entry.getValue(), range, priceQueryCache))));
+            }
             
-            faEntries.add(new FAA3(
-                org,
-                purchase,
-                purchasePrice,
-                peakPrice,
-                closingPrice,
-                saleProceeds // Will be calculated manually
-            ));
+            List<TickerQueries> results = new ArrayList<>();
+            for (ForkJoinTask<Logged<TickerQueries>> task : tickerTasks) {
+                results.add(join(task));
+            }
+            return results;
+            
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+    
+    /**
+     * Same queries as processAllPurchasesForTicker, the distinct rate and peak queries run as subtasks
+     */
+    private static TickerQueries processTickerInParallel(String ticker, PurchaseTable purchases, long[] range,
+                                                      PriceQueryCache priceQueryCache) {
+        TickerPeriod period = new TickerPeriod(ticker, range, purchases.size(), priceQueryCache);
+        
+        // Distinct queries in first use order, the order in which a sequential run logs them
+        Set<Long> purchaseTimes = new LinkedHashSet<>();
+        Set<Long> peakStartTimes = new LinkedHashSet<>();
+        for (int i : purchases.inputOrder()) {
+            long purchaseTime = purchases.timeAt(i);
+            purchaseTimes.add(purchaseTime);
+            peakStartTimes.add(period.peakStartTime(purchaseTime));
         }
         
-        return faEntries;
+        Map<Long, Double> inrRates = computeAll(purchaseTimes, priceQueryCache::getInrConversionRate);
+        Map<Long, Double> peakInrPrices = computeAll(peakStartTimes,
+            startTime -> priceQueryCache.getPeakPriceInInr(ticker, startTime, period.endTime));
+        
+        return new TickerQueries(period, inrRates, peakInrPrices);
+    }
+    
+    /**
+     * Evaluate the query for every key as forked subtasks, logs are flushed in key order
+     */
+    private static Map<Long, Double> computeAll(Set<Long> keys, LongFunction<Double> query) {
+        List<ForkJoinTask<Logged<Double>>> tasks = new ArrayList<>(keys.size());
+        for (Long key : keys) {
+            tasks.add(logged(() -> query.apply(key)).fork());
+        }
+        
+        Map<Long, Double> results = new HashMap<>();
+        Iterator<Long> keyIterator = keys.iterator();
+        for (ForkJoinTask<Logged<Double>> task : tasks) {
+            results.put(keyIterator.next(), join(task));
+        }
+        return results;
+    }
+    
+    /**
+     * Result of a task together with the log lines it produced
+     */
+    private static class Logged<T> {
+        final T value;
+        final String log;
+        final RuntimeException failure;
+        
+        Logged(T value, String log, RuntimeException failure) {
+            this.value = value;
+            this.log = log;
+            this.failure = failure;
+        }
+    }
+    
+    private static <T> ForkJoinTask<Logged<T>> logged(Supplier<T> task) {
+        return ForkJoinTask.adapt(() -> {
+            Logger.startCapture();
+            try {
+                T value = task.get();
+                return new Logged<>(value, Logger.stopCapture(), null);
+            } catch (RuntimeException e) {
+                return new Logged<T>(null, Logger.stopCapture(), e);
+            }
+        });
+    }
+    
+    /**
+     * Wait for a task, print its logs and return its value (or rethrow its failure)
+     */
+    private static <T> T join(ForkJoinTask<Logged<T>> task) {
+        Logged<T> result = task.join();
+        Logger.flush(result.log);
+        if (result.failure != null) {
+            throw result.failure;
+        }
+        return result.value;
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,139 @@
+package com.sefa.parsers.itr;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.sefa.models.FAA3;
+import com.sefa.utils.FileUtils;
+import com.sefa.utils.Logger;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * State of the last incremental run, kept next to all_fa_entries.csv
+ * Holds the hash of the input file, a fingerprint of the price series of every held ticker and every FA entry
+ * with the price version it was computed from
+ */
+public class ScheduleState {
+
+    public static final String FILE_NAME = ".sefa_state.json";
+    static final int CURRENT_VERSION = 2;
+
+    @JsonProperty("version")
+    private int version = CURRENT_VERSION;
+
+    @JsonProperty("input_hash")
+    private String inputHash;
+
+    @JsonProperty("calendar_mode")
+    private String calendarMode;
+
+    @JsonProperty("assessment_year")
+    private int assessmentYear;
+
+    @JsonProperty("fx_rates")
+    private String fxRates;
+
+    @JsonProperty("ticker_prices")
+    private Map<String, Long> tickerPrices = new TreeMap<>();
+
+    @JsonProperty("entries")
+    private List<StoredEntry> entries = new ArrayList<>();
+
+    /**
+     * An FA entry and the fingerprint of the price windows it depends on
+     */
+    public static class StoredEntry {
+        @JsonProperty("price_version")
+        private String priceVersion;
+
+        @JsonProperty("entry")
+        private FAA3 entry;
+
+        // Default constructor
+        public StoredEntry() {}
+
+        public StoredEntry(String priceVersion, FAA3 entry) {
+            this.priceVersion = priceVersion;
+            this.entry = entry;
+        }
+
+        public String getPriceVersion() {
+            return priceVersion;
+        }
+
+        public FAA3 getEntry() {
+            return entry;
+        }
+    }
+
+    // Default constructor
+    public ScheduleState() {}
+
+    public ScheduleState(String inputHash, String calendarMode, int assessmentYear, String fxRates) {
+        this.inputHash = inputHash;
+        this.calendarMode = calendarMode;
+        this.assessmentYear = assessmentYear;
+        this.fxRates = fxRates;
+    }
+
+    /**
+     * State stored in a folder, null when there is none or it cannot be used
+     */
+    public static ScheduleState load(String folderAbsPath) {
+        Path statePath = Path.of(folderAbsPath, FILE_NAME);
+        if (!FileUtils.fileExists(statePath.toString())) {
+            Logger.log("No incremental state at %s, computing all entries", statePath);
+            return null;
+        }
+        try {
+            ScheduleState state = FileUtils.readJsonFile(statePath.toString(), ScheduleState.class);
+            if (state.version != CURRENT_VERSION) {
+                Logger.log("Incremental state at %s has version %d, computing all entries", statePath, state.version);
+                return null;
+            }
+            return state;
+        } catch (IOException e) {
+            Logger.warn(String.format("Ignoring unreadable incremental state at %s: %s", statePath, e.getMessage()));
+            return null;
+        }
+    }
+
+    public void save(String folderAbsPath) throws IOException {
+        FileUtils.writeCompactToFile(folderAbsPath, FILE_NAME, this);
+    }
+
+    /**
+     * Whether the state was written for the same schedule, entries of another one cannot be reused
+     */
+    public boolean isFor(String calendarMode, int assessmentYear, String fxRates) {
+        return calendarMode.equals(this.calendarMode) && assessmentYear == this.assessmentYear
+            && fxRates.equals(this.fxRates);
+    }
+
+    public String getInputHash() {
+        return inputHash;
+    }
+
+    /**
+     * Fingerprint of all prices of each ticker the purchases were parsed with, see ShareDataUtils.priceSeriesFingerprint
+     */
+    public Map<String, Long> getTickerPrices() {
+        return tickerPrices;
+    }
+
+    public void putTickerPrices(String ticker, long fingerprint) {
+        tickerPrices.put(ticker, fingerprint);
+    }
+
+    public List<StoredEntry> getEntries() {
+        return entries;
+    }
+
+    public void addEntry(String priceVersion, FAA3 entry) {
+        entries.add(new StoredEntry(priceVersion, entry));
+    }
+}
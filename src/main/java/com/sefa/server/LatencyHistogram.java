@@ -0,0 +1,61 @@
+package com.sefa.server;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Request latency histogram with fixed buckets, written in the Prometheus text format
+ * Safe to record from many threads, buckets are cumulative only when written
+ */
+public class LatencyHistogram {
+
+    // Upper bounds in seconds, the last (implicit) bucket is +Inf
+    static final double[] BUCKET_BOUNDS = {0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10, 30};
+
+    private final LongAdder[] buckets = new LongAdder[BUCKET_BOUNDS.length + 1];
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sumInNanos = new LongAdder();
+
+    public LatencyHistogram() {
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Record one request that took the given time
+     */
+    public void record(long durationInNanos) {
+        double seconds = durationInNanos / 1e9;
+        int bucket = 0;
+        while (bucket < BUCKET_BOUNDS.length && seconds > BUCKET_BOUNDS[bucket]) {
+            bucket++;
+        }
+        buckets[bucket].increment();
+        count.increment();
+        sumInNanos.add(durationInNanos);
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * Append the _bucket, _sum and _count lines of this histogram
+     * labels is the label list without braces, e.g. endpoint="/faa3"
+     */
+    public void writeTo(StringBuilder out, String name, String labels) {
+        long cumulative = 0;
+        for (int i = 0; i < buckets.length; i++) {
+            cumulative += buckets[i].sum();
+            String bound = i < BUCKET_BOUNDS.length ? formatBound(BUCKET_BOUNDS[i]) : "+Inf";
+            out.append(String.format(Locale.ROOT, "%s_bucket{%s,le=\"%s\"} %d%n", name, labels, bound, cumulative));
+        }
+        out.append(String.format(Locale.ROOT, "%s_sum{%s} %.6f%n", name, labels, sumInNanos.sum() / 1e9));
+        out.append(String.format(Locale.ROOT, "%s_count{%s} %d%n", name, labels, count.sum()));
+    }
+
+    private static String formatBound(double bound) {
+        return bound == Math.rint(bound) ? String.valueOf((long) bound) : String.valueOf(bound);
+    }
+}
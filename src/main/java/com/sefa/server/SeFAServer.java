@@ -0,0 +1,476 @@
+package com.sefa.server;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.opencsv.CSVWriter;
+import com.sefa.models.FAA3;
+import com.sefa.models.Purchase;
+import com.sefa.models.PurchaseTable;
+import com.sefa.parsers.etrade.EtradeBenefitHistoryParser;
+import com.sefa.parsers.itr.FAA3Parser;
+import com.sefa.utils.CachingPriceSource;
+import com.sefa.utils.DateUtils;
+import com.sefa.utils.Logger;
+import com.sefa.utils.PriceDataWatcher;
+import com.sefa.utils.PriceQueryCache;
+import com.sefa.utils.ShareDataUtils;
+import com.sefa.utils.SymbolTable;
+import com.sefa.utils.TickerMapping;
+import com.sefa.utils.rates.RbiRatesUtils;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.commons.cli.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Long-running HTTP mode of SeFA, started with "sefa serve"
+ * Price series, peak indexes, ticker mappings and price queries stay loaded between requests, so a
+ * request only pays for parsing its input and computing its entries. Changes to the historic price
+ * CSVs are reloaded in place (PriceDataWatcher), unless --no-watch is given.
+ *
+ * POST /faa3?ay=2025&cal=financial&format=json|csv
+ *     body: a BenefitHistory workbook (.xlsx/.xls) or a JSON array of purchases (the Purchase model)
+ * GET /metrics    request counts and latency histograms (Prometheus text format)
+ * GET /health
+ */
+public class SeFAServer {
+
+    static final int DEFAULT_PORT = 8080;
+    static final String DEFAULT_BIND_ADDRESS = "127.0.0.1";
+    static final int MAX_BODY_BYTES = 64 * 1024 * 1024;
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    static {
+        objectMapper.registerModule(new JavaTimeModule());
+        objectMapper.enable(SerializationFeature.INDENT_OUTPUT);
+        objectMapper.disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+    }
+
+    private final HttpServer server;
+    private final ExecutorService workers;
+    private final PriceQueryCache priceQueryCache = new PriceQueryCache();
+    private final Map<String, LatencyHistogram> latencies = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> responses = new ConcurrentHashMap<>();
+
+    /**
+     * Bind the server, requests are handled on a pool of the given number of threads once started
+     */
+    public SeFAServer(InetSocketAddress address, int threads) throws IOException {
+        this.server = HttpServer.create(address, 0);
+        this.workers = Executors.newFixedThreadPool(Math.max(threads, 1));
+        server.setExecutor(workers);
+        server.createContext("/faa3", exchange -> handle(exchange, "POST", this::faa3));
+        server.createContext("/metrics", exchange -> handle(exchange, "GET", this::metrics));
+        server.createContext("/health", exchange -> handle(exchange, "GET", e -> new Response(200, "text/plain", "ok\n")));
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * Stop accepting requests, waiting up to delaySeconds for running ones
+     */
+    public void stop(int delaySeconds) {
+        server.stop(delaySeconds);
+        workers.shutdownNow();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Load the price data of every known ticker before the first request
+     */
+    public static void warmUp() {
+        for (String ticker : TickerMapping.getSupportedTickers()) {
+            try {
+                ShareDataUtils.preload(ticker);
+                Logger.log("Loaded price data for %s", ticker);
+            } catch (RuntimeException e) {
+                Logger.warn("No price data loaded for " + ticker + ": " + e.getMessage());
+            }
+        }
+        if (ShareDataUtils.getConversionRates() == ShareDataUtils.ConversionRates.RBI) {
+            RbiRatesUtils.preload();
+        }
+    }
+
+    private interface Handler {
+        Response handle(HttpExchange exchange) throws IOException;
+    }
+
+    private static class Response {
+        final int status;
+        final String contentType;
+        final byte[] body;
+
+        Response(int status, String contentType, String body) {
+            this.status = status;
+            this.contentType = contentType;
+            this.body = body.getBytes(StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Run a handler, turn failures into error responses and record the request in the metrics
+     * Logs of the request are only printed in debug mode or when it fails with a 5xx, one access line is always printed
+     */
+    private void handle(HttpExchange exchange, String method, Handler handler) throws IOException {
+        long startTime = System.nanoTime();
+        String endpoint = exchange.getHttpContext().getPath();
+        Response response = null;
+        Exception failure = null;
+
+        Logger.startCapture();
+        try {
+            if (!method.equals(exchange.getRequestMethod())) {
+                response = error(405, "Use " + method + " for " + endpoint);
+            } else {
+                response = handler.handle(exchange);
+            }
+        } catch (IllegalArgumentException e) {
+            response = error(400, e.getMessage());
+        } catch (Exception e) {
+            failure = e;
+            response = error(500, e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName());
+        } finally {
+            String captured = Logger.stopCapture();
+            // What the request logged up to a server error is needed to diagnose it
+            if (Logger.isDebug() || response == null || response.status >= 500) {
+                Logger.flush(captured);
+            }
+        }
+        if (failure != null) {
+            Logger.error("Request to " + endpoint + " failed: " + failure.getMessage(), failure);
+        }
+
+        try {
+            exchange.getResponseHeaders().set("Content-Type", response.contentType);
+            exchange.sendResponseHeaders(response.status, response.body.length);
+            try (OutputStream body = exchange.getResponseBody()) {
+                body.write(response.body);
+            }
+        } finally {
+            exchange.close();
+            long duration = System.nanoTime() - startTime;
+            latencies.computeIfAbsent(endpoint, key -> new LatencyHistogram()).record(duration);
+            responses.computeIfAbsent(endpoint + " " + response.status, key -> new LongAdder()).increment();
+            Logger.log("%s %s %d %d ms", exchange.getRequestMethod(), endpoint, response.status, duration / 1_000_000);
+        }
+    }
+
+    private static Response error(int status, String message) throws IOException {
+        return new Response(status, "application/json",
+            objectMapper.writeValueAsString(Collections.singletonMap("error", message)) + "\n");
+    }
+
+    private Response faa3(HttpExchange exchange) throws IOException {
+        Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+        int assessmentYear = parseAssessmentYear(query.getOrDefault("ay", "-1"));
+        String calendarMode = query.getOrDefault("cal", "calendar");
+        String format = query.getOrDefault("format", "json");
+        if (!calendarMode.equals("calendar") && !calendarMode.equals("financial")) {
+            throw new IllegalArgumentException("Calendar mode must be 'calendar' or 'financial'");
+        }
+        if (!format.equals("json") && !format.equals("csv")) {
+            throw new IllegalArgumentException("Format must be 'json' or 'csv'");
+        }
+
+        byte[] body = readBody(exchange.getRequestBody());
+        PurchaseTable purchases = isJson(exchange, body) ? PurchaseTable.of(readPurchases(body)) : parseWorkbook(body);
+        List<FAA3> entries = FAA3Parser.computeSchedule(calendarMode, purchases, assessmentYear, priceQueryCache);
+
+        if (format.equals("csv")) {
+            StringWriter csv = new StringWriter();
+            try (CSVWriter csvWriter = new CSVWriter(csv)) {
+                csvWriter.writeNext(FAA3Parser.ALL_ENTRIES_HEADERS);
+                for (String[] row : FAA3Parser.toAllEntriesRows(entries)) {
+                    csvWriter.writeNext(row);
+                }
+            }
+            return new Response(200, "text/csv", csv.toString());
+        }
+        return new Response(200, "application/json", objectMapper.writeValueAsString(entries));
+    }
+
+    private static int parseAssessmentYear(String value) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Assessment year must be a valid integer");
+        }
+    }
+
+    private static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> query = new HashMap<>();
+        if (rawQuery == null || rawQuery.isEmpty()) {
+            return query;
+        }
+        for (String parameter : rawQuery.split("&")) {
+            String[] keyValue = parameter.split("=", 2);
+            query.put(URLDecoder.decode(keyValue[0], StandardCharsets.UTF_8),
+                keyValue.length > 1 ? URLDecoder.decode(keyValue[1], StandardCharsets.UTF_8) : "");
+        }
+        return query;
+    }
+
+    private static byte[] readBody(InputStream in) throws IOException {
+        byte[] body = in.readNBytes(MAX_BODY_BYTES + 1);
+        if (body.length > MAX_BODY_BYTES) {
+            throw new IllegalArgumentException("Request body is larger than " + MAX_BODY_BYTES + " bytes");
+        }
+        if (body.length == 0) {
+            throw new IllegalArgumentException("Request body is empty, send a BenefitHistory workbook or a JSON array of purchases");
+        }
+        return body;
+    }
+
+    /**
+     * JSON when the content type says so, or when the body starts like a JSON array
+     */
+    private static boolean isJson(HttpExchange exchange, byte[] body) {
+        String contentType = exchange.getRequestHeaders().getFirst("Content-Type");
+        if (contentType != null && contentType.toLowerCase(Locale.ROOT).contains("json")) {
+            return true;
+        }
+        for (byte b : body) {
+            if (!Character.isWhitespace(b)) {
+                return b == '[';
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Purchases from JSON, a date may be given as disp_time (yyyy-MM-dd) alone
+     * Tickers must be mapped, so a request never adds a symbol to the process-wide SymbolTable.
+     */
+    static List<Purchase> readPurchases(byte[] body) {
+        List<Purchase> purchases;
+        try {
+            purchases = objectMapper.readValue(body, new TypeReference<List<Purchase>>() {});
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Invalid purchases JSON: " + e.getOriginalMessage());
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Invalid purchases JSON: " + e.getMessage());
+        }
+
+        for (int i = 0; i < purchases.size(); i++) {
+            Purchase purchase = purchases.get(i);
+            if (purchase == null || purchase.getDate() == null || purchase.getPurchaseFmv() == null
+                || purchase.getTicker() == null) {
+                throw new IllegalArgumentException("Purchase " + i + " needs a date, purchase_fmv and ticker");
+            }
+            if (purchase.getDate().getTimeInMillis() == 0 && purchase.getDate().getDispTime() != null) {
+                purchase.setDate(DateUtils.parseYyyyMmDd(purchase.getDate().getDispTime()));
+            }
+            int tickerId = TickerMapping.knownTickerId(purchase.getTicker());
+            if (tickerId < 0 || !TickerMapping.isTickerSupported(purchase.getTicker())) {
+                throw new IllegalArgumentException("Purchase " + i + " has unsupported ticker " + purchase.getTicker()
+                    + ", supported tickers are " + String.join(", ", TickerMapping.getSupportedTickers()));
+            }
+            purchase.setTicker(SymbolTable.TICKERS.name(tickerId));
+        }
+        return purchases;
+    }
+
+    private static PurchaseTable parseWorkbook(byte[] body) throws IOException {
+        Path upload = Files.createTempFile("sefa-upload", ".xlsx");
+        try {
+            Files.write(upload, body);
+            try {
+                return EtradeBenefitHistoryParser.parseTable(upload.toString());
+            } catch (IllegalArgumentException e) {
+                // Not a readable workbook, any other failure is the server's
+                throw new IllegalArgumentException("Request body is not a readable BenefitHistory workbook: "
+                    + e.getMessage(), e);
+            }
+        } finally {
+            Files.deleteIfExists(upload);
+        }
+    }
+
+    private Response metrics(HttpExchange exchange) {
+        StringBuilder out = new StringBuilder();
+        out.append("# HELP sefa_requests_total Requests by endpoint and status\n");
+        out.append("# TYPE sefa_requests_total counter\n");
+        new TreeMap<>(responses).forEach((key, count) -> {
+            String[] endpointStatus = key.split(" ");
+            out.append(String.format("sefa_requests_total{endpoint=\"%s\",status=\"%s\"} %d%n",
+                endpointStatus[0], endpointStatus[1], count.sum()));
+        });
+
+        out.append("# HELP sefa_request_duration_seconds Request latency by endpoint\n");
+        out.append("# TYPE sefa_request_duration_seconds histogram\n");
+        new TreeMap<>(latencies).forEach((endpoint, histogram) ->
+            histogram.writeTo(out, "sefa_request_duration_seconds", "endpoint=\"" + endpoint + "\""));
+
+        out.append("# HELP sefa_price_query_cache Shared price query cache\n");
+        out.append("# TYPE sefa_price_query_cache gauge\n");
+        out.append(String.format("sefa_price_query_cache{type=\"hits\"} %d%n", priceQueryCache.getHits()));
+        out.append(String.format("sefa_price_query_cache{type=\"misses\"} %d%n", priceQueryCache.getMisses()));
+        out.append(String.format("sefa_price_query_cache{type=\"size\"} %d%n", priceQueryCache.size()));
+
+        CachingPriceSource priceCache = ShareDataUtils.getPriceCache();
+        out.append("# HELP sefa_price_series_cache Price series of tickers kept in memory\n");
+        out.append("# TYPE sefa_price_series_cache gauge\n");
+        out.append(String.format("sefa_price_series_cache{type=\"hits\"} %d%n", priceCache.getHits()));
+        out.append(String.format("sefa_price_series_cache{type=\"misses\"} %d%n", priceCache.getMisses()));
+        out.append(String.format("sefa_price_series_cache{type=\"evictions\"} %d%n", priceCache.getEvictions()));
+        out.append(String.format("sefa_price_series_cache{type=\"tickers\"} %d%n", priceCache.size()));
+        out.append(String.format("sefa_price_series_cache{type=\"entries\"} %d%n", priceCache.getCachedEntries()));
+        return new Response(200, "text/plain; version=0.0.4", out.toString());
+    }
+
+    /**
+     * Entry point of "sefa serve [options]", returns once the server is listening
+     */
+    public static SeFAServer run(String[] args) throws IOException, ParseException {
+        Options options = new Options();
+
+        options.addOption(Option.builder("port")
+            .longOpt("port")
+            .hasArg()
+            .argName("PORT")
+            .desc("Port to listen on, default = " + DEFAULT_PORT)
+            .build());
+
+        options.addOption(Option.builder("bind")
+            .longOpt("bind")
+            .hasArg()
+            .argName("ADDRESS")
+            .desc("Address to listen on, default = " + DEFAULT_BIND_ADDRESS)
+            .build());
+
+        options.addOption(Option.builder("t")
+            .longOpt("threads")
+            .hasArg()
+            .argName("THREADS")
+            .desc("Number of request handler threads, default = number of processors")
+            .build());
+
+        options.addOption(Option.builder("fx")
+            .longOpt("fx-rates")
+            .hasArg()
+            .argName("RATES")
+            .desc("USD/INR rates for purchase and closing values, daily|rbi, default = daily")
+            .build());
+
+        options.addOption(Option.builder("mpe")
+            .longOpt("max-price-entries")
+            .hasArg()
+            .argName("ENTRIES")
+            .desc("Price entries of tickers to keep in memory, least recently used tickers are reloaded when needed, "
+                + "default = " + ShareDataUtils.DEFAULT_MAX_CACHED_ENTRIES)
+            .build());
+
+        options.addOption(Option.builder("nw")
+            .longOpt("no-watch")
+            .desc("Do not reload historic price data when its CSV files change")
+            .build());
+        
+        options.addOption(Option.builder("v")
+            .longOpt("verbose")
+            .desc("Enable the debug logs and print the logs of every request")
+            .build());
+
+        options.addOption(Option.builder("h")
+            .longOpt("help")
+            .desc("Show this help message")
+            .build());
+
+        CommandLine cmd;
+        try {
+            cmd = new DefaultParser().parse(options, args);
+        } catch (ParseException e) {
+            System.err.println("Error parsing command line: " + e.getMessage());
+            printHelp(options);
+            throw e;
+        }
+
+        if (cmd.hasOption("h")) {
+            printHelp(options);
+            return null;
+        }
+
+        int port = parseIntOption(cmd, "port", DEFAULT_PORT, "Port");
+        int threads = parseIntOption(cmd, "t", Runtime.getRuntime().availableProcessors(), "Threads");
+        String bindAddress = cmd.getOptionValue("bind", DEFAULT_BIND_ADDRESS);
+        boolean debug = cmd.hasOption("v");
+
+        Logger.setDebug(debug);
+        EtradeBenefitHistoryParser.setDebug(debug);
+
+        ShareDataUtils.setConversionRates(ShareDataUtils.ConversionRates.parse(cmd.getOptionValue("fx", "daily")));
+        if (cmd.hasOption("mpe")) {
+            ShareDataUtils.setMaxCachedEntries(parseIntOption(cmd, "mpe", 0, "Maximum price entries"));
+        }
+
+        Logger.log("SeFA Java Server Starting...");
+        warmUp();
+        PriceDataWatcher watcher = cmd.hasOption("nw") ? null : PriceDataWatcher.start();
+
+        SeFAServer server = new SeFAServer(new InetSocketAddress(bindAddress, port), threads);
+        server.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.stop(1);
+            if (watcher != null) {
+                try {
+                    watcher.close();
+                } catch (IOException e) {
+                    // Exiting anyway
+                }
+            }
+        }));
+        Logger.log("Listening on http://%s:%d with %d threads (POST /faa3, GET /metrics, GET /health)",
+            bindAddress, server.getPort(), threads);
+        return server;
+    }
+
+    private static int parseIntOption(CommandLine cmd, String option, int defaultValue, String name) {
+        if (!cmd.hasOption(option)) {
+            return defaultValue;
+        }
+        try {
+            int value = Integer.parseInt(cmd.getOptionValue(option));
+            if (value < 0) {
+                throw new IllegalArgumentException(name + " must not be negative");
+            }
+            return value;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(name + " must be a valid integer");
+        }
+    }
+
+    private static void printHelp(Options options) {
+        HelpFormatter formatter = new HelpFormatter();
+        formatter.printHelp("java -jar sefa-java.jar serve",
+            "SeFA Java - FAA3 computation as a local HTTP service",
+            options,
+            "\nExample usage:\n" +
+            "java -jar sefa-java.jar serve --port 8080\n" +
+            "curl --data-binary @BenefitHistory.xlsx \"http://127.0.0.1:8080/faa3?ay=2025&cal=financial&format=csv\"\n",
+            true);
+    }
+}
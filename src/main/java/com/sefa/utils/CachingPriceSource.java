@@ -0,0 +1,175 @@
+package com.sefa.utils;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Keeps the series loaded from another source in memory, bounded by the total number of price entries
+ * Each symbol is loaded once, even under concurrent first access. When the entries of all cached series
+ * exceed the bound, the least recently used series are dropped (and reloaded from the source on their
+ * next use). Hits do not take a lock, they only stamp the entry; eviction scans for the oldest stamp,
+ * which is cheap for the hundreds of symbols a process works with.
+ */
+public class CachingPriceSource implements PriceSource {
+
+    private static final Consumer<String> NO_LISTENER = symbol -> { };
+
+    private final PriceSource source;
+    private final long maxEntries;
+    private final Consumer<String> evictionListener;
+
+    private final Map<String, Cached> cache = new ConcurrentHashMap<>();
+    private final Object evictionLock = new Object();
+    private final AtomicLong accessClock = new AtomicLong();
+    private final AtomicLong cachedEntries = new AtomicLong();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    private final class Cached {
+        final PriceSeries series;
+        volatile long lastAccess = accessClock.incrementAndGet();
+
+        Cached(PriceSeries series) {
+            this.series = series;
+        }
+    }
+
+    public CachingPriceSource(PriceSource source, long maxEntries) {
+        this(source, maxEntries, NO_LISTENER);
+    }
+
+    /**
+     * evictionListener is called with every symbol dropped to stay within maxEntries
+     */
+    public CachingPriceSource(PriceSource source, long maxEntries, Consumer<String> evictionListener) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("Maximum number of cached price entries must be positive, got " + maxEntries);
+        }
+        this.source = source;
+        this.maxEntries = maxEntries;
+        this.evictionListener = evictionListener;
+    }
+
+    @Override
+    public PriceSeries load(String symbol) {
+        Cached cached = cache.get(symbol);
+        if (cached != null) {
+            hits.increment();
+            cached.lastAccess = accessClock.incrementAndGet();
+            return cached.series;
+        }
+
+        cached = cache.computeIfAbsent(symbol, key -> {
+            misses.increment();
+            Cached loaded = new Cached(source.load(key));
+            cachedEntries.addAndGet(loaded.series.size());
+            return loaded;
+        });
+        cached.lastAccess = accessClock.incrementAndGet();
+        evictIfNeeded(symbol);
+        return cached.series;
+    }
+
+    /**
+     * Replace the cached series of a symbol, e.g. with a reloaded one
+     */
+    public void put(String symbol, PriceSeries series) {
+        Cached previous = cache.put(symbol, new Cached(series));
+        cachedEntries.addAndGet(series.size() - (previous != null ? previous.series.size() : 0));
+        evictIfNeeded(symbol);
+    }
+
+    public void invalidate(String symbol) {
+        Cached removed = cache.remove(symbol);
+        if (removed != null) {
+            cachedEntries.addAndGet(-removed.series.size());
+        }
+    }
+
+    public void clear() {
+        for (String symbol : cache.keySet()) {
+            invalidate(symbol);
+        }
+    }
+
+    /**
+     * The series currently cached, by symbol
+     */
+    public Map<String, PriceSeries> cached() {
+        Map<String, PriceSeries> series = new HashMap<>();
+        cache.forEach((symbol, cached) -> series.put(symbol, cached.series));
+        return series;
+    }
+
+    /**
+     * Drop least recently used series until the cache fits, the series just used by the caller stays
+     * even when it does not fit on its own
+     */
+    private void evictIfNeeded(String keep) {
+        if (cachedEntries.get() <= maxEntries) {
+            return;
+        }
+        synchronized (evictionLock) {
+            while (cachedEntries.get() > maxEntries) {
+                String eldest = null;
+                long eldestAccess = Long.MAX_VALUE;
+                for (Map.Entry<String, Cached> entry : cache.entrySet()) {
+                    if (!entry.getKey().equals(keep) && entry.getValue().lastAccess < eldestAccess) {
+                        eldest = entry.getKey();
+                        eldestAccess = entry.getValue().lastAccess;
+                    }
+                }
+                if (eldest == null) {
+                    return;
+                }
+
+                Cached removed = cache.remove(eldest);
+                if (removed != null) {
+                    cachedEntries.addAndGet(-removed.series.size());
+                    evictions.increment();
+                    Logger.debugLog("Evicted price series of %s (%d entries)", eldest, removed.series.size());
+                    evictionListener.accept(eldest);
+                }
+            }
+        }
+    }
+
+    @Override
+    public String describe(String symbol) {
+        return source.describe(symbol);
+    }
+
+    @Override
+    public CsvPriceSource csvSource() {
+        return source.csvSource();
+    }
+
+    public long getMaxEntries() {
+        return maxEntries;
+    }
+
+    public long getCachedEntries() {
+        return cachedEntries.get();
+    }
+
+    public int size() {
+        return cache.size();
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+}
@@ -0,0 +1,144 @@
+package com.sefa.utils;
+
+import com.opencsv.CSVReader;
+import com.opencsv.exceptions.CsvException;
+
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+/**
+ * Prices read from the CSV exports in the historic_data folder
+ * - usd_inr_price_history.csv for USD_INR, newest first with quoted dd-MM-yyyy dates
+ * - adobe_price_history.csv for adbe, newest first with MM/dd/yyyy dates and $ prices
+ * - shares/<ticker>/data.csv for every other ticker, yyyy-MM-dd dates and the close in the fifth column
+ */
+public class CsvPriceSource implements PriceSource {
+
+    /**
+     * Layout of a price CSV, parses one data row into a series builder
+     */
+    public enum Layout {
+        USD_INR {
+            @Override
+            void addRow(String[] row, PriceSeries.Builder builder) {
+                long entryTimeInMs = DateUtils.parseDateFromUsdInrFormat(row[0].replace("\"", ""));
+                String priceStr = row[1].replace("\"", "").replace(",", "");
+                builder.add(entryTimeInMs, Double.parseDouble(priceStr));
+            }
+        },
+        ADOBE_HISTORY {
+            @Override
+            void addRow(String[] row, PriceSeries.Builder builder) {
+                long entryTimeInMs = DateUtils.parseDateFromAdobeFormat(row[0]);
+                // Clean the Close/Last value (remove $ sign if present)
+                String closePriceStr = row[1].replace("$", "").replace(",", "");
+                builder.add(entryTimeInMs, Double.parseDouble(closePriceStr));
+            }
+        },
+        SHARE_DATA {
+            @Override
+            void addRow(String[] row, PriceSeries.Builder builder) {
+                long entryTimeInMs = DateUtils.parseYyyyMmDd(row[0]).getTimeInMillis();
+                builder.add(entryTimeInMs, Double.parseDouble(row[4])); // Close column
+            }
+        };
+
+        abstract void addRow(String[] row, PriceSeries.Builder builder);
+    }
+
+    private final Path historicDataDir;
+
+    /**
+     * Source over <user.dir>/historic_data, resolved on every load
+     */
+    public CsvPriceSource() {
+        this(null);
+    }
+
+    public CsvPriceSource(Path historicDataDir) {
+        this.historicDataDir = historicDataDir;
+    }
+
+    private Path historicDataDir() {
+        return historicDataDir != null ? historicDataDir : Paths.get(System.getProperty("user.dir"), "historic_data");
+    }
+
+    /**
+     * File of a symbol, relative to the historic_data folder
+     */
+    static String fileName(String symbol) {
+        if (USD_INR.equals(symbol)) {
+            return "usd_inr_price_history.csv";
+        }
+        // Use the new adobe_price_history.csv file for ADBE
+        if ("adbe".equalsIgnoreCase(symbol)) {
+            return "adobe_price_history.csv";
+        }
+        // Fallback to old structure for other tickers
+        return String.join("/", "shares", symbol.toLowerCase(), "data.csv");
+    }
+
+    public Layout layout(String symbol) {
+        if (USD_INR.equals(symbol)) {
+            return Layout.USD_INR;
+        }
+        return "adbe".equalsIgnoreCase(symbol) ? Layout.ADOBE_HISTORY : Layout.SHARE_DATA;
+    }
+
+    /**
+     * CSV file a symbol is read from
+     */
+    public Path path(String symbol) {
+        return historicDataDir().resolve(fileName(symbol));
+    }
+
+    @Override
+    public String describe(String symbol) {
+        return "historic_data/" + fileName(symbol);
+    }
+
+    @Override
+    public CsvPriceSource csvSource() {
+        return this;
+    }
+
+    @Override
+    public PriceSeries load(String symbol) {
+        Path csvPath = path(symbol);
+        boolean usdInr = USD_INR.equals(symbol);
+
+        if (!FileUtils.fileExists(csvPath.toString())) {
+            throw new IllegalArgumentException(usdInr
+                ? "USD/INR historical data NOT present at " + csvPath
+                : String.format("Historic share data for share %s NOT present at %s", symbol, csvPath));
+        }
+
+        try (Reader reader = new FileReader(csvPath.toFile())) {
+            // Skip header row
+            return parse(symbol, reader, true);
+        } catch (IOException | CsvException e) {
+            throw new RuntimeException((usdInr ? "Failed to read USD/INR data: " : "Failed to read share data for " + symbol + ": ")
+                + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Parse CSV rows of a symbol's layout into a series sorted by date for binary search lookups
+     */
+    PriceSeries parse(String symbol, Reader reader, boolean skipHeader) throws IOException, CsvException {
+        Layout layout = layout(symbol);
+        try (CSVReader csvReader = new CSVReader(reader)) {
+            List<String[]> records = csvReader.readAll();
+            PriceSeries.Builder builder = new PriceSeries.Builder(records.size());
+
+            for (int i = skipHeader ? 1 : 0; i < records.size(); i++) {
+                layout.addRow(records.get(i), builder);
+            }
+            return builder.build();
+        }
+    }
+}
@@ -0,0 +1,278 @@
+package com.sefa.utils;
+
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.text.ParsePosition;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Date parsing engine behind DateUtils
+ * The fixed width formats are parsed by hand, anything else goes through formatters that are
+ * built once and sniffed with parseUnresolved instead of exceptions. Parsed strings are memoized
+ * per format, so repeated dates (vest schedules, overlapping price files) are parsed once.
+ * All results are epoch milliseconds at the start of the day in UTC.
+ */
+final class DateParser {
+
+    private static final DateTimeFormatter MM_DD_YYYY = DateTimeFormatter.ofPattern("MM/dd/yyyy");
+    private static final DateTimeFormatter DD_MM_YYYY = DateTimeFormatter.ofPattern("dd-MM-yyyy");
+    private static final DateTimeFormatter YYYY_MM_DD = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+
+    // Fallback formats for named month dates, tried in this order
+    private static final String[] NAMED_MON_PATTERNS = {
+        "dd-MMM-yyyy",
+        "d-MMM-yyyy",
+        "dd-MMM-yy",
+        "d-MMM-yy",
+        "MMM d, yyyy",
+        "MMM dd, yyyy",
+        "d/M/yyyy",
+        "dd/MM/yyyy",
+        "MM/dd/yyyy",
+        "yyyy-MM-dd"
+    };
+    private static final DateTimeFormatter[] NAMED_MON_FORMATTERS = new DateTimeFormatter[NAMED_MON_PATTERNS.length];
+
+    static {
+        for (int i = 0; i < NAMED_MON_PATTERNS.length; i++) {
+            NAMED_MON_FORMATTERS[i] = DateTimeFormatter.ofPattern(NAMED_MON_PATTERNS[i], Locale.US);
+        }
+    }
+
+    private static final String[] MONTH_ABBREVIATIONS = {
+        "JAN", "FEB", "MAR", "APR", "MAY", "JUN", "JUL", "AUG", "SEP", "OCT", "NOV", "DEC"
+    };
+
+    private static final long ONE_DAY_IN_MS = 24 * 60 * 60 * 1000L;
+    // Memo entries per format, the memo is simply dropped when it fills up
+    private static final int MAX_MEMO_SIZE = 8192;
+
+    private static final Map<String, Long> NAMED_MON_MEMO = new ConcurrentHashMap<>();
+    private static final Map<String, Long> MM_DD_YYYY_MEMO = new ConcurrentHashMap<>();
+    private static final Map<String, Long> DD_MM_YYYY_MEMO = new ConcurrentHashMap<>();
+    private static final Map<String, Long> YYYY_MM_DD_MEMO = new ConcurrentHashMap<>();
+
+    private DateParser() {
+    }
+
+    /**
+     * Named month date such as 30-JUN-2020, with the fallback formats of NAMED_MON_PATTERNS
+     * Expects trimmed, non-empty text and throws IllegalArgumentException when nothing matches
+     */
+    static long parseNamedMon(String text) {
+        Long memoized = NAMED_MON_MEMO.get(text);
+        if (memoized != null) {
+            return memoized;
+        }
+
+        long timeInMs = isExcelNamedMon(text) ? parseExcelNamedMon(text) : parseWithFallbackFormats(text);
+        return memoize(NAMED_MON_MEMO, text, timeInMs);
+    }
+
+    /**
+     * MM/dd/yyyy, throws DateTimeParseException like LocalDate.parse
+     */
+    static long parseMmDdYyyy(String text) {
+        Long memoized = MM_DD_YYYY_MEMO.get(text);
+        if (memoized != null) {
+            return memoized;
+        }
+
+        long timeInMs = parseFixedWidth(text, '/', 6, 0, 3);
+        if (timeInMs == Long.MIN_VALUE) {
+            timeInMs = parseWithFormatter(text, MM_DD_YYYY);
+        }
+        return memoize(MM_DD_YYYY_MEMO, text, timeInMs);
+    }
+
+    /**
+     * dd-MM-yyyy, throws DateTimeParseException like LocalDate.parse
+     */
+    static long parseDdMmYyyy(String text) {
+        Long memoized = DD_MM_YYYY_MEMO.get(text);
+        if (memoized != null) {
+            return memoized;
+        }
+
+        long timeInMs = parseFixedWidth(text, '-', 6, 3, 0);
+        if (timeInMs == Long.MIN_VALUE) {
+            timeInMs = parseWithFormatter(text, DD_MM_YYYY);
+        }
+        return memoize(DD_MM_YYYY_MEMO, text, timeInMs);
+    }
+
+    /**
+     * yyyy-MM-dd, throws DateTimeParseException like LocalDate.parse
+     */
+    static long parseYyyyMmDd(String text) {
+        Long memoized = YYYY_MM_DD_MEMO.get(text);
+        if (memoized != null) {
+            return memoized;
+        }
+
+        long timeInMs = parseFixedWidth(text, '-', 0, 5, 8);
+        if (timeInMs == Long.MIN_VALUE) {
+            timeInMs = parseWithFormatter(text, YYYY_MM_DD);
+        }
+        return memoize(YYYY_MM_DD_MEMO, text, timeInMs);
+    }
+
+    private static long memoize(Map<String, Long> memo, String text, long timeInMs) {
+        if (memo.size() >= MAX_MEMO_SIZE) {
+            memo.clear();
+        }
+        memo.put(text, timeInMs);
+        return timeInMs;
+    }
+
+    /**
+     * 10 character date with two separators and a 4 digit year at the given offsets
+     * Returns Long.MIN_VALUE for anything that is not a plain valid date, the formatter
+     * then decides (longer years, day clamping and error messages stay exactly as before)
+     */
+    private static long parseFixedWidth(String text, char separator, int yearAt, int monthAt, int dayAt) {
+        if (text == null || text.length() != 10) {
+            return Long.MIN_VALUE;
+        }
+
+        for (int i = 0; i < 10; i++) {
+            char c = text.charAt(i);
+            boolean isSeparatorPosition = (yearAt == 0) ? (i == 4 || i == 7) : (i == 2 || i == 5);
+            if (isSeparatorPosition ? c != separator : (c < '0' || c > '9')) {
+                return Long.MIN_VALUE;
+            }
+        }
+
+        int year = digits(text, yearAt, 4);
+        int month = digits(text, monthAt, 2);
+        int day = digits(text, dayAt, 2);
+        if (year < 1 || month < 1 || month > 12 || day < 1 || day > lengthOfMonth(year, month)) {
+            return Long.MIN_VALUE;
+        }
+        return epochDay(year, month, day) * ONE_DAY_IN_MS;
+    }
+
+    private static long parseWithFormatter(String text, DateTimeFormatter formatter) {
+        LocalDateTime dateTime = LocalDate.parse(text, formatter).atStartOfDay();
+        return DateUtils.epochInMs(dateTime);
+    }
+
+    /**
+     * Same check as the \d{1,2}-[A-Z]{3}-\d{4} pattern, without a regex
+     */
+    private static boolean isExcelNamedMon(String text) {
+        int length = text.length();
+        if (length != 10 && length != 11) {
+            return false;
+        }
+
+        int dayDigits = length - 9;
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            boolean valid;
+            if (i < dayDigits || i >= dayDigits + 5) {
+                valid = c >= '0' && c <= '9';
+            } else if (i == dayDigits || i == dayDigits + 4) {
+                valid = c == '-';
+            } else {
+                valid = c >= 'A' && c <= 'Z';
+            }
+            if (!valid) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Parse the Excel named month format (30-JUN-2020) matched by isExcelNamedMon
+     */
+    private static long parseExcelNamedMon(String text) {
+        int dayDigits = text.length() - 9;
+        int day = digits(text, 0, dayDigits);
+        int year = digits(text, dayDigits + 5, 4);
+
+        int month = 0;
+        for (int i = 0; i < MONTH_ABBREVIATIONS.length; i++) {
+            if (text.regionMatches(dayDigits + 1, MONTH_ABBREVIATIONS[i], 0, 3)) {
+                month = i + 1;
+                break;
+            }
+        }
+        if (month == 0) {
+            throw new IllegalArgumentException("Failed to parse Excel date format: " + text
+                + " - Unknown month abbreviation: " + text.substring(dayDigits + 1, dayDigits + 4));
+        }
+
+        if (day < 1 || day > lengthOfMonth(year, month)) {
+            try {
+                // Let java.time describe the invalid date
+                LocalDateTime.of(year, month, day, 0, 0, 0);
+            } catch (DateTimeException e) {
+                throw new IllegalArgumentException("Failed to parse Excel date format: " + text + " - " + e.getMessage());
+            }
+        }
+        return epochDay(year, month, day) * ONE_DAY_IN_MS;
+    }
+
+    /**
+     * Try the fallback formats in order, skipping those that cannot consume the text
+     */
+    private static long parseWithFallbackFormats(String text) {
+        for (DateTimeFormatter formatter : NAMED_MON_FORMATTERS) {
+            ParsePosition position = new ParsePosition(0);
+            if (formatter.parseUnresolved(text, position) == null
+                || position.getErrorIndex() >= 0 || position.getIndex() != text.length()) {
+                continue;
+            }
+            try {
+                // Shape matches, only an invalid field value can still fail here
+                return parseWithFormatter(text, formatter);
+            } catch (DateTimeParseException e) {
+                // Continue to next pattern
+            }
+        }
+
+        throw new IllegalArgumentException("Unable to parse date: " + text + ". Tried patterns: " + String.join(", ", NAMED_MON_PATTERNS));
+    }
+
+    private static int digits(String text, int start, int count) {
+        int value = 0;
+        for (int i = start; i < start + count; i++) {
+            value = value * 10 + (text.charAt(i) - '0');
+        }
+        return value;
+    }
+
+    private static int lengthOfMonth(int year, int month) {
+        switch (month) {
+            case 2:
+                boolean leap = (year % 4 == 0) && (year % 100 != 0 || year % 400 == 0);
+                return leap ? 29 : 28;
+            case 4:
+            case 6:
+            case 9:
+            case 11:
+                return 30;
+            default:
+                return 31;
+        }
+    }
+
+    /**
+     * Days since 1970-01-01 of a proleptic Gregorian date, same as LocalDate.toEpochDay
+     */
+    private static long epochDay(int year, int month, int day) {
+        long y = month <= 2 ? year - 1 : year;
+        long era = Math.floorDiv(y, 400);
+        long yearOfEra = y - era * 400;
+        long dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097 + dayOfEra - 719468;
+    }
+}
@@ -1,14 +1,21 @@
 package com.sefa.utils;
 
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import com.opencsv.CSVWriter;
 
 import java.io.*;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.List;
 
 /**
@@ -18,39 +25,46 @@ import java.util.List;
 public class FileUtils {
     
     private static final ObjectMapper objectMapper = new ObjectMapper();
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static boolean COMPACT_JSON = false;
     
     static {
         objectMapper.registerModule(new JavaTimeModule());
         objectMapper.enable(SerializationFeature.INDENT_OUTPUT);
     }
     
+    /**
+     * Write JSON output without indentation and line breaks
+     */
+    public static void setCompactJson(boolean compactJson) {
+        COMPACT_JSON = compactJson;
+    }
+    
+    private static ObjectWriter jsonWriter() {
+        ObjectWriter writer = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        return COMPACT_JSON ? writer.without(SerializationFeature.INDENT_OUTPUT) : writer;
+    }
+    
     /**
      * Write object to JSON file
      */
     public static String writeToFile(String outputFolderAbsPath, String fileName, 
                                    Object obj, boolean override, boolean printPathToConsole) 
                                    throws IOException {
-        Path outputPath = Paths.get(outputFolderAbsPath);
-        if (!Files.exists(outputPath)) {
-            Files.createDirectories(outputPath);
+        try (AtomicFileWriter writer = new AtomicFileWriter(outputFolderAbsPath, fileName, override)) {
+            jsonWriter().writeValue(writer.out, obj);
+            return writer.commit(printPathToConsole);
         }
-        
-        Path finalFilePath = outputPath.resolve(fileName);
-        
-        if (Files.exists(finalFilePath) && !override) {
-            throw new IllegalArgumentException(
-                "Path " + finalFilePath + " already exists and force(-f) flag is not added to delete the path"
-            );
-        }
-        
-        try (FileWriter writer = new FileWriter(finalFilePath.toFile())) {
-            objectMapper.writeValue(writer, obj);
-            if (printPathToConsole) {
-                printFilePath(finalFilePath.toString());
-            }
+    }
+    
+    /**
+     * Write object to JSON file without indentation, for files read back by the application only
+     */
+    public static String writeCompactToFile(String outputFolderAbsPath, String fileName, Object obj) throws IOException {
+        try (AtomicFileWriter writer = new AtomicFileWriter(outputFolderAbsPath, fileName, true)) {
+            jsonWriter().without(SerializationFeature.INDENT_OUTPUT).writeValue(writer.out, obj);
+            return writer.commit(false);
         }
-        
-        return finalFilePath.toString();
     }
     
     /**
@@ -68,45 +82,182 @@ public class FileUtils {
                                       String[] headers, List<String[]> data,
                                       boolean override, boolean printPathToConsole) 
                                       throws IOException {
-        Path outputPath = Paths.get(outputFileAbsPath);
-        if (!Files.exists(outputPath)) {
-            Files.createDirectories(outputPath);
-        }
-        
-        Path finalFilePath = outputPath.resolve(fileName);
-        
-        if (Files.exists(finalFilePath) && !override) {
-            throw new IllegalArgumentException(
-                "Path " + finalFilePath + " already exists and force(-f) flag is not added to delete the path"
-            );
+        try (CsvSink sink = openCsv(outputFileAbsPath, fileName, headers, override)) {
+            for (String[] row : data) {
+                sink.writeRow(row);
+            }
+            return sink.commit(printPathToConsole);
         }
+    }
+    
+    /**
+     * Write CSV data to file (without print to console)
+     */
+    public static String writeCsvToFile(String outputFileAbsPath, String fileName,
+                                      String[] headers, List<String[]> data,
+                                      boolean override) throws IOException {
+        return writeCsvToFile(outputFileAbsPath, fileName, headers, data, override, false);
+    }
+    
+    /**
+     * Open a CSV file to write row by row, the header row is written first
+     * Rows go to a temporary file that commit() moves into place, closing without a commit discards them
+     */
+    public static CsvSink openCsv(String outputFolderAbsPath, String fileName, String[] headers,
+                                  boolean override) throws IOException {
+        CsvSink sink = new CsvSink(new AtomicFileWriter(outputFolderAbsPath, fileName, override));
+        sink.writeRow(headers);
+        return sink;
+    }
+    
+    /**
+     * Open a JSON array file to write element by element, same output as writeToFile with the whole list
+     * Elements go to a temporary file that commit() moves into place, closing without a commit discards them
+     */
+    public static JsonArraySink openJsonArray(String outputFolderAbsPath, String fileName,
+                                              boolean override) throws IOException {
+        return new JsonArraySink(new AtomicFileWriter(outputFolderAbsPath, fileName, override));
+    }
+    
+    /**
+     * Buffered writer to a temporary file next to the target, renamed over the target on commit
+     * Readers of the target never see a partially written file
+     */
+    private static class AtomicFileWriter implements Closeable {
+        final Path target;
+        final Path tempPath;
+        final Writer out;
+        boolean committed;
         
-        try (FileWriter fileWriter = new FileWriter(finalFilePath.toFile());
-             CSVWriter csvWriter = new CSVWriter(fileWriter)) {
+        AtomicFileWriter(String outputFolderAbsPath, String fileName, boolean override) throws IOException {
+            Path outputPath = Paths.get(outputFolderAbsPath);
+            if (!Files.exists(outputPath)) {
+                Files.createDirectories(outputPath);
+            }
             
-            // Write headers
-            csvWriter.writeNext(headers);
+            this.target = outputPath.resolve(fileName);
             
-            // Write data rows
-            for (String[] row : data) {
-                csvWriter.writeNext(row);
+            if (Files.exists(target) && !override) {
+                throw new IllegalArgumentException(
+                    "Path " + target + " already exists and force(-f) flag is not added to delete the path"
+                );
             }
             
+            // Not Files.createTempFile, its owner-only permissions would end up on the output file
+            this.tempPath = outputPath.resolve(
+                "." + fileName + "." + Long.toHexString(System.nanoTime()) + Thread.currentThread().getId() + ".tmp");
+            this.out = new BufferedWriter(new OutputStreamWriter(
+                Files.newOutputStream(tempPath, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE),
+                StandardCharsets.UTF_8), BUFFER_SIZE);
+        }
+        
+        String commit(boolean printPathToConsole) throws IOException {
+            out.close();
+            try {
+                Files.move(tempPath, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                // Not every file system renames atomically
+                Files.move(tempPath, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+            committed = true;
             if (printPathToConsole) {
-                printFilePath(finalFilePath.toString());
+                printFilePath(target.toString());
             }
+            return target.toString();
         }
         
-        return finalFilePath.toString();
+        @Override
+        public void close() throws IOException {
+            if (!committed) {
+                try {
+                    out.close();
+                } finally {
+                    Files.deleteIfExists(tempPath);
+                }
+            }
+        }
     }
     
     /**
-     * Write CSV data to file (without print to console)
+     * CSV file written row by row, see openCsv
      */
-    public static String writeCsvToFile(String outputFileAbsPath, String fileName,
-                                      String[] headers, List<String[]> data,
-                                      boolean override) throws IOException {
-        return writeCsvToFile(outputFileAbsPath, fileName, headers, data, override, false);
+    public static class CsvSink implements Closeable {
+        private final AtomicFileWriter file;
+        private final CSVWriter csvWriter;
+        private int rows;
+        
+        private CsvSink(AtomicFileWriter file) {
+            this.file = file;
+            this.csvWriter = new CSVWriter(file.out);
+        }
+        
+        public void writeRow(String[] row) {
+            csvWriter.writeNext(row);
+            rows++;
+        }
+        
+        /**
+         * Rows written so far, the header row included
+         */
+        public int getRows() {
+            return rows;
+        }
+        
+        /**
+         * Finish the file and move it into place, returns its path
+         */
+        public String commit(boolean printPathToConsole) throws IOException {
+            csvWriter.flush();
+            if (csvWriter.checkError()) {
+                throw new IOException("Failed to write " + file.target);
+            }
+            return file.commit(printPathToConsole);
+        }
+        
+        @Override
+        public void close() throws IOException {
+            file.close();
+        }
+    }
+    
+    /**
+     * JSON array file written element by element through a streaming generator, see openJsonArray
+     */
+    public static class JsonArraySink implements Closeable {
+        private final AtomicFileWriter file;
+        private final ObjectWriter writer;
+        private final JsonGenerator generator;
+        private int elements;
+        
+        private JsonArraySink(AtomicFileWriter file) throws IOException {
+            this.file = file;
+            this.writer = jsonWriter();
+            this.generator = writer.createGenerator(file.out);
+            generator.writeStartArray();
+        }
+        
+        public void write(Object element) throws IOException {
+            writer.writeValue(generator, element);
+            elements++;
+        }
+        
+        public int getElements() {
+            return elements;
+        }
+        
+        /**
+         * Close the array and move the file into place, returns its path
+         */
+        public String commit(boolean printPathToConsole) throws IOException {
+            generator.writeEndArray();
+            generator.flush();
+            return file.commit(printPathToConsole);
+        }
+        
+        @Override
+        public void close() throws IOException {
+            file.close();
+        }
     }
     
     /**
@@ -140,6 +291,32 @@ public class FileUtils {
         return Files.readString(Paths.get(filePath));
     }
     
+    /**
+     * SHA-256 of a file's content, as lowercase hex
+     */
+    public static String sha256(String filePath) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+        
+        byte[] buffer = new byte[BUFFER_SIZE];
+        try (InputStream in = Files.newInputStream(Paths.get(filePath))) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        
+        StringBuilder hex = new StringBuilder();
+        for (byte b : digest.digest()) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+    
     /**
      * Read JSON file and convert to object
      */
@@ -0,0 +1,31 @@
+package com.sefa.utils;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Prices held in memory, for tests and callers that already have the series
+ */
+public class InMemoryPriceSource implements PriceSource {
+
+    private final Map<String, PriceSeries> series = new ConcurrentHashMap<>();
+
+    public InMemoryPriceSource put(String symbol, PriceSeries priceSeries) {
+        series.put(symbol, priceSeries);
+        return this;
+    }
+
+    @Override
+    public PriceSeries load(String symbol) {
+        PriceSeries priceSeries = series.get(symbol);
+        if (priceSeries == null) {
+            throw new IllegalArgumentException("No price data for " + symbol + " in memory");
+        }
+        return priceSeries;
+    }
+
+    @Override
+    public String describe(String symbol) {
+        return "in-memory prices";
+    }
+}
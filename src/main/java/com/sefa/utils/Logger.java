@@ -4,6 +4,9 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 
+import java.util.ArrayDeque;
+import java.util.Deque;
+
 /**
  * Logger utility class
  * Converted from Python utils/logger.py
@@ -12,6 +15,8 @@ public class Logger {
     
     private static boolean DEBUG = false;
     private static final ObjectMapper objectMapper = new ObjectMapper();
+    // Open captures of the current thread, innermost last (nested when a worker runs a stolen task)
+    private static final ThreadLocal<Deque<StringBuilder>> CAPTURES = ThreadLocal.withInitial(ArrayDeque::new);
     
     static {
         objectMapper.registerModule(new JavaTimeModule());
@@ -32,18 +37,56 @@ public class Logger {
         return DEBUG;
     }
     
+    /**
+     * Collect the log lines of the current thread instead of printing them, until stopCapture
+     * Lets parallel workers keep their output together, the caller prints it in a fixed order
+     */
+    public static void startCapture() {
+        CAPTURES.get().addLast(new StringBuilder());
+    }
+    
+    /**
+     * End the innermost capture of the current thread and return what it collected
+     */
+    public static String stopCapture() {
+        StringBuilder captured = CAPTURES.get().pollLast();
+        return captured != null ? captured.toString() : "";
+    }
+    
+    /**
+     * Print log lines returned by stopCapture (into the enclosing capture, if any)
+     */
+    public static void flush(String captured) {
+        if (!captured.isEmpty()) {
+            write(captured);
+        }
+    }
+    
+    private static void writeLine(String line) {
+        write(line + System.lineSeparator());
+    }
+    
+    private static void write(String text) {
+        StringBuilder capture = CAPTURES.get().peekLast();
+        if (capture != null) {
+            capture.append(text);
+        } else {
+            System.out.print(text);
+        }
+    }
+    
     /**
      * Log a message
      */
     public static void log(String message) {
-        System.out.println(message);
+        writeLine(message);
     }
     
     /**
      * Log a formatted message
      */
     public static void log(String format, Object... args) {
-        System.out.printf(format + "%n", args);
+        writeLine(String.format(format, args));
     }
     
     /**
@@ -51,7 +94,7 @@ public class Logger {
      */
     public static void debugLog(String message) {
         if (DEBUG) {
-            System.out.println("[DEBUG] " + message);
+            writeLine("[DEBUG] " + message);
         }
     }
     
@@ -60,7 +103,7 @@ public class Logger {
      */
     public static void debugLog(String format, Object... args) {
         if (DEBUG) {
-            System.out.printf("[DEBUG] " + format + "%n", args);
+            writeLine(String.format("[DEBUG] " + format, args));
         }
     }
     
@@ -71,10 +114,10 @@ public class Logger {
         if (DEBUG) {
             try {
                 String json = objectMapper.writeValueAsString(obj);
-                System.out.println("[DEBUG JSON] " + json);
+                writeLine("[DEBUG JSON] " + json);
             } catch (Exception e) {
                 System.err.println("[DEBUG JSON ERROR] Failed to serialize object: " + e.getMessage());
-                System.out.println("[DEBUG] " + obj.toString());
+                writeLine("[DEBUG] " + obj.toString());
             }
         }
     }
@@ -98,6 +141,6 @@ public class Logger {
      * Log a warning message
      */
     public static void warn(String message) {
-        System.out.println("[WARN] " + message);
+        writeLine("[WARN] " + message);
     }
 } 
\ No newline at end of file
@@ -0,0 +1,96 @@
+package com.sefa.utils;
+
+import java.util.function.LongToDoubleFunction;
+
+/**
+ * Range-maximum index over the INR value of a price series
+ * Sparse table: O(n log n) build, O(1) peak query for any [start, end] window
+ */
+public final class PeakPriceIndex {
+
+    private final PriceSeries prices;
+    private final double[] inrRates;
+    private final double[] inrPrices;
+    // sparseTable[k][i] = index of the peak INR price in [i, i + 2^k)
+    private final int[][] sparseTable;
+
+    private PeakPriceIndex(PriceSeries prices, double[] inrRates, double[] inrPrices, int[][] sparseTable) {
+        this.prices = prices;
+        this.inrRates = inrRates;
+        this.inrPrices = inrPrices;
+        this.sparseTable = sparseTable;
+    }
+
+    /**
+     * Build the index for a price series, converting each entry with the rate of its own day
+     */
+    public static PeakPriceIndex build(PriceSeries prices, LongToDoubleFunction inrRateAt) {
+        int size = prices.size();
+        double[] inrRates = new double[size];
+        double[] inrPrices = new double[size];
+
+        for (int i = 0; i < size; i++) {
+            inrRates[i] = inrRateAt.applyAsDouble(prices.timeAt(i));
+            inrPrices[i] = prices.valueAt(i) * inrRates[i];
+        }
+
+        int levels = size > 0 ? 32 - Integer.numberOfLeadingZeros(size) : 0;
+        int[][] sparseTable = new int[levels][];
+
+        if (levels > 0) {
+            sparseTable[0] = new int[size];
+            for (int i = 0; i < size; i++) {
+                sparseTable[0][i] = i;
+            }
+        }
+
+        for (int k = 1; k < levels; k++) {
+            int half = 1 << (k - 1);
+            int count = size - (1 << k) + 1;
+            int[] previous = sparseTable[k - 1];
+            int[] current = new int[count];
+            for (int i = 0; i < count; i++) {
+                current[i] = higher(inrPrices, previous[i], previous[i + half]);
+            }
+            sparseTable[k] = current;
+        }
+
+        return new PeakPriceIndex(prices, inrRates, inrPrices, sparseTable);
+    }
+
+    /**
+     * Index of the peak INR price within [startTimeInMs, endTimeInMs], -1 if the window has no entries
+     * On ties the earliest entry wins
+     */
+    public int peakIndex(long startTimeInMs, long endTimeInMs) {
+        int from = prices.ceilingIndex(startTimeInMs);
+        int to = prices.floorIndex(endTimeInMs);
+        if (from < 0 || to < from) {
+            return -1;
+        }
+
+        int k = 31 - Integer.numberOfLeadingZeros(to - from + 1);
+        int[] level = sparseTable[k];
+        return higher(inrPrices, level[from], level[to - (1 << k) + 1]);
+    }
+
+    public long timeAt(int index) {
+        return prices.timeAt(index);
+    }
+
+    public double fmvAt(int index) {
+        return prices.valueAt(index);
+    }
+
+    public double inrRateAt(int index) {
+        return inrRates[index];
+    }
+
+    public double inrPriceAt(int index) {
+        return inrPrices[index];
+    }
+
+    private static int higher(double[] values, int left, int right) {
+        return values[left] >= values[right] ? left : right;
+    }
+}
@@ -0,0 +1,141 @@
+package com.sefa.utils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Watches historic_data (and historic_data/shares/<ticker>) and reloads price CSVs that change
+ * Events are collected until the folder has been quiet for a short while, so a file being written
+ * in several steps is reloaded once. See ShareDataUtils.reload for how the new data is swapped in.
+ * Ticker folders created after the start are watched from then on.
+ */
+public class PriceDataWatcher implements Closeable {
+
+    static final long QUIET_PERIOD_MS = 200;
+
+    private final WatchService watchService;
+    private final Path sharesDir;
+    private final Thread thread;
+
+    private PriceDataWatcher(Path historicDataDir) throws IOException {
+        this.watchService = historicDataDir.getFileSystem().newWatchService();
+        this.sharesDir = historicDataDir.resolve("shares");
+        register(historicDataDir);
+        if (Files.isDirectory(sharesDir)) {
+            registerTree(sharesDir, new LinkedHashSet<>());
+        }
+
+        this.thread = new Thread(this::watch, "price-data-watcher");
+        this.thread.setDaemon(true);
+    }
+
+    /**
+     * Start watching <user.dir>/historic_data
+     */
+    public static PriceDataWatcher start() throws IOException {
+        return start(Paths.get(System.getProperty("user.dir"), "historic_data"));
+    }
+
+    /**
+     * Start watching the given historic data folder, price data loaded from it is reloaded on change
+     */
+    public static PriceDataWatcher start(Path historicDataDir) throws IOException {
+        ShareDataUtils.enableReload();
+        PriceDataWatcher watcher = new PriceDataWatcher(historicDataDir);
+        watcher.thread.start();
+        Logger.log("Watching %s for price data updates", historicDataDir);
+        return watcher;
+    }
+
+    private void register(Path dir) throws IOException {
+        dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+    }
+
+    /**
+     * Register a folder and the ticker folders below it, CSVs already in them are added to changed
+     * (they may have been written before the folder was registered)
+     */
+    private void registerTree(Path dir, Set<Path> changed) throws IOException {
+        try (Stream<Path> paths = Files.walk(dir, 2)) {
+            for (Path path : (Iterable<Path>) paths::iterator) {
+                if (Files.isDirectory(path)) {
+                    register(path);
+                } else if (path.toString().endsWith(".csv")) {
+                    changed.add(path);
+                }
+            }
+        }
+    }
+
+    private void watch() {
+        try {
+            while (true) {
+                Set<Path> changed = new LinkedHashSet<>();
+                collect(watchService.take(), changed);
+
+                // Wait for the writes to settle
+                WatchKey key;
+                while ((key = watchService.poll(QUIET_PERIOD_MS, TimeUnit.MILLISECONDS)) != null) {
+                    collect(key, changed);
+                }
+
+                for (Path csvPath : changed) {
+                    try {
+                        ShareDataUtils.reload(csvPath);
+                    } catch (RuntimeException e) {
+                        // Keep serving the previous data, a later write may fix the file
+                        Logger.warn(e.getMessage());
+                    }
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // Closed
+        }
+    }
+
+    private void collect(WatchKey key, Set<Path> changed) {
+        Path dir = (Path) key.watchable();
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                continue;
+            }
+            Path path = dir.resolve((Path) event.context());
+            if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE
+                && (path.equals(sharesDir) || dir.equals(sharesDir)) && Files.isDirectory(path)) {
+                // A ticker added after the start, watch it and reload what it already holds
+                try {
+                    registerTree(path, changed);
+                    Logger.log("Watching %s for price data updates", path);
+                } catch (IOException e) {
+                    Logger.warn("Failed to watch " + path + ": " + e.getMessage());
+                }
+            } else if (path.toString().endsWith(".csv")) {
+                changed.add(path);
+            }
+        }
+        key.reset();
+    }
+
+    @Override
+    public void close() throws IOException {
+        watchService.close();
+        thread.interrupt();
+        try {
+            thread.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.sefa.utils;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Memoizes peak, closing price and closing rate queries for the lifetime of a run
+ * Identical (ticker, start, end) queries are answered from the cache instead of ShareDataUtils
+ * Safe to share between worker threads, each distinct query is computed once
+ * Results are tied to the ShareDataUtils data version, a reload of the price data starts a fresh cache
+ */
+public class PriceQueryCache {
+
+    private enum QueryType { PEAK_PRICE_INR, CLOSING_PRICE, USD_INR_RATE, INR_CONVERSION_RATE }
+
+    private static final class QueryKey {
+        private final QueryType type;
+        // SymbolTable.TICKERS id, -1 for rate queries
+        private final int tickerId;
+        private final long startTimeInMs;
+        private final long endTimeInMs;
+        private final long dataVersion;
+
+        QueryKey(QueryType type, String ticker, long startTimeInMs, long endTimeInMs) {
+            this.type = type;
+            this.tickerId = SymbolTable.TICKERS.id(ticker);
+            this.startTimeInMs = startTimeInMs;
+            this.endTimeInMs = endTimeInMs;
+            this.dataVersion = ShareDataUtils.getDataVersion();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+
+            QueryKey queryKey = (QueryKey) o;
+
+            return startTimeInMs == queryKey.startTimeInMs
+                && endTimeInMs == queryKey.endTimeInMs
+                && dataVersion == queryKey.dataVersion
+                && type == queryKey.type
+                && tickerId == queryKey.tickerId;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = type.hashCode();
+            result = 31 * result + tickerId;
+            result = 31 * result + Long.hashCode(startTimeInMs);
+            result = 31 * result + Long.hashCode(endTimeInMs);
+            result = 31 * result + Long.hashCode(dataVersion);
+            return result;
+        }
+    }
+
+    private final Map<QueryKey, Double> results = new ConcurrentHashMap<>();
+    private final LongAdder lookups = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private volatile long dataVersion = ShareDataUtils.getDataVersion();
+
+    /**
+     * Peak price in INR within a time range, see ShareDataUtils.getPeakPriceInInr
+     */
+    public double getPeakPriceInInr(String ticker, long startTimeInMs, long endTimeInMs) {
+        return lookup(new QueryKey(QueryType.PEAK_PRICE_INR, ticker, startTimeInMs, endTimeInMs),
+            () -> ShareDataUtils.getPeakPriceInInr(ticker, startTimeInMs, endTimeInMs));
+    }
+
+    /**
+     * Closing price for a ticker at end time, see ShareDataUtils.getClosingPrice
+     */
+    public double getClosingPrice(String ticker, long endTimeInMs) {
+        return lookup(new QueryKey(QueryType.CLOSING_PRICE, ticker, endTimeInMs, endTimeInMs),
+            () -> ShareDataUtils.getClosingPrice(ticker, endTimeInMs));
+    }
+
+    /**
+     * USD to INR rate at a given time, see ShareDataUtils.getUsdInrRate
+     */
+    public double getUsdInrRate(long timeInMs) {
+        return lookup(new QueryKey(QueryType.USD_INR_RATE, null, timeInMs, timeInMs),
+            () -> ShareDataUtils.getUsdInrRate(timeInMs));
+    }
+
+    /**
+     * Rate to convert purchase and closing prices with, see ShareDataUtils.getInrConversionRate
+     */
+    public double getInrConversionRate(long timeInMs) {
+        return lookup(new QueryKey(QueryType.INR_CONVERSION_RATE, null, timeInMs, timeInMs),
+            () -> ShareDataUtils.getInrConversionRate(timeInMs));
+    }
+
+    private double lookup(QueryKey key, Supplier<Double> query) {
+        lookups.increment();
+        if (key.dataVersion > dataVersion) {
+            // Results of older price data can never be hit again
+            dataVersion = key.dataVersion;
+            results.keySet().removeIf(cached -> cached.dataVersion < key.dataVersion);
+        }
+        Double result = results.get(key);
+        if (result != null) {
+            return result;
+        }
+
+        // Threads racing on the same key wait for the one computation, they count as hits
+        return results.computeIfAbsent(key, k -> {
+            misses.increment();
+            return query.get();
+        });
+    }
+
+    public long getHits() {
+        return lookups.sum() - misses.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public int size() {
+        return results.size();
+    }
+
+    /**
+     * Log hit/miss statistics
+     */
+    public void logStats() {
+        long total = lookups.sum();
+        long hits = getHits();
+        Logger.log("Price query cache: %d hits, %d misses (%.1f%% hit rate), %d cached results",
+            hits, getMisses(), total == 0 ? 0.0 : 100.0 * hits / total, results.size());
+    }
+}
@@ -0,0 +1,224 @@
+package com.sefa.utils;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.stream.IntStream;
+
+/**
+ * Immutable, time-sorted price series backed by primitive arrays.
+ * All lookups are binary searches over the sorted time column.
+ */
+public final class PriceSeries {
+
+    private final long[] timesInMs;
+    private final double[] values;
+
+    private PriceSeries(long[] timesInMs, double[] values) {
+        this.timesInMs = timesInMs;
+        this.values = values;
+    }
+
+    /**
+     * Series over arrays that are already sorted by time, the arrays are used as is
+     */
+    static PriceSeries ofSorted(long[] timesInMs, double[] values) {
+        if (timesInMs.length != values.length) {
+            throw new IllegalArgumentException("Times and values must have the same length");
+        }
+        return new PriceSeries(timesInMs, values);
+    }
+
+    public int size() {
+        return timesInMs.length;
+    }
+
+    public boolean isEmpty() {
+        return timesInMs.length == 0;
+    }
+
+    public long timeAt(int index) {
+        return timesInMs[index];
+    }
+
+    public double valueAt(int index) {
+        return values[index];
+    }
+
+    /**
+     * Index of the first entry at or after the given time, -1 if there is none
+     */
+    public int ceilingIndex(long timeInMs) {
+        int low = 0;
+        int high = timesInMs.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (timesInMs[mid] < timeInMs) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low < timesInMs.length ? low : -1;
+    }
+
+    /**
+     * Index of the last entry at or before the given time, -1 if there is none
+     */
+    public int floorIndex(long timeInMs) {
+        int low = 0;
+        int high = timesInMs.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (timesInMs[mid] <= timeInMs) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low - 1;
+    }
+
+    /**
+     * Hash of the entries a lookup between the two times can see: the entry at or before the start
+     * (the one carried into the window) and every entry after it up to the end
+     * Changes whenever one of them is added, removed or changed, entries after the end do not count
+     */
+    public long fingerprint(long fromTimeInMs, long toTimeInMs) {
+        // Lookups before the whole history use the first entry
+        int first = Math.max(floorIndex(fromTimeInMs), 0);
+        int last = Math.min(Math.max(floorIndex(toTimeInMs), first), timesInMs.length - 1);
+        long hash = 1125899906842597L;
+        for (int i = first; i <= last; i++) {
+            hash = 31 * hash + timesInMs[i];
+            hash = 31 * hash + Double.doubleToLongBits(values[i]);
+        }
+        return 31 * hash + Math.max(last - first + 1, 0);
+    }
+
+    /**
+     * New series without the removed entries and with the added ones, in one linear merge
+     * Both arguments must be sorted by time. Returns null when a removed entry is not in this series.
+     */
+    PriceSeries replace(PriceSeries removed, PriceSeries added) {
+        int size = timesInMs.length - removed.size() + added.size();
+        if (size < added.size()) {
+            return null;
+        }
+        long[] mergedTimes = new long[size];
+        double[] mergedValues = new double[size];
+
+        int r = 0;
+        int a = 0;
+        int out = 0;
+        for (int i = 0; i < timesInMs.length; i++) {
+            if (r < removed.size() && timesInMs[i] == removed.timesInMs[r]
+                && Double.compare(values[i], removed.values[r]) == 0) {
+                r++;
+                continue;
+            }
+            if (r < removed.size() && removed.timesInMs[r] < timesInMs[i]) {
+                return null;
+            }
+            while (a < added.size() && added.timesInMs[a] < timesInMs[i] && out < size) {
+                mergedTimes[out] = added.timesInMs[a];
+                mergedValues[out++] = added.values[a++];
+            }
+            if (out == size) {
+                return null;
+            }
+            mergedTimes[out] = timesInMs[i];
+            mergedValues[out++] = values[i];
+        }
+        if (r < removed.size() || out + added.size() - a != size) {
+            return null;
+        }
+        while (a < added.size()) {
+            mergedTimes[out] = added.timesInMs[a];
+            mergedValues[out++] = added.values[a++];
+        }
+        return new PriceSeries(mergedTimes, mergedValues);
+    }
+
+    /**
+     * Builder accepting entries in any order; build() sorts them by time
+     */
+    public static class Builder {
+        private long[] timesInMs;
+        private double[] values;
+        private int size;
+
+        public Builder() {
+            this(256);
+        }
+
+        public Builder(int expectedSize) {
+            int capacity = Math.max(expectedSize, 16);
+            this.timesInMs = new long[capacity];
+            this.values = new double[capacity];
+        }
+
+        public Builder add(long timeInMs, double value) {
+            if (size == timesInMs.length) {
+                int capacity = size + (size >> 1);
+                timesInMs = Arrays.copyOf(timesInMs, capacity);
+                values = Arrays.copyOf(values, capacity);
+            }
+            timesInMs[size] = timeInMs;
+            values[size] = value;
+            size++;
+            return this;
+        }
+
+        public PriceSeries build() {
+            long[] sortedTimes = Arrays.copyOf(timesInMs, size);
+            double[] sortedValues = Arrays.copyOf(values, size);
+
+            if (isStrictlyDescending(sortedTimes)) {
+                // Historic CSV exports list the newest entry first
+                reverse(sortedTimes, sortedValues);
+            } else if (!isAscending(sortedTimes)) {
+                // Stable sort so that duplicate dates keep their file order
+                Integer[] order = IntStream.range(0, size).boxed().toArray(Integer[]::new);
+                Arrays.sort(order, Comparator.comparingLong(i -> timesInMs[i]));
+                for (int i = 0; i < size; i++) {
+                    sortedTimes[i] = timesInMs[order[i]];
+                    sortedValues[i] = values[order[i]];
+                }
+            }
+
+            return new PriceSeries(sortedTimes, sortedValues);
+        }
+
+        private static boolean isAscending(long[] times) {
+            for (int i = 1; i < times.length; i++) {
+                if (times[i - 1] > times[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private static boolean isStrictlyDescending(long[] times) {
+            if (times.length < 2) {
+                return false;
+            }
+            for (int i = 1; i < times.length; i++) {
+                if (times[i - 1] <= times[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private static void reverse(long[] times, double[] values) {
+            for (int i = 0, j = times.length - 1; i < j; i++, j--) {
+                long time = times[i];
+                times[i] = times[j];
+                times[j] = time;
+                double value = values[i];
+                values[i] = values[j];
+                values[j] = value;
+            }
+        }
+    }
+}
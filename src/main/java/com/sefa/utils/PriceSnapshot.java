@@ -0,0 +1,217 @@
+package com.sefa.utils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Function;
+import java.util.zip.CRC32;
+
+/**
+ * Versioned binary snapshot of a historic price CSV, kept next to it as <file>.csv.bin
+ * The first load compiles the CSV into the snapshot, later loads memory-map the snapshot instead
+ * of parsing the CSV. A snapshot is only used while the size, mtime and CRC32 of the CSV match
+ * the ones recorded in it, otherwise it is rebuilt from the CSV.
+ *
+ * Layout (big endian): magic, format version, CSV size, CSV mtime, CSV CRC32, entry count,
+ * then int[count] epoch days followed by double[count] values, sorted by time.
+ */
+public final class PriceSnapshot {
+
+    static final String SUFFIX = ".bin";
+    static final int FORMAT_VERSION = 1;
+
+    private static final int MAGIC = 0x53465053; // "SFPS"
+    private static final int HEADER_BYTES = 4 + 4 + 8 + 8 + 8 + 4;
+    private static boolean ENABLED = true;
+
+    private PriceSnapshot() {
+    }
+
+    /**
+     * Use (and write) snapshots, when disabled every load parses the CSV
+     */
+    public static void setEnabled(boolean enabled) {
+        ENABLED = enabled;
+    }
+
+    public static boolean isEnabled() {
+        return ENABLED;
+    }
+
+    /**
+     * Path of the snapshot belonging to a CSV file
+     */
+    public static Path snapshotPath(Path csvPath) {
+        return csvPath.resolveSibling(csvPath.getFileName() + SUFFIX);
+    }
+
+    /**
+     * Load the price series of a CSV, from its snapshot when that is up to date
+     * csvParser is only called when the snapshot is missing or stale, its result is snapshotted
+     */
+    public static PriceSeries load(Path csvPath, Function<Path, PriceSeries> csvParser) {
+        if (!ENABLED) {
+            return csvParser.apply(csvPath);
+        }
+
+        SourceStamp stamp;
+        try {
+            stamp = SourceStamp.of(csvPath);
+        } catch (IOException e) {
+            // Let the CSV parser report the unreadable file
+            return csvParser.apply(csvPath);
+        }
+
+        Path snapshotPath = snapshotPath(csvPath);
+        PriceSeries series = read(snapshotPath, stamp);
+        if (series != null) {
+            Logger.debugLog("Loaded price snapshot %s (%d entries)", snapshotPath, series.size());
+            return series;
+        }
+
+        series = csvParser.apply(csvPath);
+        write(snapshotPath, stamp, series);
+        return series;
+    }
+
+    /**
+     * Read a snapshot, null when it is missing, stale, from another format version or corrupt
+     */
+    static PriceSeries read(Path snapshotPath, SourceStamp expectedStamp) {
+        try (FileChannel channel = FileChannel.open(snapshotPath, StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            if (fileSize < HEADER_BYTES) {
+                return null;
+            }
+
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, fileSize);
+            if (buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION) {
+                return null;
+            }
+
+            SourceStamp stamp = new SourceStamp(buffer.getLong(), buffer.getLong(), buffer.getLong());
+            int count = buffer.getInt();
+            if (!stamp.equals(expectedStamp) || count < 0 || fileSize != HEADER_BYTES + 12L * count) {
+                return null;
+            }
+
+            int[] epochDays = new int[count];
+            double[] values = new double[count];
+            buffer.asIntBuffer().get(epochDays);
+            buffer.position(HEADER_BYTES + 4 * count);
+            buffer.asDoubleBuffer().get(values);
+
+            long[] timesInMs = new long[count];
+            for (int i = 0; i < count; i++) {
+                timesInMs[i] = epochDays[i] * DateUtils.ONE_DAY_IN_MS;
+            }
+            return PriceSeries.ofSorted(timesInMs, values);
+
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            Logger.debugLog("Unable to read price snapshot %s: %s", snapshotPath, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Write a snapshot through a temporary file and an atomic rename, failures only cost the cache
+     */
+    static boolean write(Path snapshotPath, SourceStamp stamp, PriceSeries series) {
+        int count = series.size();
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + 12 * count);
+        buffer.putInt(MAGIC).putInt(FORMAT_VERSION)
+            .putLong(stamp.size).putLong(stamp.modifiedTimeInMs).putLong(stamp.checksum)
+            .putInt(count);
+
+        for (int i = 0; i < count; i++) {
+            long timeInMs = series.timeAt(i);
+            if (timeInMs % DateUtils.ONE_DAY_IN_MS != 0) {
+                // Only whole days fit the epoch day column
+                Logger.debugLog("Not writing price snapshot %s, entry %d is not at the start of a day", snapshotPath, i);
+                return false;
+            }
+            buffer.putInt(Math.toIntExact(timeInMs / DateUtils.ONE_DAY_IN_MS));
+        }
+        for (int i = 0; i < count; i++) {
+            buffer.putDouble(series.valueAt(i));
+        }
+        buffer.flip();
+
+        Path tempPath = null;
+        try {
+            tempPath = Files.createTempFile(snapshotPath.toAbsolutePath().getParent(),
+                snapshotPath.getFileName().toString(), ".tmp");
+            try (FileChannel channel = FileChannel.open(tempPath, StandardOpenOption.WRITE)) {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            }
+            Files.move(tempPath, snapshotPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            Logger.debugLog("Wrote price snapshot %s (%d entries)", snapshotPath, count);
+            return true;
+
+        } catch (IOException e) {
+            Logger.debugLog("Unable to write price snapshot %s: %s", snapshotPath, e.getMessage());
+            if (tempPath != null) {
+                try {
+                    Files.deleteIfExists(tempPath);
+                } catch (IOException ignored) {
+                    // Nothing left to clean up
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Size, modification time and CRC32 of a source CSV
+     */
+    static final class SourceStamp {
+        final long size;
+        final long modifiedTimeInMs;
+        final long checksum;
+
+        SourceStamp(long size, long modifiedTimeInMs, long checksum) {
+            this.size = size;
+            this.modifiedTimeInMs = modifiedTimeInMs;
+            this.checksum = checksum;
+        }
+
+        static SourceStamp of(Path csvPath) throws IOException {
+            try (FileChannel channel = FileChannel.open(csvPath, StandardOpenOption.READ)) {
+                long size = channel.size();
+                CRC32 crc = new CRC32();
+                if (size > 0) {
+                    crc.update(channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+                }
+                return new SourceStamp(size, Files.getLastModifiedTime(csvPath).toMillis(), crc.getValue());
+            }
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+
+            SourceStamp that = (SourceStamp) o;
+
+            return size == that.size && modifiedTimeInMs == that.modifiedTimeInMs && checksum == that.checksum;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = Long.hashCode(size);
+            result = 31 * result + Long.hashCode(modifiedTimeInMs);
+            result = 31 * result + Long.hashCode(checksum);
+            return result;
+        }
+    }
+}
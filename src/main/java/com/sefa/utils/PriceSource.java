@@ -0,0 +1,33 @@
+package com.sefa.utils;
+
+/**
+ * Source of historic price series, one per symbol: a ticker, or USD_INR for the exchange rates
+ * Implementations throw IllegalArgumentException for symbols they have no data for.
+ * Sources can be layered, e.g. a CachingPriceSource over a SnapshotPriceSource over a CsvPriceSource.
+ */
+public interface PriceSource {
+
+    /**
+     * Symbol of the USD to INR exchange rate series
+     */
+    String USD_INR = "usd_inr";
+
+    /**
+     * Time sorted price series of a symbol
+     */
+    PriceSeries load(String symbol);
+
+    /**
+     * Where the data of a symbol comes from, for error messages
+     */
+    default String describe(String symbol) {
+        return getClass().getSimpleName();
+    }
+
+    /**
+     * The CSV files behind this source, so changed files can be reloaded, null when it does not read CSV files
+     */
+    default CsvPriceSource csvSource() {
+        return null;
+    }
+}
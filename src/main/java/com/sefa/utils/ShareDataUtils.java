@@ -1,13 +1,16 @@
 package com.sefa.utils;
 
-import com.opencsv.CSVReader;
 import com.opencsv.exceptions.CsvException;
-import java.io.FileReader;
+import com.sefa.utils.rates.RbiRatesUtils;
 import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
 
 /**
  * Share data utilities for stock price and currency rate processing
@@ -46,8 +49,65 @@ public class ShareDataUtils {
         }
     }
     
-    private static final Map<String, List<TimedFmv>> priceMapCache = new HashMap<>();
-    private static List<TimedFmv> usdInrCache = new ArrayList<>();
+    /**
+     * Default bound of the price entries kept in memory, about 16 bytes each
+     */
+    public static final long DEFAULT_MAX_CACHED_ENTRIES = 4_000_000;
+    
+    private static volatile PriceSource priceSource = new SnapshotPriceSource(new CsvPriceSource());
+    // Each entry is loaded once, even under concurrent first access, and published as an immutable series
+    private static volatile CachingPriceSource priceMapCache = newPriceMapCache(DEFAULT_MAX_CACHED_ENTRIES);
+    // Keyed by SymbolTable.TICKERS id
+    private static final Map<Integer, PeakPriceIndex> peakIndexCache = new ConcurrentHashMap<>();
+    private static final Object usdInrLock = new Object();
+    private static volatile PriceSeries usdInrCache = null;
+    
+    // Raw content of every loaded CSV, only kept once reloads are enabled, so a change can be diffed against it
+    private static final Map<Path, LoadedSource> loadedSources = new ConcurrentHashMap<>();
+    private static final Object reloadLock = new Object();
+    private static volatile boolean reloadEnabled = false;
+    // Bumped by every reload, lets callers drop results computed from older data
+    private static final AtomicLong dataVersion = new AtomicLong();
+    
+    /**
+     * USD to INR rates purchase and closing prices are converted with, peak prices always use the daily rates
+     * DAILY: rate of the day from usd_inr_price_history.csv
+     * RBI: RBI reference rate of the last day of the previous month from rates/rbi/rates.xls
+     */
+    public enum ConversionRates {
+        DAILY, RBI;
+        
+        /**
+         * Rates by their command line name, daily or rbi
+         */
+        public static ConversionRates parse(String name) {
+            for (ConversionRates rates : values()) {
+                if (rates.name().equalsIgnoreCase(name)) {
+                    return rates;
+                }
+            }
+            throw new IllegalArgumentException("FX rates must be 'daily' or 'rbi'");
+        }
+    }
+    
+    private static volatile ConversionRates conversionRates = ConversionRates.DAILY;
+    
+    /**
+     * A loaded CSV, its series and the bytes that series was parsed from (null when unknown)
+     */
+    private static class LoadedSource {
+        final CsvPriceSource csv;
+        final String symbol;
+        final byte[] content;
+        final PriceSeries series;
+        
+        LoadedSource(CsvPriceSource csv, String symbol, byte[] content, PriceSeries series) {
+            this.csv = csv;
+            this.symbol = symbol;
+            this.content = content;
+            this.series = series;
+        }
+    }
     
     /**
      * Validate dates for FMV lookup
@@ -76,157 +136,182 @@ public class ShareDataUtils {
     }
     
     /**
-     * Initialize USD/INR exchange rate cache
+     * Initialize USD/INR exchange rate cache (double-checked, loaded once)
      */
-    private static List<TimedFmv> initUsdInrMap() {
-        if (usdInrCache.isEmpty()) {
-            Logger.log("Parsing USD/INR exchange rate map");
-            
-            String scriptPath = System.getProperty("user.dir");
-            Path usdInrPath = Paths.get(scriptPath, "historic_data", "usd_inr_price_history.csv");
-            
-            if (!FileUtils.fileExists(usdInrPath.toString())) {
-                throw new IllegalArgumentException("USD/INR historical data NOT present at " + usdInrPath);
-            }
-            
-            try (CSVReader reader = new CSVReader(new FileReader(usdInrPath.toFile()))) {
-                List<String[]> records = reader.readAll();
+    static PriceSeries initUsdInrMap() {
+        PriceSeries usdInrData = usdInrCache;
+        if (usdInrData != null) {
+            return usdInrData;
+        }
+        
+        synchronized (usdInrLock) {
+            if (usdInrCache == null) {
+                Logger.log("Parsing USD/INR exchange rate map");
                 
-                // Skip header row
-                for (int i = 1; i < records.size(); i++) {
-                    String[] row = records.get(i);
-                    long entryTimeInMs = DateUtils.parseDateFromUsdInrFormat(row[0].replace("\"", ""));
-                    String priceStr = row[1].replace("\"", "").replace(",", "");
-                    double price = Double.parseDouble(priceStr);
-                    
-                    usdInrCache.add(new TimedFmv(entryTimeInMs, price));
+                // Kept outside the bounded cache, every peak index needs the rates
+                PriceSource source = priceSource;
+                usdInrCache = source.load(PriceSource.USD_INR);
+                if (reloadEnabled) {
+                    track(source, PriceSource.USD_INR, usdInrCache);
                 }
-                
-                // Sort by date for efficient lookup
-                usdInrCache.sort(Comparator.comparingLong(TimedFmv::getEntryTimeInMillis));
-                
-            } catch (IOException | CsvException e) {
-                throw new RuntimeException("Failed to read USD/INR data: " + e.getMessage(), e);
             }
+            return usdInrCache;
         }
+    }
+    
+    /**
+     * Initialize price map for a ticker, concurrent callers wait for a single load
+     */
+    static PriceSeries initMap(String ticker) {
+        return priceMapCache.load(ticker);
+    }
+    
+    private static PriceSeries loadPriceMap(String ticker) {
+        Logger.log("Parsing FMV price map for ticker = %s", ticker);
         
-        return usdInrCache;
+        PriceSource source = priceSource;
+        PriceSeries series = source.load(ticker);
+        if (reloadEnabled) {
+            track(source, ticker, series);
+        }
+        return series;
+    }
+    
+    private static CachingPriceSource newPriceMapCache(long maxEntries) {
+        return new CachingPriceSource(ShareDataUtils::loadPriceMap, maxEntries, ShareDataUtils::evicted);
     }
     
     /**
-     * Initialize price map for a ticker
+     * Drop what was derived from a series the price cache let go of
      */
-    private static List<TimedFmv> initMap(String ticker) {
-        if (!priceMapCache.containsKey(ticker)) {
-            Logger.log("Parsing FMV price map for ticker = %s", ticker);
-            
-            List<TimedFmv> tickerPriceMap = new ArrayList<>();
-            String scriptPath = System.getProperty("user.dir");
-            Path historicSharePath;
-            
-            // Use the new adobe_price_history.csv file for ADBE
-            if ("adbe".equalsIgnoreCase(ticker)) {
-                historicSharePath = Paths.get(scriptPath, "historic_data", "adobe_price_history.csv");
-            } else {
-                // Fallback to old structure for other tickers
-                historicSharePath = Paths.get(scriptPath, "historic_data", "shares", ticker.toLowerCase(), "data.csv");
-            }
-            
-            if (!FileUtils.fileExists(historicSharePath.toString())) {
-                throw new IllegalArgumentException(
-                    String.format("Historic share data for share %s NOT present at %s", ticker, historicSharePath)
-                );
-            }
-            
-            try (CSVReader reader = new CSVReader(new FileReader(historicSharePath.toFile()))) {
-                List<String[]> records = reader.readAll();
-                
-                // Skip header row
-                for (int i = 1; i < records.size(); i++) {
-                    String[] row = records.get(i);
-                    long entryTimeInMs;
-                    double price;
-                    
-                    if ("adbe".equalsIgnoreCase(ticker)) {
-                        // Handle adobe_price_history.csv format
-                        entryTimeInMs = DateUtils.parseDateFromAdobeFormat(row[0]);
-                        // Clean the Close/Last value (remove $ sign if present)
-                        String closePriceStr = row[1].replace("$", "").replace(",", "");
-                        price = Double.parseDouble(closePriceStr);
-                    } else {
-                        // Handle old data.csv format
-                        entryTimeInMs = DateUtils.parseYyyyMmDd(row[0]).getTimeInMillis();
-                        price = Double.parseDouble(row[4]); // Close column
-                    }
-                    
-                    tickerPriceMap.add(new TimedFmv(entryTimeInMs, price));
-                }
-                
-                // Sort by date for efficient lookup
-                tickerPriceMap.sort(Comparator.comparingLong(TimedFmv::getEntryTimeInMillis));
-                priceMapCache.put(ticker, tickerPriceMap);
-                
-            } catch (IOException | CsvException e) {
-                throw new RuntimeException("Failed to read share data for " + ticker + ": " + e.getMessage(), e);
-            }
+    private static void evicted(String ticker) {
+        peakIndexCache.remove(SymbolTable.TICKERS.id(ticker));
+        CsvPriceSource csv = priceSource.csvSource();
+        if (csv != null) {
+            loadedSources.remove(csv.path(ticker).toAbsolutePath().normalize());
         }
-        
-        return priceMapCache.get(ticker);
+    }
+    
+    /**
+     * Read prices from another source, e.g. an InMemoryPriceSource, everything loaded so far is dropped
+     */
+    public static void setPriceSource(PriceSource source) {
+        setPriceSource(source, priceMapCache.getMaxEntries());
+    }
+    
+    /**
+     * Read prices from another source and keep at most maxCachedEntries price entries of tickers in memory
+     */
+    public static void setPriceSource(PriceSource source, long maxCachedEntries) {
+        synchronized (reloadLock) {
+            CachingPriceSource cache = newPriceMapCache(maxCachedEntries);
+            priceSource = source;
+            priceMapCache = cache;
+            clearCaches();
+        }
+    }
+    
+    /**
+     * Bound the price entries of tickers kept in memory, least recently used tickers are reloaded when needed
+     */
+    public static void setMaxCachedEntries(long maxCachedEntries) {
+        setPriceSource(priceSource, maxCachedEntries);
+    }
+    
+    public static PriceSource getPriceSource() {
+        return priceSource;
+    }
+    
+    /**
+     * The bounded in-memory cache of ticker prices, for its statistics
+     */
+    public static CachingPriceSource getPriceCache() {
+        return priceMapCache;
     }
     
     /**
      * Get Fair Market Value for a ticker at a specific time
+     * Uses the entry on the given date, or the next available one after it
      */
     public static double getFmv(String ticker, long purchaseTimeInMs) {
         Logger.debugLog("%s: Querying FMV at %s", ticker, DateUtils.displayTime(purchaseTimeInMs));
         
-        List<TimedFmv> priceMap = initMap(ticker);
-        TimedFmv previousEntry = null;
+        PriceSeries priceMap = initMap(ticker);
+        int index = priceMap.ceilingIndex(purchaseTimeInMs);
         
-        for (TimedFmv entry : priceMap) {
-            long entryTimeInMs = entry.getEntryTimeInMillis();
-            if (entryTimeInMs >= purchaseTimeInMs) {
-                if (entryTimeInMs > purchaseTimeInMs && previousEntry != null) {
-                    validateDates(previousEntry.getEntryTimeInMillis(), purchaseTimeInMs, entryTimeInMs);
-                    return entry.getFmv();
-                }
-                return entry.getFmv();
+        if (index >= 0) {
+            long entryTimeInMs = priceMap.timeAt(index);
+            if (entryTimeInMs > purchaseTimeInMs && index > 0) {
+                validateDates(priceMap.timeAt(index - 1), purchaseTimeInMs, entryTimeInMs);
             }
-            previousEntry = entry;
+            return priceMap.valueAt(index);
         }
         
-        // Updated error message to reflect new file locations
-        String tickerSharePrice = "adbe".equalsIgnoreCase(ticker) 
-            ? "historic_data/adobe_price_history.csv"
-            : String.join("/", "historic_data", "shares", ticker, "data.csv");
-        
         throw new IllegalArgumentException(
             String.format("No FMV data for share ticker %s in %s for date %s",
-                ticker, tickerSharePrice, DateUtils.logTimestamp(purchaseTimeInMs))
+                ticker, priceSource.describe(ticker), DateUtils.logTimestamp(purchaseTimeInMs))
         );
     }
     
+    /**
+     * Fair Market Values of a ticker at many times, same values and logs as calling getFmv for each
+     * The times are sorted and resolved in one sweep over the price series. Times after the
+     * whole history get NaN instead of an exception, so one bad entry does not fail the batch.
+     */
+    public static double[] getFmvs(String ticker, long[] purchaseTimesInMs) {
+        PriceSeries priceMap = initMap(ticker);
+        int count = purchaseTimesInMs.length;
+        
+        Integer[] order = new Integer[count];
+        for (int i = 0; i < count; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparingLong(i -> purchaseTimesInMs[i]));
+        
+        // Entry on or after each time, advancing a single cursor
+        int[] indexes = new int[count];
+        int cursor = 0;
+        for (int i : order) {
+            while (cursor < priceMap.size() && priceMap.timeAt(cursor) < purchaseTimesInMs[i]) {
+                cursor++;
+            }
+            indexes[i] = cursor < priceMap.size() ? cursor : -1;
+        }
+        
+        double[] fmvs = new double[count];
+        for (int i = 0; i < count; i++) {
+            long purchaseTimeInMs = purchaseTimesInMs[i];
+            Logger.debugLog("%s: Querying FMV at %s", ticker, DateUtils.displayTime(purchaseTimeInMs));
+            
+            int index = indexes[i];
+            if (index < 0) {
+                fmvs[i] = Double.NaN;
+                continue;
+            }
+            long entryTimeInMs = priceMap.timeAt(index);
+            if (entryTimeInMs > purchaseTimeInMs && index > 0) {
+                validateDates(priceMap.timeAt(index - 1), purchaseTimeInMs, entryTimeInMs);
+            }
+            fmvs[i] = priceMap.valueAt(index);
+        }
+        return fmvs;
+    }
+    
     /**
      * Get USD to INR exchange rate for a given timestamp
+     * Carries the last known rate forward over days without data
      */
     public static double getUsdInrRate(long timeInMs) {
-        List<TimedFmv> usdInrData = initUsdInrMap();
-        TimedFmv previousEntry = null;
-        
-        for (TimedFmv entry : usdInrData) {
-            long entryTimeInMs = entry.getEntryTimeInMillis();
-            if (entryTimeInMs >= timeInMs) {
-                if (entryTimeInMs > timeInMs) {
-                    return previousEntry != null ? previousEntry.getFmv() : entry.getFmv();
-                }
-                return entry.getFmv();
-            }
-            previousEntry = entry;
+        PriceSeries usdInrData = initUsdInrMap();
+        int index = usdInrData.floorIndex(timeInMs);
+        
+        if (index >= 0) {
+            return usdInrData.valueAt(index);
         }
         
-        // If no future data found, use the last available rate
-        if (previousEntry != null) {
-            return previousEntry.getFmv();
+        // Date is older than the whole history, use the first available rate
+        if (!usdInrData.isEmpty()) {
+            return usdInrData.valueAt(0);
         }
         
         throw new IllegalArgumentException(
@@ -234,24 +319,304 @@ public class ShareDataUtils {
         );
     }
     
+    /**
+     * USD to INR rate to convert a purchase or closing price at a given time with, see ConversionRates
+     */
+    public static double getInrConversionRate(long timeInMs) {
+        return conversionRates == ConversionRates.RBI
+            ? RbiRatesUtils.getRateForPrevMonth("USD", timeInMs)
+            : getUsdInrRate(timeInMs);
+    }
+    
+    /**
+     * Choose the rates purchase and closing prices are converted with, RBI rates are read from rates.xls again
+     */
+    public static void setConversionRates(ConversionRates rates) {
+        conversionRates = rates;
+        RbiRatesUtils.clearCache();
+        // Results cached with the other rates must not be reused
+        dataVersion.incrementAndGet();
+    }
+    
+    public static ConversionRates getConversionRates() {
+        return conversionRates;
+    }
+    
     /**
      * Get closing price for a ticker at end time
      */
     public static double getClosingPrice(String ticker, long endTimeInMs) {
-        List<TimedFmv> priceMap = initMap(ticker);
+        PriceSeries priceMap = initMap(ticker);
+        int index = priceMap.floorIndex(endTimeInMs);
         
-        Optional<TimedFmv> result = priceMap.stream()
-            .filter(price -> price.getEntryTimeInMillis() <= endTimeInMs)
-            .max(Comparator.comparingLong(TimedFmv::getEntryTimeInMillis));
+        if (index < 0) {
+            throw new IllegalArgumentException("No closing price data found for " + ticker);
+        }
         
-        return result.map(TimedFmv::getFmv)
-            .orElseThrow(() -> new IllegalArgumentException("No closing price data found for " + ticker));
+        return priceMap.valueAt(index);
     }
     
     /**
-     * Get peak price in INR within a time range
+     * Fingerprint of the prices of a ticker (or of PriceSource.USD_INR) that lookups between the two times use
+     * Equal fingerprints mean those lookups return what they returned before, see PriceSeries.fingerprint
      */
-    public static double getPeakPriceInInr(String ticker, long startTimeInMs, long endTimeInMs) {
+    public static long priceWindowFingerprint(String symbol, long fromTimeInMs, long toTimeInMs) {
+        PriceSeries series = PriceSource.USD_INR.equals(symbol) ? initUsdInrMap() : initMap(symbol);
+        return series.fingerprint(fromTimeInMs, toTimeInMs);
+    }
+    
+    /**
+     * Fingerprint of all prices of a ticker, 0 when it has none
+     */
+    public static long priceSeriesFingerprint(String ticker) {
+        try {
+            return priceWindowFingerprint(ticker, Long.MIN_VALUE, Long.MAX_VALUE);
+        } catch (IllegalArgumentException e) {
+            return 0;
+        }
+    }
+    
+    /**
+     * Initialize peak price index for a ticker
+     */
+    private static PeakPriceIndex initPeakIndex(String ticker) {
+        int tickerId = SymbolTable.TICKERS.id(ticker);
+        PeakPriceIndex peakIndex = peakIndexCache.get(tickerId);
+        if (peakIndex != null) {
+            return peakIndex;
+        }
+        // Loaded outside computeIfAbsent, the load may evict (and so remove) other peak indexes
+        PriceSeries priceMap = initMap(ticker);
+        return peakIndexCache.computeIfAbsent(tickerId, key -> buildPeakIndex(ticker, priceMap));
+    }
+    
+    private static PeakPriceIndex buildPeakIndex(String ticker, PriceSeries priceMap) {
+        String currencyCode = TickerMapping.getTickerCurrencyInfo(ticker);
+        
+        return "USD".equals(currencyCode)
+            ? PeakPriceIndex.build(priceMap, ShareDataUtils::getUsdInrRate)
+            : PeakPriceIndex.build(priceMap, time -> 1.0); // Fallback for other currencies
+    }
+    
+    /**
+     * Load the price data and peak index of a ticker (and the USD/INR rates it needs) up front
+     */
+    public static void preload(String ticker) {
+        initPeakIndex(ticker);
+    }
+    
+    /**
+     * Load the price series of a ticker, without the USD/INR rates and peak index preload needs
+     */
+    public static void preloadPrices(String ticker) {
+        initMap(ticker);
+    }
+    
+    /**
+     * Drop every loaded series and index so the next lookup reloads them
+     */
+    static void clearCaches() {
+        synchronized (usdInrLock) {
+            usdInrCache = null;
+        }
+        priceMapCache.clear();
+        peakIndexCache.clear();
+        loadedSources.clear();
+        dataVersion.incrementAndGet();
+    }
+    
+    /**
+     * Version of the loaded price data, changes whenever a reload swaps in new data
+     */
+    public static long getDataVersion() {
+        return dataVersion.get();
+    }
+    
+    /**
+     * Keep the raw content of loaded CSVs (from now on, and of those already loaded) so reload can diff them
+     */
+    public static void enableReload() {
+        reloadEnabled = true;
+        PriceSource source = priceSource;
+        for (Map.Entry<String, PriceSeries> entry : priceMapCache.cached().entrySet()) {
+            track(source, entry.getKey(), entry.getValue());
+        }
+        PriceSeries usdInrData = usdInrCache;
+        if (usdInrData != null) {
+            track(source, PriceSource.USD_INR, usdInrData);
+        }
+    }
+    
+    /**
+     * Record the content behind a loaded series, the content is dropped when it does not match the series
+     * (the file changed after it was loaded), the next reload of it then parses the whole file
+     * Series of sources without CSV files are not tracked, there is nothing to reload them from.
+     */
+    private static void track(PriceSource source, String symbol, PriceSeries series) {
+        CsvPriceSource csv = source.csvSource();
+        if (csv == null) {
+            return;
+        }
+        Path csvPath = csv.path(symbol);
+        byte[] content;
+        try {
+            content = Files.readAllBytes(csvPath);
+        } catch (IOException e) {
+            content = null;
+        }
+        if (content != null && countDataRows(content) != series.size()) {
+            content = null;
+        }
+        loadedSources.putIfAbsent(csvPath.toAbsolutePath().normalize(), new LoadedSource(csv, symbol, content, series));
+    }
+    
+    private static int countDataRows(byte[] content) {
+        int rows = 0;
+        boolean lineHasData = false;
+        for (byte b : content) {
+            if (b == '\n') {
+                rows += lineHasData ? 1 : 0;
+                lineHasData = false;
+            } else if (b != '\r') {
+                lineHasData = true;
+            }
+        }
+        rows += lineHasData ? 1 : 0;
+        return Math.max(rows - 1, 0); // Header row
+    }
+    
+    /**
+     * Reload a changed price CSV that is in use, without blocking lookups
+     * Only the lines that differ from the previously loaded content (e.g. rows added at the top of a
+     * newest-first export, or appended at the end) are parsed and merged into a copy of the series.
+     * The new series, and peak indexes rebuilt from it, replace the old ones atomically, lookups running
+     * meanwhile finish on the old data. Falls back to parsing the whole file when the header changed.
+     * Returns the number of CSV rows parsed, -1 when the file is not loaded (nothing is stale).
+     */
+    public static int reload(Path csvPath) {
+        Path key = csvPath.toAbsolutePath().normalize();
+        
+        synchronized (reloadLock) {
+            LoadedSource source = loadedSources.get(key);
+            if (source == null) {
+                return -1;
+            }
+            
+            long modifiedTimeInMs;
+            byte[] content;
+            try {
+                // Read the mtime first, a write in between makes the snapshot stamp stale rather than wrong
+                modifiedTimeInMs = Files.getLastModifiedTime(key).toMillis();
+                content = Files.readAllBytes(key);
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to reload " + key + ": " + e.getMessage(), e);
+            }
+            if (source.content != null && Arrays.equals(source.content, content)) {
+                return 0;
+            }
+            
+            PriceSeries series = null;
+            int parsedRows = 0;
+            
+            int[] region = source.content != null ? changedRegion(source.content, content) : null;
+            try {
+                if (region != null) {
+                    PriceSeries removed = parseRegion(source, source.content, region[0], region[1]);
+                    PriceSeries added = parseRegion(source, content, region[0], region[2]);
+                    series = source.series.replace(removed, added);
+                    parsedRows = removed.size() + added.size();
+                }
+                if (series == null) {
+                    series = source.csv.parse(source.symbol, new StringReader(new String(content, StandardCharsets.UTF_8)), true);
+                    parsedRows = series.size();
+                }
+            } catch (IOException | CsvException | RuntimeException e) {
+                throw new RuntimeException("Failed to reload " + key + ": " + e.getMessage(), e);
+            }
+            
+            publish(source.symbol, series);
+            loadedSources.put(key, new LoadedSource(source.csv, source.symbol, content, series));
+            
+            if (PriceSnapshot.isEnabled()) {
+                CRC32 crc = new CRC32();
+                crc.update(content);
+                PriceSnapshot.write(PriceSnapshot.snapshotPath(key),
+                    new PriceSnapshot.SourceStamp(content.length, modifiedTimeInMs, crc.getValue()), series);
+            }
+            
+            Logger.log("Reloaded %s: parsed %d of %d rows, %d entries", key, parsedRows, countDataRows(content), series.size());
+            return parsedRows;
+        }
+    }
+    
+    /**
+     * Whole lines that differ between two versions of a CSV: {start, end in old, end in new}
+     * Null when the header line differs, the rows can then not be parsed on their own
+     */
+    static int[] changedRegion(byte[] oldContent, byte[] newContent) {
+        int headerEnd = 0;
+        while (headerEnd < oldContent.length && oldContent[headerEnd] != '\n') {
+            headerEnd++;
+        }
+        headerEnd++;
+        
+        int commonLength = Math.min(oldContent.length, newContent.length);
+        int prefix = 0;
+        while (prefix < commonLength && oldContent[prefix] == newContent[prefix]) {
+            prefix++;
+        }
+        // Back to the start of the line the first difference is in
+        while (prefix > 0 && oldContent[prefix - 1] != '\n') {
+            prefix--;
+        }
+        if (prefix < headerEnd) {
+            return null;
+        }
+        
+        int suffix = 0;
+        while (suffix < commonLength - prefix
+            && oldContent[oldContent.length - 1 - suffix] == newContent[newContent.length - 1 - suffix]) {
+            suffix++;
+        }
+        // Forward to the start of a line in both versions
+        while (suffix > 0 && oldContent[oldContent.length - suffix - 1] != '\n') {
+            suffix--;
+        }
+        return new int[]{prefix, oldContent.length - suffix, newContent.length - suffix};
+    }
+    
+    private static PriceSeries parseRegion(LoadedSource source, byte[] content, int start, int end)
+            throws IOException, CsvException {
+        return source.csv.parse(source.symbol, new StringReader(new String(content, start, end - start, StandardCharsets.UTF_8)), false);
+    }
+    
+    /**
+     * Swap in a reloaded series and the peak indexes built from it
+     */
+    private static void publish(String symbol, PriceSeries series) {
+        if (PriceSource.USD_INR.equals(symbol)) {
+            synchronized (usdInrLock) {
+                usdInrCache = series;
+            }
+            // Every peak index converts prices with these rates
+            for (Integer indexedTickerId : new ArrayList<>(peakIndexCache.keySet())) {
+                String indexedTicker = SymbolTable.TICKERS.name(indexedTickerId);
+                peakIndexCache.put(indexedTickerId, buildPeakIndex(indexedTicker, initMap(indexedTicker)));
+            }
+        } else {
+            priceMapCache.put(symbol, series);
+            int tickerId = SymbolTable.TICKERS.id(symbol);
+            if (peakIndexCache.containsKey(tickerId)) {
+                peakIndexCache.put(tickerId, buildPeakIndex(symbol, series));
+            }
+        }
+        dataVersion.incrementAndGet();
+    }
+    
+    /**
+     * Get the entry with the peak INR price within a time range
+     */
+    public static TimedFmvWithInrRate getPeakPrice(String ticker, long startTimeInMs, long endTimeInMs) {
         if (startTimeInMs > endTimeInMs) {
             throw new IllegalArgumentException(
                 String.format("start_time_in_ms = %d is greater than equal to end_time_in_ms = %d",
@@ -259,30 +624,21 @@ public class ShareDataUtils {
             );
         }
         
-        List<TimedFmv> priceMap = initMap(ticker);
-        String currencyCode = TickerMapping.getTickerCurrencyInfo(ticker);
+        PeakPriceIndex peakIndex = initPeakIndex(ticker);
+        int index = peakIndex.peakIndex(startTimeInMs, endTimeInMs);
         
-        // Filter prices within the time range
-        List<TimedFmv> filteredPrices = priceMap.stream()
-            .filter(price -> price.getEntryTimeInMillis() >= startTimeInMs && 
-                           price.getEntryTimeInMillis() <= endTimeInMs)
-            .collect(Collectors.toList());
-        
-        // Convert to prices with INR rates
-        List<TimedFmvWithInrRate> priceMapWithInrRate = filteredPrices.stream()
-            .map(price -> {
-                double inrRate = "USD".equals(currencyCode) 
-                    ? getUsdInrRate(price.getEntryTimeInMillis())
-                    : 1.0; // Fallback for other currencies
-                return new TimedFmvWithInrRate(price.getEntryTimeInMillis(), price.getFmv(), inrRate);
-            })
-            .collect(Collectors.toList());
-        
-        // Find maximum value
-        TimedFmvWithInrRate maxValue = priceMapWithInrRate.stream()
-            .max(Comparator.comparingDouble(price -> price.getFmv() * price.getInrRate()))
-            .orElseThrow(() -> new IllegalArgumentException("No price data found in the given range"));
+        if (index < 0) {
+            throw new IllegalArgumentException("No price data found in the given range");
+        }
         
+        return new TimedFmvWithInrRate(peakIndex.timeAt(index), peakIndex.fmvAt(index), peakIndex.inrRateAt(index));
+    }
+    
+    /**
+     * Get peak price in INR within a time range
+     */
+    public static double getPeakPriceInInr(String ticker, long startTimeInMs, long endTimeInMs) {
+        TimedFmvWithInrRate maxValue = getPeakPrice(ticker, startTimeInMs, endTimeInMs);
         double peakPriceInInr = maxValue.getFmv() * maxValue.getInrRate();
         
         Logger.debugLogJson(Map.of(
@@ -300,4 +656,4 @@ public class ShareDataUtils {
         
         return peakPriceInInr;
     }
-} 
\ No newline at end of file
+}
\ No newline at end of file
@@ -0,0 +1,29 @@
+package com.sefa.utils;
+
+/**
+ * CSV prices loaded through their binary snapshots (see PriceSnapshot), memory-mapped instead of parsed
+ * while the CSV is unchanged
+ */
+public class SnapshotPriceSource implements PriceSource {
+
+    private final CsvPriceSource csv;
+
+    public SnapshotPriceSource(CsvPriceSource csv) {
+        this.csv = csv;
+    }
+
+    @Override
+    public PriceSeries load(String symbol) {
+        return PriceSnapshot.load(csv.path(symbol), path -> csv.load(symbol));
+    }
+
+    @Override
+    public String describe(String symbol) {
+        return csv.describe(symbol);
+    }
+
+    @Override
+    public CsvPriceSource csvSource() {
+        return csv;
+    }
+}
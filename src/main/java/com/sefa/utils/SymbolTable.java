@@ -0,0 +1,121 @@
+package com.sefa.utils;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.UnaryOperator;
+
+/**
+ * Small integer ids for the tickers and currency codes seen in a run
+ * Every spelling gets an id and keeps one String instance. Its canonical form (lower case tickers, upper case
+ * currency codes) is worked out once, when the spelling is first seen, so lookups never change case again.
+ * Ids are never reused, so arrays indexed by id stay valid as the table grows. The table is never emptied, so
+ * symbols from outside (workbooks, server requests) go through knownCanonicalId, which only adds spellings of
+ * symbols already known.
+ */
+public final class SymbolTable {
+
+    public static final SymbolTable TICKERS = new SymbolTable(symbol -> symbol.toLowerCase(Locale.ROOT));
+    public static final SymbolTable CURRENCIES = new SymbolTable(symbol -> symbol.toUpperCase(Locale.ROOT));
+
+    private final UnaryOperator<String> canonicalForm;
+    private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+    // Grown under the lock, a new id is only published in ids once it is set here
+    private volatile String[] names = new String[16];
+    private volatile int[] canonicalIds = new int[16];
+    private int size;
+
+    private SymbolTable(UnaryOperator<String> canonicalForm) {
+        this.canonicalForm = canonicalForm;
+    }
+
+    /**
+     * Id of this exact spelling, -1 for null
+     */
+    public int id(String symbol) {
+        if (symbol == null) {
+            return -1;
+        }
+        Integer id = ids.get(symbol);
+        return id != null ? id : add(symbol);
+    }
+
+    private synchronized int add(String symbol) {
+        Integer existing = ids.get(symbol);
+        if (existing != null) {
+            return existing;
+        }
+        String canonical = canonicalForm.apply(symbol);
+        int canonicalId = canonical.equals(symbol) ? size : id(canonical);
+
+        int id = size++;
+        String[] newNames = id < names.length ? names : Arrays.copyOf(names, id * 2);
+        int[] newCanonicalIds = id < canonicalIds.length ? canonicalIds : Arrays.copyOf(canonicalIds, id * 2);
+        newNames[id] = symbol;
+        newCanonicalIds[id] = canonicalId;
+        // Volatile writes, readers that find the id in ids see its entries
+        names = newNames;
+        canonicalIds = newCanonicalIds;
+        ids.put(symbol, id);
+        return id;
+    }
+
+    /**
+     * Id of the canonical form of a spelling, -1 for null
+     */
+    public int canonicalId(String symbol) {
+        int id = id(symbol);
+        return id < 0 ? id : canonicalIds[id];
+    }
+
+    /**
+     * Id of the canonical form of a spelling if that form already has one, else -1 and nothing is added
+     * A new spelling of a known symbol is added, so the next lookup of it does not change case either.
+     */
+    public int knownCanonicalId(String symbol) {
+        if (symbol == null) {
+            return -1;
+        }
+        Integer id = ids.get(symbol);
+        if (id != null) {
+            return canonicalIds[id];
+        }
+        return ids.containsKey(canonicalForm.apply(symbol)) ? canonicalId(symbol) : -1;
+    }
+
+    /**
+     * Canonical form of a spelling, e.g. "adbe" for "ADBE", without adding either
+     */
+    public String normalize(String symbol) {
+        return symbol == null ? null : canonicalForm.apply(symbol);
+    }
+
+    /**
+     * The one instance of a spelling, null for null
+     */
+    public String intern(String symbol) {
+        return name(id(symbol));
+    }
+
+    /**
+     * The one instance of the canonical form of a spelling, e.g. "adbe" for "ADBE"
+     */
+    public String canonical(String symbol) {
+        return name(canonicalId(symbol));
+    }
+
+    /**
+     * Spelling of an id, null for -1
+     */
+    public String name(int id) {
+        return id < 0 ? null : names[id];
+    }
+
+    /**
+     * Number of ids handed out, every id is below it
+     */
+    public synchronized int size() {
+        return size;
+    }
+}
@@ -0,0 +1,368 @@
+package com.sefa.utils;
+
+import com.sefa.models.Organization;
+import org.apache.commons.cli.*;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+
+/**
+ * Synthetic BenefitHistory workbooks and price histories for load testing
+ * Prices follow a seeded random walk per ticker, workbook FMVs are taken from the same prices,
+ * so generated inputs are deterministic and consistent with the generated historic_data.
+ */
+public class SyntheticDataGenerator {
+
+    private static final DateTimeFormatter ADOBE_FORMAT = DateTimeFormatter.ofPattern("MM/dd/yyyy");
+    private static final DateTimeFormatter USD_INR_FORMAT = DateTimeFormatter.ofPattern("dd-MM-yyyy");
+    private static final DateTimeFormatter NAMED_MON_FORMAT = DateTimeFormatter.ofPattern("dd-MMM-yyyy", Locale.US);
+
+    // RSU grants vest quarterly over four years
+    private static final int VESTS_PER_GRANT = 16;
+    // One in this many vests has no market value and is backfilled from the price history
+    private static final int BACKFILL_ONE_IN = 20;
+
+    private final List<String> tickers;
+    private final long seed;
+    private final List<LocalDate> tradingDays = new ArrayList<>();
+    private final Map<String, double[]> sharePrices = new LinkedHashMap<>();
+    private final double[] usdInrRates;
+
+    /**
+     * Counts of the rows written to a workbook, parsing it yields esppPurchases + rsuVests purchases
+     */
+    public static class WorkbookStats {
+        public int esppPurchases;
+        public int rsuGrants;
+        public int rsuVests;
+        public int backfilledVests;
+
+        public int expectedPurchases() {
+            return esppPurchases + rsuVests;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d ESPP purchases, %d RSU grants, %d RSU vests (%d without market value)",
+                esppPurchases, rsuGrants, rsuVests, backfilledVests);
+        }
+    }
+
+    public SyntheticDataGenerator(List<String> tickers, LocalDate firstDay, LocalDate lastDay, long seed) {
+        if (tickers.isEmpty()) {
+            throw new IllegalArgumentException("At least one ticker is required");
+        }
+        if (lastDay.isBefore(firstDay.plusYears(1))) {
+            throw new IllegalArgumentException("Synthetic history must span at least a year: " + firstDay + " to " + lastDay);
+        }
+
+        this.tickers = new ArrayList<>();
+        for (String ticker : tickers) {
+            this.tickers.add(ticker.toLowerCase());
+        }
+        this.seed = seed;
+
+        for (LocalDate day = firstDay; !day.isAfter(lastDay); day = day.plusDays(1)) {
+            if (day.getDayOfWeek() != DayOfWeek.SATURDAY && day.getDayOfWeek() != DayOfWeek.SUNDAY) {
+                tradingDays.add(day);
+            }
+        }
+
+        Random random = new Random(seed);
+        for (String ticker : this.tickers) {
+            sharePrices.put(ticker, randomWalk(random, 20 + random.nextInt(200), 0.02, 5.0));
+        }
+        usdInrRates = randomWalk(random, 63.0, 0.003, 40.0);
+    }
+
+    private double[] randomWalk(Random random, double start, double volatility, double floor) {
+        double[] values = new double[tradingDays.size()];
+        double value = start;
+        for (int i = 0; i < values.length; i++) {
+            value = Math.max(floor, value * (1 + random.nextGaussian() * volatility));
+            values[i] = Math.round(value * 1000) / 1000.0;
+        }
+        return values;
+    }
+
+    /**
+     * Write historic_data under root in the layouts ShareDataUtils reads
+     * adbe goes to adobe_price_history.csv, other tickers to shares/<ticker>/data.csv
+     */
+    public void writeHistoricData(Path root) throws IOException {
+        Path historicData = Files.createDirectories(root.resolve("historic_data"));
+
+        for (Map.Entry<String, double[]> entry : sharePrices.entrySet()) {
+            String ticker = entry.getKey();
+            double[] prices = entry.getValue();
+
+            if ("adbe".equals(ticker)) {
+                // Newest first, US dates and $ prices
+                try (BufferedWriter writer = Files.newBufferedWriter(historicData.resolve("adobe_price_history.csv"))) {
+                    writer.write("Date,Close/Last,Volume,Open,High,Low\n");
+                    for (int i = tradingDays.size() - 1; i >= 0; i--) {
+                        writer.write(String.format(Locale.US, "%s,$%.2f,%d,$%.2f,$%.2f,$%.2f%n",
+                            tradingDays.get(i).format(ADOBE_FORMAT), prices[i], volume(i),
+                            prices[i], prices[i] * 1.01, prices[i] * 0.99));
+                    }
+                }
+            } else {
+                // Oldest first, ISO dates, close in the fifth column
+                Path shareDir = Files.createDirectories(historicData.resolve("shares").resolve(ticker));
+                try (BufferedWriter writer = Files.newBufferedWriter(shareDir.resolve("data.csv"))) {
+                    writer.write("Date,Open,High,Low,Close,Adj Close,Volume\n");
+                    for (int i = 0; i < tradingDays.size(); i++) {
+                        writer.write(String.format(Locale.US, "%s,%.6f,%.6f,%.6f,%.6f,%.6f,%d%n",
+                            tradingDays.get(i), prices[i], prices[i] * 1.01, prices[i] * 0.99,
+                            prices[i], prices[i], volume(i)));
+                    }
+                }
+            }
+        }
+
+        // Newest first, quoted Indian dates
+        try (BufferedWriter writer = Files.newBufferedWriter(historicData.resolve("usd_inr_price_history.csv"))) {
+            writer.write("\"Date\",\"Price\",\"Open\",\"High\",\"Low\",\"Vol.\",\"Change %\"\n");
+            for (int i = tradingDays.size() - 1; i >= 0; i--) {
+                writer.write(String.format(Locale.US, "\"%s\",\"%.3f\",\"%.3f\",\"%.3f\",\"%.3f\",\"\",\"0.00%%\"%n",
+                    tradingDays.get(i).format(USD_INR_FORMAT), usdInrRates[i], usdInrRates[i],
+                    usdInrRates[i], usdInrRates[i]));
+            }
+        }
+    }
+
+    private long volume(int dayIndex) {
+        return 1_000_000 + (dayIndex * 7919L + seed) % 5_000_000;
+    }
+
+    /**
+     * Write a BenefitHistory workbook with about the given number of data rows
+     * A third of the rows go to the ESPP sheet (semi-annual purchases and a few sales), the rest to
+     * the Restricted Stock sheet (grants, quarterly vests and release events) with the column names
+     * EtradeBenefitHistoryParser maps.
+     */
+    public WorkbookStats writeBenefitHistory(Path file, int rows) throws IOException {
+        Random random = new Random(seed ^ rows);
+        WorkbookStats stats = new WorkbookStats();
+        int esppRows = rows / 3;
+        int rsuRows = rows - esppRows;
+
+        try (SXSSFWorkbook workbook = new SXSSFWorkbook(200)) {
+            Sheet espp = workbook.createSheet("ESPP");
+            setCells(espp.createRow(0), 0, "Plan", 1, "Record Type", 3, "Purchase Date", 4, "Symbol",
+                17, "Purchased Qty.", 18, "Purchase Date FMV");
+            for (int rowNum = 1; rowNum <= esppRows; rowNum++) {
+                String ticker = randomTicker(random);
+                int dayIndex = esppPurchaseDay(random);
+                String date = tradingDays.get(dayIndex).format(NAMED_MON_FORMAT).toUpperCase(Locale.US);
+                String fmv = formatAmount(sharePrices.get(ticker)[dayIndex]);
+
+                boolean sale = random.nextInt(10) == 0;
+                double quantity = sale ? 1 + random.nextInt(40) : (1 + random.nextInt(40_000)) / 1000.0;
+                setCells(espp.createRow(rowNum), 0, "ESPP", 1, sale ? "Sell" : "Purchase", 3, date,
+                    4, ticker.toUpperCase(Locale.US), 17, quantity, 18, fmv);
+                stats.esppPurchases += sale ? 0 : 1;
+            }
+
+            Sheet rsu = workbook.createSheet("Restricted Stock");
+            setCells(rsu.createRow(0), 1, "Record Type", 3, "Symbol", 13, "Grant Date", 17, "Grant Number",
+                22, "Qty. or Amount", 24, "Date", 25, "Est. Market Value", 31, "Event Type");
+            int rowNum = 1;
+            while (rowNum <= rsuRows) {
+                String ticker = randomTicker(random);
+                String grantNumber = String.format("RU%06d", stats.rsuGrants + 1);
+                // Grants early enough for at least one vest inside the history
+                int grantIndex = random.nextInt(tradingDays.size() - 70);
+                LocalDate grantDate = tradingDays.get(grantIndex);
+                setCells(rsu.createRow(rowNum++), 1, "Grant", 3, ticker.toUpperCase(Locale.US),
+                    13, grantDate.format(ADOBE_FORMAT), 17, grantNumber);
+                stats.rsuGrants++;
+
+                for (int vest = 1; vest <= VESTS_PER_GRANT && rowNum <= rsuRows; vest++) {
+                    int vestIndex = nextTradingDayIndex(grantDate.plusMonths(3L * vest));
+                    if (vestIndex < 0) {
+                        break;
+                    }
+                    String vestDate = tradingDays.get(vestIndex).format(ADOBE_FORMAT);
+                    String quantity = String.valueOf(1 + random.nextInt(50));
+
+                    Row row = rsu.createRow(rowNum++);
+                    if (random.nextInt(BACKFILL_ONE_IN) == 0) {
+                        setCells(row, 1, "Event", 17, grantNumber, 22, quantity, 24, vestDate, 31, "Shares vested");
+                        stats.backfilledVests++;
+                    } else {
+                        setCells(row, 1, "Event", 17, grantNumber, 22, quantity, 24, vestDate,
+                            25, formatAmount(sharePrices.get(ticker)[vestIndex]), 31, "Shares vested");
+                    }
+                    stats.rsuVests++;
+
+                    // Release events are listed in exports but are not purchases
+                    if (rowNum <= rsuRows && random.nextInt(4) == 0) {
+                        setCells(rsu.createRow(rowNum++), 1, "Event", 17, grantNumber, 22, quantity,
+                            24, vestDate, 31, "Shares released");
+                    }
+                }
+            }
+
+            try (OutputStream out = Files.newOutputStream(file)) {
+                workbook.write(out);
+            }
+            workbook.dispose();
+        }
+
+        return stats;
+    }
+
+    /**
+     * Last trading day of June or December, the ESPP purchase dates
+     */
+    private int esppPurchaseDay(Random random) {
+        int firstYear = tradingDays.get(0).getYear();
+        int years = tradingDays.get(tradingDays.size() - 1).getYear() - firstYear + 1;
+        for (int attempt = 0; attempt < 10; attempt++) {
+            int year = firstYear + random.nextInt(years);
+            LocalDate periodEnd = random.nextBoolean() ? LocalDate.of(year, 6, 30) : LocalDate.of(year, 12, 31);
+            int index = previousTradingDayIndex(periodEnd);
+            if (index >= 0) {
+                return index;
+            }
+        }
+        return random.nextInt(tradingDays.size());
+    }
+
+    private int nextTradingDayIndex(LocalDate day) {
+        int index = Collections.binarySearch(tradingDays, day);
+        index = index >= 0 ? index : -index - 1;
+        return index < tradingDays.size() ? index : -1;
+    }
+
+    private int previousTradingDayIndex(LocalDate day) {
+        int index = Collections.binarySearch(tradingDays, day);
+        index = index >= 0 ? index : -index - 2;
+        return (index >= 0 && tradingDays.get(index).getMonthValue() == day.getMonthValue()
+            && tradingDays.get(index).getYear() == day.getYear()) ? index : -1;
+    }
+
+    private String randomTicker(Random random) {
+        return tickers.get(random.nextInt(tickers.size()));
+    }
+
+    private static String formatAmount(double amount) {
+        return String.format(Locale.US, "$%,.2f", amount);
+    }
+
+    private static void setCells(Row row, Object... values) {
+        for (int i = 0; i < values.length; i += 2) {
+            int column = (Integer) values[i];
+            Object value = values[i + 1];
+            if (value instanceof Number) {
+                row.createCell(column).setCellValue(((Number) value).doubleValue());
+            } else {
+                row.createCell(column).setCellValue((String) value);
+            }
+        }
+    }
+
+    /**
+     * Add placeholder organizations for generated tickers that have no mapping yet
+     */
+    public static void registerTickers(List<String> tickers) {
+        for (String ticker : tickers) {
+            if (!TickerMapping.isTickerSupported(ticker)) {
+                TickerMapping.addTickerMapping(ticker, new Organization(
+                    "2 - United States",
+                    ticker.toUpperCase(Locale.US) + " Synthetic Incorporation",
+                    "1 Market Street San Francisco, CA",
+                    "Listed",
+                    "94105"
+                ), "USD");
+            }
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = new Options();
+
+        options.addOption(Option.builder("o")
+            .longOpt("output")
+            .hasArg()
+            .argName("OUTPUT_FOLDER")
+            .desc("Folder for BenefitHistory.xlsx and historic_data, default = <current_dir>/synthetic")
+            .build());
+
+        options.addOption(Option.builder("r")
+            .longOpt("rows")
+            .hasArg()
+            .argName("ROWS")
+            .desc("Number of workbook data rows, default = 10000")
+            .build());
+
+        options.addOption(Option.builder("t")
+            .longOpt("tickers")
+            .hasArg()
+            .argName("TICKERS")
+            .desc("Comma separated tickers, default = adbe")
+            .build());
+
+        options.addOption(Option.builder("fy")
+            .longOpt("from-year")
+            .hasArg()
+            .argName("YEAR")
+            .desc("First year of price history, default = 2015")
+            .build());
+
+        options.addOption(Option.builder("ty")
+            .longOpt("to-year")
+            .hasArg()
+            .argName("YEAR")
+            .desc("Last year of price history, default = 2025")
+            .build());
+
+        options.addOption(Option.builder("s")
+            .longOpt("seed")
+            .hasArg()
+            .argName("SEED")
+            .desc("Random seed, the same seed generates the same files, default = 42")
+            .build());
+
+        options.addOption(Option.builder("h")
+            .longOpt("help")
+            .desc("Show this help message")
+            .build());
+
+        CommandLine cmd = new DefaultParser().parse(options, args);
+        if (cmd.hasOption("h")) {
+            new HelpFormatter().printHelp("java -cp sefa-java.jar " + SyntheticDataGenerator.class.getName(), options);
+            return;
+        }
+
+        Path output = Paths.get(cmd.getOptionValue("o", Paths.get(System.getProperty("user.dir"), "synthetic").toString()));
+        int rows = Integer.parseInt(cmd.getOptionValue("r", "10000"));
+        List<String> tickers = Arrays.asList(cmd.getOptionValue("t", "adbe").split("\\s*,\\s*"));
+        int fromYear = Integer.parseInt(cmd.getOptionValue("fy", "2015"));
+        int toYear = Integer.parseInt(cmd.getOptionValue("ty", "2025"));
+        long seed = Long.parseLong(cmd.getOptionValue("s", "42"));
+
+        SyntheticDataGenerator generator = new SyntheticDataGenerator(
+            tickers, LocalDate.of(fromYear, 1, 1), LocalDate.of(toYear, 12, 31), seed);
+
+        Files.createDirectories(output);
+        generator.writeHistoricData(output);
+        Logger.log("Price history for %s written to %s", String.join(", ", tickers), output.resolve("historic_data"));
+
+        Path workbook = output.resolve("BenefitHistory.xlsx");
+        WorkbookStats stats = generator.writeBenefitHistory(workbook, rows);
+        Logger.log("BenefitHistory written to %s: %s", workbook, stats);
+    }
+}
@@ -1,17 +1,22 @@
 package com.sefa.utils;
 
 import com.sefa.models.Organization;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 /**
  * Ticker mapping configurations
  * Converted from Python utils/ticker_mapping.py
+ * Mappings are kept by canonical ticker id (see SymbolTable.TICKERS), so a lookup never changes case.
+ * Looking up a ticker that is not mapped does not add it to the symbol table.
  */
 public class TickerMapping {
-    
-    private static final Map<String, Organization> TICKER_ORG_INFO = new HashMap<>();
-    private static final Map<String, String> TICKER_CURRENCY_INFO = new HashMap<>();
+
+    // Read from parser worker threads while mappings may still be added, replaced as a whole under the lock
+    private static final Object lock = new Object();
+    private static volatile Organization[] tickerOrgInfo = new Organization[0];
+    private static volatile String[] tickerCurrencyInfo = new String[0];
     
     static {
         initializeTickerMappings();
@@ -27,18 +32,37 @@ public class TickerMapping {
             "95110"
         );
         
-        TICKER_ORG_INFO.put("adbe", adobeOrg);
-        TICKER_CURRENCY_INFO.put("adbe", "USD");
+        addTickerMapping("adbe", adobeOrg, "USD");
+    }
+    
+    /**
+     * Canonical id of a ticker, -1 when no spelling of it is in the symbol table, see SymbolTable.knownCanonicalId
+     * Use this instead of the symbol table directly, the mapped tickers are only added once this class is loaded.
+     */
+    public static int knownTickerId(String ticker) {
+        return SymbolTable.TICKERS.knownCanonicalId(ticker);
     }
     
     /**
      * Get organization information for a ticker
      */
     public static Organization getTickerOrgInfo(String ticker) {
-        Organization org = TICKER_ORG_INFO.get(ticker.toLowerCase());
-        if (org == null) {
+        int tickerId = knownTickerId(ticker);
+        if (tickerId < 0) {
             throw new IllegalArgumentException("No organization info found for ticker: " + ticker);
         }
+        return getTickerOrgInfo(tickerId);
+    }
+    
+    /**
+     * Get organization information for a canonical ticker id
+     */
+    public static Organization getTickerOrgInfo(int tickerId) {
+        Organization[] orgs = tickerOrgInfo;
+        Organization org = tickerId >= 0 && tickerId < orgs.length ? orgs[tickerId] : null;
+        if (org == null) {
+            throw new IllegalArgumentException("No organization info found for ticker: " + SymbolTable.TICKERS.name(tickerId));
+        }
         return org;
     }
     
@@ -46,10 +70,22 @@ public class TickerMapping {
      * Get currency information for a ticker
      */
     public static String getTickerCurrencyInfo(String ticker) {
-        String currency = TICKER_CURRENCY_INFO.get(ticker.toLowerCase());
-        if (currency == null) {
+        int tickerId = knownTickerId(ticker);
+        if (tickerId < 0) {
             throw new IllegalArgumentException("No currency info found for ticker: " + ticker);
         }
+        return getTickerCurrencyInfo(tickerId);
+    }
+    
+    /**
+     * Get currency information for a canonical ticker id
+     */
+    public static String getTickerCurrencyInfo(int tickerId) {
+        String[] currencies = tickerCurrencyInfo;
+        String currency = tickerId >= 0 && tickerId < currencies.length ? currencies[tickerId] : null;
+        if (currency == null) {
+            throw new IllegalArgumentException("No currency info found for ticker: " + SymbolTable.TICKERS.name(tickerId));
+        }
         return currency;
     }
     
@@ -57,21 +93,39 @@ public class TickerMapping {
      * Check if ticker is supported
      */
     public static boolean isTickerSupported(String ticker) {
-        return TICKER_ORG_INFO.containsKey(ticker.toLowerCase());
+        int tickerId = knownTickerId(ticker);
+        Organization[] orgs = tickerOrgInfo;
+        return tickerId >= 0 && tickerId < orgs.length && orgs[tickerId] != null;
     }
     
     /**
      * Add new ticker mapping
      */
     public static void addTickerMapping(String ticker, Organization org, String currency) {
-        TICKER_ORG_INFO.put(ticker.toLowerCase(), org);
-        TICKER_CURRENCY_INFO.put(ticker.toLowerCase(), currency);
+        int tickerId = SymbolTable.TICKERS.canonicalId(ticker);
+        synchronized (lock) {
+            int length = Math.max(tickerOrgInfo.length, tickerId + 1);
+            Organization[] orgs = Arrays.copyOf(tickerOrgInfo, length);
+            String[] currencies = Arrays.copyOf(tickerCurrencyInfo, length);
+            orgs[tickerId] = org;
+            currencies[tickerId] = SymbolTable.CURRENCIES.intern(currency);
+            // Currency first, a ticker with an org always has its currency
+            tickerCurrencyInfo = currencies;
+            tickerOrgInfo = orgs;
+        }
     }
     
     /**
      * Get all supported tickers
      */
     public static String[] getSupportedTickers() {
-        return TICKER_ORG_INFO.keySet().toArray(new String[0]);
+        Organization[] orgs = tickerOrgInfo;
+        List<String> tickers = new ArrayList<>();
+        for (int tickerId = 0; tickerId < orgs.length; tickerId++) {
+            if (orgs[tickerId] != null) {
+                tickers.add(SymbolTable.TICKERS.name(tickerId));
+            }
+        }
+        return tickers.toArray(new String[0]);
     }
-} 
\ No newline at end of file
+}
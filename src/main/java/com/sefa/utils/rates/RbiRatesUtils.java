@@ -0,0 +1,244 @@
+package com.sefa.utils.rates;
+
+import com.sefa.utils.DateUtils;
+import com.sefa.utils.FileUtils;
+import com.sefa.utils.Logger;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.ss.usermodel.WorkbookFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * RBI reference rates (historic_data/rates/rbi/rates.xls) of the last day of each month
+ * Converted from Python utils/rates/rbi_rates_utils.py
+ */
+public class RbiRatesUtils {
+
+    static final String RATES_FILE = String.join("/", "historic_data", "rates", "rbi", "rates.xls");
+    private static final String SHEET_NAME = "Reference Rates";
+    private static final int HEADER_ROW = 2;
+
+    private static final DateTimeFormatter RATE_DATE_FORMATTER = DateTimeFormatter.ofPattern("dd MMM yyyy", Locale.ENGLISH);
+    // e.g. "INR / 1 USD" or "INR / 100 JPY"
+    private static final Pattern CURRENCY_PAIR = Pattern.compile("INR\\s*/\\s*(\\d+)\\s+([A-Z]{3})");
+
+    private static final Object loadLock = new Object();
+    private static volatile Map<String, MonthlyRates> ratesCache = null;
+
+    /**
+     * Rate of the last day with a rate in each month, indexed by month for O(1) lookups
+     */
+    static final class MonthlyRates {
+        private static final int NO_RATE = Integer.MIN_VALUE;
+
+        final int firstMonth; // year * 12 + month - 1
+        final int[] epochDays;
+        final double[] rates;
+
+        private MonthlyRates(int firstMonth, int[] epochDays, double[] rates) {
+            this.firstMonth = firstMonth;
+            this.epochDays = epochDays;
+            this.rates = rates;
+        }
+
+        /**
+         * Index of a month, -1 when there is no rate in it
+         */
+        int indexOf(int year, int month) {
+            int index = year * 12 + month - 1 - firstMonth;
+            return index >= 0 && index < epochDays.length && epochDays[index] != NO_RATE ? index : -1;
+        }
+
+        boolean hasYear(int year) {
+            for (int month = 1; month <= 12; month++) {
+                if (indexOf(year, month) >= 0) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Collects the rates of one currency, keeping the latest day of each month
+     */
+    private static final class MonthlyRatesBuilder {
+        private final Map<Integer, long[]> latestByMonth = new HashMap<>();
+
+        void add(LocalDate date, double rate) {
+            int month = date.getYear() * 12 + date.getMonthValue() - 1;
+            long epochDay = date.toEpochDay();
+            long[] latest = latestByMonth.get(month);
+            if (latest == null || latest[0] < epochDay) {
+                latestByMonth.put(month, new long[]{epochDay, Double.doubleToLongBits(rate)});
+            }
+        }
+
+        MonthlyRates build() {
+            int firstMonth = latestByMonth.keySet().stream().min(Integer::compare).orElse(0);
+            int lastMonth = latestByMonth.keySet().stream().max(Integer::compare).orElse(-1);
+            int[] epochDays = new int[lastMonth - firstMonth + 1];
+            double[] rates = new double[epochDays.length];
+            Arrays.fill(epochDays, MonthlyRates.NO_RATE);
+
+            latestByMonth.forEach((month, latest) -> {
+                epochDays[month - firstMonth] = Math.toIntExact(latest[0]);
+                rates[month - firstMonth] = Double.longBitsToDouble(latest[1]);
+            });
+            return new MonthlyRates(firstMonth, epochDays, rates);
+        }
+    }
+
+    /**
+     * Load rates.xls once, the rates of every currency in it are indexed
+     */
+    static Map<String, MonthlyRates> initMap() {
+        Map<String, MonthlyRates> rates = ratesCache;
+        if (rates != null) {
+            return rates;
+        }
+
+        synchronized (loadLock) {
+            if (ratesCache == null) {
+                ratesCache = parseRates(Paths.get(System.getProperty("user.dir"), RATES_FILE));
+            }
+            return ratesCache;
+        }
+    }
+
+    static Map<String, MonthlyRates> parseRates(Path ratesPath) {
+        Logger.log("Parsing RBI reference rates");
+        if (!FileUtils.fileExists(ratesPath.toString())) {
+            throw new IllegalArgumentException(String.format("RBI rates.xls %s is NOT present", ratesPath));
+        }
+
+        // The file is an XLSX workbook despite its extension, let POI detect the format
+        try (Workbook workbook = WorkbookFactory.create(new File(ratesPath.toString()), null, true)) {
+            Sheet sheet = workbook.getSheet(SHEET_NAME);
+            if (sheet == null) {
+                throw new IllegalArgumentException(String.format("No '%s' sheet in %s", SHEET_NAME, ratesPath));
+            }
+
+            Row header = sheet.getRow(HEADER_ROW);
+            int dateColumn = findColumn(header, "Date", ratesPath);
+            int pairColumn = findColumn(header, "Currency Pairs", ratesPath);
+            int rateColumn = findColumn(header, "Rate", ratesPath);
+
+            DataFormatter formatter = new DataFormatter();
+            Map<String, MonthlyRatesBuilder> builders = new HashMap<>();
+            for (int r = HEADER_ROW + 1; r <= sheet.getLastRowNum(); r++) {
+                Row row = sheet.getRow(r);
+                if (row == null) {
+                    continue;
+                }
+                Matcher pair = CURRENCY_PAIR.matcher(formatter.formatCellValue(row.getCell(pairColumn)).trim());
+                if (!pair.matches()) {
+                    continue;
+                }
+
+                // Rates are quoted per 1 or 100 units, keep them per unit
+                double rate = numericValue(row.getCell(rateColumn), formatter) / Integer.parseInt(pair.group(1));
+                builders.computeIfAbsent(pair.group(2), currency -> new MonthlyRatesBuilder())
+                    .add(dateValue(row.getCell(dateColumn), formatter), rate);
+            }
+
+            Map<String, MonthlyRates> rates = new HashMap<>();
+            builders.forEach((currency, builder) -> rates.put(currency, builder.build()));
+            Logger.debugLog("Parsed RBI reference rates for %s", rates.keySet());
+            return rates;
+
+        } catch (IOException | DateTimeParseException | NumberFormatException e) {
+            throw new RuntimeException("Failed to read RBI rates from " + ratesPath + ": " + e.getMessage(), e);
+        }
+    }
+
+    private static int findColumn(Row header, String name, Path ratesPath) {
+        if (header != null) {
+            for (Cell cell : header) {
+                if (cell.getCellType() == CellType.STRING && name.equals(cell.getStringCellValue().trim())) {
+                    return cell.getColumnIndex();
+                }
+            }
+        }
+        throw new IllegalArgumentException(String.format("No '%s' column in %s", name, ratesPath));
+    }
+
+    private static double numericValue(Cell cell, DataFormatter formatter) {
+        if (cell != null && cell.getCellType() == CellType.NUMERIC) {
+            return cell.getNumericCellValue();
+        }
+        return Double.parseDouble(formatter.formatCellValue(cell).replace(",", "").trim());
+    }
+
+    private static LocalDate dateValue(Cell cell, DataFormatter formatter) {
+        if (cell != null && cell.getCellType() == CellType.NUMERIC && DateUtil.isCellDateFormatted(cell)) {
+            return cell.getLocalDateTimeCellValue().toLocalDate();
+        }
+        return LocalDate.parse(formatter.formatCellValue(cell).trim(), RATE_DATE_FORMATTER);
+    }
+
+    private static MonthlyRates currencyRates(String currencyCode) {
+        MonthlyRates rates = initMap().get(currencyCode.toUpperCase(Locale.ROOT));
+        if (rates == null) {
+            throw new IllegalArgumentException(
+                String.format("No rbi data for currency code %s in %s", currencyCode, RATES_FILE));
+        }
+        return rates;
+    }
+
+    /**
+     * Rate of the last day with a rate in the given month (1 - 12)
+     */
+    public static double getRateAtMonth(String currencyCode, int month, int year) {
+        MonthlyRates rates = currencyRates(currencyCode);
+        int index = rates.indexOf(year, month);
+        if (index < 0) {
+            throw new IllegalArgumentException(rates.hasYear(year)
+                ? String.format("No rbi data for currency code %s in %s for month %d/%d", currencyCode, RATES_FILE, month, year)
+                : String.format("No rbi data for currency code %s in %s for year %d", currencyCode, RATES_FILE, year));
+        }
+        return rates.rates[index];
+    }
+
+    /**
+     * Rate of the last day of the month before the given time, the rate purchase and closing values are converted with
+     */
+    public static double getRateForPrevMonth(String currencyCode, long timeInMs) {
+        LocalDate date = LocalDate.ofEpochDay(Math.floorDiv(timeInMs, DateUtils.ONE_DAY_IN_MS)).minusMonths(1);
+        return getRateAtMonth(currencyCode, date.getMonthValue(), date.getYear());
+    }
+
+    /**
+     * Load rates.xls up front
+     */
+    public static void preload() {
+        initMap();
+    }
+
+    /**
+     * Drop the loaded rates so the next lookup reads rates.xls again
+     */
+    public static void clearCache() {
+        synchronized (loadLock) {
+            ratesCache = null;
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.sefa;
+
+import com.sefa.parsers.etrade.EtradeBenefitHistoryParser;
+import com.sefa.parsers.itr.FAA3Parser;
+import com.sefa.utils.SyntheticDataGenerator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BatchRunnerTest {
+
+    @TempDir
+    Path tempDir;
+
+    @BeforeEach
+    void quietRowErrors() {
+        EtradeBenefitHistoryParser.setDebug(false);
+    }
+
+    private Path writeWorkbook(Path folder, String name, long seed) throws IOException {
+        Path workbook = folder.resolve(name);
+        new SyntheticDataGenerator(List.of("adbe"), LocalDate.of(2018, 1, 1), LocalDate.of(2024, 12, 31), seed)
+            .writeBenefitHistory(workbook, 200);
+        return workbook;
+    }
+
+    private static BatchRunner runner(int workers) {
+        return new BatchRunner(workers, (purchases, outputFolder, priceQueryCache) ->
+            FAA3Parser.parse("financial", purchases, 2024, outputFolder, priceQueryCache));
+    }
+
+    @Test
+    void failingFileDoesNotStopTheBatch() throws IOException {
+        Path inputs = Files.createDirectories(tempDir.resolve("inputs"));
+        writeWorkbook(inputs, "alice.xlsx", 1);
+        Files.writeString(inputs.resolve("broken.xlsx"), "not a workbook");
+        writeWorkbook(inputs, "carol.xlsx", 2);
+        Files.writeString(inputs.resolve("notes.txt"), "ignored");
+
+        Path output = tempDir.resolve("output");
+        List<BatchRunner.FileResult> results = runner(2).run(BatchRunner.listInputs(inputs.toString()), output.toString());
+
+        assertEquals(List.of("alice", "broken", "carol"),
+            results.stream().map(result -> result.getInput().getOutputName()).collect(Collectors.toList()));
+        assertTrue(results.get(0).isSucceeded());
+        assertFalse(results.get(1).isSucceeded());
+        assertFalse(results.get(1).getError().isEmpty());
+        assertTrue(results.get(2).isSucceeded());
+
+        assertTrue(Files.exists(output.resolve("alice/all_fa_entries.csv")));
+        assertTrue(Files.exists(output.resolve("carol/all_fa_entries.csv")));
+        assertFalse(Files.exists(output.resolve("broken/all_fa_entries.csv")));
+
+        List<String> summary = Files.readAllLines(output.resolve(BatchRunner.SUMMARY_FILE_NAME));
+        assertEquals(4, summary.size());
+        assertTrue(summary.get(2).contains("\"FAILED\""));
+    }
+
+    @Test
+    void batchOutputMatchesSingleRuns() throws IOException {
+        Path inputs = Files.createDirectories(tempDir.resolve("inputs"));
+        Path first = writeWorkbook(inputs, "first.xlsx", 3);
+        Path second = writeWorkbook(inputs, "second.xlsx", 4);
+        Path manifest = Files.writeString(tempDir.resolve("manifest.txt"),
+            "# input, output folder\ninputs/first.xlsx,user-1\n\ninputs/second.xlsx\n");
+
+        List<BatchRunner.BatchInput> batchInputs = BatchRunner.listInputs(manifest.toString());
+        assertEquals(first, batchInputs.get(0).getInputFile());
+        assertEquals("user-1", batchInputs.get(0).getOutputName());
+        assertEquals("second", batchInputs.get(1).getOutputName());
+
+        Path output = tempDir.resolve("output");
+        runner(2).run(batchInputs, output.toString());
+
+        for (Path input : List.of(first, second)) {
+            Path single = tempDir.resolve("single").resolve(input.getFileName().toString());
+            FAA3Parser.parse("financial", EtradeBenefitHistoryParser.parse(input.toString()), 2024, single.toString());
+            String outputName = input.equals(first) ? "user-1" : "second";
+            assertEquals(Files.readAllLines(single.resolve("all_fa_entries.csv")),
+                Files.readAllLines(output.resolve(outputName).resolve("all_fa_entries.csv")));
+        }
+    }
+
+    @Test
+    void duplicateOutputFoldersAreRejected() throws IOException {
+        Path manifest = Files.writeString(tempDir.resolve("manifest.txt"), "a.xlsx,same\nb.xlsx,same\n");
+        assertThrows(IllegalArgumentException.class, () -> BatchRunner.listInputs(manifest.toString()));
+    }
+}
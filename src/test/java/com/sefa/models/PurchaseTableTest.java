@@ -0,0 +1,102 @@
+package com.sefa.models;
+
+import com.sefa.utils.DateUtils;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PurchaseTableTest {
+
+    private static Purchase purchase(String date, double quantity, String ticker) {
+        return new Purchase(DateUtils.parseYyyyMmDd(date), new Price(100.0 + quantity, "USD"), quantity, ticker);
+    }
+
+    private static long time(String date) {
+        return DateUtils.parseYyyyMmDd(date).getTimeInMillis();
+    }
+
+    private final List<Purchase> purchases = List.of(
+        purchase("2024-05-15", 1, "adbe"),
+        purchase("2023-11-15", 2, "msft"),
+        purchase("2024-05-15", 3, "msft"),
+        purchase("2023-02-15", 4, "adbe"),
+        purchase("2025-01-15", 5, "adbe"));
+
+    @Test
+    void rowsAreSortedByDateAndMaterializeEqualPurchases() {
+        PurchaseTable table = PurchaseTable.of(purchases);
+
+        assertEquals(5, table.size());
+        assertEquals(List.of(purchases.get(3), purchases.get(1), purchases.get(0), purchases.get(2), purchases.get(4)),
+            table.toPurchases());
+        // Same day purchases keep their input order
+        assertEquals("adbe", table.tickerAt(2));
+        assertEquals("msft", table.tickerAt(3));
+        assertEquals(time("2023-02-15"), table.timeAt(0));
+        assertEquals(time("2023-02-15") / (24 * 60 * 60 * 1000L), table.epochDayAt(0));
+        assertEquals(104.0, table.fmvAt(0));
+        assertEquals("USD", table.currencyAt(0));
+        assertThrows(IndexOutOfBoundsException.class, () -> table.get(5));
+    }
+
+    @Test
+    void timesWithinADayAreKept() {
+        DateObj date = new DateObj(time("2024-05-15") + 3_600_000L, "2024-05-15", null);
+        Purchase purchase = new Purchase(date, new Price(10.0, "USD"), 1, "adbe");
+        PurchaseTable table = PurchaseTable.of(List.of(purchase));
+
+        assertEquals(date.getTimeInMillis(), table.timeAt(0));
+        assertEquals(purchase, table.get(0));
+    }
+
+    @Test
+    void dateRangesAreViews() {
+        PurchaseTable table = PurchaseTable.of(purchases);
+
+        assertEquals(2, table.before(time("2024-05-15")).size());
+        assertEquals(4, table.until(time("2024-05-15")).size());
+        PurchaseTable period = table.between(time("2024-04-01"), time("2025-03-31"));
+        assertEquals(3, period.size());
+        assertEquals(9.0, period.totalQuantity());
+        assertEquals(2, period.until(time("2024-12-31")).size());
+        assertTrue(table.between(time("2025-04-01"), time("2026-03-31")).isEmpty());
+        assertTrue(table.between(time("2025-03-31"), time("2024-04-01")).isEmpty());
+
+        PurchaseTable selected = table.select(new int[]{1, 4});
+        assertEquals(List.of(purchases.get(1), purchases.get(4)), selected.toPurchases());
+        assertThrows(IllegalArgumentException.class, () -> table.select(new int[]{2, 1}));
+    }
+
+    @Test
+    void builtRowsKeepTheirInputOrder() {
+        PurchaseTable.Builder first = new PurchaseTable.Builder();
+        PurchaseTable.Builder second = new PurchaseTable.Builder();
+        for (int i = 0; i < purchases.size(); i++) {
+            (i < 2 ? first : second).add(purchases.get(i));
+        }
+        PurchaseTable table = first.addAll(second).build();
+
+        assertEquals(purchases, table.toPurchasesInInputOrder());
+        assertArrayEquals(new int[]{2, 1, 3, 0, 4}, table.inputOrder());
+        assertEquals("2023-02-15", table.dispTimeAt(0));
+        // Views list their own rows in input order
+        assertEquals(List.of(purchases.get(0), purchases.get(3), purchases.get(4)),
+            table.byTicker().get("adbe").toPurchasesInInputOrder());
+        assertEquals(List.of(purchases.get(2), purchases.get(4)),
+            table.between(time("2024-05-15"), time("2025-03-31")).select(new int[]{1, 2}).toPurchasesInInputOrder());
+    }
+
+    @Test
+    void tickersAreDateSortedViews() {
+        Map<String, PurchaseTable> byTicker = PurchaseTable.of(purchases).byTicker();
+
+        assertEquals(2, byTicker.size());
+        assertEquals(List.of(purchases.get(3), purchases.get(0), purchases.get(4)), byTicker.get("adbe").toPurchases());
+        assertEquals(10.0, byTicker.get("adbe").totalQuantity());
+        PurchaseTable msft = byTicker.get("msft").before(time("2024-01-01"));
+        assertEquals(List.of(purchases.get(1)), msft.toPurchases());
+    }
+}
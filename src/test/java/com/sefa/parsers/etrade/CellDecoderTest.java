@@ -0,0 +1,78 @@
+package com.sefa.parsers.etrade;
+
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CellDecoderTest {
+
+    /**
+     * The regex based cleaning the parser used before
+     */
+    private static double regexAmount(String text) {
+        String cleaned = text.replaceAll("[^0-9.]", "");
+        return cleaned.isEmpty() ? 0.0 : Double.parseDouble(cleaned);
+    }
+
+    @Test
+    void parsesFormattedAmounts() {
+        assertEquals(1234.56, CellDecoder.parseAmount("$1,234.56"));
+        assertEquals(435.31, CellDecoder.parseAmount(" $435.31 "));
+        assertEquals(0.5, CellDecoder.parseAmount(".5"));
+        assertEquals(12.0, CellDecoder.parseAmount("12."));
+        assertEquals(0.0, CellDecoder.parseAmount(""));
+        assertEquals(0.0, CellDecoder.parseAmount("N/A"));
+        assertEquals(0.0, CellDecoder.parseAmount(null));
+        assertTrue(Double.isNaN(CellDecoder.parseAmount("1.2.3")));
+        assertTrue(Double.isNaN(CellDecoder.parseAmount("$.")));
+    }
+
+    @Test
+    void matchesRegexCleaningBitForBit() {
+        String[] samples = {
+            "$0.01", "$5,123.40", "10", "0000123.4500", "$99,999,999.99", "123456789012345678901234",
+            "0.000000000000000000000000123", "9007199254740993", "-42.5", "USD 1,000.10 (est)"
+        };
+        for (String sample : samples) {
+            assertEquals(regexAmount(sample), CellDecoder.parseAmount(sample), sample);
+        }
+
+        Random random = new Random(42);
+        for (int i = 0; i < 10_000; i++) {
+            String sample = String.format("$%,d.%0" + (1 + random.nextInt(6)) + "d",
+                random.nextInt(10_000_000), random.nextInt(100_000));
+            assertEquals(regexAmount(sample), CellDecoder.parseAmount(sample), sample);
+        }
+    }
+
+    @Test
+    void parsesRawNumericCellValues() {
+        assertEquals(435.31, CellDecoder.parseNumber("435.31"));
+        assertEquals(-7.25, CellDecoder.parseNumber("-7.25"));
+        assertEquals(1.0E-3, CellDecoder.parseNumber("1.0E-3"));
+        assertEquals(45000.0, CellDecoder.parseNumber("45000"));
+        assertThrows(NumberFormatException.class, () -> CellDecoder.parseNumber("-"));
+        assertThrows(NumberFormatException.class, () -> CellDecoder.parseNumber("1.2.3"));
+
+        assertEquals(17, CellDecoder.parseIndex(" 17 "));
+    }
+
+    @Test
+    void convertsExcelDatesToStartOfDayUtc() {
+        for (LocalDate date : new LocalDate[]{
+            LocalDate.of(1900, 1, 10), LocalDate.of(1970, 1, 1), LocalDate.of(2020, 6, 30), LocalDate.of(2025, 3, 31)
+        }) {
+            double serial = DateUtil.getExcelDate(date);
+            long expected = date.atStartOfDay().toInstant(ZoneOffset.UTC).toEpochMilli();
+
+            assertEquals(expected, CellDecoder.excelDateToEpochMs(serial), date.toString());
+            // Time of day is dropped
+            assertEquals(expected, CellDecoder.excelDateToEpochMs(serial + 0.75), date.toString());
+        }
+    }
+}
@@ -0,0 +1,292 @@
+package com.sefa.parsers.etrade;
+
+import com.sefa.models.Purchase;
+import org.apache.poi.poifs.filesystem.FileMagic;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EtradeBenefitHistoryParserTest {
+
+    @TempDir
+    Path tempDir;
+
+    @BeforeEach
+    void quietRowErrors() {
+        EtradeBenefitHistoryParser.setDebug(false);
+    }
+
+    @AfterEach
+    void resetMode() {
+        EtradeBenefitHistoryParser.setStreaming(false);
+        EtradeBenefitHistoryParser.setParallelism(1);
+        EtradeBenefitHistoryParser.setChunkSize(0);
+        EtradeBenefitHistoryParser.setDeferredBackfill(false);
+    }
+
+    private static void setCells(Row row, Object... values) {
+        for (int i = 0; i < values.length; i += 2) {
+            int column = (Integer) values[i];
+            Object value = values[i + 1];
+            Cell cell = row.createCell(column);
+            if (value instanceof Number) {
+                cell.setCellValue(((Number) value).doubleValue());
+            } else {
+                cell.setCellValue((String) value);
+            }
+        }
+    }
+
+    private static void setDateCell(Row row, int column, LocalDate date, CellStyle dateStyle) {
+        Cell cell = row.createCell(column);
+        cell.setCellValue(date);
+        cell.setCellStyle(dateStyle);
+    }
+
+    /**
+     * Minimal BenefitHistory workbook using the column names the parser maps
+     */
+    static File writeWorkbook(Path dir) throws IOException {
+        File file = dir.resolve("BenefitHistory.xlsx").toFile();
+        try (Workbook workbook = new XSSFWorkbook()) {
+            Sheet espp = workbook.createSheet("ESPP");
+            setCells(espp.createRow(0), 0, "Plan", 1, "Record Type", 3, "Purchase Date", 4, "Symbol",
+                17, "Purchased Qty.", 18, "Purchase Date FMV");
+            setCells(espp.createRow(1), 0, "ESPP", 1, "Purchase", 3, "30-JUN-2020", 4, "ADBE",
+                17, 12.0, 18, "$435.31");
+            setCells(espp.createRow(2), 0, "ESPP", 1, "Purchase", 3, "31-DEC-2020", 4, "ADBE",
+                17, "7.5", 18, "$500.10");
+            setCells(espp.createRow(3), 0, "ESPP", 1, "Sell", 3, "31-DEC-2020", 4, "ADBE",
+                17, 1.0, 18, "$1.00");
+            // Row without a first cell is skipped
+            setCells(espp.createRow(4), 1, "Purchase", 3, "31-DEC-2021", 4, "ADBE", 17, 1.0, 18, "$1.00");
+            // Date cell and numeric FMV cell are read as typed values
+            CellStyle dateStyle = workbook.createCellStyle();
+            dateStyle.setDataFormat(workbook.getCreationHelper().createDataFormat().getFormat("m/d/yy"));
+            Row dateRow = espp.createRow(5);
+            setCells(dateRow, 0, "ESPP", 1, "Purchase", 4, "ADBE", 17, 3.0, 18, 400.25);
+            setDateCell(dateRow, 3, LocalDate.of(2021, 6, 30), dateStyle);
+            // Malformed quantity text is skipped
+            setCells(espp.createRow(6), 0, "ESPP", 1, "Purchase", 3, "31-DEC-2021", 4, "ADBE",
+                17, "1.2.3", 18, "$1.00");
+
+            Sheet rsu = workbook.createSheet("Restricted Stock");
+            setCells(rsu.createRow(0), 1, "Record Type", 3, "Symbol", 13, "Grant Date", 17, "Grant Number",
+                22, "Qty. or Amount", 24, "Date", 25, "Est. Market Value", 31, "Event Type");
+            setCells(rsu.createRow(1), 1, "Grant", 3, "ADBE", 13, "01/15/2023", 17, "RU100");
+            setCells(rsu.createRow(2), 1, "Event", 17, "RU100", 22, "10", 24, "06/15/2024",
+                25, "$5,123.40", 31, "Shares vested");
+            // Missing market value is backfilled from historic prices, vest date given as a date cell
+            Row backfillRow = rsu.createRow(3);
+            setCells(backfillRow, 1, "Event", 17, "RU100", 22, "4", 31, "Shares vested");
+            setDateCell(backfillRow, 24, LocalDate.of(2025, 8, 8), dateStyle);
+            // Vest listed before its grant
+            setCells(rsu.createRow(4), 1, "Event", 17, "RU200", 22, "2", 24, "03/15/2024",
+                25, "$480.00", 31, "Shares vested");
+            setCells(rsu.createRow(5), 1, "Grant", 3, "ADBE", 13, "01/15/2024", 17, "RU200");
+            // Vest without any grant is dropped
+            setCells(rsu.createRow(6), 1, "Event", 17, "RU999", 22, "5", 24, "03/15/2024",
+                25, "$480.00", 31, "Shares vested");
+            setCells(rsu.createRow(7), 1, "Event", 17, "RU100", 22, "10", 24, "06/15/2024", 31, "Shares released");
+
+            try (FileOutputStream out = new FileOutputStream(file)) {
+                workbook.write(out);
+            }
+        }
+        return file;
+    }
+
+    @Test
+    void parsesEsppAndRsuRows() throws IOException {
+        List<Purchase> purchases = EtradeBenefitHistoryParser.parse(writeWorkbook(tempDir).getPath());
+
+        assertEquals(6, purchases.size());
+
+        Purchase espp = purchases.get(0);
+        assertEquals("adbe", espp.getTicker());
+        assertEquals("2020-06-30", espp.getDate().getDispTime());
+        assertEquals(12.0, espp.getQuantity());
+        assertEquals(435.31, espp.getPurchaseFmv().getPrice());
+        assertEquals("USD", espp.getPurchaseFmv().getCurrencyCode());
+
+        assertEquals(7.5, purchases.get(1).getQuantity());
+
+        Purchase datedEspp = purchases.get(2);
+        assertEquals("2021-06-30", datedEspp.getDate().getDispTime());
+        assertEquals(400.25, datedEspp.getPurchaseFmv().getPrice());
+
+        Purchase vest = purchases.get(3);
+        assertEquals("2024-06-15", vest.getDate().getDispTime());
+        assertEquals(10.0, vest.getQuantity());
+        assertEquals(5123.40, vest.getPurchaseFmv().getPrice(), 1e-9);
+
+        // 08/08/2025 close in adobe_price_history.csv
+        assertEquals("2025-08-08", purchases.get(4).getDate().getDispTime());
+        assertEquals(341.05, purchases.get(4).getPurchaseFmv().getPrice(), 1e-9);
+        assertEquals("2024-03-15", purchases.get(5).getDate().getDispTime());
+    }
+
+    @Test
+    void streamingModeMatchesWorkbookMode() throws IOException {
+        String path = writeWorkbook(tempDir).getPath();
+
+        List<Purchase> workbookPurchases = EtradeBenefitHistoryParser.parse(path);
+        EtradeBenefitHistoryParser.setStreaming(true);
+        List<Purchase> streamedPurchases = EtradeBenefitHistoryParser.parse(path);
+
+        assertEquals(workbookPurchases, streamedPurchases);
+    }
+
+    @Test
+    void parallelAndChunkedModesMatchSequentialMode() throws IOException {
+        String path = writeWorkbook(tempDir).getPath();
+        List<Purchase> expected = EtradeBenefitHistoryParser.parse(path);
+
+        for (boolean streaming : new boolean[]{false, true}) {
+            for (int chunkSize : new int[]{0, 1, 2, 3}) {
+                EtradeBenefitHistoryParser.setStreaming(streaming);
+                EtradeBenefitHistoryParser.setParallelism(4);
+                EtradeBenefitHistoryParser.setChunkSize(chunkSize);
+                EtradeBenefitHistoryParser.setDeferredBackfill(chunkSize % 2 == 1);
+
+                assertEquals(expected, EtradeBenefitHistoryParser.parse(path),
+                    "streaming = " + streaming + ", chunk size = " + chunkSize);
+            }
+        }
+    }
+
+    /**
+     * RSU sheet with vests listed before their grant and vests that can not become purchases
+     */
+    private File writeRsuEdgeCases() throws IOException {
+        File file = tempDir.resolve("RsuEdgeCases.xlsx").toFile();
+        try (Workbook workbook = new XSSFWorkbook()) {
+            workbook.createSheet("ESPP").createRow(0).createCell(0).setCellValue("Plan");
+
+            Sheet rsu = workbook.createSheet("Restricted Stock");
+            setCells(rsu.createRow(0), 1, "Record Type", 3, "Symbol", 13, "Grant Date", 17, "Grant Number",
+                22, "Qty. or Amount", 24, "Date", 25, "Est. Market Value", 31, "Event Type");
+            setCells(rsu.createRow(1), 1, "Event", 17, "RU300", 22, "3", 24, "03/15/2024",
+                25, "$480.00", 31, "Shares vested");
+            setCells(rsu.createRow(2), 1, "Event", 17, "RU300", 22, "4", 24, "06/14/2024",
+                25, "$520.00", 31, "Shares vested");
+            setCells(rsu.createRow(3), 1, "Grant", 3, "ADBE", 13, "01/15/2023", 17, "RU100");
+            setCells(rsu.createRow(4), 1, "Grant", 3, "ADBE", 13, "01/15/2024", 17, "RU300");
+            setCells(rsu.createRow(5), 1, "Event", 17, "RU100", 22, "5", 24, "13/45/2024",
+                25, "$480.00", 31, "Shares vested");
+            setCells(rsu.createRow(6), 1, "Event", 17, "RU100", 22, "1.2.3", 24, "03/15/2024",
+                25, "$480.00", 31, "Shares vested");
+            setCells(rsu.createRow(7), 1, "Grant", 3, "ZZZZ", 13, "01/15/2024", 17, "RU500");
+            setCells(rsu.createRow(8), 1, "Event", 17, "RU500", 22, "2", 24, "03/15/2024",
+                25, "$10.00", 31, "Shares vested");
+            setCells(rsu.createRow(9), 1, "Event", 17, "RU100", 22, "6", 24, "09/13/2024",
+                25, "$560.00", 31, "Shares vested");
+            setCells(rsu.createRow(10), 1, "Event", 17, "RU999", 22, "5", 24, "03/15/2024",
+                25, "$480.00", 31, "Shares vested");
+            // No market value and no price history for the vest date
+            setCells(rsu.createRow(11), 1, "Event", 17, "RU100", 22, "5", 24, "01/15/2031", 31, "Shares vested");
+
+            try (FileOutputStream out = new FileOutputStream(file)) {
+                workbook.write(out);
+            }
+        }
+        return file;
+    }
+
+    private static String captureStdout(Runnable task) {
+        PrintStream stdout = System.out;
+        ByteArrayOutputStream captured = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(captured, true));
+        try {
+            task.run();
+        } finally {
+            System.setOut(stdout);
+        }
+        return captured.toString();
+    }
+
+    @Test
+    void joinsOrphanVestsAndCountsSkippedVests() throws IOException {
+        String path = writeRsuEdgeCases().getPath();
+        List<List<Purchase>> results = new ArrayList<>();
+
+        String log = captureStdout(() -> results.add(EtradeBenefitHistoryParser.parse(path)));
+        List<Purchase> purchases = results.get(0);
+
+        // Sheet order, the orphans first
+        assertEquals(3, purchases.size());
+        assertEquals("2024-03-15", purchases.get(0).getDate().getDispTime());
+        assertEquals(3.0, purchases.get(0).getQuantity());
+        assertEquals("2024-06-14", purchases.get(1).getDate().getDispTime());
+        assertEquals("2024-09-13", purchases.get(2).getDate().getDispTime());
+
+        assertTrue(log.contains("RSU: 3 vests joined to grants, 2 listed before their grant, 1 without a grant"), log);
+        assertTrue(log.contains("RSU: skipped 1 vests with invalid dates, 1 with malformed amounts, "
+            + "1 with unknown tickers, 1 without a FMV"), log);
+
+        for (int chunkSize : new int[]{1, 2, 3, 4}) {
+            EtradeBenefitHistoryParser.setParallelism(4);
+            EtradeBenefitHistoryParser.setChunkSize(chunkSize);
+            EtradeBenefitHistoryParser.setDeferredBackfill(chunkSize % 2 == 0);
+            String chunkedLog = captureStdout(() -> results.add(EtradeBenefitHistoryParser.parse(path)));
+
+            assertEquals(purchases, results.get(results.size() - 1), "chunk size = " + chunkSize);
+            assertTrue(chunkedLog.contains("RSU: 3 vests joined to grants, 2 listed before their grant, 1 without a grant"),
+                "chunk size = " + chunkSize + ": " + chunkedLog);
+        }
+    }
+
+    @Test
+    void sheetCountsAreLoggedUnderTheirLabels() throws IOException {
+        File file = tempDir.resolve("RsuOnly.xlsx").toFile();
+        try (Workbook workbook = new XSSFWorkbook()) {
+            Sheet rsu = workbook.createSheet("Restricted Stock");
+            setCells(rsu.createRow(0), 1, "Record Type", 3, "Symbol", 13, "Grant Date", 17, "Grant Number",
+                22, "Qty. or Amount", 24, "Date", 25, "Est. Market Value", 31, "Event Type");
+            setCells(rsu.createRow(1), 1, "Grant", 3, "ADBE", 13, "01/15/2023", 17, "RU100");
+            setCells(rsu.createRow(2), 1, "Event", 17, "RU100", 22, "10", 24, "06/15/2024",
+                25, "$5,123.40", 31, "Shares vested");
+
+            try (FileOutputStream out = new FileOutputStream(file)) {
+                workbook.write(out);
+            }
+        }
+
+        // No ESPP sheet at all
+        for (boolean streaming : new boolean[]{false, true}) {
+            EtradeBenefitHistoryParser.setStreaming(streaming);
+            EtradeBenefitHistoryParser.setParallelism(streaming ? 4 : 1);
+            String log = captureStdout(() -> EtradeBenefitHistoryParser.parse(file.getPath()));
+
+            assertTrue(log.contains("Found 0 ESPP purchases, 1 RSU purchases"), "streaming = " + streaming + ": " + log);
+        }
+    }
+
+    @Test
+    void detectsFormatFromMagicBytes() throws IOException {
+        assertEquals(FileMagic.OOXML, EtradeBenefitHistoryParser.detectFormat(writeWorkbook(tempDir)));
+
+        Path text = Files.writeString(tempDir.resolve("not-excel.xlsx"), "Date,Close\n");
+        assertThrows(RuntimeException.class, () -> EtradeBenefitHistoryParser.parse(text.toString()));
+    }
+}
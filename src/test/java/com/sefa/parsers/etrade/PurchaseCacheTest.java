@@ -0,0 +1,220 @@
+package com.sefa.parsers.etrade;
+
+import com.sefa.models.Organization;
+import com.sefa.models.Price;
+import com.sefa.models.Purchase;
+import com.sefa.models.PurchaseTable;
+import com.sefa.utils.DateUtils;
+import com.sefa.utils.FileUtils;
+import com.sefa.utils.ShareDataUtils;
+import com.sefa.utils.SyntheticDataGenerator;
+import com.sefa.utils.TickerMapping;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PurchaseCacheTest {
+
+    @TempDir
+    Path tempDir;
+
+    @BeforeEach
+    void quietRowErrors() {
+        EtradeBenefitHistoryParser.setDebug(false);
+    }
+
+    @AfterEach
+    void disableCache() {
+        EtradeBenefitHistoryParser.setCache(null);
+    }
+
+    /**
+     * Workbook with one grant of the symbol and one vest of it, marketValue null for a vest to backfill
+     */
+    private File writeRsuWorkbook(String symbol, String marketValue) throws IOException {
+        File file = tempDir.resolve("BenefitHistory.xlsx").toFile();
+        try (Workbook workbook = new XSSFWorkbook()) {
+            workbook.createSheet("ESPP").createRow(0).createCell(1).setCellValue("Record Type");
+            Sheet rsu = workbook.createSheet("Restricted Stock");
+            // Columns of a BenefitHistory export, the parser falls back to them for missing values
+            int[] columns = {1, 3, 13, 17, 22, 24, 25, 31};
+            String[] header = {"Record Type", "Symbol", "Grant Date", "Grant Number", "Qty. or Amount", "Date",
+                "Est. Market Value", "Event Type"};
+            String[] grant = {"Grant", symbol, "01/15/2023", "RU1", null, null, null, null};
+            String[] vest = {"Event", null, null, "RU1", "10", "06/14/2024", marketValue, "Shares vested"};
+            String[][] rows = {header, grant, vest};
+            for (int i = 0; i < rows.length; i++) {
+                Row row = rsu.createRow(i);
+                for (int j = 0; j < columns.length; j++) {
+                    if (rows[i][j] != null) {
+                        row.createCell(columns[j]).setCellValue(rows[i][j]);
+                    }
+                }
+            }
+            try (FileOutputStream out = new FileOutputStream(file)) {
+                workbook.write(out);
+            }
+        }
+        return file;
+    }
+
+    /**
+     * Run against generated price data of the tickers in tempDir, returns the previous user.dir
+     */
+    private String useHistoricData(List<String> tickers) throws IOException {
+        new SyntheticDataGenerator(tickers, LocalDate.of(2023, 7, 1), LocalDate.of(2024, 12, 31), 7)
+            .writeHistoricData(tempDir);
+        String userDir = System.getProperty("user.dir");
+        System.setProperty("user.dir", tempDir.toString());
+        dropLoadedPrices();
+        return userDir;
+    }
+
+    /**
+     * Setting the source again drops every loaded series, as a new run would
+     */
+    private static void dropLoadedPrices() {
+        ShareDataUtils.setPriceSource(ShareDataUtils.getPriceSource());
+    }
+
+    // Latest first, so the input order is not the date order of the table
+    private static PurchaseTable purchases(int count) {
+        List<Purchase> purchases = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            String date = String.format("2020-06-%02d", 30 - i % 30);
+            purchases.add(new Purchase(DateUtils.parseYyyyMmDd(date), new Price(400.0 + i, "USD"), 1 + i, "adbe"));
+        }
+        return PurchaseTable.of(purchases);
+    }
+
+    @Test
+    void parsedWorkbookIsServedFromCache() throws IOException {
+        File workbook = EtradeBenefitHistoryParserTest.writeWorkbook(tempDir);
+        List<Purchase> parsed = EtradeBenefitHistoryParser.parse(workbook.getPath());
+
+        PurchaseCache cache = new PurchaseCache(tempDir.resolve("cache"), PurchaseCache.DEFAULT_MAX_BYTES);
+        EtradeBenefitHistoryParser.setCache(cache);
+        assertEquals(parsed, EtradeBenefitHistoryParser.parse(workbook.getPath()));
+        assertEquals(0, cache.getHits());
+
+        assertEquals(parsed, EtradeBenefitHistoryParser.parse(workbook.getPath()));
+        assertEquals(1, cache.getHits());
+        assertTrue(Files.exists(tempDir.resolve("cache").resolve(FileUtils.sha256(workbook.getPath()) + ".purchases")));
+
+        // Keyed by content, not by path
+        Path copy = Files.copy(workbook.toPath(), tempDir.resolve("Copy.xlsx"));
+        assertEquals(parsed, EtradeBenefitHistoryParser.parse(copy.toString()));
+        assertEquals(2, cache.getHits());
+    }
+
+    @Test
+    void changedPriceDataIsAMiss() throws IOException {
+        SyntheticDataGenerator.registerTickers(List.of("syncache"));
+        // No prices of syncache yet, its only vest can not be backfilled
+        String userDir = useHistoricData(List.of("adbe"));
+        try {
+            File workbook = writeRsuWorkbook("SYNCACHE", null);
+            PurchaseCache cache = new PurchaseCache(tempDir.resolve("cache"), PurchaseCache.DEFAULT_MAX_BYTES);
+            EtradeBenefitHistoryParser.setCache(cache);
+            assertEquals(0, EtradeBenefitHistoryParser.parse(workbook.getPath()).size());
+            assertEquals(0, EtradeBenefitHistoryParser.parse(workbook.getPath()).size());
+            assertEquals(1, cache.getHits());
+
+            // The vest is backfilled once the prices are there
+            useHistoricData(List.of("syncache"));
+            List<Purchase> purchases = EtradeBenefitHistoryParser.parse(workbook.getPath());
+            assertEquals(1, purchases.size());
+            assertEquals(1, cache.getHits());
+
+            // An edited price is a miss as well
+            Path prices = tempDir.resolve("historic_data/shares/syncache/data.csv");
+            List<String> lines = new ArrayList<>(Files.readAllLines(prices));
+            for (int i = 1; i < lines.size(); i++) {
+                if (lines.get(i).compareTo("2024-06-14") >= 0) {
+                    String[] columns = lines.get(i).split(",");
+                    columns[4] = "777.0";
+                    columns[5] = "777.0";
+                    lines.set(i, String.join(",", columns));
+                    break;
+                }
+            }
+            Files.write(prices, lines);
+            dropLoadedPrices();
+            purchases = EtradeBenefitHistoryParser.parse(workbook.getPath());
+            assertEquals(1, cache.getHits());
+            assertEquals(777.0, purchases.get(0).getPurchaseFmv().getPrice());
+            assertEquals(purchases, EtradeBenefitHistoryParser.parse(workbook.getPath()));
+            assertEquals(2, cache.getHits());
+        } finally {
+            System.setProperty("user.dir", userDir);
+            dropLoadedPrices();
+        }
+    }
+
+    @Test
+    void newlyMappedTickerIsAMiss() throws IOException {
+        File workbook = writeRsuWorkbook("SYNLATER", "$480.00");
+        PurchaseCache cache = new PurchaseCache(tempDir.resolve("cache"), PurchaseCache.DEFAULT_MAX_BYTES);
+        EtradeBenefitHistoryParser.setCache(cache);
+        assertEquals(0, EtradeBenefitHistoryParser.parse(workbook.getPath()).size());
+
+        TickerMapping.addTickerMapping("synlater", new Organization("2 - United States", "Later Inc",
+            "1 Main Street", "Listed", "95110"), "USD");
+        assertEquals(1, EtradeBenefitHistoryParser.parse(workbook.getPath()).size());
+        assertEquals(0, cache.getHits());
+    }
+
+    @Test
+    void corruptOrForeignEntriesAreMisses() throws IOException {
+        PurchaseCache cache = new PurchaseCache(tempDir, PurchaseCache.DEFAULT_MAX_BYTES);
+        cache.put("abc", purchases(3));
+        assertEquals(purchases(3).toPurchasesInInputOrder(), cache.get("abc").toPurchasesInInputOrder());
+        assertNull(cache.get("missing"));
+
+        Files.write(tempDir.resolve("abc.purchases"), new byte[]{1, 2, 3});
+        assertNull(cache.get("abc"));
+        assertEquals(1, cache.getHits());
+        assertEquals(2, cache.getMisses());
+        assertThrows(IllegalArgumentException.class, () -> new PurchaseCache(tempDir, 0));
+    }
+
+    @Test
+    void leastRecentlyUsedEntriesAreEvicted() throws IOException {
+        PurchaseCache measure = new PurchaseCache(tempDir.resolve("measure"), PurchaseCache.DEFAULT_MAX_BYTES);
+        measure.put("one", purchases(50));
+        long entryBytes = Files.size(tempDir.resolve("measure/one.purchases"));
+
+        // Room for two entries
+        Path directory = tempDir.resolve("cache");
+        PurchaseCache cache = new PurchaseCache(directory, 2 * entryBytes + entryBytes / 2);
+        cache.put("a", purchases(50));
+        cache.put("b", purchases(50));
+        Files.setLastModifiedTime(directory.resolve("a.purchases"), FileTime.fromMillis(1_000));
+        Files.setLastModifiedTime(directory.resolve("b.purchases"), FileTime.fromMillis(2_000));
+
+        // Using a makes b the least recently used
+        assertNotNull(cache.get("a"));
+        cache.put("c", purchases(50));
+
+        assertTrue(Files.exists(directory.resolve("a.purchases")));
+        assertFalse(Files.exists(directory.resolve("b.purchases")));
+        assertTrue(Files.exists(directory.resolve("c.purchases")));
+    }
+}
@@ -0,0 +1,145 @@
+package com.sefa.parsers.itr;
+
+import com.sefa.models.FAA3;
+import com.sefa.models.Price;
+import com.sefa.models.Purchase;
+import com.sefa.utils.DateUtils;
+import com.sefa.utils.Logger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FAA3ParserTest {
+
+    @TempDir
+    Path tempDir;
+
+    @AfterEach
+    void resetParallelism() {
+        FAA3Parser.setParallelism(1);
+    }
+
+    private static List<Purchase> randomPurchases(int count) {
+        List<Purchase> purchases = new ArrayList<>();
+        Random random = new Random(42);
+        long start = DateUtils.parseYyyyMmDd("2016-01-04").getTimeInMillis();
+        for (int i = 0; i < count; i++) {
+            long time = start + random.nextInt(3400) * DateUtils.ONE_DAY_IN_MS;
+            purchases.add(new Purchase(DateUtils.parseYyyyMmDd(DateUtils.displayTime(time)),
+                new Price(100 + random.nextInt(400), "USD"), 1 + random.nextInt(20), "adbe"));
+        }
+        return purchases;
+    }
+
+    /**
+     * Run parse with the given parallelism, returning the lines it logged
+     */
+    private List<String> parse(int parallelism, List<Purchase> purchases, Path outputDir) throws Exception {
+        FAA3Parser.setParallelism(parallelism);
+        PrintStream stdout = System.out;
+        ByteArrayOutputStream logged = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(logged, true));
+        try {
+            FAA3Parser.parse("calendar", purchases, -1, outputDir.toString());
+        } finally {
+            System.setOut(stdout);
+        }
+        return List.of(logged.toString().split(System.lineSeparator()));
+    }
+
+    @Test
+    void parallelRunMatchesSequentialRun() throws Exception {
+        List<Purchase> purchases = randomPurchases(300);
+        // Load the shared price data first, so both runs log the same lines
+        parse(1, purchases, tempDir.resolve("warmup"));
+
+        List<String> sequentialLog = parse(1, purchases, tempDir.resolve("sequential"));
+        List<String> parallelLog = parse(4, purchases, tempDir.resolve("parallel"));
+
+        assertEquals(Files.readAllLines(tempDir.resolve("sequential/all_fa_entries.csv")),
+            Files.readAllLines(tempDir.resolve("parallel/all_fa_entries.csv")));
+
+        // Same log lines in the same order, only paths and cache statistics differ
+        assertEquals(sequentialLog.size(), parallelLog.size());
+        for (int i = 0; i < sequentialLog.size(); i++) {
+            String line = sequentialLog.get(i);
+            if (!line.contains(tempDir.toString()) && !line.contains("cache")) {
+                assertEquals(line, parallelLog.get(i));
+            }
+        }
+    }
+
+    @Test
+    void batchMatchesSingleYearRuns() throws Exception {
+        List<Purchase> purchases = randomPurchases(200);
+        Path batchDir = tempDir.resolve("batch");
+        FAA3Parser.parseBatch(List.of("calendar", "financial"), purchases, 2019, 2022, batchDir.toString());
+
+        for (String calendarMode : List.of("calendar", "financial")) {
+            for (int year = 2019; year <= 2022; year++) {
+                Path singleDir = tempDir.resolve(calendarMode + year);
+                FAA3Parser.parse(calendarMode, purchases, year, singleDir.toString());
+
+                List<String> batchRows = Files.readAllLines(
+                    batchDir.resolve(calendarMode).resolve(String.valueOf(year)).resolve("all_fa_entries.csv"));
+                assertEquals(Files.readAllLines(singleDir.resolve("all_fa_entries.csv")), batchRows);
+
+                // Only purchases made up to the end of the period are reported
+                long periodEnd = DateUtils.calendarRange(calendarMode, year)[1];
+                long held = purchases.stream().filter(p -> p.getDate().getTimeInMillis() <= periodEnd).count();
+                assertEquals(held + 1, batchRows.size());
+            }
+        }
+    }
+
+    @Test
+    void tickerEntriesKeepInputOrder() throws Exception {
+        List<Purchase> purchases = new ArrayList<>();
+        for (String date : List.of("2024-09-16", "2023-06-15", "2024-05-15", "2024-12-16")) {
+            purchases.add(new Purchase(DateUtils.parseYyyyMmDd(date), new Price(450.0, "USD"), 2, "adbe"));
+        }
+
+        List<FAA3> entries = FAA3Parser.parseOrgPurchases("adbe", "financial", purchases, 2025, tempDir.toString());
+
+        // The purchase before the period is summed into the first entry, the others follow in input order
+        assertEquals(4, entries.size());
+        assertEquals(List.of(purchases.get(0), purchases.get(2), purchases.get(3)),
+            List.of(entries.get(1).getPurchase(), entries.get(2).getPurchase(), entries.get(3).getPurchase()));
+        List<String> rows = Files.readAllLines(tempDir.resolve("adbe/fa_entries.csv"));
+        assertTrue(rows.get(2).contains("2024-09-16"));
+        assertTrue(rows.get(3).contains("2024-05-15"));
+        assertTrue(rows.get(4).contains("2024-12-16"));
+    }
+
+    @Test
+    void capturedLogsAreFlushedInOrder() {
+        PrintStream stdout = System.out;
+        ByteArrayOutputStream logged = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(logged, true));
+        try {
+            Logger.startCapture();
+            Logger.log("outer %d", 1);
+            Logger.startCapture();
+            Logger.log("inner");
+            String inner = Logger.stopCapture();
+            Logger.log("outer %d", 2);
+            Logger.flush(inner);
+            Logger.flush(Logger.stopCapture());
+        } finally {
+            System.setOut(stdout);
+        }
+
+        String n = System.lineSeparator();
+        assertEquals("outer 1" + n + "outer 2" + n + "inner" + n, logged.toString());
+    }
+}
@@ -0,0 +1,218 @@
+package com.sefa.parsers.itr;
+
+import com.sefa.models.Price;
+import com.sefa.models.Purchase;
+import com.sefa.models.PurchaseTable;
+import com.sefa.utils.DateUtils;
+import com.sefa.utils.ShareDataUtils;
+import com.sefa.utils.SyntheticDataGenerator;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.ss.usermodel.WorkbookFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Incremental runs against generated historic data, compared with full runs
+ */
+class ScheduleStateTest {
+
+    @TempDir
+    Path tempDir;
+
+    private String userDir;
+    private Path input;
+    private Path output;
+    private final List<Purchase> purchases = new ArrayList<>();
+    private final AtomicInteger loads = new AtomicInteger();
+
+    private static Purchase purchase(String date, String ticker) {
+        return new Purchase(DateUtils.parseYyyyMmDd(date), new Price(100.0, "USD"), 3, ticker);
+    }
+
+    @BeforeEach
+    void useGeneratedData() throws IOException {
+        SyntheticDataGenerator.registerTickers(List.of("adbe", "synr"));
+        new SyntheticDataGenerator(List.of("adbe", "synr"), LocalDate.of(2023, 1, 1), LocalDate.of(2024, 12, 31), 5)
+            .writeHistoricData(tempDir);
+        userDir = System.getProperty("user.dir");
+        System.setProperty("user.dir", tempDir.toString());
+        dropLoadedPrices();
+
+        purchases.add(purchase("2023-03-15", "synr"));
+        purchases.add(purchase("2024-02-15", "synr"));
+        purchases.add(purchase("2023-05-15", "adbe"));
+        purchases.add(purchase("2024-08-15", "adbe"));
+        // Not held at the end of the period
+        purchases.add(purchase("2025-02-03", "adbe"));
+
+        input = tempDir.resolve("BenefitHistory.xlsx");
+        Files.writeString(input, "v1");
+        output = tempDir.resolve("output");
+    }
+
+    @AfterEach
+    void restoreUserDir() {
+        System.setProperty("user.dir", userDir);
+        dropLoadedPrices();
+        ShareDataUtils.setConversionRates(ShareDataUtils.ConversionRates.DAILY);
+    }
+
+    /**
+     * Setting the source again drops every loaded series, so the next run reads the changed CSVs
+     */
+    private static void dropLoadedPrices() {
+        ShareDataUtils.setPriceSource(ShareDataUtils.getPriceSource());
+    }
+
+    private int runIncremental() throws IOException {
+        return runIncremental(2025);
+    }
+
+    private int runIncremental(int assessmentYear) throws IOException {
+        return FAA3Parser.parseIncremental("calendar", input.toString(), () -> {
+            loads.incrementAndGet();
+            return PurchaseTable.of(purchases);
+        }, assessmentYear, output.toString());
+    }
+
+    /**
+     * Incremental output must be what a full run writes for the current data
+     */
+    private void assertMatchesFullRun() throws IOException {
+        Path full = tempDir.resolve("full");
+        FAA3Parser.parse("calendar", purchases, 2025, full.toString());
+        assertEquals(Files.readAllLines(full.resolve("all_fa_entries.csv")),
+            Files.readAllLines(output.resolve("all_fa_entries.csv")));
+    }
+
+    private Path synrData() {
+        return tempDir.resolve("historic_data/shares/synr/data.csv");
+    }
+
+    /**
+     * Set the close of the first synr day of a month, e.g. "2024-06-"
+     */
+    private void setSynrClose(String monthPrefix, String close) throws IOException {
+        List<String> lines = new ArrayList<>(Files.readAllLines(synrData()));
+        for (int i = 1; i < lines.size(); i++) {
+            if (lines.get(i).startsWith(monthPrefix)) {
+                String[] columns = lines.get(i).split(",");
+                columns[4] = close;
+                lines.set(i, String.join(",", columns));
+                break;
+            }
+        }
+        Files.write(synrData(), lines);
+        dropLoadedPrices();
+    }
+
+    @Test
+    void unchangedRunReusesEveryEntryWithoutParsing() throws IOException {
+        assertEquals(4, runIncremental());
+        assertEquals(1, loads.get());
+        assertTrue(Files.exists(output.resolve(ScheduleState.FILE_NAME)));
+        assertMatchesFullRun();
+
+        assertEquals(0, runIncremental());
+        assertEquals(1, loads.get());
+        assertMatchesFullRun();
+
+        // A new vest changes the input, only its entry is computed
+        purchases.add(purchase("2024-11-15", "synr"));
+        Files.writeString(input, "v2");
+        assertEquals(1, runIncremental());
+        assertEquals(2, loads.get());
+        assertMatchesFullRun();
+    }
+
+    @Test
+    void onlyEntriesWithChangedPriceWindowsAreRecomputed() throws IOException {
+        runIncremental();
+
+        // Peak of every synr purchase, the adbe entries do not depend on it
+        setSynrClose("2024-06-", "5000.0");
+        assertEquals(2, runIncremental());
+        assertMatchesFullRun();
+
+        // Prices after the end of the period are never looked up, the changed series only parses the input again
+        Files.writeString(synrData(), "2025-01-02,1,1,1,6000.0,6000.0,1000\n", StandardOpenOption.APPEND);
+        dropLoadedPrices();
+        assertEquals(0, runIncremental());
+        assertEquals(3, loads.get());
+    }
+
+    @Test
+    void priceChangesOutsideTheEntryWindowsParseTheInputAgain() throws IOException {
+        runIncremental();
+
+        // Before every peak window, but FMVs of RSU vests may be backfilled from such prices
+        setSynrClose("2023-04-", "5000.0");
+        assertEquals(0, runIncremental());
+        assertEquals(2, loads.get());
+        assertMatchesFullRun();
+
+        assertEquals(0, runIncremental());
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void changedRbiRatesRecomputeTheirEntries() throws IOException {
+        Path rates = tempDir.resolve("historic_data/rates/rbi/rates.xls");
+        Files.createDirectories(rates.getParent());
+        Files.copy(Path.of(userDir, "historic_data/rates/rbi/rates.xls"), rates);
+        ShareDataUtils.setConversionRates(ShareDataUtils.ConversionRates.RBI);
+        assertEquals(4, runIncremental());
+        assertEquals(0, runIncremental());
+
+        // Converts the purchase value of the 2024-02-15 vest only, the daily rates are unchanged
+        Workbook workbook;
+        try (InputStream in = Files.newInputStream(rates)) {
+            workbook = WorkbookFactory.create(in);
+        }
+        try (workbook; OutputStream out = Files.newOutputStream(rates)) {
+            Sheet sheet = workbook.getSheet("Reference Rates");
+            DataFormatter formatter = new DataFormatter();
+            for (Row row : sheet) {
+                if (formatter.formatCellValue(row.getCell(0)).endsWith("Jan 2024")
+                    && formatter.formatCellValue(row.getCell(2)).equals("INR / 1 USD")) {
+                    row.getCell(3).setCellValue(row.getCell(3).getNumericCellValue() + 1);
+                }
+            }
+            workbook.write(out);
+        }
+        ShareDataUtils.setConversionRates(ShareDataUtils.ConversionRates.RBI);
+        assertEquals(1, runIncremental());
+        assertEquals(1, loads.get());
+        assertMatchesFullRun();
+    }
+
+    @Test
+    void stateOfAnotherScheduleIsNotReused() throws IOException {
+        runIncremental();
+        // Two purchases held at the end of 2023
+        assertEquals(2, runIncremental(2024));
+        assertEquals(2, loads.get());
+        assertEquals(0, runIncremental(2024));
+
+        Files.writeString(output.resolve(ScheduleState.FILE_NAME), "{ not json");
+        assertEquals(4, runIncremental());
+    }
+}
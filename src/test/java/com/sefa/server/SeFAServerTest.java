@@ -0,0 +1,207 @@
+package com.sefa.server;
+
+import com.sefa.models.Price;
+import com.sefa.models.Purchase;
+import com.sefa.parsers.etrade.EtradeBenefitHistoryParser;
+import com.sefa.parsers.itr.FAA3Parser;
+import com.sefa.utils.DateUtils;
+import com.sefa.utils.PriceQueryCache;
+import com.sefa.utils.PriceSource;
+import com.sefa.utils.ShareDataUtils;
+import com.sefa.utils.SymbolTable;
+import com.sefa.utils.SyntheticDataGenerator;
+import com.sefa.utils.TickerMapping;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SeFAServerTest {
+
+    @TempDir
+    Path tempDir;
+
+    private SeFAServer server;
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    @BeforeEach
+    void startServer() throws IOException {
+        EtradeBenefitHistoryParser.setDebug(false);
+        server = new SeFAServer(new InetSocketAddress("127.0.0.1", 0), 4);
+        server.start();
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.stop(0);
+    }
+
+    private HttpResponse<String> post(String path, byte[] body, String contentType) throws Exception {
+        return client.send(HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + server.getPort() + path))
+                .header("Content-Type", contentType)
+                .POST(HttpRequest.BodyPublishers.ofByteArray(body))
+                .build(),
+            HttpResponse.BodyHandlers.ofString());
+    }
+
+    private HttpResponse<String> get(String path) throws Exception {
+        return client.send(HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + server.getPort() + path)).build(),
+            HttpResponse.BodyHandlers.ofString());
+    }
+
+    /**
+     * all_fa_entries.csv of a direct run, the expected CSV response
+     */
+    private static String expectedCsv(List<Purchase> purchases, Path outputDir) throws IOException {
+        FAA3Parser.parse("financial", purchases, 2024, outputDir.toString(), new PriceQueryCache());
+        return Files.readString(outputDir.resolve("all_fa_entries.csv"));
+    }
+
+    @Test
+    void workbookUploadReturnsSameCsvAsCli() throws Exception {
+        Path workbook = tempDir.resolve("BenefitHistory.xlsx");
+        new SyntheticDataGenerator(List.of("adbe"), LocalDate.of(2018, 1, 1), LocalDate.of(2024, 12, 31), 5)
+            .writeBenefitHistory(workbook, 200);
+
+        HttpResponse<String> response = post("/faa3?ay=2024&cal=financial&format=csv",
+            Files.readAllBytes(workbook), "application/octet-stream");
+
+        assertEquals(200, response.statusCode());
+        String expected = expectedCsv(EtradeBenefitHistoryParser.parse(workbook.toString()), tempDir.resolve("cli"));
+        assertEquals(expected, response.body());
+    }
+
+    @Test
+    void concurrentJsonRequestsMatchDirectComputation() throws Exception {
+        String json = "[{\"date\":{\"disp_time\":\"2023-06-30\"},\"purchase_fmv\":{\"price\":350.5,\"currency_code\":\"USD\"},"
+            + "\"quantity\":10,\"ticker\":\"ADBE\"},"
+            + "{\"date\":{\"disp_time\":\"2021-12-31\"},\"purchase_fmv\":{\"price\":560,\"currency_code\":\"USD\"},"
+            + "\"quantity\":4,\"ticker\":\"adbe\"}]";
+        List<Purchase> purchases = List.of(
+            new Purchase(DateUtils.parseYyyyMmDd("2023-06-30"), new Price(350.5, "USD"), 10, "adbe"),
+            new Purchase(DateUtils.parseYyyyMmDd("2021-12-31"), new Price(560, "USD"), 4, "adbe"));
+        String expected = expectedCsv(purchases, tempDir.resolve("direct"));
+
+        List<CompletableFuture<HttpResponse<String>>> responses = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            responses.add(client.sendAsync(
+                HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + server.getPort() + "/faa3?ay=2024&cal=financial&format=csv"))
+                    .POST(HttpRequest.BodyPublishers.ofString(json))
+                    .build(),
+                HttpResponse.BodyHandlers.ofString()));
+        }
+        for (CompletableFuture<HttpResponse<String>> response : responses) {
+            assertEquals(200, response.get().statusCode());
+            assertEquals(expected, response.get().body());
+        }
+
+        HttpResponse<String> jsonResponse = post("/faa3?ay=2024&cal=financial", json.getBytes(), "application/json");
+        assertEquals(200, jsonResponse.statusCode());
+        assertTrue(jsonResponse.body().contains("\"peak_price\""));
+    }
+
+    @Test
+    void badRequestsAreRejected() throws Exception {
+        assertEquals(400, post("/faa3", "not a workbook".getBytes(), "application/octet-stream").statusCode());
+        assertEquals(400, post("/faa3", "[{\"quantity\":1}]".getBytes(), "application/json").statusCode());
+        assertEquals(400, post("/faa3?cal=weekly", "[]".getBytes(), "application/json").statusCode());
+        assertEquals(405, get("/faa3").statusCode());
+    }
+
+    @Test
+    void corruptWorkbooksAreBadRequests() throws Exception {
+        Path workbook = tempDir.resolve("BenefitHistory.xlsx");
+        new SyntheticDataGenerator(List.of("adbe"), LocalDate.of(2018, 1, 1), LocalDate.of(2024, 12, 31), 5)
+            .writeBenefitHistory(workbook, 200);
+        byte[] complete = Files.readAllBytes(workbook);
+        List<byte[]> bodies = List.of(
+            Arrays.copyOf(complete, complete.length / 2),
+            "PK\u0003\u0004 not a zip archive".getBytes(StandardCharsets.ISO_8859_1));
+
+        PrintStream stdout = System.out;
+        ByteArrayOutputStream printed = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(printed, true, StandardCharsets.UTF_8));
+        try {
+            for (boolean streaming : new boolean[]{false, true}) {
+                EtradeBenefitHistoryParser.setStreaming(streaming);
+                for (byte[] body : bodies) {
+                    HttpResponse<String> response = post("/faa3", body, "application/octet-stream");
+                    assertEquals(400, response.statusCode(), "streaming = " + streaming);
+                    assertTrue(response.body().contains("not a readable BenefitHistory workbook"), response.body());
+                }
+            }
+        } finally {
+            System.setOut(stdout);
+            EtradeBenefitHistoryParser.setStreaming(false);
+        }
+        // A bad upload is not a server error, the request log is not printed
+        assertFalse(printed.toString(StandardCharsets.UTF_8).contains("Successfully opened"));
+    }
+
+    @Test
+    void unknownTickersAreRejectedWithoutAddingSymbols() throws Exception {
+        // Loads the default mappings first
+        assertTrue(TickerMapping.isTickerSupported("adbe"));
+        int symbols = SymbolTable.TICKERS.size();
+        for (int i = 0; i < 20; i++) {
+            String json = "[{\"date\":{\"disp_time\":\"2023-06-30\"},\"purchase_fmv\":{\"price\":350.5,\"currency_code\":\"USD\"},"
+                + "\"quantity\":10,\"ticker\":\"NOSUCH" + i + "\"}]";
+            HttpResponse<String> response = post("/faa3", json.getBytes(), "application/json");
+            assertEquals(400, response.statusCode());
+            assertTrue(response.body().contains("unsupported ticker NOSUCH" + i));
+        }
+        assertEquals(symbols, SymbolTable.TICKERS.size());
+    }
+
+    @Test
+    void serverErrorsPrintTheRequestLog() throws Exception {
+        PriceSource source = ShareDataUtils.getPriceSource();
+        PrintStream stdout = System.out;
+        ByteArrayOutputStream printed = new ByteArrayOutputStream();
+        ShareDataUtils.setPriceSource(symbol -> {
+            throw new IllegalStateException("price store offline");
+        });
+        System.setOut(new PrintStream(printed, true, StandardCharsets.UTF_8));
+        try {
+            String json = "[{\"date\":{\"disp_time\":\"2023-06-30\"},\"purchase_fmv\":{\"price\":350.5,\"currency_code\":\"USD\"},"
+                + "\"quantity\":10,\"ticker\":\"adbe\"}]";
+            assertEquals(500, post("/faa3?ay=2024", json.getBytes(), "application/json").statusCode());
+        } finally {
+            System.setOut(stdout);
+            ShareDataUtils.setPriceSource(source);
+        }
+        assertTrue(printed.toString(StandardCharsets.UTF_8).contains("Parsing FMV price map for ticker = adbe"));
+    }
+
+    @Test
+    void metricsExposeLatencyHistograms() throws Exception {
+        assertEquals(200, get("/health").statusCode());
+        post("/faa3", "[]".getBytes(), "application/json");
+        post("/faa3", "{".getBytes(), "application/json");
+
+        String metrics = get("/metrics").body();
+        assertTrue(metrics.contains("sefa_requests_total{endpoint=\"/faa3\",status=\"200\"} 1"));
+        assertTrue(metrics.contains("sefa_requests_total{endpoint=\"/faa3\",status=\"400\"} 1"));
+        assertTrue(metrics.contains("sefa_request_duration_seconds_bucket{endpoint=\"/faa3\",le=\"+Inf\"} 2"));
+        assertTrue(metrics.contains("sefa_request_duration_seconds_count{endpoint=\"/health\"} 1"));
+    }
+}
@@ -0,0 +1,145 @@
+package com.sefa.utils;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CachingPriceSourceTest {
+
+    private static final long DAY = DateUtils.ONE_DAY_IN_MS;
+
+    private static PriceSeries series(int entries, double value) {
+        PriceSeries.Builder builder = new PriceSeries.Builder(entries);
+        for (int i = 0; i < entries; i++) {
+            builder.add(i * DAY, value + i);
+        }
+        return builder.build();
+    }
+
+    /**
+     * In-memory source that counts the loads of every symbol
+     */
+    private static class CountingSource extends InMemoryPriceSource {
+        final Map<String, AtomicInteger> loads = new ConcurrentHashMap<>();
+
+        @Override
+        public PriceSeries load(String symbol) {
+            loads.computeIfAbsent(symbol, key -> new AtomicInteger()).incrementAndGet();
+            return super.load(symbol);
+        }
+
+        int loads(String symbol) {
+            AtomicInteger count = loads.get(symbol);
+            return count == null ? 0 : count.get();
+        }
+    }
+
+    @AfterEach
+    void restoreDefaultSource() {
+        ShareDataUtils.setPriceSource(new SnapshotPriceSource(new CsvPriceSource()),
+            ShareDataUtils.DEFAULT_MAX_CACHED_ENTRIES);
+    }
+
+    @Test
+    void leastRecentlyUsedSeriesAreEvictedToStayWithinBound() {
+        CountingSource source = new CountingSource();
+        source.put("a", series(40, 1)).put("b", series(40, 2)).put("c", series(40, 3));
+        List<String> evicted = new ArrayList<>();
+        CachingPriceSource cache = new CachingPriceSource(source, 100, evicted::add);
+
+        cache.load("a");
+        cache.load("b");
+        cache.load("a");
+        assertSame(source.load("c"), cache.load("c"));
+
+        // b was used least recently
+        assertEquals(List.of("b"), evicted);
+        assertEquals(80, cache.getCachedEntries());
+        assertEquals(Map.of("a", source.load("a"), "c", source.load("c")), cache.cached());
+
+        cache.load("b");
+        assertEquals(2, source.loads("b"));
+        assertEquals(List.of("b", "a"), evicted);
+        assertEquals(1, cache.getHits());
+        assertEquals(4, cache.getMisses());
+        assertEquals(2, cache.getEvictions());
+    }
+
+    @Test
+    void seriesLargerThanBoundIsStillServed() {
+        InMemoryPriceSource source = new InMemoryPriceSource().put("big", series(500, 1)).put("small", series(10, 1));
+        CachingPriceSource cache = new CachingPriceSource(source, 100);
+
+        cache.load("small");
+        assertEquals(500, cache.load("big").size());
+        assertEquals(1, cache.size());
+        assertEquals(500, cache.getCachedEntries());
+
+        cache.put("big", series(50, 2));
+        assertEquals(50, cache.getCachedEntries());
+        assertEquals(2.0, cache.load("big").valueAt(0));
+        assertThrows(IllegalArgumentException.class, () -> cache.load("missing"));
+        assertThrows(IllegalArgumentException.class, () -> new CachingPriceSource(source, 0));
+    }
+
+    @Test
+    void concurrentFirstAccessLoadsOnce() throws Exception {
+        CountingSource source = new CountingSource();
+        source.put("a", series(1000, 1));
+        CachingPriceSource cache = new CachingPriceSource(source, 10_000);
+
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<PriceSeries>> results = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return cache.load("a");
+                }));
+            }
+            start.countDown();
+            for (Future<PriceSeries> result : results) {
+                assertSame(results.get(0).get(), result.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, source.loads("a"));
+        assertEquals(threads - 1, cache.getHits());
+    }
+
+    @Test
+    void shareDataUtilsReadsConfiguredSource() {
+        SyntheticDataGenerator.registerTickers(List.of("mem"));
+        long day = DateUtils.parseYyyyMmDd("2024-01-02").getTimeInMillis();
+        PriceSeries.Builder rates = new PriceSeries.Builder().add(day, 80.0);
+        PriceSeries.Builder prices = new PriceSeries.Builder().add(day, 10.0).add(day + DAY, 12.0).add(day + 2 * DAY, 11.0);
+        ShareDataUtils.setPriceSource(new InMemoryPriceSource()
+            .put(PriceSource.USD_INR, rates.build())
+            .put("mem", prices.build()), 2);
+
+        assertEquals(10.0, ShareDataUtils.getFmv("mem", day));
+        assertEquals(11.0, ShareDataUtils.getClosingPrice("mem", day + 5 * DAY));
+        assertEquals(12.0 * 80.0, ShareDataUtils.getPeakPriceInInr("mem", day, day + 5 * DAY));
+        // Three entries do not fit the bound of two, the series is still served but the only one kept
+        assertEquals(1, ShareDataUtils.getPriceCache().size());
+
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+            () -> ShareDataUtils.getFmv("mem", day + 10 * DAY));
+        assertTrue(e.getMessage().contains("in-memory prices"));
+        assertThrows(IllegalArgumentException.class, () -> ShareDataUtils.getFmv("adbe", day));
+    }
+}
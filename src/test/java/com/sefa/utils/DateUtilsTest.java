@@ -0,0 +1,113 @@
+package com.sefa.utils;
+
+import com.sefa.models.DateObj;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DateUtilsTest {
+
+    private static long reference(String text, String pattern) {
+        return LocalDate.parse(text, DateTimeFormatter.ofPattern(pattern, Locale.US))
+            .atStartOfDay().toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    private static List<LocalDate> sampleDates() {
+        List<LocalDate> dates = new ArrayList<>();
+        Random random = new Random(7);
+        for (int i = 0; i < 2000; i++) {
+            dates.add(LocalDate.ofEpochDay(random.nextInt(60_000) - 20_000));
+        }
+        dates.add(LocalDate.of(2000, 2, 29));
+        dates.add(LocalDate.of(1900, 2, 28));
+        dates.add(LocalDate.of(1970, 1, 1));
+        dates.add(LocalDate.of(9999, 12, 31));
+        dates.add(LocalDate.of(1, 1, 1));
+        return dates;
+    }
+
+    @Test
+    void fixedWidthFormatsMatchJavaTime() {
+        for (LocalDate date : sampleDates()) {
+            String mmDd = date.format(DateTimeFormatter.ofPattern("MM/dd/yyyy"));
+            String ddMm = date.format(DateTimeFormatter.ofPattern("dd-MM-yyyy"));
+            String yyyyMmDd = date.format(DateTimeFormatter.ofPattern("yyyy-MM-dd"));
+
+            assertEquals(reference(mmDd, "MM/dd/yyyy"), DateUtils.parseMmDd(mmDd).getTimeInMillis(), mmDd);
+            assertEquals(reference(mmDd, "MM/dd/yyyy"), DateUtils.parseDateFromAdobeFormat(mmDd), mmDd);
+            assertEquals(reference(ddMm, "dd-MM-yyyy"), DateUtils.parseDateFromUsdInrFormat(ddMm), ddMm);
+            assertEquals(reference(yyyyMmDd, "yyyy-MM-dd"), DateUtils.parseYyyyMmDd(yyyyMmDd).getTimeInMillis(), yyyyMmDd);
+        }
+    }
+
+    @Test
+    void edgeCasesFallBackToFormatters() {
+        // Smart resolver clamps the day of month to the end of February
+        assertEquals(reference("02/30/2023", "MM/dd/yyyy"), DateUtils.parseDateFromAdobeFormat("02/30/2023"));
+        assertEquals("2023-02-28", DateUtils.parseMmDd("02/30/2023").getDispTime());
+        // Year 0 does not exist as a year of era
+        assertThrows(DateTimeParseException.class, () -> DateUtils.parseDateFromAdobeFormat("01/02/0000"));
+
+        assertThrows(DateTimeParseException.class, () -> DateUtils.parseMmDd("13/01/2023"));
+        assertThrows(DateTimeParseException.class, () -> DateUtils.parseMmDd("1/2/2023"));
+        assertThrows(DateTimeParseException.class, () -> DateUtils.parseDateFromUsdInrFormat("2023-01-02"));
+        assertThrows(DateTimeParseException.class, () -> DateUtils.parseYyyyMmDd("2023/01/02"));
+    }
+
+    @Test
+    void parsesNamedMonthFormats() {
+        DateObj date = DateUtils.parseNamedMon(" 30-JUN-2020 ");
+        assertEquals("2020-06-30", date.getDispTime());
+        assertEquals(" 30-JUN-2020 ", date.getOrigDispTime());
+        assertEquals(reference("30-Jun-2020", "dd-MMM-yyyy"), date.getTimeInMillis());
+
+        assertEquals("2021-01-05", DateUtils.parseNamedMon("5-JAN-2021").getDispTime());
+        assertEquals("2020-06-30", DateUtils.parseNamedMon("30-Jun-2020").getDispTime());
+        assertEquals("2020-06-03", DateUtils.parseNamedMon("3-Jun-20").getDispTime());
+        assertEquals("2020-06-30", DateUtils.parseNamedMon("Jun 30, 2020").getDispTime());
+        assertEquals("2020-06-30", DateUtils.parseNamedMon("30/06/2020").getDispTime());
+        assertEquals("2020-06-30", DateUtils.parseNamedMon("2020-06-30").getDispTime());
+
+        for (LocalDate sample : sampleDates()) {
+            if (sample.getYear() < 1000) {
+                continue;
+            }
+            String text = sample.format(DateTimeFormatter.ofPattern("dd-MMM-yyyy", Locale.US)).toUpperCase();
+            assertEquals(reference(sample.format(DateTimeFormatter.ofPattern("dd-MMM-yyyy", Locale.US)), "dd-MMM-yyyy"),
+                DateUtils.parseNamedMon(text).getTimeInMillis(), text);
+        }
+    }
+
+    @Test
+    void rejectsInvalidNamedMonthDates() {
+        IllegalArgumentException invalidDay = assertThrows(IllegalArgumentException.class,
+            () -> DateUtils.parseNamedMon("31-FEB-2020"));
+        assertTrue(invalidDay.getMessage().startsWith("Failed to parse Excel date format: 31-FEB-2020 - "));
+
+        IllegalArgumentException unknownMonth = assertThrows(IllegalArgumentException.class,
+            () -> DateUtils.parseNamedMon("30-XYZ-2020"));
+        assertEquals("Failed to parse Excel date format: 30-XYZ-2020 - Unknown month abbreviation: XYZ",
+            unknownMonth.getMessage());
+
+        assertThrows(IllegalArgumentException.class, () -> DateUtils.parseNamedMon("not a date"));
+        assertThrows(IllegalArgumentException.class, () -> DateUtils.parseNamedMon("  "));
+        assertThrows(IllegalArgumentException.class, () -> DateUtils.parseNamedMon(null));
+    }
+
+    @Test
+    void repeatedDatesAreStable() {
+        for (int i = 0; i < 3; i++) {
+            assertEquals(reference("08/08/2025", "MM/dd/yyyy"), DateUtils.parseDateFromAdobeFormat("08/08/2025"));
+            assertEquals("2025-08-08", DateUtils.parseNamedMon("08-AUG-2025").getDispTime());
+        }
+    }
+}
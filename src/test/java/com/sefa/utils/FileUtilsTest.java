@@ -0,0 +1,93 @@
+package com.sefa.utils;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FileUtilsTest {
+
+    private static final String[] HEADERS = {"Sr. No.", "Name"};
+
+    @TempDir
+    Path tempDir;
+
+    @AfterEach
+    void restoreIndentedJson() {
+        FileUtils.setCompactJson(false);
+    }
+
+    private static List<Map<String, Object>> elements() {
+        List<Map<String, Object>> elements = new ArrayList<>();
+        for (int i = 1; i <= 3; i++) {
+            elements.add(Map.of("id", i, "name", "entry " + i));
+        }
+        return elements;
+    }
+
+    private String streamJson(String fileName) throws IOException {
+        try (FileUtils.JsonArraySink sink = FileUtils.openJsonArray(tempDir.toString(), fileName, false)) {
+            for (Map<String, Object> element : elements()) {
+                sink.write(element);
+            }
+            assertEquals(3, sink.getElements());
+            sink.commit(false);
+        }
+        return Files.readString(tempDir.resolve(fileName));
+    }
+
+    @Test
+    void streamedJsonArrayMatchesWholeListOutput() throws IOException {
+        FileUtils.writeToFile(tempDir.toString(), "list.json", elements(), false);
+        assertEquals(Files.readString(tempDir.resolve("list.json")), streamJson("streamed.json"));
+
+        FileUtils.setCompactJson(true);
+        FileUtils.writeToFile(tempDir.toString(), "compact-list.json", elements(), false);
+        String compact = streamJson("compact-streamed.json");
+        assertEquals(Files.readString(tempDir.resolve("compact-list.json")), compact);
+        assertFalse(compact.contains("\n"));
+    }
+
+    @Test
+    void streamedCsvMatchesWholeListOutput() throws IOException {
+        List<String[]> rows = List.of(new String[]{"1", "Adobe, Inc."}, new String[]{"2", "Microsoft"});
+        FileUtils.writeCsvToFile(tempDir.toString(), "list.csv", HEADERS, rows, false, false);
+
+        try (FileUtils.CsvSink sink = FileUtils.openCsv(tempDir.toString(), "streamed.csv", HEADERS, false)) {
+            rows.forEach(sink::writeRow);
+            assertEquals(3, sink.getRows());
+            sink.commit(false);
+        }
+        assertEquals(Files.readString(tempDir.resolve("list.csv")), Files.readString(tempDir.resolve("streamed.csv")));
+    }
+
+    @Test
+    void uncommittedOutputLeavesPreviousFile() throws IOException {
+        FileUtils.writeCsvToFile(tempDir.toString(), "out.csv", HEADERS, List.<String[]>of(new String[]{"1", "old"}), true, false);
+        String previous = Files.readString(tempDir.resolve("out.csv"));
+
+        assertThrows(IllegalStateException.class, () -> {
+            try (FileUtils.CsvSink sink = FileUtils.openCsv(tempDir.toString(), "out.csv", HEADERS, true)) {
+                sink.writeRow(new String[]{"1", "new"});
+                throw new IllegalStateException("failed mid-write");
+            }
+        });
+
+        assertEquals(previous, Files.readString(tempDir.resolve("out.csv")));
+        try (Stream<Path> files = Files.list(tempDir)) {
+            assertEquals(List.of(tempDir.resolve("out.csv")), files.collect(Collectors.toList()));
+        }
+        assertThrows(IllegalArgumentException.class,
+            () -> FileUtils.openCsv(tempDir.toString(), "out.csv", HEADERS, false));
+    }
+}
@@ -0,0 +1,80 @@
+package com.sefa.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PeakPriceIndexTest {
+
+    private static final long DAY = DateUtils.ONE_DAY_IN_MS;
+
+    @Test
+    void peakMatchesLinearScanForRandomWindows() {
+        Random random = new Random(7);
+        PriceSeries.Builder builder = new PriceSeries.Builder();
+        for (int day = 0; day < 500; day++) {
+            if (random.nextInt(7) < 5) {
+                builder.add(day * DAY, 50 + random.nextInt(100));
+            }
+        }
+        PriceSeries prices = builder.build();
+        PeakPriceIndex index = PeakPriceIndex.build(prices, time -> 70 + (time / DAY) % 13);
+
+        for (int i = 0; i < 2000; i++) {
+            long start = random.nextInt(520) * DAY;
+            long end = start + random.nextInt(200) * DAY;
+
+            int expected = -1;
+            for (int j = 0; j < prices.size(); j++) {
+                long time = prices.timeAt(j);
+                if (time >= start && time <= end
+                        && (expected < 0 || index.inrPriceAt(j) > index.inrPriceAt(expected))) {
+                    expected = j;
+                }
+            }
+
+            assertEquals(expected, index.peakIndex(start, end), "window " + start + " - " + end);
+        }
+    }
+
+    @Test
+    void peakCarriesDateAndRateOfWinningEntry() {
+        PriceSeries prices = new PriceSeries.Builder()
+            .add(1 * DAY, 10.0)
+            .add(2 * DAY, 12.0)
+            .add(3 * DAY, 11.0)
+            .build();
+        PeakPriceIndex index = PeakPriceIndex.build(prices, time -> time == 3 * DAY ? 2.0 : 1.0);
+
+        int peak = index.peakIndex(DAY, 3 * DAY);
+
+        assertEquals(3 * DAY, index.timeAt(peak));
+        assertEquals(11.0, index.fmvAt(peak));
+        assertEquals(2.0, index.inrRateAt(peak));
+        assertEquals(22.0, index.inrPriceAt(peak));
+    }
+
+    @Test
+    void tiesResolveToEarliestEntry() {
+        PriceSeries prices = new PriceSeries.Builder()
+            .add(1 * DAY, 10.0)
+            .add(2 * DAY, 10.0)
+            .add(3 * DAY, 10.0)
+            .build();
+        PeakPriceIndex index = PeakPriceIndex.build(prices, time -> 1.0);
+
+        assertEquals(0, index.peakIndex(0, 3 * DAY));
+        assertEquals(1, index.peakIndex(2 * DAY, 3 * DAY));
+    }
+
+    @Test
+    void emptyWindowHasNoPeak() {
+        PriceSeries prices = new PriceSeries.Builder().add(5 * DAY, 10.0).build();
+        PeakPriceIndex index = PeakPriceIndex.build(prices, time -> 1.0);
+
+        assertEquals(-1, index.peakIndex(DAY, 4 * DAY));
+        assertEquals(-1, PeakPriceIndex.build(new PriceSeries.Builder().build(), time -> 1.0).peakIndex(0, DAY));
+    }
+}
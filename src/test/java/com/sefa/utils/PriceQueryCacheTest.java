@@ -0,0 +1,43 @@
+package com.sefa.utils;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PriceQueryCacheTest {
+
+    private static long day(String yyyyMmDd) {
+        return DateUtils.parseYyyyMmDd(yyyyMmDd).getTimeInMillis();
+    }
+
+    @Test
+    void repeatedQueriesAreServedFromCache() {
+        PriceQueryCache cache = new PriceQueryCache();
+        long start = day("2024-04-01");
+        long end = day("2025-03-31");
+
+        double peak = cache.getPeakPriceInInr("adbe", start, end);
+        for (int i = 0; i < 10; i++) {
+            assertEquals(peak, cache.getPeakPriceInInr("adbe", start, end));
+        }
+
+        assertEquals(1, cache.getMisses());
+        assertEquals(10, cache.getHits());
+        assertEquals(ShareDataUtils.getPeakPriceInInr("adbe", start, end), peak);
+    }
+
+    @Test
+    void queryTypesAndWindowsAreKeyedSeparately() {
+        PriceQueryCache cache = new PriceQueryCache();
+        long end = day("2025-03-31");
+
+        cache.getClosingPrice("adbe", end);
+        cache.getUsdInrRate(end);
+        cache.getPeakPriceInInr("adbe", end, end);
+        cache.getPeakPriceInInr("adbe", day("2025-03-03"), end);
+
+        assertEquals(4, cache.getMisses());
+        assertEquals(0, cache.getHits());
+        assertEquals(4, cache.size());
+    }
+}
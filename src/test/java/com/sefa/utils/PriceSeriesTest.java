@@ -0,0 +1,60 @@
+package com.sefa.utils;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PriceSeriesTest {
+
+    private static final long DAY = DateUtils.ONE_DAY_IN_MS;
+
+    private static PriceSeries series(long... days) {
+        PriceSeries.Builder builder = new PriceSeries.Builder();
+        for (long day : days) {
+            builder.add(day * DAY, day * 10.0);
+        }
+        return builder.build();
+    }
+
+    @Test
+    void buildSortsDescendingAndUnorderedInput() {
+        PriceSeries descending = series(5, 4, 2, 1);
+        PriceSeries unordered = series(4, 1, 5, 2);
+
+        for (PriceSeries s : new PriceSeries[]{descending, unordered}) {
+            assertEquals(4, s.size());
+            assertEquals(1 * DAY, s.timeAt(0));
+            assertEquals(5 * DAY, s.timeAt(3));
+            assertEquals(50.0, s.valueAt(3));
+        }
+    }
+
+    @Test
+    void ceilingIndexFindsExactOrNextEntry() {
+        PriceSeries s = series(1, 2, 4, 5);
+
+        assertEquals(0, s.ceilingIndex(0));
+        assertEquals(1, s.ceilingIndex(2 * DAY));
+        assertEquals(2, s.ceilingIndex(3 * DAY));
+        assertEquals(-1, s.ceilingIndex(5 * DAY + 1));
+    }
+
+    @Test
+    void floorIndexFindsExactOrPreviousEntry() {
+        PriceSeries s = series(1, 2, 4, 5);
+
+        assertEquals(-1, s.floorIndex(DAY - 1));
+        assertEquals(1, s.floorIndex(2 * DAY));
+        assertEquals(1, s.floorIndex(3 * DAY + 5));
+        assertEquals(3, s.floorIndex(100 * DAY));
+    }
+
+    @Test
+    void emptySeriesHasNoIndexes() {
+        PriceSeries s = new PriceSeries.Builder().build();
+
+        assertTrue(s.isEmpty());
+        assertEquals(-1, s.ceilingIndex(0));
+        assertEquals(-1, s.floorIndex(0));
+    }
+}
@@ -0,0 +1,119 @@
+package com.sefa.utils;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PriceSnapshotTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final AtomicInteger csvParses = new AtomicInteger();
+
+    @AfterEach
+    void enableSnapshots() {
+        PriceSnapshot.setEnabled(true);
+    }
+
+    /**
+     * Minimal "yyyy-MM-dd,close" parser that counts how often it runs
+     */
+    private final Function<Path, PriceSeries> parser = path -> {
+        csvParses.incrementAndGet();
+        try {
+            PriceSeries.Builder builder = new PriceSeries.Builder();
+            for (String line : Files.readAllLines(path)) {
+                String[] columns = line.split(",");
+                builder.add(DateUtils.parseYyyyMmDd(columns[0]).getTimeInMillis(), Double.parseDouble(columns[1]));
+            }
+            return builder.build();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    };
+
+    private Path writeCsv(String content) throws IOException {
+        return Files.writeString(tempDir.resolve("prices.csv"), content);
+    }
+
+    private static void assertSameSeries(PriceSeries expected, PriceSeries actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.timeAt(i), actual.timeAt(i));
+            assertEquals(expected.valueAt(i), actual.valueAt(i));
+        }
+    }
+
+    @Test
+    void secondLoadUsesSnapshot() throws IOException {
+        Path csv = writeCsv("2024-01-03,3.5\n2024-01-01,1.25\n2024-01-02,2.0\n");
+
+        PriceSeries parsed = PriceSnapshot.load(csv, parser);
+        assertTrue(Files.exists(PriceSnapshot.snapshotPath(csv)));
+
+        PriceSeries loaded = PriceSnapshot.load(csv, parser);
+        assertEquals(1, csvParses.get());
+        assertSameSeries(parsed, loaded);
+        assertEquals(DateUtils.parseYyyyMmDd("2024-01-01").getTimeInMillis(), loaded.timeAt(0));
+        assertEquals(3.5, loaded.valueAt(2));
+    }
+
+    @Test
+    void rebuildsWhenCsvChanges() throws IOException {
+        Path csv = writeCsv("2024-01-01,1.0\n2024-01-02,2.0\n");
+        PriceSnapshot.load(csv, parser);
+
+        // Same size, same mtime, different content
+        FileTime modified = Files.getLastModifiedTime(csv);
+        writeCsv("2024-01-01,1.0\n2024-01-02,9.0\n");
+        Files.setLastModifiedTime(csv, modified);
+        assertEquals(9.0, PriceSnapshot.load(csv, parser).valueAt(1));
+        assertEquals(2, csvParses.get());
+
+        // Same content, touched
+        Files.setLastModifiedTime(csv, FileTime.fromMillis(modified.toMillis() + 60_000));
+        PriceSnapshot.load(csv, parser);
+        assertEquals(3, csvParses.get());
+
+        PriceSnapshot.load(csv, parser);
+        assertEquals(3, csvParses.get());
+    }
+
+    @Test
+    void ignoresCorruptSnapshots() throws IOException {
+        Path csv = writeCsv("2024-01-01,1.0\n");
+        PriceSeries parsed = PriceSnapshot.load(csv, parser);
+
+        Path snapshot = PriceSnapshot.snapshotPath(csv);
+        byte[] bytes = Files.readAllBytes(snapshot);
+        Files.write(snapshot, Arrays.copyOf(bytes, bytes.length - 3));
+
+        assertSameSeries(parsed, PriceSnapshot.load(csv, parser));
+        assertEquals(2, csvParses.get());
+        assertSameSeries(parsed, PriceSnapshot.load(csv, parser));
+        assertEquals(2, csvParses.get());
+    }
+
+    @Test
+    void disabledSnapshotsAlwaysParseCsv() throws IOException {
+        PriceSnapshot.setEnabled(false);
+        Path csv = writeCsv("2024-01-01,1.0\n");
+
+        PriceSnapshot.load(csv, parser);
+        PriceSnapshot.load(csv, parser);
+
+        assertEquals(2, csvParses.get());
+        assertFalse(Files.exists(PriceSnapshot.snapshotPath(csv)));
+    }
+}
@@ -0,0 +1,161 @@
+package com.sefa.utils;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Hammers the shared price caches from many threads at once
+ */
+class ShareDataUtilsConcurrencyTest {
+
+    private static final int THREADS = 16;
+    private static final long FIRST_DAY = DateUtils.parseYyyyMmDd("2020-01-01").getTimeInMillis();
+    private static final int DAYS = 5 * 365;
+
+    private ExecutorService workers;
+
+    @BeforeEach
+    void startWorkers() {
+        workers = Executors.newFixedThreadPool(THREADS);
+    }
+
+    @AfterEach
+    void stopWorkers() throws InterruptedException {
+        workers.shutdownNow();
+        assertTrue(workers.awaitTermination(10, TimeUnit.SECONDS));
+    }
+
+    /**
+     * Run the task on every thread, released together by a barrier, and collect the results
+     */
+    private <T> List<T> runConcurrently(Callable<T> task) throws Exception {
+        CyclicBarrier start = new CyclicBarrier(THREADS);
+        List<Future<T>> futures = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            futures.add(workers.submit(() -> {
+                start.await(10, TimeUnit.SECONDS);
+                return task.call();
+            }));
+        }
+
+        List<T> results = new ArrayList<>();
+        for (Future<T> future : futures) {
+            results.add(future.get(60, TimeUnit.SECONDS));
+        }
+        return results;
+    }
+
+    private static long randomDay(Random random) {
+        return FIRST_DAY + random.nextInt(DAYS) * DateUtils.ONE_DAY_IN_MS;
+    }
+
+    @Test
+    void concurrentFirstAccessLoadsEachSeriesOnce() throws Exception {
+        for (int round = 0; round < 5; round++) {
+            ShareDataUtils.clearCaches();
+
+            List<PriceSeries> priceMaps = runConcurrently(() -> ShareDataUtils.initMap("adbe"));
+            List<PriceSeries> usdInrMaps = runConcurrently(ShareDataUtils::initUsdInrMap);
+
+            for (int i = 1; i < THREADS; i++) {
+                assertSame(priceMaps.get(0), priceMaps.get(i));
+                assertSame(usdInrMaps.get(0), usdInrMaps.get(i));
+            }
+            assertFalse(priceMaps.get(0).isEmpty());
+        }
+    }
+
+    @Test
+    void concurrentLookupsMatchSequentialLookups() throws Exception {
+        Random random = new Random(11);
+        int queries = 400;
+        long[] times = new long[queries];
+        long[] windowEnds = new long[queries];
+        double[] expectedFmv = new double[queries];
+        double[] expectedClose = new double[queries];
+        double[] expectedRate = new double[queries];
+        double[] expectedPeak = new double[queries];
+
+        for (int i = 0; i < queries; i++) {
+            times[i] = randomDay(random);
+            windowEnds[i] = times[i] + (7 + random.nextInt(365)) * DateUtils.ONE_DAY_IN_MS;
+            expectedFmv[i] = ShareDataUtils.getFmv("adbe", times[i]);
+            expectedClose[i] = ShareDataUtils.getClosingPrice("adbe", times[i]);
+            expectedRate[i] = ShareDataUtils.getUsdInrRate(times[i]);
+            expectedPeak[i] = ShareDataUtils.getPeakPrice("adbe", times[i], windowEnds[i]).getFmv();
+        }
+
+        ShareDataUtils.clearCaches();
+        List<Integer> mismatches = runConcurrently(() -> {
+            int mismatchCount = 0;
+            Random order = new Random(Thread.currentThread().getId());
+            for (int n = 0; n < queries; n++) {
+                int i = order.nextInt(queries);
+                mismatchCount += ShareDataUtils.getFmv("adbe", times[i]) == expectedFmv[i] ? 0 : 1;
+                mismatchCount += ShareDataUtils.getClosingPrice("adbe", times[i]) == expectedClose[i] ? 0 : 1;
+                mismatchCount += ShareDataUtils.getUsdInrRate(times[i]) == expectedRate[i] ? 0 : 1;
+                mismatchCount += ShareDataUtils.getPeakPrice("adbe", times[i], windowEnds[i]).getFmv() == expectedPeak[i] ? 0 : 1;
+            }
+            return mismatchCount;
+        });
+
+        assertEquals(0, mismatches.stream().mapToInt(Integer::intValue).sum());
+    }
+
+    @Test
+    void sharedQueryCacheComputesEachQueryOnce() throws Exception {
+        PriceQueryCache cache = new PriceQueryCache();
+        int distinctQueries = 50;
+        int lookupsPerThread = 500;
+
+        List<Set<Double>> seen = runConcurrently(() -> {
+            Set<Double> values = ConcurrentHashMap.newKeySet();
+            for (int n = 0; n < lookupsPerThread; n++) {
+                long time = FIRST_DAY + (n % distinctQueries) * 7 * DateUtils.ONE_DAY_IN_MS;
+                values.add(cache.getClosingPrice("adbe", time));
+                cache.getUsdInrRate(time);
+            }
+            return values;
+        });
+
+        assertEquals(2 * distinctQueries, cache.getMisses());
+        assertEquals(2L * THREADS * lookupsPerThread, cache.getHits() + cache.getMisses());
+        assertEquals(2 * distinctQueries, cache.size());
+        for (Set<Double> values : seen) {
+            assertEquals(seen.get(0), values);
+        }
+    }
+
+    @Test
+    void concurrentDateParsingIsConsistent() throws Exception {
+        List<Long> checksums = runConcurrently(() -> {
+            long checksum = 0;
+            for (int day = 1; day <= 28; day++) {
+                for (int month = 1; month <= 12; month++) {
+                    String text = String.format("%02d/%02d/2024", month, day);
+                    checksum = checksum * 31 + DateUtils.parseDateFromAdobeFormat(text);
+                }
+            }
+            return checksum;
+        });
+
+        for (Long checksum : checksums) {
+            assertEquals(checksums.get(0), checksum);
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package com.sefa.utils;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Reloads of changed price CSVs, on generated historic data
+ */
+class ShareDataUtilsReloadTest {
+
+    private static final long NEW_DAY = DateUtils.parseYyyyMmDd("2025-01-02").getTimeInMillis();
+
+    @TempDir
+    Path tempDir;
+
+    private String userDir;
+    private Path historicData;
+
+    @BeforeEach
+    void useGeneratedData() throws IOException {
+        SyntheticDataGenerator.registerTickers(List.of("adbe", "synr"));
+        new SyntheticDataGenerator(List.of("adbe", "synr"), LocalDate.of(2023, 1, 1), LocalDate.of(2024, 12, 31), 3)
+            .writeHistoricData(tempDir);
+        historicData = tempDir.resolve("historic_data");
+        userDir = System.getProperty("user.dir");
+        System.setProperty("user.dir", tempDir.toString());
+        ShareDataUtils.clearCaches();
+    }
+
+    @AfterEach
+    void restoreUserDir() {
+        System.setProperty("user.dir", userDir);
+        ShareDataUtils.clearCaches();
+        PriceSnapshot.setEnabled(true);
+    }
+
+    /**
+     * Series of a ticker parsed from scratch out of its CSV
+     */
+    private static PriceSeries parsedFromScratch(String ticker) {
+        PriceSnapshot.setEnabled(false);
+        ShareDataUtils.clearCaches();
+        try {
+            return ShareDataUtils.initMap(ticker);
+        } finally {
+            PriceSnapshot.setEnabled(true);
+        }
+    }
+
+    private static void assertSameSeries(PriceSeries expected, PriceSeries actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.timeAt(i), actual.timeAt(i));
+            assertEquals(expected.valueAt(i), actual.valueAt(i));
+        }
+    }
+
+    /**
+     * Insert lines right after the header, where newest-first exports put new rows
+     */
+    private static void insertAfterHeader(Path csv, String... lines) throws IOException {
+        List<String> content = new ArrayList<>(Files.readAllLines(csv));
+        content.addAll(1, List.of(lines));
+        Files.write(csv, content);
+    }
+
+    @Test
+    void rowsAddedToNewestFirstExportAreMerged() throws IOException {
+        ShareDataUtils.enableReload();
+        Path adobe = historicData.resolve("adobe_price_history.csv");
+        int rowsBefore = ShareDataUtils.initMap("adbe").size();
+        assertThrows(IllegalArgumentException.class, () -> ShareDataUtils.getFmv("adbe", NEW_DAY));
+
+        insertAfterHeader(adobe, "01/03/2025,$901.50,1000,$1,$1,$1", "01/02/2025,$900.25,1000,$1,$1,$1");
+        assertEquals(2, ShareDataUtils.reload(adobe));
+
+        PriceSeries reloaded = ShareDataUtils.initMap("adbe");
+        assertEquals(rowsBefore + 2, reloaded.size());
+        assertEquals(900.25, ShareDataUtils.getFmv("adbe", NEW_DAY));
+        assertEquals(901.50, ShareDataUtils.getClosingPrice("adbe", NEW_DAY + 30 * DateUtils.ONE_DAY_IN_MS));
+        assertSameSeries(parsedFromScratch("adbe"), reloaded);
+
+        // The reload also refreshed the binary snapshot
+        ShareDataUtils.clearCaches();
+        assertSameSeries(reloaded, ShareDataUtils.initMap("adbe"));
+    }
+
+    @Test
+    void changedAndAppendedRowsOnlyParseTheTail() throws IOException {
+        PriceSeries original = ShareDataUtils.initMap("synr");
+        ShareDataUtils.enableReload();
+        Path data = historicData.resolve("shares/synr/data.csv");
+
+        List<String> lines = new ArrayList<>(Files.readAllLines(data));
+        int changedLine = lines.size() - 3;
+        String[] columns = lines.get(changedLine).split(",");
+        columns[4] = "777.0";
+        lines.set(changedLine, String.join(",", columns));
+        lines.add("2025-01-02,1,1,1,800.0,800.0,1000");
+        lines.add("2025-01-03,1,1,1,801.0,801.0,1000");
+        Files.write(data, lines);
+
+        // Old region: the changed row and the two after it, new region: those three and the two new rows
+        assertEquals(8, ShareDataUtils.reload(data));
+        PriceSeries reloaded = ShareDataUtils.initMap("synr");
+        assertEquals(original.size() + 2, reloaded.size());
+        assertEquals(777.0, reloaded.valueAt(changedLine - 1));
+        assertSameSeries(parsedFromScratch("synr"), reloaded);
+    }
+
+    @Test
+    void headerChangeParsesWholeFile() throws IOException {
+        ShareDataUtils.enableReload();
+        Path data = historicData.resolve("shares/synr/data.csv");
+        int rows = ShareDataUtils.initMap("synr").size();
+
+        List<String> lines = new ArrayList<>(Files.readAllLines(data));
+        lines.set(0, lines.get(0).toUpperCase());
+        Files.write(data, lines);
+
+        assertEquals(rows, ShareDataUtils.reload(data));
+        assertEquals(0, ShareDataUtils.reload(data));
+        assertEquals(-1, ShareDataUtils.reload(historicData.resolve("shares/other/data.csv")));
+    }
+
+    @Test
+    void watcherReloadsPricesAndInvalidatesQueries() throws Exception {
+        PriceQueryCache cache = new PriceQueryCache();
+        long lastDay = DateUtils.parseYyyyMmDd("2024-12-31").getTimeInMillis();
+        double peakBefore = cache.getPeakPriceInInr("adbe", lastDay - 10 * DateUtils.ONE_DAY_IN_MS, NEW_DAY);
+        double rateBefore = cache.getUsdInrRate(NEW_DAY);
+
+        PriceDataWatcher watcher = PriceDataWatcher.start(historicData);
+        try {
+            long version = ShareDataUtils.getDataVersion();
+            insertAfterHeader(historicData.resolve("adobe_price_history.csv"), "01/02/2025,$100000.00,1000,$1,$1,$1");
+            insertAfterHeader(historicData.resolve("usd_inr_price_history.csv"),
+                "\"02-01-2025\",\"99.000\",\"99.000\",\"99.000\",\"99.000\",\"\",\"0.00%\"");
+
+            long deadline = System.currentTimeMillis() + 20_000;
+            while (cache.getUsdInrRate(NEW_DAY) != 99.0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(50);
+            }
+            assertTrue(ShareDataUtils.getDataVersion() > version);
+        } finally {
+            watcher.close();
+        }
+
+        assertNotEquals(99.0, rateBefore);
+        assertEquals(99.0, cache.getUsdInrRate(NEW_DAY));
+        double peakAfter = cache.getPeakPriceInInr("adbe", lastDay - 10 * DateUtils.ONE_DAY_IN_MS, NEW_DAY);
+        assertTrue(peakAfter > peakBefore);
+        assertEquals(100000.0 * 99.0, peakAfter, 1e-6);
+    }
+
+    @Test
+    void watcherWatchesTickerFoldersCreatedLater() throws Exception {
+        PriceDataWatcher watcher = PriceDataWatcher.start(historicData);
+        try {
+            Path data = historicData.resolve("shares/synn/data.csv");
+            Files.createDirectories(data.getParent());
+            Files.copy(historicData.resolve("shares/synr/data.csv"), data);
+            int rows = ShareDataUtils.initMap("synn").size();
+
+            Files.writeString(data, "2025-01-02,1,1,1,800.0,800.0,1000\n", StandardOpenOption.APPEND);
+            long deadline = System.currentTimeMillis() + 20_000;
+            while (ShareDataUtils.initMap("synn").size() == rows && System.currentTimeMillis() < deadline) {
+                Thread.sleep(50);
+            }
+        } finally {
+            watcher.close();
+        }
+
+        assertEquals(800.0, ShareDataUtils.getClosingPrice("synn", NEW_DAY));
+    }
+
+    @Test
+    void changedRegionCoversWholeLines() {
+        byte[] before = "h\na,1\nb,2\nc,3\n".getBytes();
+        assertArrayEquals(new int[]{6, 10, 10}, ShareDataUtils.changedRegion(before, "h\na,1\nb,9\nc,3\n".getBytes()));
+        assertArrayEquals(new int[]{14, 14, 18}, ShareDataUtils.changedRegion(before, "h\na,1\nb,2\nc,3\nd,4\n".getBytes()));
+        assertArrayEquals(new int[]{2, 2, 6}, ShareDataUtils.changedRegion(before, "h\na,0\na,1\nb,2\nc,3\n".getBytes()));
+        assertNull(ShareDataUtils.changedRegion(before, "H\na,1\nb,2\nc,3\n".getBytes()));
+    }
+}
@@ -0,0 +1,70 @@
+package com.sefa.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Lookups against the checked-in historic_data CSV files
+ */
+class ShareDataUtilsTest {
+
+    private static long day(String yyyyMmDd) {
+        return DateUtils.parseYyyyMmDd(yyyyMmDd).getTimeInMillis();
+    }
+
+    @Test
+    void fmvUsesExactDateWhenAvailable() {
+        // 08/08/2025 close in adobe_price_history.csv
+        assertEquals(341.05, ShareDataUtils.getFmv("adbe", day("2025-08-08")), 1e-9);
+    }
+
+    @Test
+    void fmvFallsForwardToNextTradingDay() {
+        // Saturday 2025-08-02 resolves to Monday 2025-08-04
+        assertEquals(ShareDataUtils.getFmv("adbe", day("2025-08-04")),
+            ShareDataUtils.getFmv("adbe", day("2025-08-02")), 1e-9);
+    }
+
+    @Test
+    void closingPriceUsesLastEntryAtOrBeforeEnd() {
+        assertEquals(ShareDataUtils.getClosingPrice("adbe", day("2025-08-01")),
+            ShareDataUtils.getClosingPrice("adbe", day("2025-08-03")), 1e-9);
+    }
+
+    @Test
+    void usdInrRateCarriesLastRateForward() {
+        // 09/10-08-2025 is a weekend, the rate of 08-08-2025 is carried forward
+        assertEquals(87.489, ShareDataUtils.getUsdInrRate(day("2025-08-09")), 1e-9);
+        assertEquals(87.622, ShareDataUtils.getUsdInrRate(day("2030-01-01")), 1e-9);
+    }
+
+    @Test
+    void batchFmvMatchesSingleLookups() {
+        Random random = new Random(3);
+        long[] times = new long[500];
+        for (int i = 0; i < times.length; i++) {
+            times[i] = day("2015-08-01") + random.nextInt(3650) * DateUtils.ONE_DAY_IN_MS;
+        }
+        times[0] = times[1];
+        // After the whole history
+        times[2] = day("2030-01-01");
+
+        double[] fmvs = ShareDataUtils.getFmvs("adbe", times);
+        assertTrue(Double.isNaN(fmvs[2]));
+        for (int i = 0; i < times.length; i++) {
+            if (i != 2) {
+                assertEquals(ShareDataUtils.getFmv("adbe", times[i]), fmvs[i], "time " + times[i]);
+            }
+        }
+        assertEquals(0, ShareDataUtils.getFmvs("adbe", new long[0]).length);
+    }
+
+    @Test
+    void closingPriceBeforeHistoryFails() {
+        assertThrows(IllegalArgumentException.class,
+            () -> ShareDataUtils.getClosingPrice("adbe", day("1970-01-02")));
+    }
+}
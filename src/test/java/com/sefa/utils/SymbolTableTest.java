@@ -0,0 +1,91 @@
+package com.sefa.utils;
+
+import com.sefa.models.Organization;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SymbolTableTest {
+
+    @Test
+    void spellingsShareTheirCanonicalInstance() {
+        int id = SymbolTable.TICKERS.id("symtest");
+        assertEquals(id, SymbolTable.TICKERS.id(new String("symtest")));
+        assertSame(SymbolTable.TICKERS.name(id), SymbolTable.TICKERS.intern(new String("symtest")));
+
+        int upperId = SymbolTable.TICKERS.id("SymTest");
+        assertNotEquals(id, upperId);
+        assertEquals("SymTest", SymbolTable.TICKERS.name(upperId));
+        assertEquals(id, SymbolTable.TICKERS.canonicalId("SymTest"));
+        assertSame(SymbolTable.TICKERS.name(id), SymbolTable.TICKERS.canonical("SYMTEST"));
+        assertTrue(id < SymbolTable.TICKERS.size());
+
+        assertEquals("EUR", SymbolTable.CURRENCIES.canonical("eur"));
+        assertEquals(-1, SymbolTable.TICKERS.id(null));
+        assertNull(SymbolTable.TICKERS.canonical(null));
+    }
+
+    @Test
+    void lookupsOfUnknownSymbolsAddNothing() {
+        int id = SymbolTable.TICKERS.id("symknown");
+        int size = SymbolTable.TICKERS.size();
+
+        assertEquals(-1, SymbolTable.TICKERS.knownCanonicalId("SymUnknown"));
+        assertEquals("symunknown", SymbolTable.TICKERS.normalize("SymUnknown"));
+        assertFalse(TickerMapping.isTickerSupported("SymUnknown"));
+        assertThrows(IllegalArgumentException.class, () -> TickerMapping.getTickerOrgInfo("SymUnknown"));
+        assertEquals(size, SymbolTable.TICKERS.size());
+
+        // A new spelling of a known symbol is added
+        assertEquals(id, SymbolTable.TICKERS.knownCanonicalId("SymKnown"));
+        assertEquals(size + 1, SymbolTable.TICKERS.size());
+        assertEquals(-1, SymbolTable.TICKERS.knownCanonicalId(null));
+    }
+
+    @Test
+    void tickerMappingsIgnoreCase() {
+        Organization org = new Organization("2 - United States", "Symbol Mapping Inc", "1 Main Street", "Listed", "95110");
+        TickerMapping.addTickerMapping("SYMMAP", org, "USD");
+
+        assertTrue(TickerMapping.isTickerSupported("symmap"));
+        assertSame(org, TickerMapping.getTickerOrgInfo("SymMap"));
+        assertSame(org, TickerMapping.getTickerOrgInfo(SymbolTable.TICKERS.id("symmap")));
+        assertEquals("USD", TickerMapping.getTickerCurrencyInfo("symmap"));
+        assertTrue(List.of(TickerMapping.getSupportedTickers()).contains("symmap"));
+
+        assertFalse(TickerMapping.isTickerSupported("symnone"));
+        assertThrows(IllegalArgumentException.class, () -> TickerMapping.getTickerCurrencyInfo("symnone"));
+    }
+
+    @Test
+    void concurrentFirstUseGetsOneId() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<int[]>> results = new ArrayList<>();
+            for (int thread = 0; thread < 8; thread++) {
+                results.add(executor.submit(() -> {
+                    int[] ids = new int[200];
+                    for (int i = 0; i < ids.length; i++) {
+                        ids[i] = SymbolTable.TICKERS.canonicalId("SYMRACE" + i);
+                    }
+                    return ids;
+                }));
+            }
+            int[] expected = results.get(0).get();
+            for (Future<int[]> result : results) {
+                assertArrayEquals(expected, result.get());
+            }
+            for (int i = 0; i < expected.length; i++) {
+                assertEquals("symrace" + i, SymbolTable.TICKERS.name(expected[i]));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
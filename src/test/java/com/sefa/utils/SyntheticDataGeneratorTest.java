@@ -0,0 +1,104 @@
+package com.sefa.utils;
+
+import com.sefa.models.Purchase;
+import com.sefa.parsers.etrade.EtradeBenefitHistoryParser;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SyntheticDataGeneratorTest {
+
+    private static final LocalDate FIRST_DAY = LocalDate.of(2016, 1, 1);
+    private static final LocalDate LAST_DAY = LocalDate.of(2024, 12, 31);
+
+    @TempDir
+    Path tempDir;
+
+    @BeforeEach
+    void quietRowErrors() {
+        EtradeBenefitHistoryParser.setDebug(false);
+    }
+
+    @Test
+    void parserReadsEveryGeneratedPurchase() throws IOException {
+        SyntheticDataGenerator generator = new SyntheticDataGenerator(List.of("adbe"), FIRST_DAY, LAST_DAY, 7);
+        Path workbook = tempDir.resolve("BenefitHistory.xlsx");
+        SyntheticDataGenerator.WorkbookStats stats = generator.writeBenefitHistory(workbook, 900);
+
+        assertTrue(stats.esppPurchases > 0);
+        assertTrue(stats.rsuVests > 0);
+        assertTrue(stats.backfilledVests > 0);
+
+        // Vests without a market value are backfilled from the repository's adbe history
+        List<Purchase> purchases = EtradeBenefitHistoryParser.parse(workbook.toString());
+        assertEquals(stats.expectedPurchases(), purchases.size());
+        for (Purchase purchase : purchases) {
+            assertEquals("adbe", purchase.getTicker());
+            assertTrue(purchase.getQuantity() > 0);
+            assertTrue(purchase.getPurchaseFmv().getPrice() > 0);
+        }
+    }
+
+    @Test
+    void workbookCoversEveryTicker() throws IOException {
+        List<String> tickers = List.of("adbe", "synb", "sync");
+        SyntheticDataGenerator.registerTickers(tickers);
+        SyntheticDataGenerator generator = new SyntheticDataGenerator(tickers, FIRST_DAY, LAST_DAY, 7);
+        Path workbook = tempDir.resolve("BenefitHistory.xlsx");
+        SyntheticDataGenerator.WorkbookStats stats = generator.writeBenefitHistory(workbook, 900);
+
+        List<Purchase> purchases = EtradeBenefitHistoryParser.parse(workbook.toString());
+        Set<String> parsedTickers = purchases.stream().map(Purchase::getTicker).collect(Collectors.toSet());
+        assertEquals(Set.copyOf(tickers), parsedTickers);
+        // Only adbe vests can be backfilled here, the other tickers have no history in the repository
+        assertTrue(purchases.size() >= stats.expectedPurchases() - stats.backfilledVests);
+        assertTrue(purchases.size() <= stats.expectedPurchases());
+    }
+
+    @Test
+    void writesPriceHistoryLayouts() throws IOException {
+        new SyntheticDataGenerator(List.of("adbe", "synb"), FIRST_DAY, LAST_DAY, 7).writeHistoricData(tempDir);
+
+        List<String> adobe = Files.readAllLines(tempDir.resolve("historic_data/adobe_price_history.csv"));
+        assertEquals("Date,Close/Last,Volume,Open,High,Low", adobe.get(0));
+        assertEquals(DateUtils.parseYyyyMmDd("2024-12-31").getTimeInMillis(),
+            DateUtils.parseDateFromAdobeFormat(adobe.get(1).split(",")[0]));
+        assertTrue(adobe.get(1).split(",")[1].startsWith("$"));
+
+        List<String> share = Files.readAllLines(tempDir.resolve("historic_data/shares/synb/data.csv"));
+        assertEquals("Date,Open,High,Low,Close,Adj Close,Volume", share.get(0));
+        assertEquals("2016-01-01", share.get(1).split(",")[0]);
+        assertTrue(Double.parseDouble(share.get(1).split(",")[4]) > 0);
+
+        List<String> usdInr = Files.readAllLines(tempDir.resolve("historic_data/usd_inr_price_history.csv"));
+        assertEquals(DateUtils.parseYyyyMmDd("2024-12-31").getTimeInMillis(),
+            DateUtils.parseDateFromUsdInrFormat(usdInr.get(1).split(",")[0].replace("\"", "")));
+
+        // One row per weekday
+        assertEquals(adobe.size(), share.size());
+        assertEquals(adobe.size(), usdInr.size());
+    }
+
+    @Test
+    void sameSeedGeneratesSameData() throws IOException {
+        Path first = tempDir.resolve("first");
+        Path second = tempDir.resolve("second");
+        new SyntheticDataGenerator(List.of("adbe"), FIRST_DAY, LAST_DAY, 11).writeHistoricData(first);
+        new SyntheticDataGenerator(List.of("adbe"), FIRST_DAY, LAST_DAY, 11).writeHistoricData(second);
+
+        for (String file : new String[]{"adobe_price_history.csv", "usd_inr_price_history.csv"}) {
+            assertEquals(Files.readAllLines(first.resolve("historic_data").resolve(file)),
+                Files.readAllLines(second.resolve("historic_data").resolve(file)));
+        }
+    }
+}
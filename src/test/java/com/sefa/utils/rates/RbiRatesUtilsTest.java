@@ -0,0 +1,74 @@
+package com.sefa.utils.rates;
+
+import com.sefa.models.FAA3;
+import com.sefa.models.Price;
+import com.sefa.models.Purchase;
+import com.sefa.parsers.itr.FAA3Parser;
+import com.sefa.utils.DateUtils;
+import com.sefa.utils.PriceQueryCache;
+import com.sefa.utils.ShareDataUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Lookups against the checked-in historic_data/rates/rbi/rates.xls
+ */
+class RbiRatesUtilsTest {
+
+    private static long day(String yyyyMmDd) {
+        return DateUtils.parseYyyyMmDd(yyyyMmDd).getTimeInMillis();
+    }
+
+    @AfterEach
+    void restoreDailyRates() {
+        ShareDataUtils.setConversionRates(ShareDataUtils.ConversionRates.DAILY);
+    }
+
+    @Test
+    void monthUsesRateOfItsLastDay() {
+        // 31 Dec 2024 and 31 Jan 2023 rows
+        assertEquals(85.6232, RbiRatesUtils.getRateAtMonth("USD", 12, 2024), 1e-9);
+        assertEquals(81.7387, RbiRatesUtils.getRateAtMonth("usd", 1, 2023), 1e-9);
+        // Quoted per 100 JPY
+        assertEquals(0.5482, RbiRatesUtils.getRateAtMonth("JPY", 12, 2024), 1e-9);
+    }
+
+    @Test
+    void timeUsesRateOfPreviousMonth() {
+        assertEquals(85.6232, RbiRatesUtils.getRateForPrevMonth("USD", day("2025-01-01")), 1e-9);
+        assertEquals(85.6232, RbiRatesUtils.getRateForPrevMonth("USD", day("2025-01-31")), 1e-9);
+        assertEquals(RbiRatesUtils.getRateAtMonth("USD", 2, 2024),
+            RbiRatesUtils.getRateForPrevMonth("USD", day("2024-03-15")), 1e-9);
+    }
+
+    @Test
+    void missingDataFails() {
+        IllegalArgumentException year = assertThrows(IllegalArgumentException.class,
+            () -> RbiRatesUtils.getRateAtMonth("USD", 6, 2021));
+        assertTrue(year.getMessage().endsWith("for year 2021"));
+        IllegalArgumentException month = assertThrows(IllegalArgumentException.class,
+            () -> RbiRatesUtils.getRateAtMonth("USD", 11, 2022));
+        assertTrue(month.getMessage().endsWith("for month 11/2022"));
+        assertThrows(IllegalArgumentException.class, () -> RbiRatesUtils.getRateAtMonth("CHF", 12, 2024));
+    }
+
+    @Test
+    void rbiRatesConvertPurchaseAndClosingPrices() {
+        List<Purchase> purchases = List.of(
+            new Purchase(DateUtils.parseYyyyMmDd("2024-03-15"), new Price(500.0, "USD"), 2, "adbe"));
+
+        ShareDataUtils.setConversionRates(ShareDataUtils.ConversionRates.RBI);
+        FAA3 entry = FAA3Parser.computeSchedule("calendar", purchases, 2025, new PriceQueryCache()).get(0);
+
+        assertEquals(2 * 500.0 * RbiRatesUtils.getRateAtMonth("USD", 2, 2024), entry.getPurchasePrice(), 1e-6);
+        assertEquals(2 * ShareDataUtils.getClosingPrice("adbe", day("2024-12-31")) * RbiRatesUtils.getRateAtMonth("USD", 11, 2024),
+            entry.getClosingPrice(), 1e-6);
+        // Peak prices keep the daily rates
+        long periodEnd = DateUtils.calendarRange("calendar", 2025)[1];
+        assertEquals(2 * ShareDataUtils.getPeakPriceInInr("adbe", day("2024-03-15"), periodEnd), entry.getPeakPrice(), 1e-6);
+    }
+}